@@ -0,0 +1,220 @@
+package com.home.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.home.common.DocumentPipeline;
+import com.home.extract.SkypeLogDocExtractor;
+import com.home.extract.SkypeLogGenerator;
+import com.home.index.BulkListener;
+import com.home.index.BulkSettings;
+import com.home.index.LogIndexer;
+import org.elasticsearch.Version;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.node.Node;
+import org.elasticsearch.node.NodeBuilder;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Measures the whole ingest path offline: generates a Skype log, starts an embedded local elastic search node in
+ * this JVM and indexes the log with {@link SkypeLogDocExtractor} and {@link LogIndexer}, as the index command does.
+ * Reports documents and megabytes per second, bulk latency percentiles and the peak heap, and writes them as JSON,
+ * so results of different releases can be compared.
+ *
+ * <pre>java -cp target/benchmarks.jar com.home.bench.IngestHarness --size-mb=64 --output=ingest.json</pre>
+ *
+ * Options: --size-mb=N (default 64), --malformed-ratio=R (default 0.01), --seed=S (default 42), --max-minutes=M
+ * (default 30), --workers=N and --bulk-mb=M as for the index command, --output=F (default ingest-results.json).
+ */
+public final class IngestHarness {
+
+    private static final String INDEX = "ingest";
+
+    private static final String TYPE = "skype";
+
+    private IngestHarness() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--"))
+                throw new IllegalArgumentException("Unknown argument " + arg);
+            int equals = arg.indexOf('=');
+            options.put(equals < 0 ? arg.substring(2) : arg.substring(2, equals),
+                    equals < 0 ? "" : arg.substring(equals + 1));
+        }
+        Map<String, Object> results = run(options);
+        Path output = Paths.get(options.getOrDefault("output", "ingest-results.json"));
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output.toFile(), results);
+        System.out.println(new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValueAsString(results));
+        System.out.println("Results written to " + output.toAbsolutePath());
+    }
+
+    /**
+     * Runs one ingest.
+     *
+     * @param options The options, see the class documentation.
+     * @return The settings and the measured results.
+     * @throws IOException if the log or the node data cannot be written.
+     */
+    static Map<String, Object> run(final Map<String, String> options) throws IOException {
+        int sizeMb = Integer.parseInt(options.getOrDefault("size-mb", "64"));
+        double malformedRatio = Double.parseDouble(options.getOrDefault("malformed-ratio", "0.01"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        long maxMinutes = Long.parseLong(options.getOrDefault("max-minutes", "30"));
+        int workers = Integer.parseInt(options.getOrDefault("workers",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+        Path work = Files.createTempDirectory("ingest-harness");
+        Path log = work.resolve("skype.log");
+        long lines = SkypeLogGenerator.builder().targetBytes(sizeMb * 1024L * 1024L).malformedRatio(malformedRatio)
+                .seed(seed).build().writeTo(log);
+        long logBytes = Files.size(log);
+
+        Node node = NodeBuilder.nodeBuilder().local(true).settings(Settings.settingsBuilder()
+                .put("path.home", work.resolve("es").toString())
+                .put("cluster.name", "ingest-harness")
+                .put("http.enabled", false)).node();
+        LatencyRecorder latencies = new LatencyRecorder();
+        long indexed;
+        long failed;
+        long nanos;
+        long peakHeap;
+        try {
+            Client client = node.client();
+            client.admin().cluster().prepareHealth().setWaitForYellowStatus().get();
+            LogIndexer.putMapping(client, INDEX, TYPE);
+
+            LogIndexer logIndexer = new LogIndexer(SkypeLogDocExtractor.getInstance(log.toString(), maxMinutes),
+                    INDEX, TYPE);
+            logIndexer.setClient(client);
+            logIndexer.setPipeline(new DocumentPipeline(workers, 1024));
+            logIndexer.setBulkSettings(bulkSettings(options));
+            logIndexer.setBulkListener(latencies);
+
+            System.gc();
+            resetPeakHeap();
+            long start = System.nanoTime();
+            indexed  = logIndexer.indexDocs();
+            nanos    = System.nanoTime() - start;
+            peakHeap = peakHeap();
+            failed   = logIndexer.getFailedCount();
+        } finally {
+            node.close();
+            deleteRecursively(work);
+        }
+
+        double seconds = nanos / 1e9;
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("sizeMb", sizeMb);
+        settings.put("malformedRatio", malformedRatio);
+        settings.put("seed", seed);
+        settings.put("maxMinutes", maxMinutes);
+        settings.put("workers", workers);
+        settings.put("bulkMb", options.get("bulk-mb"));
+
+        Map<String, Object> results = new LinkedHashMap<>();
+        results.put("timestamp", Instant.now().toString());
+        results.put("javaVersion", System.getProperty("java.version"));
+        results.put("elasticsearchVersion", Version.CURRENT.toString());
+        results.put("processors", Runtime.getRuntime().availableProcessors());
+        results.put("settings", settings);
+        results.put("logBytes", logBytes);
+        results.put("logLines", lines);
+        results.put("documents", indexed);
+        results.put("failedDocuments", failed);
+        results.put("seconds", seconds);
+        results.put("docsPerSecond", indexed / seconds);
+        results.put("mbPerSecond", logBytes / (1024.0 * 1024.0) / seconds);
+        results.put("bulkLatencyMillis", latencies.summary());
+        results.put("peakHeapBytes", peakHeap);
+        return results;
+    }
+
+    private static BulkSettings bulkSettings(final Map<String, String> options) {
+        BulkSettings.Builder builder = new BulkSettings.Builder();
+        if (options.containsKey("bulk-mb")) {
+            long bulkBytes = (long) (Double.parseDouble(options.get("bulk-mb")) * 1024 * 1024);
+            builder.initialBulkBytes(bulkBytes).minBulkBytes(Math.min(bulkBytes, 1024 * 1024))
+                    .maxBulkBytes(Math.max(bulkBytes, 64 * 1024 * 1024));
+        }
+        return builder.build();
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /** Sum of the peak usage of the heap pools, an upper bound of the peak heap usage. */
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static void deleteRecursively(final Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            Path[] all = paths.toArray(Path[]::new);
+            for (int i = all.length - 1; i >= 0; --i) {
+                Files.deleteIfExists(all[i]);
+            }
+        }
+    }
+
+    /** Collects the latency of every bulk request. */
+    static class LatencyRecorder implements BulkListener {
+        private long[] latencies = new long[1024];
+        private int count = 0;
+
+        @Override
+        public synchronized void afterBulk(int actions, long bytes, long latencyMillis, int failed) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, 2 * count);
+            }
+            latencies[count++] = latencyMillis;
+        }
+
+        /** Count, percentiles by the nearest rank method and maximum. */
+        synchronized Map<String, Object> summary() {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("count", count);
+            summary.put("p50", percentile(sorted, 50));
+            summary.put("p90", percentile(sorted, 90));
+            summary.put("p99", percentile(sorted, 99));
+            summary.put("max", count == 0 ? null : sorted[count - 1]);
+            return summary;
+        }
+
+        private static Long percentile(final long[] sorted, final int percent) {
+            if (sorted.length == 0) {
+                return null;
+            }
+            int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.home.common;
+
+import com.home.extract.SkypeLogGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds a conversation line by line with {@link LogDocument#addLine} and renders it with
+ * {@link LogDocument#toString()}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LogDocumentBenchmark {
+
+    @Param({ "10", "1000" })
+    public int lineCount;
+
+    private String[] lines;
+
+    private LogDocument document;
+
+    @Setup
+    public void setUp() {
+        List<String> generated = SkypeLogGenerator.builder().targetBytes(lineCount * 200L).build().lines();
+        lines = generated.subList(0, Math.min(lineCount, generated.size())).toArray(new String[0]);
+        document = addLines();
+    }
+
+    @Benchmark
+    public LogDocument addLines() {
+        LogDocument result = new LogDocument(1);
+        for (String line : lines) {
+            result.addLine(line);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public String renderToString() {
+        return document.toString();
+    }
+}
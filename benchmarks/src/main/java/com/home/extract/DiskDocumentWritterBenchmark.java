@@ -0,0 +1,99 @@
+package com.home.extract;
+
+import com.home.common.DocumentPipeline;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extracts a synthetic log and saves its conversations with {@link DiskDocumentWritter}. The documents counter
+ * reports the saved documents per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DiskDocumentWritterBenchmark {
+
+    @Param({ "4" })
+    public int sizeMb;
+
+    @Param({ "FILES", "STORE" })
+    public DiskDocumentWritter.Layout layout;
+
+    @Param({ "0", "2" })
+    public int writerThreads;
+
+    private Path log;
+
+    private Path output;
+
+    private int run;
+
+    /** Documents saved, reported per second by JMH. */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long documents;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            documents = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        log = Files.createTempFile("writer-benchmark", ".log");
+        SkypeLogGenerator.builder().targetBytes(sizeMb * 1024L * 1024L).build().writeTo(log);
+        output = Files.createTempDirectory("writer-benchmark");
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteOutput() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(output)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        deleteOutput();
+        Files.delete(output);
+        Files.delete(log);
+    }
+
+    @Benchmark
+    public long save(final Counters counters) throws IOException {
+        DiskDocumentWritter writter = new DiskDocumentWritter(SkypeLogDocExtractor.getInstance(log.toString(), 30));
+        writter.setLayout(layout);
+        writter.setPipeline(new DocumentPipeline(2, 1024));
+        if (writerThreads > 0) {
+            writter.setAsync(writerThreads, DiskDocumentWritter.DEFAULT_QUEUE_CAPACITY);
+        }
+        long saved = writter.saveDocuments(output.toString(), "run" + run++ + "_", Long.MAX_VALUE);
+        counters.documents += saved;
+        return saved;
+    }
+}
@@ -0,0 +1,97 @@
+package com.home.extract;
+
+import com.home.common.LogDocument;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges synthetic logs covering the same time span, like logs of several devices, of the same total size as the
+ * log of {@link SkypeLogDocExtractorBenchmark}. The lines counter reports the extracted lines per second, comparable
+ * with the single file extractor.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MergingLogDocExtractorBenchmark {
+
+    @Param({ "16" })
+    public int sizeMb;
+
+    @Param({ "1", "4", "16" })
+    public int files;
+
+    @Param({ "BUFFERED", "MAPPED" })
+    public SkypeLogDocExtractor.ReaderType readerType;
+
+    private final List<String> logs = new ArrayList<>();
+
+    /** Lines extracted, reported per second by JMH. */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long lines;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            lines = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        for (int i = 0; i < files; ++i) {
+            Path log = Files.createTempFile("merge-benchmark", ".log");
+            SkypeLogGenerator.builder()
+                    .targetBytes(sizeMb * 1024L * 1024L / files)
+                    .meanGapSeconds(60.0 * files)
+                    .seed(i)
+                    .build()
+                    .writeTo(log);
+            logs.add(log.toString());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        for (String log : logs) {
+            Files.deleteIfExists(Paths.get(log));
+        }
+        logs.clear();
+    }
+
+    @Benchmark
+    public long merge(final Counters counters) throws IOException {
+        MergingLogDocExtractor extractor = MergingLogDocExtractor.getInstance(logs, 30, "", readerType,
+                SkypeLogDocExtractor.getDefaultPatterns());
+        long documents = 0;
+        for (Iterator<LogDocument> iterator = extractor.stream().iterator(); iterator.hasNext(); ) {
+            counters.lines += iterator.next().getLineCount();
+            ++documents;
+        }
+        return documents;
+    }
+}
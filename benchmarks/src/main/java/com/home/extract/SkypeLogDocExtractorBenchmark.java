@@ -0,0 +1,88 @@
+package com.home.extract;
+
+import com.home.common.LogDocument;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extracts all conversations of a synthetic log file. The lines counter reports the extracted lines per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SkypeLogDocExtractorBenchmark {
+
+    @Param({ "16" })
+    public int sizeMb;
+
+    @Param({ "0.01" })
+    public double malformedRatio;
+
+    @Param({ "EXPONENTIAL" })
+    public SkypeLogGenerator.GapDistribution gapDistribution;
+
+    @Param({ "BUFFERED", "MAPPED" })
+    public SkypeLogDocExtractor.ReaderType readerType;
+
+    private Path log;
+
+    /** Lines extracted, reported per second by JMH. */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long lines;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            lines = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        log = Files.createTempFile("skype-benchmark", ".log");
+        SkypeLogGenerator.builder()
+                .targetBytes(sizeMb * 1024L * 1024L)
+                .malformedRatio(malformedRatio)
+                .gapDistribution(gapDistribution)
+                .build()
+                .writeTo(log);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(log);
+    }
+
+    @Benchmark
+    public long extract(final Counters counters) throws IOException {
+        SkypeLogDocExtractor extractor = SkypeLogDocExtractor.getInstance(log.toString(), 30, readerType);
+        long documents = 0;
+        for (Iterator<LogDocument> iterator = extractor.stream().iterator(); iterator.hasNext(); ) {
+            counters.lines += iterator.next().getLineCount();
+            ++documents;
+        }
+        return documents;
+    }
+}
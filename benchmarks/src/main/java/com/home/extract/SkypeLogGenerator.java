@@ -0,0 +1,213 @@
+package com.home.extract;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic Skype logs for benchmarks. The same settings and seed always produce the same log, so numbers
+ * measured before and after a change are comparable.
+ *
+ * <p>Lines look like "[dd.MM.yyyy HH:mm:ss] Speaker: words". The gap between two lines follows the configured
+ * distribution, a fraction of the gaps are breaks of several hours which start a new conversation. A fraction of
+ * the lines are malformed: continuation lines without a time stamp or lines with a corrupt time stamp.
+ */
+public final class SkypeLogGenerator {
+
+    /** Distribution of the gaps between two lines of a conversation. */
+    public enum GapDistribution {
+        /** Every gap is the mean gap. */
+        CONSTANT,
+        /** Exponentially distributed gaps, like independent messages. */
+        EXPONENTIAL,
+        /** Mostly quick replies with occasional pauses of ten times the mean gap. */
+        BURSTY
+    }
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss");
+
+    private static final LocalDateTime START = LocalDateTime.of(2015, 1, 1, 8, 0, 0);
+
+    private static final String[] SPEAKERS = { "Anna", "Bob", "Carol Smith", "Dave", "Eve", "live:frank.miller" };
+
+    private static final String[] WORDS = { "the", "build", "is", "green", "again", "did", "you", "see", "index",
+            "search", "query", "latency", "cluster", "node", "shard", "merge", "deploy", "tomorrow", "lunch", "ok",
+            "thanks", "https://example.com/ticket/1234", "error", "log", "file", "meeting", "at", "10", "please",
+            "review", "my", "change", "\u00fcn\u00efc\u00f6d\u00e9", "gr\u00f6\u00dfer", "na\u00efve", "caf\u00e9" };
+
+    private final long targetBytes;
+    private final double meanGapSeconds;
+    private final GapDistribution gapDistribution;
+    private final double conversationBreakRatio;
+    private final double malformedRatio;
+    private final long seed;
+
+    private SkypeLogGenerator(final Builder builder) {
+        this.targetBytes            = builder.targetBytes;
+        this.meanGapSeconds         = builder.meanGapSeconds;
+        this.gapDistribution        = builder.gapDistribution;
+        this.conversationBreakRatio = builder.conversationBreakRatio;
+        this.malformedRatio         = builder.malformedRatio;
+        this.seed                   = builder.seed;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Writes the log to a file in UTF-8.
+     *
+     * @param file The file, replaced if it exists.
+     * @return The number of lines written.
+     * @throws IOException if the file cannot be written.
+     */
+    public long writeTo(final Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            return generate(line -> writer.append(line).append('\n'));
+        }
+    }
+
+    /**
+     * Generates the log in memory.
+     *
+     * @return The lines of the log.
+     */
+    public List<String> lines() {
+        List<String> lines = new ArrayList<>();
+        try {
+            generate(line -> lines.add(line.toString()));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return lines;
+    }
+
+    private interface LineSink {
+        void accept(CharSequence line) throws IOException;
+    }
+
+    private long generate(final LineSink sink) throws IOException {
+        StringBuilder line = new StringBuilder();
+        Random random = new Random(seed);
+        LocalDateTime time = START;
+        long bytes = 0;
+        long count = 0;
+        while (bytes < targetBytes) {
+            line.setLength(0);
+            time = nextLine(random, time, line);
+            sink.accept(line);
+            bytes += line.length() + 1;
+            ++count;
+        }
+        return count;
+    }
+
+    /** Appends the next line and returns its time. */
+    private LocalDateTime nextLine(final Random random, final LocalDateTime previous, final StringBuilder line) {
+        LocalDateTime time = previous.plusSeconds(nextGapSeconds(random));
+        if (random.nextDouble() < malformedRatio) {
+            if (random.nextBoolean()) {
+                // continuation of the previous message
+                appendWords(random, line);
+                return previous;
+            }
+            line.append("[").append(time.format(FORMAT).replace('.', '/')).append(']');
+        } else {
+            line.append('[').append(time.format(FORMAT)).append(']');
+        }
+        line.append(' ').append(SPEAKERS[random.nextInt(SPEAKERS.length)]).append(": ");
+        appendWords(random, line);
+        return time;
+    }
+
+    private long nextGapSeconds(final Random random) {
+        if (random.nextDouble() < conversationBreakRatio) {
+            return 3600 + random.nextInt(12 * 3600);
+        }
+        switch (gapDistribution) {
+            case CONSTANT:
+                return Math.round(meanGapSeconds);
+            case BURSTY:
+                double mean = random.nextDouble() < 0.1 ? 10 * meanGapSeconds : meanGapSeconds / 10;
+                return Math.round(-mean * Math.log(1 - random.nextDouble()));
+            default:
+                return Math.round(-meanGapSeconds * Math.log(1 - random.nextDouble()));
+        }
+    }
+
+    private static void appendWords(final Random random, final StringBuilder line) {
+        int words = 1 + random.nextInt(20);
+        for (int i = 0; i < words; ++i) {
+            if (i > 0) {
+                line.append(' ');
+            }
+            line.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+    }
+
+    public static class Builder {
+        private long targetBytes = 16 * 1024 * 1024;
+        private double meanGapSeconds = 60;
+        private GapDistribution gapDistribution = GapDistribution.EXPONENTIAL;
+        private double conversationBreakRatio = 0.02;
+        private double malformedRatio = 0.01;
+        private long seed = 42;
+
+        /** Approximate size of the log, generation stops after the line exceeding it. */
+        public Builder targetBytes(final long targetBytes) {
+            if (targetBytes < 0)
+                throw new IllegalArgumentException("Size must be non-negative!");
+            this.targetBytes = targetBytes;
+            return this;
+        }
+
+        public Builder meanGapSeconds(final double meanGapSeconds) {
+            if (meanGapSeconds < 0)
+                throw new IllegalArgumentException("Mean gap must be non-negative!");
+            this.meanGapSeconds = meanGapSeconds;
+            return this;
+        }
+
+        public Builder gapDistribution(final GapDistribution gapDistribution) {
+            if (gapDistribution == null)
+                throw new NullPointerException("Null parameter provided!");
+            this.gapDistribution = gapDistribution;
+            return this;
+        }
+
+        /** Fraction of the gaps which are breaks of one to thirteen hours. */
+        public Builder conversationBreakRatio(final double conversationBreakRatio) {
+            this.conversationBreakRatio = checkRatio(conversationBreakRatio);
+            return this;
+        }
+
+        /** Fraction of malformed lines. */
+        public Builder malformedRatio(final double malformedRatio) {
+            this.malformedRatio = checkRatio(malformedRatio);
+            return this;
+        }
+
+        public Builder seed(final long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public SkypeLogGenerator build() {
+            return new SkypeLogGenerator(this);
+        }
+
+        private static double checkRatio(final double ratio) {
+            if (ratio < 0 || ratio > 1)
+                throw new IllegalArgumentException("Ratio must be between 0 and 1: " + ratio);
+            return ratio;
+        }
+    }
+}
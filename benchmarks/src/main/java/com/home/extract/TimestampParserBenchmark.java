@@ -0,0 +1,69 @@
+package com.home.extract;
+
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing the time stamp of a log line with joda.time, as done before, to the compiled
+ * {@link TimestampParser}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TimestampParserBenchmark {
+
+    private static final String PATTERN = "[dd.MM.yyyy HH:mm:ss]";
+
+    private final String[] lines = new String[64];
+
+    private DateTimeFormatter formatter;
+
+    private TimestampParser parser;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        formatter = DateTimeFormat.forPattern(PATTERN);
+        parser    = TimestampParser.forPattern(PATTERN);
+        for (int i = 0; i < lines.length; ++i) {
+            lines[i] = String.format("[%02d.%02d.2015 %02d:%02d:%02d] Anna: message number %d",
+                    1 + i % 28, 1 + i % 12, i % 24, i % 60, (7 * i) % 60, i);
+        }
+    }
+
+    private String nextLine() {
+        next = (next + 1) & (lines.length - 1);
+        return lines[next];
+    }
+
+    /** The previous implementation: substrings for the time stamp and the text, then DateTime.parse. */
+    @Benchmark
+    public long jodaDateTimeParse() {
+        String line = nextLine();
+        String dateTimeStr = line.substring(0, PATTERN.length());
+        String text = line.substring(PATTERN.length(), line.length());
+        return DateTime.parse(dateTimeStr, formatter).getMillis() + text.length();
+    }
+
+    @Benchmark
+    public long compiledParser() {
+        return parser.parseMillis(nextLine());
+    }
+}
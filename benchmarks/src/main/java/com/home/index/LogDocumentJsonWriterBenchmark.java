@@ -0,0 +1,73 @@
+package com.home.index;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.home.common.LogDocument;
+import com.home.extract.SkypeLogDocExtractor;
+import com.home.extract.SkypeLogGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Serializes extracted conversations to the JSON sent to elastic search by {@link LogIndexer}, compared to the
+ * generic Jackson data binding.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LogDocumentJsonWriterBenchmark {
+
+    private final LogDocumentJsonWriter jsonWriter = new LogDocumentJsonWriter();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private LogDocument[] documents;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path log = Files.createTempFile("json-benchmark", ".log");
+        try {
+            SkypeLogGenerator.builder().targetBytes(1024 * 1024).build().writeTo(log);
+            List<LogDocument> extracted = SkypeLogDocExtractor.getInstance(log.toString(), 30).stream()
+                    .collect(Collectors.toList());
+            documents = extracted.toArray(new LogDocument[extracted.size()]);
+        } finally {
+            Files.delete(log);
+        }
+    }
+
+    private LogDocument nextDocument() {
+        next = next + 1 == documents.length ? 0 : next + 1;
+        return documents[next];
+    }
+
+    @Benchmark
+    public byte[] logDocumentJsonWriter() throws IOException {
+        return jsonWriter.write(nextDocument());
+    }
+
+    @Benchmark
+    public byte[] objectMapper() throws IOException {
+        return objectMapper.writeValueAsBytes(nextDocument());
+    }
+}
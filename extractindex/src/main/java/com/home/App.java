@@ -1,23 +1,55 @@
 package com.home;
 
-import com.home.index.EsFactory;
+import com.home.cli.LogExtractorCli;
 import com.home.index.EsSettings;
-import org.elasticsearch.client.Client;
+import com.home.index.LazyClient;
+import com.home.service.JobService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @SpringBootApplication
 public class App {
 
-    @Bean
-    public Client esClient() {
-        return EsFactory.getClient(EsSettings.getLocalSettings());
+    /** Number of jobs run at the same time when serving. */
+    @Value("${jobs.threads:2}")
+    private int jobThreads;
+
+    /** Number of jobs waiting to run, further jobs are rejected. */
+    @Value("${jobs.queue-capacity:16}")
+    private int jobQueueCapacity;
+
+    /**
+     * The elastic search client is only connected when an index command needs it, so saving to disk works without
+     * a running cluster, and a serving application shares a single connected client between its jobs.
+     */
+    @Bean(destroyMethod = "close")
+    public LazyClient esClient() {
+        return new LazyClient(EsSettings.getLocalSettings());
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnWebApplication
+    public JobService jobService(LogExtractorCli cli) {
+        return new JobService(cli::execute, jobThreads, jobQueueCapacity);
     }
 
     public static void main(String[] args) {
         SpringApplication app = new SpringApplication(App.class);
-        app.setWebEnvironment(false);
+        boolean serve = args.length > 0 && args[0].equals(LogExtractorCli.SERVE_COMMAND);
+        app.setWebEnvironment(serve);
+        if (serve) {
+            // jobs name local files, so only accept them from this machine unless configured otherwise
+            Map<String, Object> defaults = new HashMap<>();
+            defaults.put("server.address", "127.0.0.1");
+            defaults.put("server.port", 8081);
+            app.setDefaultProperties(defaults);
+        }
         app.run(args);
     }
 }
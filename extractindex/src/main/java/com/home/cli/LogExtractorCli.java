@@ -1,56 +1,682 @@
 package com.home.cli;
 
+import com.home.common.DocumentPipeline;
+import com.home.common.IngestMetrics;
+import com.home.common.LogDocument;
+import com.home.extract.Checkpoint;
+import com.home.extract.CheckpointStore;
 import com.home.extract.DiskDocumentWritter;
+import com.home.extract.DocumentStoreReader;
+import com.home.extract.DuplicateIndex;
+import com.home.extract.FlushPolicy;
+import com.home.extract.JsonLinesLogDocExtractor;
+import com.home.extract.LogDocExtractor;
+import com.home.extract.LogDocExtractorBuilder;
+import com.home.extract.LogFiles;
+import com.home.extract.LogFormat;
 import com.home.extract.SkypeLogDocExtractor;
+import com.home.index.BulkSettings;
+import com.home.index.IndexGeneration;
+import com.home.index.IndexLifecycleManager;
+import com.home.index.LazyClient;
 import com.home.index.LogIndexer;
-import org.elasticsearch.client.Client;
+import com.home.index.RollupIndexer;
+import com.home.index.local.BooleanQuery;
+import com.home.index.local.LocalIndexReader;
+import com.home.index.local.LocalIndexWriter;
+import com.home.index.local.LocalLogIndexer;
+import com.home.index.local.LocalQuery;
+import com.home.index.local.PhraseQuery;
+import com.home.index.local.TermQuery;
+import com.home.rollup.Granularity;
+import com.home.rollup.RollupBuilder;
+import com.home.rollup.Rollups;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.ISODateTimeFormat;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Component
 public class LogExtractorCli implements CommandLineRunner {
 
-    private final Client client;
+    private static final Log logger = LogFactory.getLog(LogExtractorCli.class);
 
+    private static final long FOLLOW_TIMEOUT_MILLIS = 5000;
+
+    private static final String DEFAULT_PROGRESS_SECONDS = "10";
+
+    private static final String INDEX_NAME = "logindex";
+
+    private static final String TYPE_NAME = "skype";
+
+    /** First argument starting the application as a service running ingest jobs, see {@code JobController}. */
+    public static final String SERVE_COMMAND = "serve";
+
+    private final LazyClient client;
+
+    /**
+     * Processes the log file at position fileIndex of the resolved files, or all files when they are merged.
+     */
+    private interface FileJob {
+        /**
+         * @param processors Share of the cores for the file, the cores divided by the number of files processed
+         *                   concurrently. Defaults of per file thread pools are sized by it.
+         */
+        FileResult process(int fileIndex, List<Path> files, String docIdPrefix, int processors) throws IOException;
+    }
+
+    /** Services shared by the jobs of a run: the index of duplicates and the rollups counted per file. */
+    private static class RunState {
+        final DuplicateIndex duplicates;
+        final List<RollupBuilder> rollups;
+
+        RunState(DuplicateIndex duplicates, List<RollupBuilder> rollups) {
+            this.duplicates = duplicates;
+            this.rollups    = rollups;
+        }
+    }
+
+    /** Number of documents extracted from a file and number of bytes read. */
+    private static class FileResult {
+        static final FileResult EMPTY = new FileResult(0, 0);
+
+        final long documents;
+        final long bytes;
+
+        FileResult(long documents, long bytes) {
+            this.documents = documents;
+            this.bytes     = bytes;
+        }
+    }
+
+    /**
+     * @param client Elastic search client, only connected by the index commands.
+     */
     @Autowired
-    public LogExtractorCli(Client client) {
+    public LogExtractorCli(LazyClient client) {
         this.client = client;
     }
 
     @Override
     public void run(String... args) throws IOException {
-        if (args.length == 5 && args[0].equals("save")) {
-            SkypeLogDocExtractor skypeLogDocExtractor = SkypeLogDocExtractor.getInstance(args[1], Integer.parseInt(args[2]));
-            DiskDocumentWritter diskDocumentWritter = new DiskDocumentWritter(skypeLogDocExtractor);
-            diskDocumentWritter.saveDocuments(args[3], args[4], Integer.MAX_VALUE);
-        } else if (args.length == 3 && args[0].equals("index")) {
-            SkypeLogDocExtractor skypeLogDocExtractor = SkypeLogDocExtractor.getInstance(args[1], Integer.parseInt(args[2]));
-            LogIndexer logIndexer = new LogIndexer(skypeLogDocExtractor, "logindex", "skype");
-            logIndexer.setClient(client);
-            logIndexer.indexDocs();
+        if (args.length > 0 && args[0].equals(SERVE_COMMAND)) {
+            System.out.println("Serving ingest jobs at /jobs");
+            return;
+        }
+        try {
+            execute(args);
+        } catch (UsageException e) {
+            if (e.getMessage() != null) {
+                System.out.println(e.getMessage());
+            } else {
+                printUsage();
+            }
+        }
+    }
+
+    /**
+     * Runs a command. Threads of a service may run commands concurrently, they share the elastic search client.
+     *
+     * @param args Command, params and options as given on the command line.
+     * @return Summary of the processed log files, {@link RunSummary#EMPTY} for commands not processing log files.
+     * @throws UsageException if the params or options are wrong, without message if the command is unknown.
+     * @throws IOException if the files cannot be read or written.
+     */
+    public RunSummary execute(String... args) throws IOException {
+        List<String> params = new ArrayList<>();
+        Map<String, String> options = new HashMap<>();
+        parseArgs(args, params, options);
+        if (options.containsKey("dedup") && options.containsKey("checkpoint"))
+            throw new UsageException("--dedup cannot be used with --checkpoint");
+        boolean rollup = options.containsKey("rollup") || options.containsKey("rollup-index");
+        if (rollup && (options.containsKey("merge") || options.containsKey("checkpoint")))
+            throw new UsageException("--rollup and --rollup-index cannot be used with --merge or --checkpoint");
+        if ("true".equals(options.get("rollup")) || "true".equals(options.get("rollup-index")))
+            throw new UsageException("--rollup needs a file and --rollup-index an index name");
+        try (DuplicateIndex duplicates = createDuplicateIndex(options)) {
+            RunState state = new RunState(duplicates,
+                    rollup ? Collections.synchronizedList(new ArrayList<>()) : null);
+            RunSummary summary = execute(params, options, state);
+            if (duplicates != null)
+                System.out.println(duplicates);
+            if (state.rollups != null && !summary.paths.isEmpty())
+                writeRollups(state.rollups, options);
+            return summary;
+        }
+    }
+
+    private RunSummary execute(List<String> params, Map<String, String> options, RunState state)
+            throws IOException {
+        if (params.size() == 5 && params.get(0).equals("save")) {
+            int maxMinutes = Integer.parseInt(params.get(2));
+            DiskDocumentWritter.Layout layout =
+                    DiskDocumentWritter.Layout.valueOf(options.getOrDefault("output", "store").toUpperCase());
+            FlushPolicy flushPolicy = FlushPolicy.parse(options.getOrDefault("fsync", "none"));
+            return processFiles(params.get(1), options, false, (fileIndex, files, docIdPrefix, processors) -> {
+                try (LogDocExtractor logDocExtractor =
+                             extractorBuilder(files, maxMinutes, docIdPrefix, options, state).build()) {
+                    DiskDocumentWritter diskDocumentWritter = new DiskDocumentWritter(logDocExtractor);
+                    diskDocumentWritter.setPipeline(createPipeline(options, processors));
+                    diskDocumentWritter.setLayout(layout);
+                    diskDocumentWritter.setFlushPolicy(flushPolicy);
+                    if (options.containsKey("writer-threads")) {
+                        diskDocumentWritter.setAsync(Integer.parseInt(options.get("writer-threads")),
+                                DiskDocumentWritter.DEFAULT_QUEUE_CAPACITY);
+                    }
+                    String prefix = docIdPrefix.isEmpty() ? params.get(4) : params.get(4) + fileIndex + "_";
+                    long documents = diskDocumentWritter.saveDocuments(params.get(3), prefix, Integer.MAX_VALUE);
+                    return new FileResult(documents, totalSize(files));
+                }
+            });
+        } else if (params.size() == 3 && params.get(0).equals("index")) {
+            int maxMinutes = Integer.parseInt(params.get(2));
+            boolean follow = options.containsKey("follow");
+            if (follow && !options.containsKey("checkpoint"))
+                throw new UsageException("--follow requires --checkpoint");
+            boolean bulkLoad = options.containsKey("bulk-load") || options.containsKey("alias");
+            if (bulkLoad && follow)
+                throw new UsageException("--bulk-load and --alias cannot be used with --follow");
+            if (options.containsKey("alias") && options.containsKey("checkpoint"))
+                throw new UsageException(
+                        "--alias loads all documents into a fresh index and cannot be used with --checkpoint");
+            if (options.containsKey("merge") && options.containsKey("checkpoint"))
+                throw new UsageException("--merge cannot be used with --checkpoint");
+            CheckpointStore checkpoints = options.containsKey("checkpoint")
+                    ? new CheckpointStore(Paths.get(options.get("checkpoint"))) : null;
+            IndexLifecycleManager lifecycle =
+                    bulkLoad ? new IndexLifecycleManager(client.get(), INDEX_NAME, TYPE_NAME) : null;
+            String index = INDEX_NAME;
+            if (lifecycle != null) {
+                lifecycle.setAliasMode(options.containsKey("alias"));
+                index = lifecycle.prepare();
+            } else {
+                LogIndexer.putMapping(client.get(), index, TYPE_NAME);
+            }
+            String targetIndex = index;
+            FileJob job = (fileIndex, files, docIdPrefix, processors) -> {
+                if (checkpoints == null) {
+                    try (LogDocExtractor logDocExtractor =
+                                 extractorBuilder(files, maxMinutes, docIdPrefix, options, state).build()) {
+                        LogIndexer logIndexer = createIndexer(logDocExtractor, targetIndex, options, processors);
+                        long documents = logIndexer.indexDocs();
+                        if (logIndexer.hasFailed())
+                            throw new IOException("Documents could not be indexed, " + documents
+                                    + " documents indexed");
+                        return new FileResult(documents, totalSize(files));
+                    }
+                }
+                // ids of a single file are prefixed too, so runs over different files do not overwrite each other
+                Path file = files.get(0);
+                String prefix = docIdPrefix.isEmpty() ? file.getFileName() + ":" : docIdPrefix;
+                return indexIncrementally(file, extractorBuilder(files, maxMinutes, prefix, options, state),
+                        checkpoints, follow, options, processors);
+            };
+            if (follow) {
+                followFiles(params.get(1), options, job);
+                return RunSummary.EMPTY;
+            } else if (lifecycle == null) {
+                RunSummary summary = processFiles(params.get(1), options, false, job);
+                advanceGeneration(summary);
+                return summary;
+            } else {
+                RunSummary summary;
+                try {
+                    summary = processFiles(params.get(1), options, false, job);
+                } catch (IOException | RuntimeException e) {
+                    lifecycle.abort();
+                    throw e;
+                }
+                // an incomplete load must not replace the live index or look like a finished one
+                if (summary.getFailedFiles() > 0) {
+                    lifecycle.abort();
+                    throw new IOException(summary.getFailedFiles() + " files could not be indexed, bulk load into "
+                            + index + " aborted");
+                }
+                lifecycle.finish(options.containsKey("force-merge"));
+                return summary;
+            }
+        } else if (params.size() == 4 && params.get(0).equals("index-local")) {
+            int maxMinutes = Integer.parseInt(params.get(2));
+            try (LocalIndexWriter writer = new LocalIndexWriter(Paths.get(params.get(3)))) {
+                return processFiles(params.get(1), options, false, (fileIndex, files, docIdPrefix, processors) -> {
+                    try (LogDocExtractor logDocExtractor =
+                                 extractorBuilder(files, maxMinutes, docIdPrefix, options, state).build()) {
+                        return new FileResult(new LocalLogIndexer(logDocExtractor, writer).indexDocs(),
+                                totalSize(files));
+                    }
+                });
+            }
+        } else if ((params.size() == 3 || params.size() == 4) && params.get(0).equals("read")) {
+            readStore(Paths.get(params.get(1)), params.get(2), params.size() == 4 ? params.get(3) : null);
+            return RunSummary.EMPTY;
+        } else if ((params.size() >= 2 && params.size() <= 4) && params.get(0).equals("rollup")) {
+            printRollups(Rollups.read(Paths.get(params.get(1))), params.size() > 2 ? params.get(2) : null,
+                    params.size() > 3 ? params.get(3) : null);
+            return RunSummary.EMPTY;
+        } else if (params.size() >= 3 && params.get(0).equals("search-local")) {
+            searchLocal(Paths.get(params.get(1)), String.join(" ", params.subList(2, params.size())), options);
+            return RunSummary.EMPTY;
+        }
+        throw new UsageException(null);
+    }
+
+    private void readStore(Path directory, String prefix, String number) throws IOException {
+        Charset charset = Charset.defaultCharset();
+        try (DocumentStoreReader reader = DocumentStoreReader.open(directory, prefix)) {
+            if (number != null) {
+                System.out.println(new String(reader.get(Long.parseLong(number)), charset));
+                return;
+            }
+            long count = 0;
+            for (byte[] document : reader) {
+                System.out.println("--- " + prefix + ++count);
+                System.out.println(new String(document, charset));
+            }
+        }
+    }
+
+    private void searchLocal(Path directory, String text, Map<String, String> options) throws IOException {
+        LocalQuery query;
+        if (options.containsKey("phrase")) {
+            query = new PhraseQuery(text);
+        } else {
+            BooleanQuery.Builder builder = BooleanQuery.builder();
+            for (String term : text.split("\\s+")) {
+                if (term.startsWith("-") && term.length() > 1) {
+                    builder.mustNot(new TermQuery(term.substring(1)));
+                } else if (!term.isEmpty()) {
+                    builder.must(new TermQuery(term));
+                }
+            }
+            query = builder.build();
+        }
+        int limit = options.containsKey("limit") ? Integer.parseInt(options.get("limit")) : 10;
+        try (LocalIndexReader reader = LocalIndexReader.open(directory)) {
+            System.out.println(reader.count(query) + " of " + reader.getDocCount() + " documents match " + query);
+            for (LogDocument document : reader.search(query, limit)) {
+                System.out.println();
+                System.out.println("--- " + document.getId());
+                System.out.println(document);
+            }
+        }
+    }
+
+    private LogIndexer createIndexer(LogDocExtractor logDocExtractor, String index, Map<String, String> options,
+                                     int processors) {
+        LogIndexer logIndexer = new LogIndexer(logDocExtractor, index, TYPE_NAME);
+        logIndexer.setClient(client.get());
+        logIndexer.setPipeline(createPipeline(options, processors));
+        logIndexer.setBulkSettings(createBulkSettings(options, processors));
+        return logIndexer;
+    }
+
+    private BulkSettings createBulkSettings(Map<String, String> options, int processors) {
+        BulkSettings.Builder builder = new BulkSettings.Builder().concurrentRequests(processors);
+        if (options.containsKey("bulk-mb")) {
+            long bulkBytes = (long) (Double.parseDouble(options.get("bulk-mb")) * 1024 * 1024);
+            builder.initialBulkBytes(bulkBytes).minBulkBytes(Math.min(bulkBytes, 1024 * 1024))
+                    .maxBulkBytes(Math.max(bulkBytes, 64 * 1024 * 1024));
+        }
+        if (options.containsKey("bulk-requests")) {
+            builder.concurrentRequests(Integer.parseInt(options.get("bulk-requests")));
+        }
+        if (options.containsKey("bulk-latency")) {
+            builder.targetLatencyMillis(Long.parseLong(options.get("bulk-latency")));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Indexes the part of the file after its checkpoint and saves the new checkpoint. Files that did not change
+     * since the checkpoint are skipped. When following files, the last document is only indexed once a later line
+     * closes it. The checkpoint is kept if documents could not be indexed, so the next run tries them again.
+     */
+    private FileResult indexIncrementally(Path file, LogDocExtractorBuilder builder, CheckpointStore checkpoints,
+                                          boolean follow, Map<String, String> options, int processors)
+            throws IOException {
+        Checkpoint from = checkpoints.get(file);
+        long size = Files.size(file);
+        if (from != null && from.getFileSize() == size && (follow || from.isLastDocumentExtracted())) {
+            return FileResult.EMPTY;
+        }
+        long documents;
+        Checkpoint to;
+        try (SkypeLogDocExtractor logDocExtractor = builder.buildIncremental(from, !follow)) {
+            LogIndexer logIndexer = createIndexer(logDocExtractor, INDEX_NAME, options, processors);
+            documents = logIndexer.indexDocs();
+            to        = logDocExtractor.checkpoint();
+            if (logIndexer.hasFailed()) {
+                throw new IOException("Documents could not be indexed, checkpoint kept");
+            }
+        }
+        checkpoints.put(file, to);
+        long previousSize = from == null || from.getFileSize() > to.getFileSize() ? 0 : from.getFileSize();
+        return new FileResult(documents, to.getFileSize() - previousSize);
+    }
+
+    /**
+     * Gives the index a new generation if documents were indexed, which refreshes it and tells searchers that their
+     * cached results are stale. Done once per run or poll, as it changes the cluster state.
+     */
+    private void advanceGeneration(RunSummary summary) {
+        if (summary.getDocuments() == 0) {
+            return;
+        }
+        try {
+            IndexGeneration.advance(client.get(), INDEX_NAME, TYPE_NAME);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Error while advancing the generation of index " + INDEX_NAME + ": " + e);
+        }
+    }
+
+    /**
+     * Processes the files of the location again whenever files in their directories change, until interrupted.
+     * Files created later are picked up when they match the location.
+     */
+    private void followFiles(String location, Map<String, String> options, FileJob job) throws IOException {
+        try (LogFollower follower = new LogFollower()) {
+            while (!Thread.currentThread().isInterrupted()) {
+                RunSummary summary = processFiles(location, options, true, job);
+                advanceGeneration(summary);
+                follower.watch(summary.paths);
+                follower.awaitChange(FOLLOW_TIMEOUT_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs the job for every log file of the location on a pool of --file-threads threads and prints a summary.
+     * The cores are divided among the files processed concurrently, so the serialization workers and bulk requests
+     * of all files together do not exceed the number of cores unless set explicitly.
+     * When the location names more than a single file the documents of each file get the path of the file relative
+     * to the location as id prefix, so ids of different files never collide. With --merge the messages of all files
+     * are merged by time and processed by a single job without id prefix. When following files, the summary is
+     * only printed if documents were extracted, otherwise a progress line is printed every --progress seconds.
+     *
+     * @return Summary of the files of the location.
+     */
+    private RunSummary processFiles(String location, Map<String, String> options, boolean follow, FileJob job)
+            throws IOException {
+        List<Path> files = LogFiles.resolve(location);
+        if (files.isEmpty()) {
+            if (!follow)
+                System.out.println("No log files found at " + location);
+            return new RunSummary(files, 0, 0, 0, 0);
+        }
+        boolean singleFile = files.size() == 1 && Files.isRegularFile(Paths.get(location));
+        int fileThreads = Integer.parseInt(options.getOrDefault("file-threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        if (fileThreads <= 0)
+            throw new IllegalArgumentException("Number of file threads must be positive!");
+        long progressSeconds = Long.parseLong(options.getOrDefault("progress", DEFAULT_PROGRESS_SECONDS));
+
+        long start = System.nanoTime();
+        ProgressReporter progress = follow || progressSeconds <= 0 ? null
+                : new ProgressReporter(IngestMetrics.global(), totalSize(files), progressSeconds);
+        List<List<Path>> jobFiles = new ArrayList<>();
+        if (options.containsKey("merge")) {
+            jobFiles.add(files);
         } else {
-            printUsage();
+            for (Path file : files) {
+                jobFiles.add(Collections.singletonList(file));
+            }
+        }
+        int concurrentFiles = Math.min(fileThreads, jobFiles.size());
+        int processors = Math.max(1, Runtime.getRuntime().availableProcessors() / concurrentFiles);
+        ExecutorService filePool = Executors.newFixedThreadPool(concurrentFiles);
+        List<Future<FileResult>> results = new ArrayList<>();
+        for (int i = 0; i < jobFiles.size(); ++i) {
+            int fileIndex = i;
+            List<Path> jobFile = jobFiles.get(i);
+            String docIdPrefix = singleFile || jobFile.size() > 1 ? ""
+                    : LogFiles.relativeName(location, jobFile.get(0)) + ":";
+            results.add(filePool.submit(() -> job.process(fileIndex, jobFile, docIdPrefix, processors)));
         }
+        filePool.shutdown();
+
+        long documents = 0;
+        long bytes = 0;
+        int failed = 0;
+        try {
+            for (int i = 0; i < jobFiles.size(); ++i) {
+                try {
+                    FileResult result = results.get(i).get();
+                    documents += result.documents;
+                    bytes += result.bytes;
+                } catch (ExecutionException e) {
+                    logger.error("Error while processing " + jobFiles.get(i) + ": " + e.getCause());
+                    failed += jobFiles.get(i).size();
+                } catch (InterruptedException e) {
+                    filePool.shutdownNow();
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while processing log files");
+                }
+            }
+        } finally {
+            if (progress != null)
+                progress.close();
+        }
+        RunSummary summary = new RunSummary(files, failed, documents, bytes, System.nanoTime() - start);
+        if (!follow || documents > 0 || failed > 0)
+            System.out.println(summary);
+        return summary;
+    }
+
+    private static long totalSize(List<Path> files) throws IOException {
+        long size = 0;
+        for (Path file : files) {
+            size += Files.size(file);
+        }
+        return size;
+    }
+
+    private void parseArgs(String[] args, List<String> params, Map<String, String> options) {
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                int separator = arg.indexOf('=');
+                if (separator < 0) {
+                    options.put(arg.substring(2), "true");
+                } else {
+                    options.put(arg.substring(2, separator), arg.substring(separator + 1));
+                }
+            } else {
+                params.add(arg);
+            }
+        }
+    }
+
+    /**
+     * Combines the rollups of all files and writes them to the file and the index requested. The counts of a bucket
+     * are summed over the files, which matches counting all files in one pass, as a conversation never spans files.
+     */
+    private void writeRollups(List<RollupBuilder> builders, Map<String, String> options) throws IOException {
+        RollupBuilder rollup = new RollupBuilder();
+        synchronized (builders) {
+            for (RollupBuilder builder : builders) {
+                rollup.addAll(builder);
+            }
+        }
+        if (options.containsKey("rollup")) {
+            rollup.write(Paths.get(options.get("rollup")));
+            System.out.println("Wrote rollups of " + rollup.getMessageCount() + " messages to "
+                    + options.get("rollup"));
+        }
+        if (options.containsKey("rollup-index")) {
+            long documents = RollupIndexer.write(client.get(), options.get("rollup-index"), rollup.build(),
+                    Granularity.HOUR, Granularity.DAY);
+            System.out.println("Wrote " + documents + " rollup documents to index " + options.get("rollup-index"));
+        }
+    }
+
+    private void printRollups(Rollups rollups, String start, String end) {
+        if (rollups.isEmpty()) {
+            System.out.println("No messages");
+            return;
+        }
+        long startMillis = start == null ? rollups.getStartMillis() : parseTime(start);
+        long endMillis = end == null ? rollups.getEndMillis() : parseTime(end);
+        System.out.println(rollups.getMessages(Granularity.MINUTE, startMillis, endMillis) + " messages from "
+                + new DateTime(startMillis, DateTimeZone.UTC) + " to " + new DateTime(endMillis, DateTimeZone.UTC));
+        System.out.println("Top speakers:");
+        for (Map.Entry<String, Long> speaker : rollups.getTopSpeakers(startMillis, endMillis, 10).entrySet()) {
+            System.out.println(speaker.getValue() + "\t" + speaker.getKey());
+        }
+    }
+
+    /** Parses a time given as ISO 8601 date time, in UTC if it has no zone, or as epoch milliseconds. */
+    private static long parseTime(String time) {
+        if (!time.isEmpty() && time.chars().allMatch(Character::isDigit))
+            return Long.parseLong(time);
+        return ISODateTimeFormat.dateTimeParser().withZoneUTC().parseMillis(time);
+    }
+
+    private DuplicateIndex createDuplicateIndex(Map<String, String> options) throws IOException {
+        if (!options.containsKey("dedup")) {
+            return null;
+        }
+        double threshold = options.get("dedup").equals("true") ? 1.0 : Double.parseDouble(options.get("dedup"));
+        int memoryDocuments = Integer.parseInt(options.getOrDefault("dedup-memory",
+                String.valueOf(DuplicateIndex.DEFAULT_MEMORY_DOCUMENTS)));
+        Path spillDirectory = Paths.get(options.getOrDefault("dedup-spill", System.getProperty("java.io.tmpdir")));
+        Files.createDirectories(spillDirectory);
+        return new DuplicateIndex(threshold, memoryDocuments, spillDirectory);
+    }
+
+    private LogDocExtractorBuilder extractorBuilder(List<Path> files, int maxMinutes, String docIdPrefix,
+                                                   Map<String, String> options, RunState state) {
+        SkypeLogDocExtractor.ReaderType readerType =
+                SkypeLogDocExtractor.ReaderType.valueOf(options.getOrDefault("reader", "buffered").toUpperCase());
+        String format = options.getOrDefault("format", "auto").toUpperCase();
+        List<String> filenames = new ArrayList<>();
+        for (Path file : files) {
+            filenames.add(file.toString());
+        }
+        RollupBuilder rollup = null;
+        if (state.rollups != null) {
+            rollup = new RollupBuilder();
+            state.rollups.add(rollup);
+        }
+        return new LogDocExtractorBuilder(filenames, maxMinutes)
+                .threads(Integer.parseInt(options.getOrDefault("threads", "1")))
+                .readerType(readerType)
+                .docIdPrefix(docIdPrefix)
+                .duplicates(state.duplicates)
+                .rollup(rollup)
+                .format(format.equals("JSON") ? LogFormat.JSON_LINES : LogFormat.valueOf(format))
+                .jsonFields(options.getOrDefault("timestamp-field", JsonLinesLogDocExtractor.DEFAULT_TIMESTAMP_FIELD),
+                        options.getOrDefault("message-field", JsonLinesLogDocExtractor.DEFAULT_MESSAGE_FIELD),
+                        options.getOrDefault("speaker-field", JsonLinesLogDocExtractor.DEFAULT_SPEAKER_FIELD));
+    }
+
+    private DocumentPipeline createPipeline(Map<String, String> options, int processors) {
+        int workers = options.containsKey("workers") ? Integer.parseInt(options.get("workers")) : processors;
+        return new DocumentPipeline(workers, 1024);
     }
 
     private void printUsage() {
-        System.out.println("usage: LogExtractor [command] [params]");
+        System.out.println("usage: LogExtractor [command] [params] [options]");
         System.out.println();
         System.out.println("Commands:");
         System.out.println("index - extract logs and index them using elastic search");
         System.out.println("save  - extract logs and save them to disk");
+        System.out.println("read  - print documents saved to disk in the store layout");
+        System.out.println("index-local  - extract logs and index them in a local index, without elastic search");
+        System.out.println("search-local - search a local index");
+        System.out.println("rollup       - print messages and top speakers of a time range from a rollup file");
+        System.out.println("serve        - keep running and accept save, index and index-local jobs over HTTP:");
+        System.out.println("               POST /jobs with {\"args\": [command, params..., options...]},");
+        System.out.println("               GET /jobs and /jobs/{id} for their state (address set by --server.port)");
         System.out.println();
         System.out.println("Params for save:");
-        System.out.println("param1: path to log file");
+        System.out.println("param1: path to log file, directory or glob (e.g. 'logs/**/*.gz'), .gz files are decompressed");
         System.out.println("param2: max number of minutes between two conversations");
         System.out.println("param3: output folder");
-        System.out.println("param4: prefix for each output file (e.g. doc for doc0, doc1, etc.)");
+        System.out.println("param4: prefix for each output file (e.g. doc for doc.00000.docs or doc1, doc2, etc.),");
+        System.out.println("        followed by the number of the file and _ when processing several files");
+        System.out.println();
+        System.out.println("Params for read:");
+        System.out.println("param1: folder of the saved documents");
+        System.out.println("param2: prefix of the saved documents");
+        System.out.println("param3: optional number of the document to print, all documents are printed without");
         System.out.println();
         System.out.println("Params for index:");
-        System.out.println("param1: path to log file");
+        System.out.println("param1: path to log file, directory or glob (e.g. 'logs/**/*.gz'), .gz files are decompressed");
         System.out.println("param2: max number of minutes between two conversations");
+        System.out.println();
+        System.out.println("Params for index-local:");
+        System.out.println("param1: path to log file, directory or glob (e.g. 'logs/**/*.gz'), .gz files are decompressed");
+        System.out.println("param2: max number of minutes between two conversations");
+        System.out.println("param3: directory of the local index, created if needed");
+        System.out.println();
+        System.out.println("Params for search-local:");
+        System.out.println("param1: directory of the local index");
+        System.out.println("param2...: terms every document must contain, -term for terms it must not contain");
+        System.out.println();
+        System.out.println("Params for rollup:");
+        System.out.println("param1: rollup file written with --rollup");
+        System.out.println("param2, param3: optional start and end of the time range, ISO 8601 (UTC if no zone) or");
+        System.out.println("        epoch milliseconds, all messages without");
+        System.out.println();
+        System.out.println("Options:");
+        System.out.println("--format=F        format of the logs: skype, json for one JSON object per line, or auto");
+        System.out.println("                  (default) to detect it from the first character of every file");
+        System.out.println("--timestamp-field=N, --message-field=N, --speaker-field=N");
+        System.out.println("                  json: fields read from every object (default timestamp, message, speaker),");
+        System.out.println("                  time stamps are epoch milliseconds, epoch seconds as decimal or ISO-8601");
+        System.out.println("--merge           merge the messages of all files by time, so conversations spread over");
+        System.out.println("                  several files, e.g. one per device, become single documents");
+        System.out.println("--dedup[=T]       drop documents with the same text as a document before, or with a");
+        System.out.println("                  similarity of their word shingles of at least T (e.g. 0.9), across files");
+        System.out.println("--dedup-memory=N  dedup: documents kept in memory before spilling to disk (default 65536)");
+        System.out.println("--dedup-spill=D   dedup: directory of the spill files (default: temporary directory)");
+        System.out.println("--rollup=F        count messages per minute, hour and day, conversations per bucket and");
+        System.out.println("                  speakers per day while extracting Skype logs (read by a single thread),");
+        System.out.println("                  written to the file F");
+        System.out.println("--rollup-index=I  write the hour and day rollups to the elastic search index I");
+        System.out.println("--threads=N       number of threads used to parse a log file (default 1, 0 for all cores)");
+        System.out.println("--reader=R        reader used by a single thread: buffered (default) or mapped");
+        System.out.println("--workers=N       serializing threads per file (default: cores / concurrent files)");
+        System.out.println("--file-threads=N  number of files processed concurrently (default: number of cores)");
+        System.out.println("--output=O        save: store (default) for compressed segment files with an index, or files");
+        System.out.println("                  for one file per document");
+        System.out.println("--writer-threads=N save: write documents on N background threads fed by a bounded queue");
+        System.out.println("                  (default: write on the extracting thread)");
+        System.out.println("--fsync=P         save: force documents to disk: none (default), end, every N documents");
+        System.out.println("                  (e.g. 1000) or every M MB (e.g. 64mb)");
+        System.out.println("--progress=S      print throughput and ETA every S seconds (default 10, 0 to disable),");
+        System.out.println("                  the counters of all stages are also available over JMX");
+        System.out.println("--bulk-mb=M       index: initial size of bulk requests in MB (default 5), adapted to latency");
+        System.out.println("--bulk-latency=T  index: target latency of bulk requests in ms (default 1000)");
+        System.out.println("--bulk-requests=N index: bulk requests per file (default: cores / concurrent files)");
+        System.out.println("--bulk-load       index: disable refreshes and replicas while loading, restore them after");
+        System.out.println("--alias           index: load into a fresh index and move the alias logindex to it after");
+        System.out.println("--force-merge     index: merge the index into one segment after a bulk load");
+        System.out.println("--checkpoint=F    index: continue where the previous run stopped, keeping checkpoints in");
+        System.out.println("                  the JSON file F (files are then read by a single thread)");
+        System.out.println("--follow          index: keep indexing conversations appended to the files, needs --checkpoint");
+        System.out.println("--phrase          search-local: match the terms as a phrase within a line");
+        System.out.println("--limit=N         search-local: number of documents printed (default 10)");
     }
 }
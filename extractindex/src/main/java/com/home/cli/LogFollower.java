@@ -0,0 +1,67 @@
+package com.home.cli;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits for changes in the directories of followed log files using a {@link WatchService}. Some file systems do not
+ * report changes, so waiting also ends after a timeout and the caller checks the files anyway.
+ */
+class LogFollower implements Closeable {
+
+    private final WatchService watchService;
+
+    private final Set<Path> directories = new HashSet<>();
+
+    LogFollower() throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+    }
+
+    /**
+     * Watches the directories of the given files, in addition to the directories watched already.
+     *
+     * @param files The followed log files.
+     * @throws IOException if a directory cannot be watched.
+     */
+    void watch(final List<Path> files) throws IOException {
+        for (Path file : files) {
+            Path directory = file.toAbsolutePath().normalize().getParent();
+            if (directory != null && directories.add(directory)) {
+                directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        }
+    }
+
+    /**
+     * Blocks until a file in a watched directory is created or modified, or until the timeout elapses.
+     *
+     * @param timeoutMillis Maximum time to wait.
+     * @return True if a change was reported.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    boolean awaitChange(final long timeoutMillis) throws InterruptedException {
+        WatchKey key = watchService.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        boolean changed = false;
+        while (key != null) {
+            changed |= !key.pollEvents().isEmpty();
+            key.reset();
+            key = watchService.poll();
+        }
+        return changed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
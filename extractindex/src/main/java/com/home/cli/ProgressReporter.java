@@ -0,0 +1,103 @@
+package com.home.cli;
+
+import com.home.common.IngestMetrics;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prints a progress line at a fixed period while log files are processed: the share of the input read, the
+ * throughput since the previous line, documents and failures so far and the estimated time left. The numbers are
+ * taken from the {@link IngestMetrics}, the estimate compares the bytes read from disk with the size of the files,
+ * which holds for compressed files too since their compressed bytes are counted.
+ */
+class ProgressReporter implements Closeable {
+
+    private final IngestMetrics metrics;
+
+    private final long totalBytes;
+
+    private final long startNanos;
+
+    private final long startBytes;
+
+    private final long startDocuments;
+
+    private final long startFailures;
+
+    private long lastNanos;
+
+    private long lastBytes;
+
+    private long lastLines;
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Starts printing.
+     *
+     * @param metrics Metrics the stages record into.
+     * @param totalBytes Size of all files to process.
+     * @param periodSeconds Seconds between two progress lines.
+     */
+    ProgressReporter(final IngestMetrics metrics, final long totalBytes, final long periodSeconds) {
+        if (metrics == null)
+            throw new NullPointerException("Null parameter provided!");
+        if (periodSeconds <= 0)
+            throw new IllegalArgumentException("Period must be positive!");
+        this.metrics        = metrics;
+        this.totalBytes     = totalBytes;
+        this.startNanos     = System.nanoTime();
+        this.startBytes     = metrics.getBytesRead();
+        this.startDocuments = metrics.getDocumentsEmitted();
+        this.startFailures  = failures();
+        this.lastNanos      = startNanos;
+        this.lastBytes      = startBytes;
+        this.lastLines      = metrics.getLinesRead();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "progress-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> System.out.println(progressLine()), periodSeconds, periodSeconds,
+                TimeUnit.SECONDS);
+    }
+
+    /** Documents failed to index or save and lines without a valid time stamp. */
+    private long failures() {
+        return metrics.getBulkFailures() + metrics.getSaveFailures() + metrics.getParseFailures();
+    }
+
+    synchronized String progressLine() {
+        long nanos = System.nanoTime();
+        long bytes = metrics.getBytesRead();
+        long lines = metrics.getLinesRead();
+        double seconds = Math.max((nanos - lastNanos) / 1e9, 1e-9);
+        long read = bytes - startBytes;
+        String line = String.format("Progress: %.1f%% of %.1f MB, %.2f MB/s, %.0f lines/s, %d documents, "
+                        + "%d failures, ETA %s", totalBytes == 0 ? 100.0 : Math.min(100.0, 100.0 * read / totalBytes),
+                totalBytes / 1e6, (bytes - lastBytes) / 1e6 / seconds, (lines - lastLines) / seconds,
+                metrics.getDocumentsEmitted() - startDocuments, failures() - startFailures,
+                eta(read, (nanos - startNanos) / 1e9));
+        lastNanos = nanos;
+        lastBytes = bytes;
+        lastLines = lines;
+        return line;
+    }
+
+    /** Time left at the average rate since the start, as h:mm:ss. */
+    private String eta(final long read, final double elapsedSeconds) {
+        if (read <= 0) {
+            return "unknown";
+        }
+        long left = (long) (Math.max(0, totalBytes - read) * elapsedSeconds / read);
+        return String.format("%d:%02d:%02d", left / 3600, left / 60 % 60, left % 60);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,77 @@
+package com.home.cli;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a command run over log files: the number of files processed and failed, the documents extracted and
+ * the bytes read.
+ */
+public class RunSummary {
+
+    /** Summary of a command which processed no log files. */
+    public static final RunSummary EMPTY = new RunSummary(Collections.<Path>emptyList(), 0, 0, 0, 0);
+
+    /** The resolved files, watched again when following them. */
+    final List<Path> paths;
+
+    private final int failedFiles;
+
+    private final long documents;
+
+    private final long bytes;
+
+    private final long elapsedNanos;
+
+    RunSummary(List<Path> paths, int failedFiles, long documents, long bytes, long elapsedNanos) {
+        this.paths        = paths;
+        this.failedFiles  = failedFiles;
+        this.documents    = documents;
+        this.bytes        = bytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return Number of files processed without error.
+     */
+    public int getFiles() {
+        return paths.size() - failedFiles;
+    }
+
+    /**
+     * @return Number of files which could not be processed.
+     */
+    public int getFailedFiles() {
+        return failedFiles;
+    }
+
+    /**
+     * @return Number of documents extracted.
+     */
+    public long getDocuments() {
+        return documents;
+    }
+
+    /**
+     * @return Number of bytes read from the files.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return Seconds spent processing the files.
+     */
+    public double getSeconds() {
+        return elapsedNanos / 1e9;
+    }
+
+    @Override
+    public String toString() {
+        double seconds = Math.max(getSeconds(), 1e-9);
+        return String.format("Processed %d files (%d failed): %d documents, %.1f MB in %.1f s "
+                        + "(%.0f docs/s, %.2f MB/s)", getFiles(), failedFiles, documents, bytes / 1e6, seconds,
+                documents / seconds, bytes / 1e6 / seconds);
+    }
+}
@@ -0,0 +1,16 @@
+package com.home.cli;
+
+/**
+ * Thrown when a command is called with wrong params or options which cannot be used together.
+ */
+public class UsageException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param message What is wrong with the arguments.
+     */
+    public UsageException(String message) {
+        super(message);
+    }
+}
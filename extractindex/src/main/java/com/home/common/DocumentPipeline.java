@@ -0,0 +1,196 @@
+package com.home.common;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.log4j.BasicConfigurator;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Pipeline passing extracted documents through three stages: a reader thread pulling documents from a stream, a
+ * pool of workers serializing them and the sink running on the calling thread. The stages are connected by a
+ * bounded queue, so the reader blocks when the sink falls behind. The sink receives the serialized documents in
+ * the order of the stream.
+ */
+public class DocumentPipeline {
+
+    private static final Log logger = LogFactory.getLog(DocumentPipeline.class);
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private static final Future<?> END_OF_STREAM = CompletableFuture.completedFuture(null);
+
+    private final int workers;
+
+    private final int queueCapacity;
+
+    /**
+     * Serializes a document. Called concurrently from several worker threads.
+     *
+     * @param <T> Type of the serialized document.
+     */
+    public interface Serializer<T> {
+        /**
+         * @param document The document to serialize.
+         * @return The serialized document or null to skip the document.
+         * @throws IOException if the document cannot be serialized.
+         */
+        T serialize(LogDocument document) throws IOException;
+    }
+
+    /**
+     * Consumes serialized documents. Always called from the thread running the pipeline.
+     *
+     * @param <T> Type of the serialized document.
+     */
+    public interface Sink<T> {
+        void accept(T serialized) throws IOException;
+    }
+
+    /**
+     * Constructs a pipeline with one serialization worker per available processor.
+     */
+    public DocumentPipeline() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Constructs a pipeline.
+     *
+     * @param workers Number of serialization worker threads.
+     * @param queueCapacity Maximum number of documents between the reader and the sink.
+     */
+    public DocumentPipeline(final int workers, final int queueCapacity) {
+        if (workers <= 0 || queueCapacity <= 0)
+            throw new IllegalArgumentException("Number of workers and queue capacity must be positive!");
+        this.workers       = workers;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Passes all documents of the stream through the pipeline and returns once the sink consumed the last one.
+     *
+     * @param documents The documents to process, consumed on a separate reader thread.
+     * @param serializer Serializer called on the worker threads.
+     * @param sink Sink called on the calling thread in the order of the stream.
+     * @param <T> Type of the serialized document.
+     * @return Number of documents passed to the sink.
+     * @throws IOException if a document cannot be serialized or consumed.
+     */
+    public <T> long run(final Stream<LogDocument> documents, final Serializer<T> serializer, final Sink<T> sink)
+            throws IOException {
+        ExecutorService workerPool = Executors.newFixedThreadPool(workers, daemonThreadFactory("pipeline-worker-"));
+        BlockingQueue<Future<?>> queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicBoolean stopped = new AtomicBoolean(false);
+        Thread reader = new Thread(() -> read(documents, serializer, workerPool, queue, stopped), "pipeline-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        long count = 0;
+        try {
+            Future<?> future;
+            while ((future = queue.take()) != END_OF_STREAM) {
+                @SuppressWarnings("unchecked")
+                T serialized = (T) getResult(future);
+                if (serialized != null) {
+                    sink.accept(serialized);
+                    ++count;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for documents");
+        } finally {
+            stopped.set(true);
+            queue.clear();
+            workerPool.shutdownNow();
+            joinReader(reader);
+        }
+        return count;
+    }
+
+    private <T> void read(final Stream<LogDocument> documents, final Serializer<T> serializer,
+                          final ExecutorService workerPool, final BlockingQueue<Future<?>> queue,
+                          final AtomicBoolean stopped) {
+        try {
+            Iterator<LogDocument> iterator = documents.iterator();
+            while (!stopped.get() && iterator.hasNext()) {
+                LogDocument document = iterator.next();
+                FutureTask<T> task = new FutureTask<>(() -> serializer.serialize(document));
+                workerPool.execute(task);
+                put(queue, task, stopped);
+            }
+        } catch (RuntimeException e) {
+            CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            put(queue, failed, stopped);
+        }
+        put(queue, END_OF_STREAM, stopped);
+    }
+
+    private void put(final BlockingQueue<Future<?>> queue, final Future<?> future, final AtomicBoolean stopped) {
+        try {
+            while (!stopped.get()) {
+                if (queue.offer(future, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Object getResult(final Future<?> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    private void joinReader(final Thread reader) {
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            logger.error("Interrupted while waiting for the reader thread: " + e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadFactory daemonThreadFactory(final String prefix) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    static {
+        BasicConfigurator.configure();
+    }
+}
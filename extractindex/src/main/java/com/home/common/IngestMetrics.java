@@ -0,0 +1,304 @@
+package com.home.common;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.log4j.BasicConfigurator;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the stages of an ingest: reading and parsing log files, emitting documents and indexing or saving
+ * them. The stages record into the {@link #global() global} instance, which is registered with the platform MBean
+ * server, so a running index or save can be watched with jconsole or any other JMX client. Recording is thread safe
+ * and cheap enough for the hot path, the extractors record their lines once per document.
+ */
+public class IngestMetrics implements IngestMetricsMBean {
+
+    private static final Log logger = LogFactory.getLog(IngestMetrics.class);
+
+    public static final String OBJECT_NAME = "com.home:type=IngestMetrics";
+
+    /** Buckets of the histograms, bucket i counts values of less than 2^i, the last one all larger values. */
+    static final int BUCKETS = 40;
+
+    private static final IngestMetrics GLOBAL = register(new IngestMetrics());
+
+    private final LongAdder linesRead = new LongAdder();
+
+    private final LongAdder bytesRead = new LongAdder();
+
+    private final LongAdder continuationLines = new LongAdder();
+
+    private final LongAdder droppedLines = new LongAdder();
+
+    private final LongAdder duplicateDocuments = new LongAdder();
+
+    private final LongAdder documentsEmitted = new LongAdder();
+
+    private final LongAdder documentBytes = new LongAdder();
+
+    private final AtomicLongArray documentSizes = new AtomicLongArray(BUCKETS);
+
+    private final LongAdder bulkRequests = new LongAdder();
+
+    private final LongAdder bulkFailures = new LongAdder();
+
+    private final LongAdder bulkLatencyMillis = new LongAdder();
+
+    private final AtomicLong bulkLatencyMillisMax = new AtomicLong();
+
+    private final AtomicLongArray bulkLatencies = new AtomicLongArray(BUCKETS);
+
+    private final LongAdder documentsSaved = new LongAdder();
+
+    private final LongAdder saveFailures = new LongAdder();
+
+    private volatile long startNanos = System.nanoTime();
+
+    /**
+     * @return The instance all stages record into, registered as {@value #OBJECT_NAME}.
+     */
+    public static IngestMetrics global() {
+        return GLOBAL;
+    }
+
+    private static IngestMetrics register(final IngestMetrics metrics) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(OBJECT_NAME));
+        } catch (JMException | SecurityException e) {
+            logger.warn("Ingest metrics are not available over JMX: " + e);
+        }
+        return metrics;
+    }
+
+    /**
+     * Records lines read by an extractor.
+     *
+     * @param lines Number of lines read.
+     * @param bytes Number of bytes of the lines, including the line terminators.
+     * @param continuationLines Lines without a valid time stamp added to the previous message.
+     * @param droppedLines Lines without a valid time stamp dropped because no message preceded them.
+     */
+    public void addLines(final long lines, final long bytes, final long continuationLines, final long droppedLines) {
+        linesRead.add(lines);
+        bytesRead.add(bytes);
+        this.continuationLines.add(continuationLines);
+        this.droppedLines.add(droppedLines);
+    }
+
+    /**
+     * Records a document dropped as duplicate of a document before.
+     */
+    public void addDuplicate() {
+        duplicateDocuments.increment();
+    }
+
+    /**
+     * Records a document serialized for indexing or saving.
+     *
+     * @param bytes Size of the serialized document.
+     */
+    public void addDocument(final long bytes) {
+        documentsEmitted.increment();
+        documentBytes.add(bytes);
+        documentSizes.incrementAndGet(bucket(bytes));
+    }
+
+    /**
+     * Records a completed bulk request.
+     *
+     * @param failed Number of documents of the request which failed for good, not counting documents sent again.
+     * @param latencyMillis Time from sending the request to receiving the response.
+     */
+    public void addBulk(final int failed, final long latencyMillis) {
+        bulkRequests.increment();
+        bulkFailures.add(failed);
+        bulkLatencyMillis.add(latencyMillis);
+        bulkLatencies.incrementAndGet(bucket(latencyMillis));
+        long max;
+        do {
+            max = bulkLatencyMillisMax.get();
+        } while (latencyMillis > max && !bulkLatencyMillisMax.compareAndSet(max, latencyMillis));
+    }
+
+    /**
+     * Records documents saved to disk.
+     *
+     * @param saved Number of documents written.
+     * @param failed Number of documents which could not be written.
+     */
+    public void addSaved(final long saved, final long failed) {
+        documentsSaved.add(saved);
+        saveFailures.add(failed);
+    }
+
+    @Override
+    public double getElapsedSeconds() {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    @Override
+    public long getLinesRead() {
+        return linesRead.sum();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public double getLinesPerSecond() {
+        return perSecond(getLinesRead());
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        return perSecond(getBytesRead());
+    }
+
+    @Override
+    public long getParseFailures() {
+        return continuationLines.sum() + droppedLines.sum();
+    }
+
+    @Override
+    public long getDroppedLines() {
+        return droppedLines.sum();
+    }
+
+    @Override
+    public long getDuplicateDocuments() {
+        return duplicateDocuments.sum();
+    }
+
+    @Override
+    public long getDocumentsEmitted() {
+        return documentsEmitted.sum();
+    }
+
+    @Override
+    public double getDocumentsPerSecond() {
+        return perSecond(getDocumentsEmitted());
+    }
+
+    @Override
+    public long getDocumentBytes() {
+        return documentBytes.sum();
+    }
+
+    @Override
+    public long[] getDocumentSizeHistogram() {
+        return toArray(documentSizes);
+    }
+
+    @Override
+    public long getDocumentBytesP50() {
+        return percentile(documentSizes, 50);
+    }
+
+    @Override
+    public long getDocumentBytesP99() {
+        return percentile(documentSizes, 99);
+    }
+
+    @Override
+    public long getBulkRequests() {
+        return bulkRequests.sum();
+    }
+
+    @Override
+    public long getBulkFailures() {
+        return bulkFailures.sum();
+    }
+
+    @Override
+    public double getBulkLatencyMillisAverage() {
+        long requests = getBulkRequests();
+        return requests == 0 ? 0 : (double) bulkLatencyMillis.sum() / requests;
+    }
+
+    @Override
+    public long getBulkLatencyMillisP99() {
+        return percentile(bulkLatencies, 99);
+    }
+
+    @Override
+    public long getBulkLatencyMillisMax() {
+        return bulkLatencyMillisMax.get();
+    }
+
+    @Override
+    public long[] getBulkLatencyHistogram() {
+        return toArray(bulkLatencies);
+    }
+
+    @Override
+    public long getDocumentsSaved() {
+        return documentsSaved.sum();
+    }
+
+    @Override
+    public long getSaveFailures() {
+        return saveFailures.sum();
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder adder : new LongAdder[] { linesRead, bytesRead, continuationLines, droppedLines,
+                duplicateDocuments, documentsEmitted, documentBytes, bulkRequests, bulkFailures, bulkLatencyMillis, documentsSaved,
+                saveFailures }) {
+            adder.reset();
+        }
+        for (int i = 0; i < BUCKETS; ++i) {
+            documentSizes.set(i, 0);
+            bulkLatencies.set(i, 0);
+        }
+        bulkLatencyMillisMax.set(0);
+        startNanos = System.nanoTime();
+    }
+
+    private double perSecond(final long value) {
+        return value / Math.max(getElapsedSeconds(), 1e-9);
+    }
+
+    /** Bucket 0 holds values up to 0, bucket i values of at least 2^(i-1) and less than 2^i. */
+    static int bucket(final long value) {
+        return value <= 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+    }
+
+    /** Upper bound of the bucket holding the percentile, 0 if nothing was recorded. */
+    static long percentile(final AtomicLongArray histogram, final int percent) {
+        long[] counts = toArray(histogram);
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        long rank = (long) Math.ceil(percent / 100.0 * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; ++i) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return i == 0 ? 0 : (1L << i) - 1;
+            }
+        }
+        return 0;
+    }
+
+    private static long[] toArray(final AtomicLongArray histogram) {
+        long[] counts = new long[histogram.length()];
+        for (int i = 0; i < counts.length; ++i) {
+            counts[i] = histogram.get(i);
+        }
+        return counts;
+    }
+
+    static {
+        BasicConfigurator.configure();
+    }
+}
@@ -0,0 +1,80 @@
+package com.home.common;
+
+/**
+ * Management interface of {@link IngestMetrics}, exposed over JMX as {@value IngestMetrics#OBJECT_NAME}. Sizes are
+ * in bytes, latencies in milliseconds and rates are averages since the start or the last reset.
+ */
+public interface IngestMetricsMBean {
+
+    /** @return Seconds since the metrics were created or reset. */
+    double getElapsedSeconds();
+
+    /** @return Lines read from log files. */
+    long getLinesRead();
+
+    /** @return Bytes read from log files, after decompression. */
+    long getBytesRead();
+
+    /** @return Lines read per second. */
+    double getLinesPerSecond();
+
+    /** @return Bytes read per second. */
+    double getBytesPerSecond();
+
+    /** @return Lines without a valid time stamp, both continuation lines and dropped lines. */
+    long getParseFailures();
+
+    /** @return Lines without a valid time stamp dropped because no message preceded them. */
+    long getDroppedLines();
+
+    /** @return Documents dropped before serializing because they duplicate a document before. */
+    long getDuplicateDocuments();
+
+    /** @return Documents serialized for indexing or saving. */
+    long getDocumentsEmitted();
+
+    /** @return Documents emitted per second. */
+    double getDocumentsPerSecond();
+
+    /** @return Total size of the emitted documents. */
+    long getDocumentBytes();
+
+    /**
+     * @return Number of emitted documents by size: entry 0 counts empty documents, entry i documents of at least
+     * 2^(i-1) and less than 2^i bytes.
+     */
+    long[] getDocumentSizeHistogram();
+
+    /** @return Upper bound of the median document size, taken from the histogram. */
+    long getDocumentBytesP50();
+
+    /** @return Upper bound of the 99th percentile of the document size, taken from the histogram. */
+    long getDocumentBytesP99();
+
+    /** @return Bulk requests completed, including retries and requests which failed as a whole. */
+    long getBulkRequests();
+
+    /** @return Documents which could not be indexed, also after retrying. */
+    long getBulkFailures();
+
+    /** @return Average latency of the bulk requests. */
+    double getBulkLatencyMillisAverage();
+
+    /** @return Upper bound of the 99th percentile of the bulk latency, taken from the histogram. */
+    long getBulkLatencyMillisP99();
+
+    /** @return Maximal latency of a bulk request. */
+    long getBulkLatencyMillisMax();
+
+    /** @return Number of bulk requests by latency, bucketed like {@link #getDocumentSizeHistogram()}. */
+    long[] getBulkLatencyHistogram();
+
+    /** @return Documents saved to disk. */
+    long getDocumentsSaved();
+
+    /** @return Documents which could not be saved to disk. */
+    long getSaveFailures();
+
+    /** Sets all counters to zero and restarts the clock of the rates. */
+    void reset();
+}
@@ -1,23 +1,50 @@
 package com.home.common;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
- * A class that represents a document extracted from a log file.
+ * A class that represents a document extracted from a log file. The characters of all lines are kept in a single
+ * array and the end of every line in an int array, instead of one String object per line. Besides the text a document
+ * carries the time of its first and last message and the names of the speakers, so searches can filter on them.
  */
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @JsonIgnoreProperties(ignoreUnknown = true)
+@JsonPropertyOrder({"text", "id", "startTime", "endTime", "lineCount", "speakers"})
 public class LogDocument {
 
-    private List<String> text = new ArrayList<>();
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static final int INITIAL_LINES = 8;
+
+    private char[] chars = new char[INITIAL_CAPACITY];
+
+    private int length = 0;
+
+    /** lineEnds[i] is the offset after the last character of line i. */
+    private int[] lineEnds = new int[INITIAL_LINES];
+
+    private int lineCount = 0;
 
     private String id = new String();
 
+    /** Epoch milliseconds of the earliest message, {@link Long#MAX_VALUE} if the document has no message. */
+    private long startTime = Long.MAX_VALUE;
+
+    /** Epoch milliseconds of the latest message, {@link Long#MIN_VALUE} if the document has no message. */
+    private long endTime = Long.MIN_VALUE;
+
+    private List<String> speakers = new ArrayList<>(2);
+
     public LogDocument(String id) {
         this.id = id;
     }
@@ -26,9 +53,22 @@ public class LogDocument {
         this.id = String.valueOf(id);
     }
 
+    /**
+     * Returns the lines of the document. The list is a read only view, every line is created when it is accessed.
+     */
     @JsonProperty("text")
     public List<String> getText() {
-        return text;
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return getLine(index);
+            }
+
+            @Override
+            public int size() {
+                return lineCount;
+            }
+        };
     }
 
     @JsonProperty("id")
@@ -36,13 +76,186 @@ public class LogDocument {
         return id;
     }
 
-    public void addLine(String line) {
-        text.add(line.replaceAll("/", ""));
+    /**
+     * Adds a line to the end of the document, removing all slashes.
+     *
+     * @param line The line to add, only read during the call.
+     */
+    public void addLine(CharSequence line) {
+        int lineLength = line.length();
+        ensureCapacity(length + lineLength);
+        int end = length;
+        if (line instanceof String) {
+            // copy and remove the slashes in place
+            ((String) line).getChars(0, lineLength, chars, length);
+            for (int i = length; i < length + lineLength; ++i) {
+                char c = chars[i];
+                if (c != '/')
+                    chars[end++] = c;
+            }
+        } else {
+            for (int i = 0; i < lineLength; ++i) {
+                char c = line.charAt(i);
+                if (c != '/')
+                    chars[end++] = c;
+            }
+        }
+        addLineEnd(end);
+    }
+
+    /**
+     * Appends all lines of another document to the end of this document. The time range and the speakers of the
+     * other document are added too.
+     *
+     * @param other The document whose lines are appended.
+     */
+    public void append(LogDocument other) {
+        int start = length;
+        ensureCapacity(start + other.length);
+        System.arraycopy(other.chars, 0, chars, start, other.length);
+        for (int i = 0; i < other.lineCount; ++i) {
+            addLineEnd(start + other.lineEnds[i]);
+        }
+        startTime = Math.min(startTime, other.startTime);
+        endTime   = Math.max(endTime, other.endTime);
+        for (String speaker : other.speakers) {
+            addSpeaker(speaker, 0, speaker.length());
+        }
+    }
+
+    /**
+     * Removes all lines, times and speakers, keeping the id and the buffers, so the document can be reused. The
+     * message reader of merged files holds every message of a file in one of two such reused documents.
+     */
+    public void clear() {
+        length    = 0;
+        lineCount = 0;
+        startTime = Long.MAX_VALUE;
+        endTime   = Long.MIN_VALUE;
+        speakers.clear();
+    }
+
+    /**
+     * Adds the time of a message, extending the time range of the document.
+     *
+     * @param millis Epoch milliseconds of the time stamp of the message.
+     */
+    public void addTime(long millis) {
+        startTime = Math.min(startTime, millis);
+        endTime   = Math.max(endTime, millis);
+    }
+
+    /**
+     * Adds a speaker unless the document already has it. The name is only copied into a new string if it is new.
+     *
+     * @param line Characters containing the name of the speaker.
+     * @param start Index of the first character of the name.
+     * @param end Index after the last character of the name.
+     * @return The name as held by the document.
+     */
+    public String addSpeaker(CharSequence line, int start, int end) {
+        for (String speaker : speakers) {
+            if (regionEquals(speaker, line, start, end))
+                return speaker;
+        }
+        String speaker = line.subSequence(start, end).toString();
+        speakers.add(speaker);
+        return speaker;
+    }
+
+    private static boolean regionEquals(String speaker, CharSequence line, int start, int end) {
+        if (speaker.length() != end - start)
+            return false;
+        for (int i = 0; i < speaker.length(); ++i) {
+            if (speaker.charAt(i) != line.charAt(start + i))
+                return false;
+        }
+        return true;
+    }
+
+    /** Returns the epoch milliseconds of the earliest message, or null if the document has no message. */
+    @JsonProperty("startTime")
+    public Long getStartTime() {
+        return startTime <= endTime ? startTime : null;
+    }
+
+    /** Returns the epoch milliseconds of the latest message, or null if the document has no message. */
+    @JsonProperty("endTime")
+    public Long getEndTime() {
+        return startTime <= endTime ? endTime : null;
+    }
+
+    /** Returns the names of the speakers in the order of their first message. */
+    @JsonProperty("speakers")
+    public List<String> getSpeakers() {
+        return Collections.unmodifiableList(speakers);
+    }
+
+    /** Returns the number of lines. */
+    @JsonProperty("lineCount")
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /** Indicates whether the document has no lines. */
+    @JsonIgnore
+    public boolean isEmpty() {
+        return lineCount == 0;
+    }
+
+    /**
+     * Returns a line of the document.
+     *
+     * @param index Index of the line.
+     * @return The line.
+     */
+    public String getLine(int index) {
+        return new String(chars, lineStart(index), lineLength(index));
+    }
+
+    /** Returns the offset of the first character of the line in {@link #getChars()}. */
+    public int lineStart(int index) {
+        checkLineIndex(index);
+        return index == 0 ? 0 : lineEnds[index - 1];
+    }
+
+    /** Returns the number of characters of the line. */
+    public int lineLength(int index) {
+        return lineEnds[index] - lineStart(index);
+    }
+
+    /**
+     * Returns the characters of all lines without separators. The array is not copied, so it must not be changed,
+     * and may be longer than the text.
+     */
+    @JsonIgnore
+    public char[] getChars() {
+        return chars;
     }
 
     public String toString() {
-        StringBuffer stringBuffer = new StringBuffer();
-        text.forEach(x -> { stringBuffer.append(x); stringBuffer.append(System.lineSeparator()); });
-        return stringBuffer.toString();
+        String lineSeparator = System.lineSeparator();
+        StringBuilder stringBuilder = new StringBuilder(length + lineCount * lineSeparator.length());
+        for (int i = 0; i < lineCount; ++i) {
+            stringBuilder.append(chars, lineStart(i), lineLength(i)).append(lineSeparator);
+        }
+        return stringBuilder.toString();
+    }
+
+    private void addLineEnd(int end) {
+        if (lineCount == lineEnds.length)
+            lineEnds = Arrays.copyOf(lineEnds, 2 * lineEnds.length);
+        lineEnds[lineCount++] = end;
+        length = end;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > chars.length)
+            chars = Arrays.copyOf(chars, Math.max(capacity, 2 * chars.length));
+    }
+
+    private void checkLineIndex(int index) {
+        if (index < 0 || index >= lineCount)
+            throw new IndexOutOfBoundsException("Line: " + index + ", lines: " + lineCount);
     }
 }
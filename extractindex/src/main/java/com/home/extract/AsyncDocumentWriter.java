@@ -0,0 +1,179 @@
+package com.home.extract;
+
+import com.home.common.IngestMetrics;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.log4j.BasicConfigurator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands documents to writer threads through a bounded queue, so the extracting thread only waits for the disk when
+ * the queue is full. Every writer thread takes all queued documents up to a batch size at once and writes them in a
+ * row. Batching only saves handoffs through the queue, each document is still written to the target on its own:
+ * the files layout needs a file per document and the store already collects documents into compressed blocks
+ * before writing. Documents which cannot be written are counted instead of stopping the writers.
+ */
+class AsyncDocumentWriter implements Closeable {
+
+    private static final Log logger = LogFactory.getLog(AsyncDocumentWriter.class);
+
+    /** Maximal number of documents a writer thread takes from the queue at once, they are written one by one. */
+    static final int MAX_BATCH_SIZE = 256;
+
+    /** Errors logged in detail, later errors are only counted. */
+    private static final int LOGGED_ERRORS = 10;
+
+    private static final class Entry {
+        final long number;
+        final byte[] document;
+
+        Entry(long number, byte[] document) {
+            this.number   = number;
+            this.document = document;
+        }
+    }
+
+    private static final Entry END = new Entry(-1, null);
+
+    private final DocumentTarget target;
+
+    private final BlockingQueue<Entry> queue;
+
+    private final Thread[] threads;
+
+    private final AtomicLong writtenCount = new AtomicLong();
+
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private boolean closed = false;
+
+    /**
+     * Starts the writer threads.
+     *
+     * @param target Target the documents are written to.
+     * @param writerThreads Number of writer threads, a target which is not concurrent gets a single thread.
+     * @param queueCapacity Number of documents queued before {@link #add} blocks.
+     */
+    AsyncDocumentWriter(final DocumentTarget target, final int writerThreads, final int queueCapacity) {
+        if (target == null)
+            throw new NullPointerException("Null parameter provided!");
+        if (writerThreads < 1 || queueCapacity < 1)
+            throw new IllegalArgumentException("Writer threads and queue capacity must be positive!");
+        this.target  = target;
+        this.queue   = new ArrayBlockingQueue<>(queueCapacity);
+        this.threads = new Thread[target.isConcurrent() ? writerThreads : 1];
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i] = new Thread(this::writeBatches, "document-writer-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+    }
+
+    /**
+     * Queues a document, waiting while the queue is full.
+     *
+     * @param number Number of the document.
+     * @param document The bytes of the document.
+     * @throws InterruptedIOException if interrupted while waiting.
+     */
+    void add(final long number, final byte[] document) throws InterruptedIOException {
+        if (document == null)
+            throw new NullPointerException("Null parameter provided!");
+        if (closed)
+            throw new IllegalStateException("Writer is closed");
+        try {
+            queue.put(new Entry(number, document));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while queueing document " + number);
+        }
+    }
+
+    /**
+     * @return The number of documents written.
+     */
+    long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    /**
+     * @return The number of documents which could not be written.
+     */
+    long getFailedCount() {
+        return failedCount.get();
+    }
+
+    private void writeBatches() {
+        List<Entry> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+                for (int i = 0; i < batch.size(); ++i) {
+                    Entry entry = batch.get(i);
+                    if (entry == END) {
+                        // the end markers of the other threads may have been taken along
+                        for (int j = i + 1; j < batch.size(); ++j) {
+                            queue.put(END);
+                        }
+                        return;
+                    }
+                    write(entry);
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            logger.error("Document writer interrupted, " + queue.size() + " queued documents are not written");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(final Entry entry) {
+        try {
+            target.write(entry.number, entry.document);
+            writtenCount.incrementAndGet();
+            IngestMetrics.global().addSaved(1, 0);
+        } catch (IOException | RuntimeException e) {
+            IngestMetrics.global().addSaved(0, 1);
+            if (failedCount.incrementAndGet() <= LOGGED_ERRORS) {
+                logger.error("Can't write document " + entry.number + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * Waits until all queued documents are written and stops the writer threads. The target is not closed.
+     *
+     * @throws InterruptedIOException if interrupted while waiting.
+     */
+    @Override
+    public void close() throws InterruptedIOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            for (Thread thread : threads) {
+                queue.put(END);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the document writers");
+        }
+    }
+
+    static {
+        BasicConfigurator.configure();
+    }
+}
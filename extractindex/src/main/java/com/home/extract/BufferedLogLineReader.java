@@ -0,0 +1,56 @@
+package com.home.extract;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Line reader that decodes every line using a {@link BufferedReader}.
+ */
+class BufferedLogLineReader implements LogLineReader {
+
+    private final BufferedReader reader;
+
+    private final CountingInputStream file;
+
+    private String line;
+
+    /**
+     * @param reader Reader decoding the file.
+     * @param file Stream of the file below the reader, counting the bytes consumed.
+     */
+    BufferedLogLineReader(final BufferedReader reader, final CountingInputStream file) {
+        this.reader = reader;
+        this.file   = file;
+    }
+
+    @Override
+    public boolean nextLine() throws IOException {
+        line = reader.readLine();
+        return line != null;
+    }
+
+    @Override
+    public CharSequence line() {
+        return line;
+    }
+
+    @Override
+    public CharSequence text(final int from) {
+        return line.substring(from);
+    }
+
+    @Override
+    public long lineOffset() {
+        return -1;
+    }
+
+    @Override
+    public long bytesRead() {
+        return file.getCount();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
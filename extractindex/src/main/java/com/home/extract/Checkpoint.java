@@ -0,0 +1,70 @@
+package com.home.extract;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * State of a log file after an incremental run. The last document of a file may still grow when new lines are
+ * appended, so the next run starts reading at the first line of that document and extracts it again under the
+ * same number. Documents that are complete are never read again.
+ */
+public final class Checkpoint {
+
+    private final long offset;
+
+    private final int documentNumber;
+
+    private final long lastMillis;
+
+    private final long fileSize;
+
+    private final boolean lastDocumentExtracted;
+
+    /**
+     * Constructs a checkpoint.
+     *
+     * @param offset Byte offset of the first line of the last document, -1 for compressed files.
+     * @param documentNumber Number of the last document.
+     * @param lastMillis Time stamp of the last line with a valid time stamp, Long.MIN_VALUE if none was read.
+     * @param fileSize Size of the file when it was read.
+     * @param lastDocumentExtracted Whether the last document was extracted although it was still open.
+     */
+    @JsonCreator
+    public Checkpoint(@JsonProperty("offset") final long offset,
+                      @JsonProperty("documentNumber") final int documentNumber,
+                      @JsonProperty("lastMillis") final long lastMillis,
+                      @JsonProperty("fileSize") final long fileSize,
+                      @JsonProperty("lastDocumentExtracted") final boolean lastDocumentExtracted) {
+        this.offset                = offset;
+        this.documentNumber        = documentNumber;
+        this.lastMillis            = lastMillis;
+        this.fileSize              = fileSize;
+        this.lastDocumentExtracted = lastDocumentExtracted;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public int getDocumentNumber() {
+        return documentNumber;
+    }
+
+    public long getLastMillis() {
+        return lastMillis;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public boolean isLastDocumentExtracted() {
+        return lastDocumentExtracted;
+    }
+
+    @Override
+    public String toString() {
+        return "Checkpoint{offset=" + offset + ", documentNumber=" + documentNumber + ", lastMillis=" + lastMillis
+                + ", fileSize=" + fileSize + ", lastDocumentExtracted=" + lastDocumentExtracted + "}";
+    }
+}
@@ -0,0 +1,70 @@
+package com.home.extract;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Checkpoints of log files persisted as a JSON file and keyed by the absolute path of each log file. The JSON file
+ * is replaced atomically on every save, so an interrupted run leaves the checkpoints of the previous save.
+ */
+public class CheckpointStore {
+
+    private final Path path;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final Map<String, Checkpoint> checkpoints;
+
+    /**
+     * Loads the checkpoints from a file, starting without checkpoints if the file does not exist.
+     *
+     * @param path Location of the JSON file.
+     * @throws IOException if the file exists but cannot be read.
+     */
+    public CheckpointStore(final Path path) throws IOException {
+        if (path == null)
+            throw new NullPointerException("Null parameter provided!");
+        this.path = path;
+        if (Files.exists(path)) {
+            checkpoints = objectMapper.readValue(path.toFile(), new TypeReference<TreeMap<String, Checkpoint>>() {});
+        } else {
+            checkpoints = new TreeMap<>();
+        }
+    }
+
+    /**
+     * @param logFile A log file.
+     * @return The checkpoint of the log file or null if it was never read.
+     */
+    public synchronized Checkpoint get(final Path logFile) {
+        return checkpoints.get(key(logFile));
+    }
+
+    /**
+     * Sets the checkpoint of a log file and saves all checkpoints.
+     *
+     * @param logFile A log file.
+     * @param checkpoint The new checkpoint of the log file.
+     * @throws IOException if the checkpoints cannot be written.
+     */
+    public synchronized void put(final Path logFile, final Checkpoint checkpoint) throws IOException {
+        if (checkpoint == null)
+            throw new NullPointerException("Null parameter provided!");
+        checkpoints.put(key(logFile), checkpoint);
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        objectMapper.writeValue(temporary.toFile(), checkpoints);
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private String key(final Path logFile) {
+        return logFile.toAbsolutePath().normalize().toString();
+    }
+}
@@ -0,0 +1,60 @@
+package com.home.extract;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Stream counting the bytes read from another stream. Placed directly above a file, below decompression and
+ * decoding, it tells how much of the file on disk was consumed, which is what progress is measured against.
+ */
+final class CountingInputStream extends FilterInputStream {
+
+    private long count = 0;
+
+    /**
+     * @param input The stream whose bytes are counted.
+     */
+    CountingInputStream(final InputStream input) {
+        super(input);
+        if (input == null)
+            throw new NullPointerException("Null parameter provided!");
+    }
+
+    /**
+     * @return Number of bytes read or skipped so far.
+     */
+    long getCount() {
+        return count;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int read = in.read();
+        if (read >= 0) {
+            ++count;
+        }
+        return read;
+    }
+
+    @Override
+    public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+        int read = in.read(buffer, offset, length);
+        if (read > 0) {
+            count += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(final long length) throws IOException {
+        long skipped = in.skip(length);
+        count += skipped;
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+}
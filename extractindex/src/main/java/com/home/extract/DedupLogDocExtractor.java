@@ -0,0 +1,88 @@
+package com.home.extract;
+
+import com.home.common.IngestMetrics;
+import com.home.common.LogDocument;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.log4j.BasicConfigurator;
+
+import java.io.IOException;
+
+/**
+ * Extractor passing on the documents of another extractor which are no duplicates of documents before, as decided
+ * by a {@link DuplicateIndex}. Duplicates are skipped before they reach indexing or saving and are counted in the
+ * {@link IngestMetrics}. Documents already passed on are not changed, so a duplicate is dropped rather than merged
+ * into the document it duplicates.
+ */
+public class DedupLogDocExtractor implements LogDocExtractor {
+
+    private static final Log logger = LogFactory.getLog(DedupLogDocExtractor.class);
+
+    private final LogDocExtractor extractor;
+
+    private final DuplicateIndex duplicates;
+
+    /**
+     * Constructs the extractor positioned at the first document of the other extractor which is no duplicate.
+     *
+     * @param extractor Extractor of the documents.
+     * @param duplicates Index of the documents seen before, may be shared with other extractors.
+     */
+    public DedupLogDocExtractor(final LogDocExtractor extractor, final DuplicateIndex duplicates) {
+        if (extractor == null || duplicates == null)
+            throw new NullPointerException("Null parameter provided!");
+        this.extractor  = extractor;
+        this.duplicates = duplicates;
+        skipDuplicates();
+    }
+
+    private void skipDuplicates() {
+        while (extractor.hasNext()) {
+            LogDocument document = extractor.current();
+            DuplicateIndex.Match match = duplicates.check(document);
+            if (match == DuplicateIndex.Match.NONE) {
+                return;
+            }
+            IngestMetrics.global().addDuplicate();
+            if (logger.isDebugEnabled())
+                logger.debug("Dropped document " + document.getId() + " as " + match + " duplicate");
+            extractor.parseNext();
+        }
+    }
+
+    /**
+     * Parses the next document which is no duplicate.
+     *
+     * @return The newly parsed document, empty if there are no more documents.
+     */
+    @Override
+    public LogDocument parseNext() {
+        extractor.parseNext();
+        skipDuplicates();
+        return extractor.current();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return extractor.hasNext();
+    }
+
+    @Override
+    public LogDocument current() {
+        return extractor.current();
+    }
+
+    /**
+     * Closes the other extractor, the index of duplicates stays open.
+     *
+     * @throws IOException if a log file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        extractor.close();
+    }
+
+    static {
+        BasicConfigurator.configure();
+    }
+}
@@ -1,23 +1,47 @@
 package com.home.extract;
 
+import com.home.common.DocumentPipeline;
+import com.home.common.IngestMetrics;
 import com.home.common.LogDocument;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.log4j.BasicConfigurator;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * This class extracts documents using {@link SkypeLogDocExtractor} and writes them to disk.
+ * This class extracts documents using a {@link LogDocExtractor} and writes them to disk. Documents are converted to
+ * bytes on the workers of a {@link DocumentPipeline} while earlier documents are written, either on the thread
+ * running the pipeline or, if {@link #setAsync asynchronous}, on writer threads fed by a bounded queue.
  */
 public class DiskDocumentWritter {
 
+    /** How the documents are laid out in the output directory. */
+    public enum Layout {
+        /** One file per document, named prefix followed by the number of the document. */
+        FILES,
+        /** Compressed segment files written by a {@link DocumentStoreWriter}, read with a {@link DocumentStoreReader}. */
+        STORE
+    }
+
     private static final Log logger = LogFactory.getLog(DiskDocumentWritter.class);
 
-    private SkypeLogDocExtractor skypeLogDocExtractor;
+    /** Write errors logged in detail, later errors are only counted. */
+    private static final int LOGGED_ERRORS = 10;
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+
+    private LogDocExtractor logDocExtractor;
 
     private long count;
 
@@ -27,30 +51,136 @@ public class DiskDocumentWritter {
 
     private String outputDir;
 
+    private DocumentPipeline pipeline = new DocumentPipeline();
+
+    private Layout layout = Layout.FILES;
+
+    private FlushPolicy flushPolicy = FlushPolicy.none();
+
+    private int writerThreads = 0;
+
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+    private long failedCount;
+
+    private long syncFailures;
+
     /**
      * Constructs a disk document writer object.
      *
-     * @param skypeLogDocExtractor Object of type {@link SkypeLogDocExtractor} used to extract documents from logs.
+     * @param logDocExtractor Object of type {@link LogDocExtractor} used to extract documents from logs.
      */
-    public DiskDocumentWritter(final SkypeLogDocExtractor skypeLogDocExtractor) {
-        if (skypeLogDocExtractor == null)
+    public DiskDocumentWritter(final LogDocExtractor logDocExtractor) {
+        if (logDocExtractor == null)
             throw new NullPointerException("Null parameter provided!");
-        this.skypeLogDocExtractor = skypeLogDocExtractor;
+        this.logDocExtractor = logDocExtractor;
     }
 
     /**
-     * Saves a number of documents to a provided directory.
+     * Saves a number of documents to a provided directory. Documents which cannot be written are skipped and
+     * counted, see {@link #getFailedCount()}.
      *
      * @param outputDir The output path to write the documnts.
-     * @param prefix Each file will begin with this prefix followed by a count.
+     * @param prefix Each file will begin with this prefix followed by a count, or the segment number for the
+     *               {@link Layout#STORE store layout}.
      * @param maxNofDocs Maximum number of document to save to the provided directory.
+     * @return The number of documents saved.
      */
-    public void saveDocuments(final String outputDir, final String prefix, final long maxNofDocs) {
+    public long saveDocuments(final String outputDir, final String prefix, final long maxNofDocs) {
         setAndValidateVars(outputDir, prefix, maxNofDocs);
-        while(moreDocsToSave()) {
-            saveDocument(skypeLogDocExtractor.current());
-            skypeLogDocExtractor.parseNext();
+        Charset charset = Charset.defaultCharset();
+        SyncingTarget target = new SyncingTarget(layout == Layout.STORE
+                ? new StoreTarget(new DocumentStoreWriter(Paths.get(outputDir), prefix))
+                : new FilesTarget(this.outputDir, prefix, flushPolicy.getMode() != FlushPolicy.Mode.NONE),
+                flushPolicy);
+        try {
+            if (writerThreads == 0) {
+                pipeline.run(logDocExtractor.stream().limit(maxNofDoc), doc -> toBytes(doc, charset),
+                        doc -> saveDocument(target, doc));
+            } else {
+                AsyncDocumentWriter writer = new AsyncDocumentWriter(target, writerThreads, queueCapacity);
+                try {
+                    pipeline.run(logDocExtractor.stream().limit(maxNofDoc),
+                            doc -> toBytes(doc, charset), doc -> writer.add(++count, doc));
+                } finally {
+                    writer.close();
+                    failedCount += writer.getFailedCount();
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Error while saving documents: " + e);
+        } finally {
+            target.close();
+            syncFailures = target.syncFailures;
         }
+        if (failedCount > 0 || syncFailures > 0) {
+            logger.error(failedCount + " of " + count + " documents could not be saved"
+                    + (syncFailures > 0 ? ", syncing to disk failed " + syncFailures + " times" : ""));
+        }
+        return count - failedCount;
+    }
+
+    /**
+     * @return The number of documents of the last call of saveDocuments which could not be written.
+     */
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * @return The number of times documents of the last call of saveDocuments could not be synced to the disk or the
+     * output could not be closed. Documents may then be lost although they were written.
+     */
+    public long getSyncFailures() {
+        return syncFailures;
+    }
+
+    /**
+     * Writes documents on background threads, so extraction only waits for the disk when the queue is full. By
+     * default documents are written on the thread running the pipeline.
+     *
+     * @param writerThreads Number of writer threads, 0 to write synchronously. The store layout always uses a
+     *                      single writer thread to keep the order of the documents.
+     * @param queueCapacity Number of documents waiting to be written before extraction blocks.
+     */
+    public void setAsync(final int writerThreads, final int queueCapacity) {
+        if (writerThreads < 0 || queueCapacity < 1)
+            throw new IllegalArgumentException("Invalid writer threads or queue capacity!");
+        this.writerThreads = writerThreads;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Sets when saved documents are forced to the disk, never by default.
+     *
+     * @param flushPolicy The policy to use.
+     */
+    public void setFlushPolicy(final FlushPolicy flushPolicy) {
+        if (flushPolicy == null)
+            throw new NullPointerException("Null parameter provided!");
+        this.flushPolicy = flushPolicy;
+    }
+
+    /**
+     * Sets how documents are laid out in the output directory, one file per document by default.
+     *
+     * @param layout The layout to use.
+     */
+    public void setLayout(final Layout layout) {
+        if (layout == null)
+            throw new NullPointerException("Null parameter provided!");
+        this.layout = layout;
+    }
+
+    /**
+     * Sets the pipeline used for converting and writing documents.
+     *
+     * @param pipeline The pipeline to use.
+     */
+    public void setPipeline(final DocumentPipeline pipeline) {
+        if (pipeline == null)
+            throw new NullPointerException("Null parameter provided!");
+        this.pipeline = pipeline;
     }
 
     private void setAndValidateVars(final String outputDir, final String prefix, final long maxNofDocs) {
@@ -60,14 +190,12 @@ public class DiskDocumentWritter {
             throw new IllegalArgumentException("Max number of documents must be non-negative!");
         this.prefix    = prefix;
         this.count     = 0;
+        this.failedCount  = 0;
+        this.syncFailures = 0;
         this.outputDir = ensureSeparator(outputDir);
         this.maxNofDoc = maxNofDocs;
     }
 
-    private boolean moreDocsToSave() {
-        return count < maxNofDoc && skypeLogDocExtractor.hasNext();
-    }
-
     private String ensureSeparator(String path) {
         assert path != null;
         String pathWithSeparator;
@@ -78,23 +206,167 @@ public class DiskDocumentWritter {
         return pathWithSeparator;
     }
 
-    private void saveDocument(LogDocument doc) {
-        BufferedWriter writer = null;
+    private static byte[] toBytes(LogDocument doc, Charset charset) {
+        byte[] bytes = doc.toString().getBytes(charset);
+        IngestMetrics.global().addDocument(bytes.length);
+        return bytes;
+    }
+
+    private void saveDocument(DocumentTarget target, byte[] doc) {
+        long number = ++count;
         try {
-            String filename = outputDir + prefix + String.valueOf(++count);
-            writer = new BufferedWriter(new FileWriter(filename));
-            writer.write(doc.toString());
+            target.write(number, doc);
+            IngestMetrics.global().addSaved(1, 0);
+        } catch (IOException e) {
+            IngestMetrics.global().addSaved(0, 1);
+            if (++failedCount <= LOGGED_ERRORS) {
+                logger.error("Can't write document " + number + ": " + e);
+            }
         }
-        catch(IOException e) {
-            logger.error("Can't write to file: " + e);
+    }
+
+    /** Writes every document to its own file. The files are only remembered for syncing if they will be synced. */
+    private static class FilesTarget implements DocumentTarget {
+        private final String outputDir;
+        private final String prefix;
+        private final boolean synced;
+        private final List<Path> unsynced = new ArrayList<>();
+
+        FilesTarget(String outputDir, String prefix, boolean synced) {
+            this.outputDir = outputDir;
+            this.prefix    = prefix;
+            this.synced    = synced;
         }
-        finally {
-            if (writer != null)
-                try {
-                    writer.close();
+
+        @Override
+        public void write(long number, byte[] document) throws IOException {
+            Path file = Paths.get(outputDir + prefix + number);
+            try (OutputStream writer = new FileOutputStream(file.toFile())) {
+                writer.write(document);
+            }
+            if (synced) {
+                synchronized (unsynced) {
+                    unsynced.add(file);
+                }
+            }
+        }
+
+        @Override
+        public void sync() throws IOException {
+            List<Path> files;
+            synchronized (unsynced) {
+                files = new ArrayList<>(unsynced);
+                unsynced.clear();
+            }
+            for (Path file : files) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.force(true);
+                }
+            }
+        }
+
+        @Override
+        public boolean isConcurrent() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /** Appends the documents to a {@link DocumentStoreWriter}, in the order they are written. */
+    private static class StoreTarget implements DocumentTarget {
+        private final DocumentStoreWriter store;
+
+        StoreTarget(DocumentStoreWriter store) {
+            this.store = store;
+        }
+
+        @Override
+        public synchronized void write(long number, byte[] document) throws IOException {
+            store.add(document);
+        }
+
+        @Override
+        public synchronized void sync() throws IOException {
+            store.sync();
+        }
+
+        @Override
+        public boolean isConcurrent() {
+            return false;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            store.close();
+        }
+    }
+
+    /**
+     * Syncs a target according to a {@link FlushPolicy}. Failed syncs are logged and counted, the documents stay
+     * written.
+     */
+    private static class SyncingTarget implements DocumentTarget {
+        private final DocumentTarget target;
+        private final FlushPolicy policy;
+        private long documentsSinceSync = 0;
+        private long bytesSinceSync = 0;
+        private volatile long syncFailures = 0;
+
+        SyncingTarget(DocumentTarget target, FlushPolicy policy) {
+            this.target = target;
+            this.policy = policy;
+        }
+
+        @Override
+        public void write(long number, byte[] document) throws IOException {
+            target.write(number, document);
+            boolean due;
+            synchronized (this) {
+                due = policy.isDue(++documentsSinceSync, bytesSinceSync += document.length);
+                if (due) {
+                    documentsSinceSync = 0;
+                    bytesSinceSync     = 0;
                 }
-                catch(IOException e) {
+            }
+            if (due) {
+                sync();
+            }
+        }
+
+        @Override
+        public void sync() {
+            try {
+                target.sync();
+            } catch (IOException e) {
+                synchronized (this) {
+                    ++syncFailures;
+                }
+                logger.error("Can't sync documents to disk: " + e);
+            }
+        }
+
+        @Override
+        public boolean isConcurrent() {
+            return target.isConcurrent();
+        }
+
+        /** Syncs unless the policy is none and closes the target, a failure to close is counted as failed sync. */
+        @Override
+        public void close() {
+            if (policy.getMode() != FlushPolicy.Mode.NONE) {
+                sync();
+            }
+            try {
+                target.close();
+            } catch (IOException e) {
+                synchronized (this) {
+                    ++syncFailures;
                 }
+                logger.error("Can't close saved documents: " + e);
+            }
         }
     }
 
@@ -0,0 +1,210 @@
+package com.home.extract;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the documents written by a {@link DocumentStoreWriter}. Segment and index files are memory mapped, fetching
+ * a document inflates only the block containing it. Documents are numbered from 1 in the order they were added,
+ * like the files of the one file per document layout.
+ */
+public class DocumentStoreReader implements Closeable, Iterable<byte[]> {
+
+    private static class Segment {
+        final ByteBuffer docs;
+        final ByteBuffer index;
+        final long firstDoc;
+        final int docCount;
+
+        Segment(ByteBuffer docs, ByteBuffer index, long firstDoc) {
+            this.docs     = docs;
+            this.index    = index;
+            this.firstDoc = firstDoc;
+            this.docCount = index.limit() / DocumentStoreWriter.INDEX_ENTRY_BYTES;
+        }
+    }
+
+    private final List<Segment> segments;
+
+    private final long docCount;
+
+    private final Inflater inflater = new Inflater();
+
+    private Segment cachedSegment;
+
+    private long cachedOffset = -1;
+
+    private byte[] cachedBlock;
+
+    private DocumentStoreReader(final List<Segment> segments, final long docCount) {
+        this.segments = segments;
+        this.docCount = docCount;
+    }
+
+    /**
+     * Opens the segments written with a prefix.
+     *
+     * @param directory The directory of the segments.
+     * @param prefix Prefix of the segment files.
+     * @return The reader.
+     * @throws IOException if there is no segment or a segment cannot be mapped.
+     */
+    public static DocumentStoreReader open(final Path directory, final String prefix) throws IOException {
+        if (directory == null || prefix == null)
+            throw new NullPointerException("Null parameter provided!");
+
+        List<Segment> segments = new ArrayList<>();
+        long docCount = 0;
+        for (int i = 0; ; ++i) {
+            Path docs = DocumentStoreWriter.segmentFile(directory, prefix, i, DocumentStoreWriter.DOCS_EXTENSION);
+            if (!Files.exists(docs)) {
+                break;
+            }
+            Segment segment = new Segment(map(docs),
+                    map(DocumentStoreWriter.segmentFile(directory, prefix, i, DocumentStoreWriter.INDEX_EXTENSION)),
+                    docCount + 1);
+            segments.add(segment);
+            docCount += segment.docCount;
+        }
+        if (segments.isEmpty())
+            throw new NoSuchFileException(
+                    DocumentStoreWriter.segmentFile(directory, prefix, 0, DocumentStoreWriter.DOCS_EXTENSION).toString());
+        return new DocumentStoreReader(segments, docCount);
+    }
+
+    private static ByteBuffer map(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Segment file " + file + " is larger than " + Integer.MAX_VALUE + " bytes");
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * @return The number of documents.
+     */
+    public long getDocCount() {
+        return docCount;
+    }
+
+    /**
+     * Fetches a document.
+     *
+     * @param number Number of the document, from 1 to {@link #getDocCount()}.
+     * @return The bytes of the document.
+     * @throws IOException if the block of the document is corrupt.
+     */
+    public synchronized byte[] get(final long number) throws IOException {
+        if (number < 1 || number > docCount)
+            throw new IndexOutOfBoundsException("No document " + number + ", documents are 1 to " + docCount);
+
+        Segment segment = segments.get(0);
+        for (int i = segments.size() - 1; i > 0; --i) {
+            if (segments.get(i).firstDoc <= number) {
+                segment = segments.get(i);
+                break;
+            }
+        }
+        int entry = (int) (number - segment.firstDoc) * DocumentStoreWriter.INDEX_ENTRY_BYTES;
+        long blockOffset = segment.index.getLong(entry);
+        int start = segment.index.getInt(entry + 8);
+        int length = segment.index.getInt(entry + 12);
+        if (segment != cachedSegment || blockOffset != cachedOffset) {
+            cachedBlock   = inflate(segment.docs, (int) blockOffset);
+            cachedSegment = segment;
+            cachedOffset  = blockOffset;
+        }
+        byte[] document = new byte[length];
+        System.arraycopy(cachedBlock, start, document, 0, length);
+        return document;
+    }
+
+    /**
+     * Iterates over all documents in order, inflating every block once.
+     */
+    @Override
+    public Iterator<byte[]> iterator() {
+        return new Iterator<byte[]>() {
+            private final Inflater blockInflater = new Inflater();
+            private int segmentIndex = 0;
+            private int doc = 0;
+            private long blockOffset = -1;
+            private byte[] block;
+
+            @Override
+            public boolean hasNext() {
+                while (segmentIndex < segments.size() && doc == segments.get(segmentIndex).docCount) {
+                    ++segmentIndex;
+                    doc = 0;
+                }
+                return segmentIndex < segments.size();
+            }
+
+            @Override
+            public byte[] next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                Segment segment = segments.get(segmentIndex);
+                int entry = doc++ * DocumentStoreWriter.INDEX_ENTRY_BYTES;
+                long offset = segment.index.getLong(entry);
+                try {
+                    if (offset != blockOffset) {
+                        block       = inflate(blockInflater, segment.docs, (int) offset);
+                        blockOffset = offset;
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                int start = segment.index.getInt(entry + 8);
+                byte[] document = new byte[segment.index.getInt(entry + 12)];
+                System.arraycopy(block, start, document, 0, document.length);
+                return document;
+            }
+        };
+    }
+
+    private byte[] inflate(final ByteBuffer docs, final int offset) throws IOException {
+        return inflate(inflater, docs, offset);
+    }
+
+    private static byte[] inflate(final Inflater inflater, final ByteBuffer docs, final int offset)
+            throws IOException {
+        ByteBuffer buffer = docs.duplicate();
+        buffer.position(offset);
+        byte[] block = new byte[buffer.getInt()];
+        byte[] compressed = new byte[buffer.getInt()];
+        buffer.get(compressed);
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            int length = 0;
+            while (length < block.length && !inflater.finished()) {
+                int inflated = inflater.inflate(block, length, block.length - length);
+                if (inflated == 0 && inflater.needsInput())
+                    throw new IOException("Truncated block at offset " + offset);
+                length += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt block at offset " + offset + ": " + e.getMessage(), e);
+        }
+        return block;
+    }
+
+    @Override
+    public synchronized void close() {
+        inflater.end();
+        cachedBlock = null;
+    }
+}
@@ -0,0 +1,233 @@
+package com.home.extract;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Appends documents to large segment files instead of writing one file per document. Documents are collected into
+ * blocks which are compressed with a {@link Deflater}, a sidecar index file holds the location of every document so
+ * {@link DocumentStoreReader} can fetch a single document by inflating one block.
+ *
+ * <p>For a prefix P the segments are named P.00000.docs, P.00001.docs, ... with the indexes P.00000.idx, ...
+ * A segment is closed once it reaches the maximal segment size. Block format: uncompressed length and compressed
+ * length as ints followed by the compressed bytes. Index format: for every document, in order, the offset of its
+ * block in the segment as long, its offset within the uncompressed block and its length as ints.
+ */
+public class DocumentStoreWriter implements Closeable {
+
+    public static final String DOCS_EXTENSION = ".docs";
+
+    public static final String INDEX_EXTENSION = ".idx";
+
+    /** Bytes per document in an index file. */
+    static final int INDEX_ENTRY_BYTES = 16;
+
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    public static final long DEFAULT_MAX_SEGMENT_BYTES = 1024L * 1024 * 1024;
+
+    private final Path directory;
+
+    private final String prefix;
+
+    private final int blockSize;
+
+    private final long maxSegmentBytes;
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+    private byte[] block;
+
+    private int blockLength = 0;
+
+    private byte[] compressed = new byte[0];
+
+    private int blockDocs = 0;
+
+    private int segment = -1;
+
+    private FileOutputStream docsFile;
+
+    private FileOutputStream indexFile;
+
+    private DataOutputStream docs;
+
+    private DataOutputStream index;
+
+    private long segmentBytes;
+
+    private long count = 0;
+
+    /** Files of segments closed since the last sync. */
+    private final List<Path> unsyncedFiles = new ArrayList<>();
+
+    /**
+     * Constructs a writer with the default block and segment size.
+     *
+     * @param directory The output directory.
+     * @param prefix Prefix of the segment files.
+     */
+    public DocumentStoreWriter(final Path directory, final String prefix) {
+        this(directory, prefix, DEFAULT_BLOCK_SIZE, DEFAULT_MAX_SEGMENT_BYTES);
+    }
+
+    /**
+     * Constructs a writer.
+     *
+     * @param directory The output directory.
+     * @param prefix Prefix of the segment files.
+     * @param blockSize Uncompressed bytes collected before a block is compressed, larger blocks compress better
+     *                  but make fetching a single document slower.
+     * @param maxSegmentBytes Size of a segment file after which the next segment is started.
+     */
+    public DocumentStoreWriter(final Path directory, final String prefix, final int blockSize,
+                               final long maxSegmentBytes) {
+        if (directory == null || prefix == null)
+            throw new NullPointerException("Null parameter provided!");
+        if (blockSize < 1 || maxSegmentBytes < 1)
+            throw new IllegalArgumentException("Block and segment size must be positive!");
+        this.directory       = directory;
+        this.prefix          = prefix;
+        this.blockSize       = blockSize;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.block           = new byte[blockSize];
+    }
+
+    /**
+     * Appends a document.
+     *
+     * @param document The bytes of the document.
+     * @throws IOException if a segment cannot be written.
+     */
+    public void add(final byte[] document) throws IOException {
+        if (document == null)
+            throw new NullPointerException("Null parameter provided!");
+        if (docs == null) {
+            startSegment();
+        }
+        if (blockLength + document.length > block.length) {
+            block = Arrays.copyOf(block, Math.max(2 * block.length, blockLength + document.length));
+        }
+        // the current block will be written at the current end of the segment
+        index.writeLong(segmentBytes);
+        index.writeInt(blockLength);
+        index.writeInt(document.length);
+        System.arraycopy(document, 0, block, blockLength, document.length);
+        blockLength += document.length;
+        ++blockDocs;
+        ++count;
+        if (blockLength >= blockSize) {
+            writeBlock();
+            if (segmentBytes >= maxSegmentBytes) {
+                closeSegment();
+            }
+        }
+    }
+
+    /**
+     * @return The number of documents added.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Forces the documents added so far to the disk. The current block is written even if it is not full.
+     *
+     * @throws IOException if the segment cannot be written or synced.
+     */
+    public void sync() throws IOException {
+        for (Path file : unsyncedFiles) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+        }
+        unsyncedFiles.clear();
+        if (docs != null) {
+            writeBlock();
+            docs.flush();
+            index.flush();
+            docsFile.getFD().sync();
+            indexFile.getFD().sync();
+        }
+    }
+
+    private void startSegment() throws IOException {
+        ++segment;
+        docsFile  = new FileOutputStream(segmentFile(directory, prefix, segment, DOCS_EXTENSION).toFile());
+        indexFile = new FileOutputStream(segmentFile(directory, prefix, segment, INDEX_EXTENSION).toFile());
+        docs  = new DataOutputStream(new BufferedOutputStream(docsFile, 1 << 16));
+        index = new DataOutputStream(new BufferedOutputStream(indexFile, 1 << 16));
+        segmentBytes = 0;
+    }
+
+    private void writeBlock() throws IOException {
+        if (blockDocs == 0) {
+            return;
+        }
+        deflater.reset();
+        deflater.setInput(block, 0, blockLength);
+        deflater.finish();
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                compressed = Arrays.copyOf(compressed, Math.max(1024, 2 * compressed.length));
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+        docs.writeInt(blockLength);
+        docs.writeInt(compressedLength);
+        docs.write(compressed, 0, compressedLength);
+        segmentBytes += 8 + compressedLength;
+        blockLength = 0;
+        blockDocs   = 0;
+        if (block.length > 2 * blockSize) {
+            block = new byte[blockSize];
+        }
+    }
+
+    private void closeSegment() throws IOException {
+        try {
+            docs.close();
+        } finally {
+            index.close();
+            unsyncedFiles.add(segmentFile(directory, prefix, segment, DOCS_EXTENSION));
+            unsyncedFiles.add(segmentFile(directory, prefix, segment, INDEX_EXTENSION));
+            docs      = null;
+            index     = null;
+            docsFile  = null;
+            indexFile = null;
+        }
+    }
+
+    /**
+     * Writes the last block and closes the segment.
+     *
+     * @throws IOException if the segment cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (docs != null) {
+                writeBlock();
+                closeSegment();
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static Path segmentFile(final Path directory, final String prefix, final int segment, final String extension) {
+        return directory.resolve(String.format("%s.%05d%s", prefix, segment, extension));
+    }
+}
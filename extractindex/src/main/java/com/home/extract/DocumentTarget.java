@@ -0,0 +1,31 @@
+package com.home.extract;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination of the documents saved by a {@link DiskDocumentWritter}.
+ */
+interface DocumentTarget extends Closeable {
+
+    /**
+     * Writes a document. Calls may come from several threads if the target allows concurrent writes.
+     *
+     * @param number Number of the document, from 1 in the order of extraction.
+     * @param document The bytes of the document.
+     * @throws IOException if the document cannot be written, later documents may still be written.
+     */
+    void write(long number, byte[] document) throws IOException;
+
+    /**
+     * Forces the documents written so far to the disk.
+     *
+     * @throws IOException if the documents cannot be synced.
+     */
+    void sync() throws IOException;
+
+    /**
+     * @return Whether documents may be written concurrently and out of order.
+     */
+    boolean isConcurrent();
+}
@@ -0,0 +1,454 @@
+package com.home.extract;
+
+import com.home.common.LogDocument;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.log4j.BasicConfigurator;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds documents whose text equals or is similar to the text of a document seen before. Equal texts are found by a
+ * 64 bit content hash, similar texts by locality sensitive hashing of {@link MinHash} signatures: the signature is
+ * cut into bands and documents sharing the key of a band are candidates, whose similarity is estimated from their
+ * signatures. The bands are chosen so that documents at the similarity threshold become candidates with high
+ * probability.
+ *
+ * <p>The hashes and signatures of the last documents are held in memory in primitive arrays. When the given number
+ * of documents is reached, they are spilled to a file of sorted keys and signatures which is memory mapped and
+ * searched by binary search, so the memory used is bounded however many documents are checked. Only documents which
+ * are no duplicates are added. The index is shared by the threads extracting several files, so duplicates are found
+ * across files; the spill files are deleted when the index is closed.
+ */
+public class DuplicateIndex implements Closeable {
+
+    private static final Log logger = LogFactory.getLog(DuplicateIndex.class);
+
+    /** Result of checking a document. */
+    public enum Match { NONE, EXACT, NEAR }
+
+    /** Default number of documents held in memory before spilling to disk. */
+    public static final int DEFAULT_MEMORY_DOCUMENTS = 65536;
+
+    /** Number of entries of the signatures. */
+    static final int SIGNATURE_SIZE = 64;
+
+    /** The low bits of the keys of spill files hold the number of the document within its file. */
+    private static final int SLOT_BITS = 24;
+
+    private static final long SLOT_MASK = (1L << SLOT_BITS) - 1;
+
+    /** Largest capacity of the in memory hash table, the largest power of two an array can hold. */
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    /** Distinguishes the keys of content hashes from the keys of bands. */
+    private static final long CONTENT_SALT = 0x5bd1e9955bd1e995L;
+
+    private static final int HEADER_BYTES = 16;
+
+    private final double threshold;
+
+    private final int minEqualEntries;
+
+    private final int bands;
+
+    private final int rows;
+
+    private final MinHash minHash;
+
+    private final int memoryDocuments;
+
+    private final Path spillDirectory;
+
+    // documents held in memory
+    private final long[] contentHashes;
+
+    private final int[] signatures;
+
+    private int documents = 0;
+
+    // open addressing table of content and band keys to the number of their first document
+    private final long[] keys;
+
+    private final int[] slots;
+
+    private int keyCount = 0;
+
+    /** Spilled documents, newest first. */
+    private final List<SpillFile> spillFiles = new ArrayList<>();
+
+    private long uniqueCount = 0;
+
+    private long exactCount = 0;
+
+    private long nearCount = 0;
+
+    private boolean closed = false;
+
+    /**
+     * Constructs an index holding {@link #DEFAULT_MEMORY_DOCUMENTS} documents in memory and spilling to the
+     * temporary directory.
+     *
+     * @param threshold Minimal estimated Jaccard similarity of the shingles of near duplicates, 1 to only find
+     *                  documents with equal text.
+     */
+    public DuplicateIndex(final double threshold) {
+        this(threshold, DEFAULT_MEMORY_DOCUMENTS, Paths.get(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * Constructs an index.
+     *
+     * @param threshold Minimal estimated Jaccard similarity of the shingles of near duplicates, 1 to only find
+     *                  documents with equal text.
+     * @param memoryDocuments Number of documents held in memory before spilling them to disk.
+     * @param spillDirectory Directory of the spill files.
+     * @throws IllegalArgumentException if the hash table for the documents in memory would be too large.
+     */
+    public DuplicateIndex(final double threshold, final int memoryDocuments, final Path spillDirectory) {
+        if (spillDirectory == null)
+            throw new NullPointerException("Null parameter provided!");
+        if (!(threshold > 0 && threshold <= 1))
+            throw new IllegalArgumentException("Similarity threshold must be in (0, 1]!");
+        if (memoryDocuments <= 0 || memoryDocuments > SLOT_MASK)
+            throw new IllegalArgumentException("Number of documents in memory must be in [1, " + SLOT_MASK + "]!");
+        this.threshold       = threshold;
+        this.memoryDocuments = memoryDocuments;
+        this.spillDirectory  = spillDirectory;
+        boolean near = threshold < 1;
+        this.minHash         = near ? new MinHash(SIGNATURE_SIZE) : null;
+        this.rows            = near ? rowsPerBand(threshold) : 0;
+        this.bands           = near ? SIGNATURE_SIZE / rows : 0;
+        this.minEqualEntries = (int) Math.ceil(threshold * SIGNATURE_SIZE);
+        // a key per band and one for the content hash of every document, at most half of the table is used
+        long entries = (long) memoryDocuments * (bands + 1) * 2;
+        if (entries > MAX_CAPACITY)
+            throw new IllegalArgumentException("At most " + MAX_CAPACITY / ((bands + 1) * 2)
+                    + " documents fit in memory at a similarity threshold of " + threshold + "!");
+        this.contentHashes   = new long[memoryDocuments];
+        this.signatures      = new int[near ? memoryDocuments * SIGNATURE_SIZE : 0];
+        int capacity = Integer.highestOneBit((int) Math.max(2, entries - 1)) << 1;
+        this.keys            = new long[capacity];
+        this.slots           = new int[capacity];
+    }
+
+    /**
+     * Chooses the largest number of rows per band for which documents at the threshold most likely share a band:
+     * a pair of similarity s shares a band with probability 1 - (1 - s^rows)^bands, which rises steepest at about
+     * (1 / bands)^(1 / rows). More rows mean fewer candidates whose signatures must be compared.
+     */
+    static int rowsPerBand(final double threshold) {
+        int rows = 1;
+        for (int r = 2; r <= SIGNATURE_SIZE; r *= 2) {
+            if (Math.pow(1.0 / (SIGNATURE_SIZE / r), 1.0 / r) <= threshold) {
+                rows = r;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Checks whether the document duplicates a document seen before and adds it if not.
+     *
+     * @param document The document.
+     * @return How the document matched, {@link Match#NONE} if it was added.
+     * @throws UncheckedIOException if documents could not be spilled to disk.
+     */
+    public Match check(final LogDocument document) {
+        if (document == null)
+            throw new NullPointerException("Null parameter provided!");
+        long contentHash = MinHash.contentHash(document);
+        int[] signature = null;
+        long[] bandKeys = new long[bands];
+        if (minHash != null) {
+            signature = new int[SIGNATURE_SIZE];
+            if (minHash.signature(document, signature)) {
+                for (int band = 0; band < bands; ++band) {
+                    bandKeys[band] = MinHash.bandKey(signature, band, rows);
+                }
+            } else {
+                signature = null;
+            }
+        }
+        synchronized (this) {
+            if (closed)
+                throw new IllegalStateException("Duplicate index is closed");
+            if (containsContent(contentHash)) {
+                ++exactCount;
+                return Match.EXACT;
+            }
+            if (signature != null && containsSimilar(signature, bandKeys)) {
+                ++nearCount;
+                return Match.NEAR;
+            }
+            add(contentHash, signature, bandKeys);
+            ++uniqueCount;
+            return Match.NONE;
+        }
+    }
+
+    private boolean containsContent(final long contentHash) {
+        long key = contentHash ^ CONTENT_SALT;
+        int slot = get(key);
+        if (slot >= 0 && contentHashes[slot] == contentHash) {
+            return true;
+        }
+        for (SpillFile spillFile : spillFiles) {
+            for (int i = spillFile.first(key); i >= 0; i = spillFile.next(i, key)) {
+                if (spillFile.contentHash(spillFile.slot(i)) == contentHash) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean containsSimilar(final int[] signature, final long[] bandKeys) {
+        for (long key : bandKeys) {
+            int slot = get(key);
+            if (slot >= 0 && equalEntries(signature, signatures, slot * SIGNATURE_SIZE) >= minEqualEntries) {
+                return true;
+            }
+        }
+        for (SpillFile spillFile : spillFiles) {
+            for (long key : bandKeys) {
+                for (int i = spillFile.first(key); i >= 0; i = spillFile.next(i, key)) {
+                    if (spillFile.equalEntries(signature, spillFile.slot(i)) >= minEqualEntries) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int equalEntries(final int[] signature, final int[] signatures, final int offset) {
+        int equal = 0;
+        for (int i = 0; i < SIGNATURE_SIZE; ++i) {
+            if (signature[i] == signatures[offset + i]) {
+                ++equal;
+            }
+        }
+        return equal;
+    }
+
+    private void add(final long contentHash, final int[] signature, final long[] bandKeys) {
+        if (documents == memoryDocuments) {
+            try {
+                spill();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Can't spill duplicate index to " + spillDirectory, e);
+            }
+        }
+        int slot = documents++;
+        contentHashes[slot] = contentHash;
+        put(contentHash ^ CONTENT_SALT, slot);
+        if (signature != null) {
+            System.arraycopy(signature, 0, signatures, slot * SIGNATURE_SIZE, SIGNATURE_SIZE);
+            for (long key : bandKeys) {
+                put(key, slot);
+            }
+        }
+    }
+
+    /** Number of the first document with the key in memory, -1 if none. */
+    private int get(final long key) {
+        long stored = key == 0 ? 1 : key;
+        int mask = keys.length - 1;
+        for (int i = (int) MinHash.mix(stored) & mask; keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == stored) {
+                return slots[i];
+            }
+        }
+        return -1;
+    }
+
+    /** Maps the key to the document unless it is mapped already. */
+    private void put(final long key, final int slot) {
+        long stored = key == 0 ? 1 : key;
+        int mask = keys.length - 1;
+        int i = (int) MinHash.mix(stored) & mask;
+        for (; keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == stored) {
+                return;
+            }
+        }
+        keys[i]  = stored;
+        slots[i] = slot;
+        ++keyCount;
+    }
+
+    /**
+     * Writes the documents in memory to a spill file: a header, the content hashes, the signatures and the sorted
+     * keys, each key with the number of its document in the low bits.
+     */
+    private void spill() throws IOException {
+        long[] packed = new long[keyCount];
+        int count = 0;
+        for (int i = 0; i < keys.length; ++i) {
+            if (keys[i] != 0) {
+                packed[count++] = (keys[i] & ~SLOT_MASK) | slots[i];
+            }
+        }
+        Arrays.sort(packed);
+        Path file = Files.createTempFile(spillDirectory, "duplicates", ".spill");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file), 64 * 1024))) {
+            output.writeInt(documents);
+            output.writeInt(signatures.length == 0 ? 0 : SIGNATURE_SIZE);
+            output.writeInt(count);
+            output.writeInt(0);
+            for (int i = 0; i < documents; ++i) {
+                output.writeLong(contentHashes[i]);
+            }
+            for (int i = 0; i < (signatures.length == 0 ? 0 : documents * SIGNATURE_SIZE); ++i) {
+                output.writeInt(signatures[i]);
+            }
+            for (int i = 0; i < count; ++i) {
+                output.writeLong(packed[i]);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        spillFiles.add(0, new SpillFile(file, documents, signatures.length == 0 ? 0 : SIGNATURE_SIZE, count));
+        logger.debug("Spilled " + documents + " documents to " + file);
+        documents = 0;
+        keyCount  = 0;
+        Arrays.fill(keys, 0);
+    }
+
+    /** Documents spilled to disk, read through memory mapped buffers. */
+    private static final class SpillFile {
+        final Path file;
+        final LongBuffer contentHashes;
+        final IntBuffer signatures;
+        final LongBuffer keys;
+
+        SpillFile(Path file, int documents, int signatureSize, int keyCount) throws IOException {
+            this.file = file;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long position = HEADER_BYTES;
+                contentHashes = channel.map(FileChannel.MapMode.READ_ONLY, position, documents * 8L)
+                        .order(ByteOrder.BIG_ENDIAN).asLongBuffer();
+                position += documents * 8L;
+                signatures = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        (long) documents * signatureSize * 4).order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+                position += (long) documents * signatureSize * 4;
+                keys = channel.map(FileChannel.MapMode.READ_ONLY, position, keyCount * 8L)
+                        .order(ByteOrder.BIG_ENDIAN).asLongBuffer();
+            }
+        }
+
+        /** Position of the first key equal to the key in its high bits, -1 if none. */
+        int first(long key) {
+            long target = key & ~SLOT_MASK;
+            int low = 0;
+            int high = keys.limit();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (keys.get(middle) < target) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low < keys.limit() && (keys.get(low) & ~SLOT_MASK) == target ? low : -1;
+        }
+
+        /** Position of the next key equal to the key in its high bits, -1 if none. */
+        int next(int position, long key) {
+            int next = position + 1;
+            return next < keys.limit() && (keys.get(next) & ~SLOT_MASK) == (key & ~SLOT_MASK) ? next : -1;
+        }
+
+        int slot(int position) {
+            return (int) (keys.get(position) & SLOT_MASK);
+        }
+
+        long contentHash(int slot) {
+            return contentHashes.get(slot);
+        }
+
+        int equalEntries(int[] signature, int slot) {
+            int offset = slot * signature.length;
+            int equal = 0;
+            for (int i = 0; i < signature.length; ++i) {
+                if (signature[i] == signatures.get(offset + i)) {
+                    ++equal;
+                }
+            }
+            return equal;
+        }
+    }
+
+    /**
+     * @return Number of documents added because they matched no document before.
+     */
+    public synchronized long getUniqueCount() {
+        return uniqueCount;
+    }
+
+    /**
+     * @return Number of documents whose text equals the text of a document before.
+     */
+    public synchronized long getExactDuplicateCount() {
+        return exactCount;
+    }
+
+    /**
+     * @return Number of documents similar to a document before, without equal text.
+     */
+    public synchronized long getNearDuplicateCount() {
+        return nearCount;
+    }
+
+    /**
+     * @return Number of spill files written.
+     */
+    public synchronized int getSpillFileCount() {
+        return spillFiles.size();
+    }
+
+    /**
+     * Deletes the spill files.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (SpillFile spillFile : spillFiles) {
+            try {
+                Files.deleteIfExists(spillFile.file);
+            } catch (IOException e) {
+                logger.error("Can't delete spill file " + spillFile.file + ": " + e);
+            }
+        }
+        spillFiles.clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        long checked = uniqueCount + exactCount + nearCount;
+        return String.format("Dropped %d of %d documents as duplicates: %d with equal text, %d with similarity "
+                + "of at least %.2f", exactCount + nearCount, checked, exactCount, nearCount, threshold);
+    }
+
+    static {
+        BasicConfigurator.configure();
+    }
+}
@@ -0,0 +1,106 @@
+package com.home.extract;
+
+/**
+ * When saved documents are forced to the disk with fsync: never, after a number of documents or bytes, or once at
+ * the end of a save. Without fsync the operating system decides when written documents reach the disk.
+ */
+public final class FlushPolicy {
+
+    public enum Mode {
+        NONE, EVERY, AT_END
+    }
+
+    private static final FlushPolicy NONE = new FlushPolicy(Mode.NONE, 0, 0);
+
+    private static final FlushPolicy AT_END = new FlushPolicy(Mode.AT_END, 0, 0);
+
+    private final Mode mode;
+
+    private final long documents;
+
+    private final long bytes;
+
+    private FlushPolicy(final Mode mode, final long documents, final long bytes) {
+        this.mode      = mode;
+        this.documents = documents;
+        this.bytes     = bytes;
+    }
+
+    /** Never forces documents to the disk. */
+    public static FlushPolicy none() {
+        return NONE;
+    }
+
+    /** Forces all documents to the disk once the save is done. */
+    public static FlushPolicy atEnd() {
+        return AT_END;
+    }
+
+    /**
+     * Forces the documents to the disk whenever a number of documents or bytes was written since the last time,
+     * and at the end.
+     *
+     * @param documents Number of documents between two syncs, 0 to sync by bytes only.
+     * @param bytes Number of bytes between two syncs, 0 to sync by documents only.
+     * @return The policy.
+     */
+    public static FlushPolicy every(final long documents, final long bytes) {
+        if (documents < 0 || bytes < 0 || documents == 0 && bytes == 0)
+            throw new IllegalArgumentException("Number of documents or bytes must be positive!");
+        return new FlushPolicy(Mode.EVERY, documents, bytes);
+    }
+
+    /**
+     * Parses a policy: "none", "end", a number of documents (e.g. "1000") or of megabytes (e.g. "64mb").
+     *
+     * @param value The policy.
+     * @return The parsed policy.
+     */
+    public static FlushPolicy parse(final String value) {
+        if (value == null)
+            throw new NullPointerException("Null parameter provided!");
+        String policy = value.trim().toLowerCase();
+        if (policy.equals("none")) {
+            return none();
+        }
+        if (policy.equals("end")) {
+            return atEnd();
+        }
+        try {
+            if (policy.endsWith("mb")) {
+                double megabytes = Double.parseDouble(policy.substring(0, policy.length() - 2));
+                return every(0, (long) (megabytes * 1024 * 1024));
+            }
+            return every(Long.parseLong(policy), 0);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid flush policy: " + value);
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @param documentsSinceSync Documents written since the last sync.
+     * @param bytesSinceSync Bytes written since the last sync.
+     * @return Whether the documents should be synced now.
+     */
+    boolean isDue(final long documentsSinceSync, final long bytesSinceSync) {
+        return mode == Mode.EVERY && (documents > 0 && documentsSinceSync >= documents
+                || bytes > 0 && bytesSinceSync >= bytes);
+    }
+
+    @Override
+    public String toString() {
+        switch (mode) {
+            case EVERY:
+                return "every " + (documents > 0 ? documents + " documents" : "")
+                        + (documents > 0 && bytes > 0 ? " or " : "") + (bytes > 0 ? bytes + " bytes" : "");
+            case AT_END:
+                return "at end";
+            default:
+                return "none";
+        }
+    }
+}
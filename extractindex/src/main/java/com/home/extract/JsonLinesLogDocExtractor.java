@@ -0,0 +1,452 @@
+package com.home.extract;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.home.common.IngestMetrics;
+import com.home.common.LogDocument;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.log4j.BasicConfigurator;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * This class extracts documents from a JSON lines log, one JSON object per line. Only the time stamp, message and
+ * speaker fields of every object are read with a streaming {@link JsonParser}, all other fields are skipped without
+ * building objects. Messages close to each other w.r.t. their time stamp form a single document, as for
+ * {@link SkypeLogDocExtractor}. Messages without a valid time stamp are continuation lines of the previous message,
+ * lines which are no JSON object with a message are dropped.
+ *
+ * <p>Time stamps are epoch milliseconds as integer, epoch seconds as decimal number or ISO-8601 strings, which are
+ * in the default time zone if they have no offset. A message containing line breaks adds a line per part.
+ */
+public class JsonLinesLogDocExtractor implements LogDocExtractor {
+
+    private static final Log logger = LogFactory.getLog(JsonLinesLogDocExtractor.class);
+
+    public static final String DEFAULT_TIMESTAMP_FIELD = "timestamp";
+
+    public static final String DEFAULT_MESSAGE_FIELD = "message";
+
+    public static final String DEFAULT_SPEAKER_FIELD = "speaker";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final DateTimeFormatter ISO_PARSER = ISODateTimeFormat.dateTimeParser();
+
+    private static final long INVALID = TimestampParser.INVALID;
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    /** Result of parsing a line. */
+    private enum LineType { BLANK, MALFORMED, NO_TIMESTAMP, MESSAGE }
+
+    private final InputStream input;
+
+    /** Stream of the file below decompression, counting the bytes consumed. */
+    private final CountingInputStream file;
+
+    private final long maxMillisecs;
+
+    private final String docIdPrefix;
+
+    private final String timestampField;
+
+    private final String messageField;
+
+    private final String speakerField;
+
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+
+    /** Bytes of the buffer which were read but not yet returned as line. */
+    private int position = 0;
+
+    private int limit = 0;
+
+    private boolean endOfFile = false;
+
+    private int lineStart;
+
+    private int lineEnd;
+
+    private long lineMillis;
+
+    private String message;
+
+    private String speaker;
+
+    /** Whether the last line read has a time stamp and still has to be added, to the next document after a gap. */
+    private boolean pending = false;
+
+    private long lastMillis = INVALID;
+
+    private LogDocument logDocument = new LogDocument(0);
+
+    private int docCounter = 0;
+
+    private long continuationLineCount = 0;
+
+    private long droppedLineCount = 0;
+
+    /** Lines read, recorded in the {@link IngestMetrics} once per document together with the bytes consumed. */
+    private long linesRead = 0;
+
+    private long recordedBytes = 0;
+
+    private long recordedContinuationLines = 0;
+
+    private long recordedDroppedLines = 0;
+
+    private JsonLinesLogDocExtractor(final InputStream input, final CountingInputStream file, final long maxMinutes,
+                                     final String docIdPrefix, final String timestampField,
+                                     final String messageField, final String speakerField) {
+        this.input          = input;
+        this.file           = file;
+        this.maxMillisecs   = SkypeLogDocExtractor.toMaxMillisecs(maxMinutes);
+        this.docIdPrefix    = docIdPrefix;
+        this.timestampField = timestampField;
+        this.messageField   = messageField;
+        this.speakerField   = speakerField;
+    }
+
+    /**
+     * Create a log extractor object reading the default fields. Files ending with .gz are decompressed while reading.
+     *
+     * @param filename Location of the log file on disk.
+     * @param maxMinutes Maximum minutes allowed between two consecutive messages in the log.
+     * @return A newly created JsonLinesLogDocExtractor object positioned at the first document.
+     * @throws IOException if the file cannot be open for reading.
+     */
+    public static JsonLinesLogDocExtractor getInstance(final String filename, final long maxMinutes)
+            throws IOException {
+        return getInstance(filename, maxMinutes, "", DEFAULT_TIMESTAMP_FIELD, DEFAULT_MESSAGE_FIELD,
+                DEFAULT_SPEAKER_FIELD);
+    }
+
+    /**
+     * Create a log extractor object. Files ending with .gz are decompressed while reading.
+     *
+     * @param filename Location of the log file on disk.
+     * @param maxMinutes Maximum minutes allowed between two consecutive messages in the log.
+     * @param docIdPrefix Prefix of the ids of all documents, followed by the document number.
+     * @param timestampField Name of the field holding the time stamp.
+     * @param messageField Name of the field holding the message.
+     * @param speakerField Name of the field holding the speaker, which is put in front of the message like in a
+     *                     Skype log. Objects without the field have no speaker.
+     * @return A newly created JsonLinesLogDocExtractor object positioned at the first document.
+     * @throws IOException if the file cannot be open for reading.
+     */
+    public static JsonLinesLogDocExtractor getInstance(final String filename, final long maxMinutes,
+                                                       final String docIdPrefix, final String timestampField,
+                                                       final String messageField, final String speakerField)
+            throws IOException {
+        if (filename == null)
+            throw new NullPointerException("Null parameter provided!");
+        CountingInputStream file = new CountingInputStream(new FileInputStream(filename));
+        return getInstance(LogFormat.open(filename, file), file, maxMinutes, docIdPrefix, timestampField,
+                messageField, speakerField);
+    }
+
+    /**
+     * Create a log extractor object reading from an already opened stream, which is closed at its end.
+     *
+     * @see #getInstance(String, long, String, String, String, String)
+     */
+    static JsonLinesLogDocExtractor getInstance(final InputStream input, final long maxMinutes,
+                                                final String docIdPrefix, final String timestampField,
+                                                final String messageField, final String speakerField) {
+        if (input == null)
+            throw new NullPointerException("Null parameter provided!");
+        CountingInputStream counted = new CountingInputStream(input);
+        return getInstance(counted, counted, maxMinutes, docIdPrefix, timestampField, messageField, speakerField);
+    }
+
+    private static JsonLinesLogDocExtractor getInstance(final InputStream input, final CountingInputStream file,
+                                                        final long maxMinutes, final String docIdPrefix,
+                                                        final String timestampField, final String messageField,
+                                                        final String speakerField) {
+        if (docIdPrefix == null || timestampField == null || messageField == null || speakerField == null)
+            throw new NullPointerException("Null parameter provided!");
+        JsonLinesLogDocExtractor instance = new JsonLinesLogDocExtractor(input, file, maxMinutes, docIdPrefix,
+                timestampField, messageField, speakerField);
+        instance.parseNext();
+        return instance;
+    }
+
+    /**
+     * Parses the next document in the log based on time stamps.
+     *
+     * @return The newly parsed document, empty if there are no more messages.
+     */
+    @Override
+    public LogDocument parseNext() {
+        logDocument = SkypeLogDocExtractor.newDocument(docIdPrefix, docCounter++);
+        if (pending) {
+            addPendingMessage();
+        }
+        addFurtherMessagesToCurrentDoc();
+        recordMetrics();
+        return logDocument;
+    }
+
+    private void addFurtherMessagesToCurrentDoc() {
+        try {
+            while (nextLine()) {
+                LineType type = parseLine();
+                if (type == LineType.BLANK) {
+                    continue;
+                }
+                if (type == LineType.MALFORMED) {
+                    ++droppedLineCount;
+                } else if (type == LineType.NO_TIMESTAMP) {
+                    addContinuationLine();
+                } else {
+                    boolean timeGapAboveMax = lastMillis != INVALID && lineMillis - lastMillis > maxMillisecs;
+                    lastMillis = lineMillis;
+                    pending    = true;
+                    if (timeGapAboveMax) {
+                        break;
+                    }
+                    addPendingMessage();
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Error while trying to read from file: " + e);
+        }
+    }
+
+    private void addPendingMessage() {
+        addMessage();
+        logDocument.addTime(lineMillis);
+        if (speaker != null && !speaker.isEmpty()) {
+            logDocument.addSpeaker(speaker, 0, speaker.length());
+        }
+        pending = false;
+    }
+
+    private void addContinuationLine() {
+        if (lastMillis != INVALID) {
+            addMessage();
+            ++continuationLineCount;
+        } else {
+            ++droppedLineCount;
+        }
+    }
+
+    /** Adds the message as lines, the first one starting with the speaker. */
+    private void addMessage() {
+        int start = 0;
+        boolean first = true;
+        while (true) {
+            int end = message.indexOf('\n', start);
+            String line = message.substring(start, end < 0 ? message.length() : end);
+            logDocument.addLine(first && speaker != null ? speaker + ": " + line : line);
+            if (end < 0) {
+                return;
+            }
+            start = end + 1;
+            first = false;
+        }
+    }
+
+    private void recordMetrics() {
+        long bytes = file.getCount();
+        IngestMetrics.global().addLines(linesRead, bytes - recordedBytes,
+                continuationLineCount - recordedContinuationLines, droppedLineCount - recordedDroppedLines);
+        linesRead                 = 0;
+        recordedBytes             = bytes;
+        recordedContinuationLines = continuationLineCount;
+        recordedDroppedLines      = droppedLineCount;
+    }
+
+    /**
+     * Parses the current line, reading only the configured fields of the top level object.
+     *
+     * @return Whether the line holds a message with or without a valid time stamp, is blank or malformed.
+     */
+    private LineType parseLine() {
+        lineMillis = INVALID;
+        message    = null;
+        speaker    = null;
+        if (isBlank()) {
+            return LineType.BLANK;
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(buffer, lineStart, lineEnd - lineStart)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return LineType.MALFORMED;
+            }
+            boolean timestampRead = false;
+            boolean speakerRead = false;
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                token = parser.nextToken();
+                if (!timestampRead && name.equals(timestampField)) {
+                    lineMillis    = parseMillis(parser, token);
+                    timestampRead = true;
+                } else if (message == null && name.equals(messageField) && token.isScalarValue()) {
+                    message = parser.getText();
+                } else if (!speakerRead && name.equals(speakerField) && token.isScalarValue()) {
+                    speaker     = parser.getText();
+                    speakerRead = true;
+                } else {
+                    parser.skipChildren();
+                }
+                if (timestampRead && message != null && speakerRead) {
+                    // the remaining fields are not needed
+                    break;
+                }
+            }
+            if (token == null) {
+                return LineType.MALFORMED;
+            }
+        } catch (IOException e) {
+            return LineType.MALFORMED;
+        }
+        if (message == null) {
+            return LineType.MALFORMED;
+        }
+        return lineMillis == INVALID ? LineType.NO_TIMESTAMP : LineType.MESSAGE;
+    }
+
+    private static long parseMillis(final JsonParser parser, final JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_NUMBER_INT:
+                return parser.getLongValue();
+            case VALUE_NUMBER_FLOAT:
+                return Math.round(parser.getDoubleValue() * 1000);
+            case VALUE_STRING:
+                try {
+                    return ISO_PARSER.parseMillis(parser.getText());
+                } catch (IllegalArgumentException e) {
+                    return INVALID;
+                }
+            default:
+                parser.skipChildren();
+                return INVALID;
+        }
+    }
+
+    private boolean isBlank() {
+        for (int i = lineStart; i < lineEnd; ++i) {
+            byte b = buffer[i];
+            if (b != ' ' && b != '\t' && b != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the next line in the buffer, refilling it from the stream as needed.
+     *
+     * @return False if there are no more lines to read.
+     */
+    private boolean nextLine() throws IOException {
+        int from = position;
+        while (true) {
+            for (int i = from; i < limit; ++i) {
+                if (buffer[i] == '\n') {
+                    setLine(position, i, i + 1);
+                    return true;
+                }
+            }
+            if (endOfFile) {
+                if (position < limit) {
+                    setLine(position, limit, limit);
+                    return true;
+                }
+                return false;
+            }
+            from = limit - position;
+            fill();
+        }
+    }
+
+    private void setLine(final int start, final int end, final int next) {
+        lineStart = start;
+        lineEnd   = end;
+        position  = next;
+        ++linesRead;
+    }
+
+    /** Moves the unread bytes to the start of the buffer, grows it if they fill it, and reads more bytes. */
+    private void fill() throws IOException {
+        int remaining = limit - position;
+        if (remaining == buffer.length) {
+            buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+        } else if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+        }
+        position = 0;
+        limit    = remaining;
+        int read = input.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            endOfFile = true;
+            close();
+            logLinesWithoutTimeStamp();
+        } else {
+            limit += read;
+        }
+    }
+
+    private void logLinesWithoutTimeStamp() {
+        if (continuationLineCount > 0 || droppedLineCount > 0) {
+            logger.info("Lines without valid time stamp: " + continuationLineCount
+                    + " added as continuation lines, " + droppedLineCount + " dropped");
+        }
+    }
+
+    /**
+     * Returns the current document.
+     *
+     * @return Currently parsed document, empty if there are no more documents.
+     */
+    @Override
+    public LogDocument current() {
+        return logDocument;
+    }
+
+    /**
+     * Indicates whether there are more documents to parse.
+     */
+    @Override
+    public boolean hasNext() {
+        return !logDocument.isEmpty();
+    }
+
+    /**
+     * Returns the number of messages without a valid time stamp that were added to the previous message.
+     */
+    public long getContinuationLineCount() {
+        return continuationLineCount;
+    }
+
+    /**
+     * Returns the number of lines that were dropped, because they are no JSON object with a message or no message
+     * with a time stamp preceded them.
+     */
+    public long getDroppedLineCount() {
+        return droppedLineCount;
+    }
+
+    /**
+     * Closes the stream, which is also closed when its end is reached.
+     *
+     * @throws IOException if the stream cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    static {
+        BasicConfigurator.configure();
+    }
+}
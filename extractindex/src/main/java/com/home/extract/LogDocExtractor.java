@@ -2,11 +2,60 @@ package com.home.extract;
 
 import com.home.common.LogDocument;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
- * Interface for log document extractors.
+ * Interface for log document extractors. Extractors release their log files once the last document is parsed, so
+ * they only need to be closed when they are not read to the end, e.g. after an error.
  */
-public interface LogDocExtractor {
+public interface LogDocExtractor extends Closeable {
     LogDocument parseNext();
     boolean hasNext();
     LogDocument current();
+
+    /**
+     * Releases the log files and other resources of the extractor. Closing an extractor twice has no effect.
+     *
+     * @throws IOException if a log file cannot be closed.
+     */
+    @Override
+    void close() throws IOException;
+
+    /**
+     * Returns the remaining documents, starting with the current one. Advancing the spliterator parses the next
+     * document, so it must not be used together with {@link #parseNext()}.
+     *
+     * @return An ordered spliterator over the remaining documents.
+     */
+    default Spliterator<LogDocument> spliterator() {
+        return new Spliterators.AbstractSpliterator<LogDocument>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super LogDocument> action) {
+                if (!hasNext()) {
+                    return false;
+                }
+                LogDocument document = current();
+                parseNext();
+                action.accept(document);
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns the remaining documents, starting with the current one, as a sequential stream.
+     *
+     * @return A stream over the remaining documents.
+     * @see #spliterator()
+     */
+    default Stream<LogDocument> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
 }
@@ -0,0 +1,254 @@
+package com.home.extract;
+
+import com.home.rollup.RollupBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Builds the {@link LogDocExtractor} suited for a log file. JSON lines logs are read by a
+ * {@link JsonLinesLogDocExtractor}, Skype logs by a {@link SkypeLogDocExtractor}. Compressed files (.gz) are
+ * decompressed while reading by a single thread, other Skype logs are parsed by a
+ * {@link ParallelSkypeLogDocExtractor} when more than one thread is requested. Several Skype logs are merged by a
+ * {@link MergingLogDocExtractor}. Duplicate documents are skipped by a {@link DedupLogDocExtractor} if requested.
+ * Rollups are counted by a single {@link SkypeLogDocExtractor} reading a single Skype log.
+ */
+public class LogDocExtractorBuilder {
+
+    private final String filename;
+
+    private final List<String> filenames;
+
+    private final long maxMinutes;
+
+    private SkypeLogDocExtractor.ReaderType readerType = SkypeLogDocExtractor.ReaderType.BUFFERED;
+
+    private int threads = 1;
+
+    private String docIdPrefix = "";
+
+    private String[] patterns = SkypeLogDocExtractor.getDefaultPatterns();
+
+    private LogFormat format = LogFormat.AUTO;
+
+    private String timestampField = JsonLinesLogDocExtractor.DEFAULT_TIMESTAMP_FIELD;
+
+    private String messageField = JsonLinesLogDocExtractor.DEFAULT_MESSAGE_FIELD;
+
+    private String speakerField = JsonLinesLogDocExtractor.DEFAULT_SPEAKER_FIELD;
+
+    private DuplicateIndex duplicates = null;
+
+    private RollupBuilder rollup = null;
+
+    /**
+     * Constructs a builder for a log file.
+     *
+     * @param filename Location of the log filename on disk.
+     * @param maxMinutes Maximum minutes allowed between two consecutive lines in the log.
+     */
+    public LogDocExtractorBuilder(final String filename, final long maxMinutes) {
+        if (filename == null)
+            throw new NullPointerException("Null parameter provided!");
+        this.filename   = filename;
+        this.filenames  = Collections.singletonList(filename);
+        this.maxMinutes = maxMinutes;
+    }
+
+    /**
+     * Constructs a builder for log files whose messages are merged by time into one stream of documents.
+     *
+     * @param filenames Locations of the log files on disk, at least one.
+     * @param maxMinutes Maximum minutes allowed between two consecutive lines of the merged logs.
+     */
+    public LogDocExtractorBuilder(final List<String> filenames, final long maxMinutes) {
+        if (filenames == null || filenames.contains(null))
+            throw new NullPointerException("Null parameter provided!");
+        if (filenames.isEmpty())
+            throw new IllegalArgumentException("No log files provided!");
+        this.filename   = filenames.get(0);
+        this.filenames  = Collections.unmodifiableList(new ArrayList<>(filenames));
+        this.maxMinutes = maxMinutes;
+    }
+
+    /**
+     * @param readerType Type of the reader used by a single thread.
+     * @return This builder.
+     */
+    public LogDocExtractorBuilder readerType(final SkypeLogDocExtractor.ReaderType readerType) {
+        if (readerType == null)
+            throw new NullPointerException("Null parameter provided!");
+        this.readerType = readerType;
+        return this;
+    }
+
+    /**
+     * @param threads Number of threads used for parsing, or a non-positive number to use all available processors.
+     * @return This builder.
+     */
+    public LogDocExtractorBuilder threads(final int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * @param docIdPrefix Prefix of the ids of all documents, followed by the document number.
+     * @return This builder.
+     */
+    public LogDocExtractorBuilder docIdPrefix(final String docIdPrefix) {
+        if (docIdPrefix == null)
+            throw new NullPointerException("Null parameter provided!");
+        this.docIdPrefix = docIdPrefix;
+        return this;
+    }
+
+    /**
+     * @param patterns A list of date-time patterns according to joda.time.DateTime formats.
+     * @return This builder.
+     */
+    public LogDocExtractorBuilder patterns(final String... patterns) {
+        if (patterns == null)
+            throw new NullPointerException("Null parameter provided!");
+        this.patterns = patterns.clone();
+        return this;
+    }
+
+    /**
+     * @param format Format of the log file, detected from its first bytes by default.
+     * @return This builder.
+     */
+    public LogDocExtractorBuilder format(final LogFormat format) {
+        if (format == null)
+            throw new NullPointerException("Null parameter provided!");
+        this.format = format;
+        return this;
+    }
+
+    /**
+     * Sets the fields read from JSON lines logs.
+     *
+     * @param timestampField Name of the field holding the time stamp.
+     * @param messageField Name of the field holding the message.
+     * @param speakerField Name of the field holding the speaker.
+     * @return This builder.
+     */
+    public LogDocExtractorBuilder jsonFields(final String timestampField, final String messageField,
+                                            final String speakerField) {
+        if (timestampField == null || messageField == null || speakerField == null)
+            throw new NullPointerException("Null parameter provided!");
+        this.timestampField = timestampField;
+        this.messageField   = messageField;
+        this.speakerField   = speakerField;
+        return this;
+    }
+
+    /**
+     * @param duplicates Index of the documents seen before, documents duplicating them are skipped; null to keep
+     *                   all documents, which is the default.
+     * @return This builder.
+     */
+    public LogDocExtractorBuilder duplicates(final DuplicateIndex duplicates) {
+        this.duplicates = duplicates;
+        return this;
+    }
+
+    /**
+     * @param rollup Builder counting the messages of the log, which is then parsed by a single thread; null to count
+     *               no rollups, which is the default.
+     * @return This builder.
+     */
+    public LogDocExtractorBuilder rollup(final RollupBuilder rollup) {
+        this.rollup = rollup;
+        return this;
+    }
+
+    /**
+     * Opens the log file and creates the extractor.
+     *
+     * @return The extractor positioned at the first document.
+     * @throws IllegalArgumentException if none of the patterns is valid, or rollups are requested for several logs
+     *                                  or a JSON lines log.
+     * @throws IOException if the file cannot be open for reading.
+     */
+    public LogDocExtractor build() throws IllegalArgumentException, IOException {
+        LogDocExtractor extractor = open();
+        return duplicates == null ? extractor : new DedupLogDocExtractor(extractor, duplicates);
+    }
+
+    private LogDocExtractor open() throws IOException {
+        if (rollup != null) {
+            if (filenames.size() > 1 || resolveFormat(filename) != LogFormat.SKYPE)
+                throw new IllegalArgumentException("Rollups are only counted for single Skype logs: " + filenames);
+            SkypeLogDocExtractor.validatePatterns(patterns);
+            return SkypeLogDocExtractor.getInstance(SkypeLogDocExtractor.openLineReader(filename, readerType),
+                    maxMinutes, docIdPrefix, rollup, patterns);
+        }
+        if (filenames.size() > 1) {
+            for (String name : filenames) {
+                if (resolveFormat(name) != LogFormat.SKYPE)
+                    throw new IllegalArgumentException("Only Skype logs can be merged: " + name);
+            }
+            return MergingLogDocExtractor.getInstance(filenames, maxMinutes, docIdPrefix, readerType, patterns);
+        }
+        if (resolveFormat(filename) == LogFormat.JSON_LINES) {
+            return JsonLinesLogDocExtractor.getInstance(filename, maxMinutes, docIdPrefix, timestampField,
+                    messageField, speakerField);
+        }
+        SkypeLogDocExtractor.validatePatterns(patterns);
+        if (threads != 1 && !SkypeLogDocExtractor.isCompressed(filename)) {
+            return ParallelSkypeLogDocExtractor.getInstance(filename, maxMinutes, threads, docIdPrefix,
+                    ParallelSkypeLogDocExtractor.DEFAULT_CHUNK_SIZE, patterns);
+        }
+        return SkypeLogDocExtractor.getInstance(SkypeLogDocExtractor.openLineReader(filename, readerType),
+                maxMinutes, docIdPrefix, false, patterns);
+    }
+
+    /**
+     * Opens the log file for an incremental run continuing at a checkpoint. The file is read by a single thread with
+     * a memory mapped reader starting at the first line of the last document of the previous run. Compressed files
+     * cannot grow, so they are read from the start and their last document is always extracted. If the file became
+     * smaller than at the checkpoint, it is read from the start with document numbers following the checkpoint.
+     *
+     * @param from Checkpoint of the previous run or null to read the file from the start.
+     * @param extractLastDocument Whether to extract the last document, which may still grow.
+     * @return The extractor positioned at the first document, see {@link SkypeLogDocExtractor#checkpoint()}.
+     * @throws IllegalArgumentException if none of the patterns is valid, the file is no Skype log or several files
+     *                                  are merged.
+     * @throws IOException if the file cannot be open for reading.
+     */
+    public SkypeLogDocExtractor buildIncremental(final Checkpoint from, final boolean extractLastDocument)
+            throws IllegalArgumentException, IOException {
+        if (filenames.size() > 1)
+            throw new IllegalArgumentException("Checkpoints are not supported for merged logs");
+        if (resolveFormat(filename) != LogFormat.SKYPE)
+            throw new IllegalArgumentException("Checkpoints are only supported for Skype logs: " + filename);
+        SkypeLogDocExtractor.validatePatterns(patterns);
+        if (SkypeLogDocExtractor.isCompressed(filename)) {
+            long size = Files.size(Paths.get(filename));
+            return SkypeLogDocExtractor.getInstance(SkypeLogDocExtractor.openLineReader(filename, readerType),
+                    maxMinutes, docIdPrefix, new Checkpoint(-1, 0, Long.MIN_VALUE, size, true), true, patterns);
+        }
+        long offset = 0;
+        int documentNumber = 0;
+        long lastMillis = Long.MIN_VALUE;
+        if (from != null && from.getOffset() >= 0 && Files.size(Paths.get(filename)) >= from.getFileSize()) {
+            offset         = from.getOffset();
+            documentNumber = from.getDocumentNumber();
+            lastMillis     = from.getLastMillis();
+        } else if (from != null) {
+            documentNumber = from.getDocumentNumber() + 1;
+        }
+        MappedLogLineReader reader = MappedLogLineReader.open(filename, offset);
+        return SkypeLogDocExtractor.getInstance(reader, maxMinutes, docIdPrefix,
+                new Checkpoint(offset, documentNumber, lastMillis, reader.end(), extractLastDocument),
+                extractLastDocument, patterns);
+    }
+
+    private LogFormat resolveFormat(final String name) throws IOException {
+        return format == LogFormat.AUTO ? LogFormat.detect(name) : format;
+    }
+}
@@ -0,0 +1,110 @@
+package com.home.extract;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Resolves the log files to process from a location given on the command line. The location is either a single
+ * file, a directory whose regular files are all taken recursively, or a glob such as logs/**&#47;*.gz. In the latter
+ * case the glob is matched against paths relative to its longest directory prefix without wildcards.
+ */
+public final class LogFiles {
+
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    /**
+     * Lists the log files of a location sorted by path.
+     *
+     * @param location A file, a directory or a glob.
+     * @return The regular files found, empty if nothing matches.
+     * @throws IOException if a directory cannot be read.
+     */
+    public static List<Path> resolve(final String location) throws IOException {
+        if (location == null)
+            throw new NullPointerException("Null parameter provided!");
+        Path baseDirectory = baseDirectory(location);
+        if (!containsGlobCharacter(location)) {
+            if (!Files.isDirectory(baseDirectory)) {
+                return Files.isRegularFile(baseDirectory) ? Collections.singletonList(baseDirectory)
+                                                          : Collections.emptyList();
+            }
+            return walk(baseDirectory, path -> true);
+        }
+        if (!Files.isDirectory(baseDirectory)) {
+            return Collections.emptyList();
+        }
+        String relativeGlob = location.substring(prefixLength(location));
+        PathMatcher matcher = baseDirectory.getFileSystem().getPathMatcher("glob:" + relativeGlob);
+        return walk(baseDirectory, path -> matcher.matches(baseDirectory.relativize(path)));
+    }
+
+    /**
+     * Returns the path of a file relative to the base directory of a location, using / as separator. Files found in
+     * different subdirectories therefore get different names.
+     *
+     * @param location The location the file was resolved from.
+     * @param file A file returned by {@link #resolve(String)} for the location.
+     * @return The relative path, or the file name if the location is the file itself.
+     */
+    public static String relativeName(final String location, final Path file) {
+        if (location == null || file == null)
+            throw new NullPointerException("Null parameter provided!");
+        Path baseDirectory = baseDirectory(location);
+        if (!file.startsWith(baseDirectory) || file.equals(baseDirectory)) {
+            return String.valueOf(file.getFileName());
+        }
+        StringBuilder name = new StringBuilder();
+        for (Path part : baseDirectory.relativize(file)) {
+            if (name.length() > 0)
+                name.append('/');
+            name.append(part);
+        }
+        return name.toString();
+    }
+
+    private static List<Path> walk(final Path directory, final Predicate<Path> filter) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(Files::isRegularFile).filter(filter).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static boolean containsGlobCharacter(final String text) {
+        for (int i = 0; i < text.length(); ++i) {
+            if (GLOB_CHARACTERS.indexOf(text.charAt(i)) >= 0)
+                return true;
+        }
+        return false;
+    }
+
+    /** Length of the directory prefix of the location preceding the first path element with a wildcard. */
+    private static int prefixLength(final String location) {
+        int prefixLength = 0;
+        for (int i = 0; i < location.length(); ++i) {
+            char c = location.charAt(i);
+            if (GLOB_CHARACTERS.indexOf(c) >= 0)
+                return prefixLength;
+            if (c == '/' || c == File.separatorChar)
+                prefixLength = i + 1;
+        }
+        return location.length();
+    }
+
+    private static Path baseDirectory(final String location) {
+        if (!containsGlobCharacter(location))
+            return Paths.get(location);
+        int prefixLength = prefixLength(location);
+        return Paths.get(prefixLength == 0 ? "." : location.substring(0, prefixLength));
+    }
+
+    private LogFiles() {
+    }
+}
@@ -0,0 +1,67 @@
+package com.home.extract;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Format of a log file.
+ */
+public enum LogFormat {
+    /** Text lines starting with a time stamp, read by {@link SkypeLogDocExtractor}. */
+    SKYPE,
+    /** One JSON object per line, read by {@link JsonLinesLogDocExtractor}. */
+    JSON_LINES,
+    /** Detected from the first bytes of the file, see {@link #detect(String)}. */
+    AUTO;
+
+    /** Bytes read to find the first character of the file. */
+    private static final int SNIFF_BYTES = 4096;
+
+    /**
+     * Detects the format from the first character of the file which is not white space, after decompressing .gz
+     * files. Files starting with '{' are JSON lines, all other files are Skype logs.
+     *
+     * @param filename Location of the log file on disk.
+     * @return {@link #JSON_LINES} or {@link #SKYPE}.
+     * @throws IOException if the file cannot be read.
+     */
+    public static LogFormat detect(final String filename) throws IOException {
+        if (filename == null)
+            throw new NullPointerException("Null parameter provided!");
+        try (InputStream input = open(filename, new FileInputStream(filename))) {
+            for (int i = 0; i < SNIFF_BYTES; ++i) {
+                int b = input.read();
+                if (b < 0) {
+                    break;
+                }
+                // skip white space and a UTF-8 byte order mark
+                if (b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == 0xEF || b == 0xBB || b == 0xBF) {
+                    continue;
+                }
+                return b == '{' ? JSON_LINES : SKYPE;
+            }
+        }
+        return SKYPE;
+    }
+
+    /**
+     * Decompresses an opened file if its name ends with .gz, the stream is closed if that fails.
+     *
+     * @param filename Location of the file on disk.
+     * @param input Stream of the file.
+     * @return Stream of the content of the file.
+     * @throws IOException if the file has no gzip header.
+     */
+    static InputStream open(final String filename, final InputStream input) throws IOException {
+        try {
+            return SkypeLogDocExtractor.isCompressed(filename)
+                    ? new GZIPInputStream(input, 64 * 1024) : new BufferedInputStream(input, 64 * 1024);
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.home.extract;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Interface for readers returning a log file line by line.
+ */
+interface LogLineReader extends Closeable {
+
+    /**
+     * Advances to the next line.
+     *
+     * @return False if there are no more lines to read.
+     * @throws IOException if the line cannot be read.
+     */
+    boolean nextLine() throws IOException;
+
+    /**
+     * Returns the current line without the line terminator. Valid until the next call of {@link #nextLine()}.
+     * Characters outside of the ASCII range may not be decoded, so use {@link #text(int)} to get the text itself.
+     */
+    CharSequence line();
+
+    /**
+     * Returns the decoded text of the current line starting at the given index. The returned characters may be held
+     * in a buffer of the reader, so they are only valid until the next call of {@link #nextLine()}.
+     *
+     * @param from Index of the first character, only characters before it must be ASCII.
+     */
+    CharSequence text(int from);
+
+    /**
+     * Returns the byte offset of the current line in the file, or -1 if the reader does not know the offset.
+     */
+    long lineOffset();
+
+    /**
+     * Returns the number of bytes of the file consumed so far, compressed bytes for a compressed file. Readers
+     * reading ahead may count bytes of lines not yet returned.
+     */
+    long bytesRead();
+}
@@ -0,0 +1,145 @@
+package com.home.extract;
+
+import com.home.common.LogDocument;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads a Skype log message by message: a line with a time stamp together with the continuation lines following it.
+ * Only the current message and the first line of the next one are held, so the memory used does not depend on the
+ * size of the file. The messages are held in two {@link LogDocument} buffers used in turns, which are appended to
+ * the document being extracted with array copies. Lines without a valid time stamp before the first message are dropped.
+ */
+final class LogMessageReader implements Closeable {
+
+    private final LogLineReader reader;
+
+    private final TimestampParser[] timestampParsers;
+
+    /** The current message as document of its own, the first line without its time stamp. */
+    private LogDocument message = new LogDocument("");
+
+    /** The next message, started when its first line was read. */
+    private LogDocument nextMessage = new LogDocument("");
+
+    private long millis = TimestampParser.INVALID;
+
+    private long nextMillis = TimestampParser.INVALID;
+
+    long linesRead = 0;
+
+    long continuationLineCount = 0;
+
+    long droppedLineCount = 0;
+
+    /**
+     * Constructs a reader positioned before the first message.
+     *
+     * @param reader Line reader positioned at the beginning of a line.
+     * @param patterns Date-time patterns, at least one of them valid.
+     */
+    LogMessageReader(final LogLineReader reader, final String... patterns) {
+        if (reader == null || patterns == null)
+            throw new NullPointerException("Null parameter provided!");
+        this.reader           = reader;
+        this.timestampParsers = SkypeLogDocExtractor.createTimestampParsers(patterns);
+    }
+
+    /**
+     * Advances to the next message.
+     *
+     * @return False if there are no more messages.
+     * @throws IOException if the file cannot be read.
+     */
+    boolean next() throws IOException {
+        if (nextMillis == TimestampParser.INVALID && !readUntilMessage()) {
+            return false;
+        }
+        LogDocument previous = message;
+        message     = nextMessage;
+        millis      = nextMillis;
+        nextMessage = previous;
+        nextMillis  = TimestampParser.INVALID;
+        while (reader.nextLine()) {
+            countLine();
+            if (startMessage()) {
+                return true;
+            }
+            message.addLine(reader.text(0));
+            ++continuationLineCount;
+        }
+        return true;
+    }
+
+    /** Reads lines up to the first line with a time stamp, dropping the lines before it. */
+    private boolean readUntilMessage() throws IOException {
+        while (reader.nextLine()) {
+            countLine();
+            if (startMessage()) {
+                return true;
+            }
+            ++droppedLineCount;
+        }
+        return false;
+    }
+
+    private void countLine() {
+        ++linesRead;
+    }
+
+    /**
+     * @return Number of bytes of the file consumed so far.
+     */
+    long bytesRead() {
+        return reader.bytesRead();
+    }
+
+    /**
+     * Parses the time stamp of the line just read and starts the next message with the text after it.
+     *
+     * @return False if the line has no valid time stamp.
+     */
+    private boolean startMessage() {
+        CharSequence line = reader.line();
+        for (int i = 0; i < timestampParsers.length; ++i) {
+            TimestampParser parser = timestampParsers[i];
+            long lineMillis = parser.parseMillis(line);
+            if (lineMillis != TimestampParser.INVALID) {
+                if (i > 0) {
+                    System.arraycopy(timestampParsers, 0, timestampParsers, 1, i);
+                    timestampParsers[0] = parser;
+                }
+                CharSequence text = reader.text(parser.getLength());
+                nextMessage.clear();
+                nextMessage.addLine(text);
+                nextMessage.addTime(lineMillis);
+                nextMillis = lineMillis;
+                SkypeLogDocExtractor.addSpeaker(nextMessage, text);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Epoch milliseconds of the time stamp of the current message.
+     */
+    long millis() {
+        return millis;
+    }
+
+    /**
+     * Appends the lines of the current message to a document and adds its time and speaker.
+     *
+     * @param document The document to extend.
+     */
+    void appendTo(final LogDocument document) {
+        document.append(message);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
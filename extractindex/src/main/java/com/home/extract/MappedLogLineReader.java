@@ -0,0 +1,259 @@
+package com.home.extract;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Line reader working directly on the bytes of a memory mapped file. Line terminators are searched in the mapped
+ * bytes and only the text requested through {@link #text(int)} is decoded, into a character buffer reused for all
+ * lines. ASCII text is copied without a decoder. Lines end with '\n', '\r'
+ * or "\r\n", the same as for {@link java.io.BufferedReader#readLine()}.
+ */
+class MappedLogLineReader implements LogLineReader {
+
+    private static final long WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final FileChannel channel;
+
+    private final boolean ownsChannel;
+
+    private final long start;
+
+    private final long end;
+
+    private final CharsetDecoder decoder;
+
+    private final ByteLine byteLine = new ByteLine();
+
+    private MappedByteBuffer window;
+
+    private long windowStart;
+
+    private long windowEnd;
+
+    private long position;
+
+    private long lineStart;
+
+    private int lineLength;
+
+    private byte[] scratch = new byte[256];
+
+    private CharBuffer text = CharBuffer.allocate(256);
+
+    /**
+     * Creates a reader for a part of an opened file. The channel is not closed by this reader.
+     *
+     * @param channel Channel of the file to read.
+     * @param start Offset of the first byte to read, must be at the beginning of a line.
+     * @param end Offset after the last byte to read.
+     */
+    MappedLogLineReader(final FileChannel channel, final long start, final long end) {
+        this(channel, false, start, end);
+    }
+
+    private MappedLogLineReader(final FileChannel channel, final boolean ownsChannel, final long start,
+                                final long end) {
+        this.channel     = channel;
+        this.ownsChannel = ownsChannel;
+        this.start       = start;
+        this.end         = end;
+        this.decoder     = Charset.defaultCharset().newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.position    = start;
+        this.windowStart = start;
+        this.windowEnd   = start;
+    }
+
+    /**
+     * Creates a reader for the whole file.
+     *
+     * @param filename Location of the file on disk.
+     * @throws IOException if the file cannot be open for reading.
+     */
+    static MappedLogLineReader open(final String filename) throws IOException {
+        return open(filename, 0);
+    }
+
+    /**
+     * Creates a reader for the file from the given offset up to its current size.
+     *
+     * @param filename Location of the file on disk.
+     * @param start Offset of the first byte to read, must be at the beginning of a line.
+     * @throws IOException if the file cannot be open for reading.
+     */
+    static MappedLogLineReader open(final String filename, final long start) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        return new MappedLogLineReader(channel, true, start, Math.max(start, channel.size()));
+    }
+
+    /** Offset after the last byte read by this reader. */
+    long end() {
+        return end;
+    }
+
+    @Override
+    public boolean nextLine() throws IOException {
+        if (position >= end) {
+            return false;
+        }
+        lineStart = position;
+        long offset = lineStart;
+        while (offset < end) {
+            byte current = byteAt(offset);
+            if (current == '\n') {
+                setLine(offset, offset + 1);
+                return true;
+            }
+            if (current == '\r') {
+                boolean crlf = offset + 1 < end && byteAt(offset + 1) == '\n';
+                setLine(offset, crlf ? offset + 2 : offset + 1);
+                return true;
+            }
+            ++offset;
+        }
+        setLine(end, end);
+        return true;
+    }
+
+    private void setLine(final long lineEnd, final long next) {
+        lineLength = (int) (lineEnd - lineStart);
+        position   = next;
+    }
+
+    private byte byteAt(final long offset) throws IOException {
+        if (offset >= windowEnd) {
+            map(lineStart, offset - lineStart + 1);
+        }
+        return window.get((int) (offset - windowStart));
+    }
+
+    /** Maps a window starting at the given offset and containing at least the given number of bytes. */
+    private void map(final long from, final long minLength) throws IOException {
+        long size = Math.min(end - from, Math.max(WINDOW_SIZE, 2 * minLength));
+        if (size > Integer.MAX_VALUE) {
+            if (minLength > Integer.MAX_VALUE) {
+                throw new IOException("Line longer than " + Integer.MAX_VALUE + " bytes at offset " + from);
+            }
+            size = Integer.MAX_VALUE;
+        }
+        window      = channel.map(FileChannel.MapMode.READ_ONLY, from, size);
+        windowStart = from;
+        windowEnd   = from + size;
+    }
+
+    @Override
+    public CharSequence line() {
+        byteLine.set((int) (lineStart - windowStart), lineLength);
+        return byteLine;
+    }
+
+    @Override
+    public CharSequence text(final int from) {
+        int length = lineLength - from;
+        if (length <= 0) {
+            return "";
+        }
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, 2 * scratch.length)];
+        }
+        window.position((int) (lineStart - windowStart) + from);
+        window.get(scratch, 0, length);
+        text.clear();
+        if (text.capacity() < length) {
+            text = CharBuffer.allocate(Math.max(length, 2 * text.capacity()));
+        }
+        char[] chars = text.array();
+        for (int i = 0; i < length; ++i) {
+            byte current = scratch[i];
+            if (current < 0) {
+                return decode(length);
+            }
+            chars[i] = (char) current;
+        }
+        text.limit(length);
+        return text;
+    }
+
+    /** Decodes the bytes of the scratch buffer, which are not all ASCII, into the text buffer. */
+    private CharSequence decode(final int length) {
+        int capacity = (int) Math.ceil(length * (double) decoder.maxCharsPerByte());
+        if (text.capacity() < capacity) {
+            text = CharBuffer.allocate(Math.max(capacity, 2 * text.capacity()));
+        }
+        decoder.reset();
+        decoder.decode(ByteBuffer.wrap(scratch, 0, length), text, true);
+        decoder.flush(text);
+        text.flip();
+        return text;
+    }
+
+    @Override
+    public long lineOffset() {
+        return lineStart;
+    }
+
+    @Override
+    public long bytesRead() {
+        return position - start;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        if (ownsChannel) {
+            channel.close();
+        }
+    }
+
+    /** View of the bytes of the current line as characters. Bytes are mapped one to one to characters. */
+    private class ByteLine implements CharSequence {
+        private int offset;
+        private int length;
+
+        void set(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", length: " + length);
+            }
+            return (char) (window.get(offset + index) & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length || start > end) {
+                throw new IndexOutOfBoundsException("Range: " + start + "-" + end + ", length: " + length);
+            }
+            byte[] bytes = new byte[end - start];
+            for (int i = 0; i < bytes.length; ++i) {
+                bytes[i] = window.get(offset + start + i);
+            }
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length).toString();
+        }
+    }
+}
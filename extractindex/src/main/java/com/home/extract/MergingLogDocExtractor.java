@@ -0,0 +1,242 @@
+package com.home.extract;
+
+import com.home.common.IngestMetrics;
+import com.home.common.LogDocument;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.log4j.BasicConfigurator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * This class extracts documents from several Skype logs written at the same time, e.g. one log per device. The
+ * messages of all files are merged by their time stamp with a heap holding the next message of every file, and the
+ * merged messages are split into documents by the time gap as in {@link SkypeLogDocExtractor}. So a conversation
+ * spread over several files becomes a single document. Every file only buffers its current message, so the memory
+ * used does not depend on the size of the files.
+ *
+ * <p>Messages with the same time stamp are taken in the order of the files. Each file is expected to be ordered by
+ * time, a message older than the message before it in its file is still taken when it is the oldest of all heads.
+ */
+public class MergingLogDocExtractor implements LogDocExtractor {
+
+    private static final Log logger = LogFactory.getLog(MergingLogDocExtractor.class);
+
+    /** A file and its current message. */
+    private static final class Source implements Comparable<Source> {
+        final int index;
+        final LogMessageReader reader;
+
+        Source(int index, LogMessageReader reader) {
+            this.index  = index;
+            this.reader = reader;
+        }
+
+        @Override
+        public int compareTo(Source other) {
+            int byTime = Long.compare(reader.millis(), other.reader.millis());
+            return byTime != 0 ? byTime : Integer.compare(index, other.index);
+        }
+    }
+
+    private final List<Source> sources = new ArrayList<>();
+
+    private final PriorityQueue<Source> heads = new PriorityQueue<>();
+
+    private final long maxMillisecs;
+
+    private final String docIdPrefix;
+
+    private long lastMillis = TimestampParser.INVALID;
+
+    private LogDocument logDocument = new LogDocument(0);
+
+    private int docCounter = 0;
+
+    private long recordedLines = 0;
+
+    private long recordedBytes = 0;
+
+    private long recordedContinuationLines = 0;
+
+    private long recordedDroppedLines = 0;
+
+    private boolean loggedLinesWithoutTimeStamp = false;
+
+    private MergingLogDocExtractor(final long maxMinutes, final String docIdPrefix) {
+        this.maxMillisecs = SkypeLogDocExtractor.toMaxMillisecs(maxMinutes);
+        this.docIdPrefix  = docIdPrefix;
+    }
+
+    /**
+     * Create a log extractor object merging log files with the default date-time patterns.
+     *
+     * @param filenames Locations of the log files on disk, files ending with .gz are decompressed while reading.
+     * @param maxMinutes Maximum minutes allowed between two consecutive messages of the merged logs.
+     * @return A newly created MergingLogDocExtractor object positioned at the first document.
+     * @throws IOException if a file cannot be open for reading.
+     */
+    public static MergingLogDocExtractor getInstance(final List<String> filenames, final long maxMinutes)
+            throws IOException {
+        return getInstance(filenames, maxMinutes, "", SkypeLogDocExtractor.ReaderType.BUFFERED,
+                SkypeLogDocExtractor.getDefaultPatterns());
+    }
+
+    /**
+     * Create a log extractor object merging log files.
+     *
+     * @param filenames Locations of the log files on disk, files ending with .gz are decompressed while reading.
+     * @param maxMinutes Maximum minutes allowed between two consecutive messages of the merged logs.
+     * @param docIdPrefix Prefix of the ids of all documents, followed by the document number.
+     * @param readerType Type of the reader used for uncompressed files.
+     * @param patterns A list of date-time patterns according to joda.time.DateTime formats.
+     * @return A newly created MergingLogDocExtractor object positioned at the first document.
+     * @throws IllegalArgumentException if none of the patterns is valid.
+     * @throws IOException if a file cannot be open for reading.
+     */
+    public static MergingLogDocExtractor getInstance(final List<String> filenames, final long maxMinutes,
+                                                     final String docIdPrefix,
+                                                     final SkypeLogDocExtractor.ReaderType readerType,
+                                                     final String... patterns)
+            throws IllegalArgumentException, IOException {
+        if (filenames == null || docIdPrefix == null || readerType == null || patterns == null)
+            throw new NullPointerException("Null parameter provided!");
+        SkypeLogDocExtractor.validatePatterns(patterns);
+        MergingLogDocExtractor instance = new MergingLogDocExtractor(maxMinutes, docIdPrefix);
+        try {
+            for (String filename : filenames) {
+                instance.sources.add(new Source(instance.sources.size(), new LogMessageReader(
+                        SkypeLogDocExtractor.openLineReader(filename, readerType), patterns)));
+            }
+            for (Source source : instance.sources) {
+                instance.advance(source);
+            }
+        } catch (IOException | RuntimeException e) {
+            instance.close();
+            throw e;
+        }
+        instance.parseNext();
+        return instance;
+    }
+
+    /** Moves the source to its next message and puts it back on the heap, unless the file ended. */
+    private void advance(final Source source) throws IOException {
+        if (source.reader.next()) {
+            heads.add(source);
+        } else {
+            source.reader.close();
+        }
+    }
+
+    /**
+     * Parses the next document of the merged logs based on time stamps.
+     *
+     * @return The newly parsed document, empty if there are no more messages.
+     */
+    @Override
+    public LogDocument parseNext() {
+        logDocument = SkypeLogDocExtractor.newDocument(docIdPrefix, docCounter++);
+        try {
+            while (!heads.isEmpty()) {
+                Source source = heads.peek();
+                long millis = source.reader.millis();
+                if (!logDocument.isEmpty() && lastMillis != TimestampParser.INVALID
+                        && millis - lastMillis > maxMillisecs) {
+                    break;
+                }
+                heads.poll();
+                source.reader.appendTo(logDocument);
+                lastMillis = millis;
+                advance(source);
+            }
+        } catch (IOException e) {
+            logger.error("Error while trying to read from file: " + e);
+            closeSources();
+        }
+        recordMetrics();
+        return logDocument;
+    }
+
+    private void recordMetrics() {
+        long lines = 0;
+        long bytes = 0;
+        long continuationLines = 0;
+        long droppedLines = 0;
+        for (Source source : sources) {
+            lines             += source.reader.linesRead;
+            bytes             += source.reader.bytesRead();
+            continuationLines += source.reader.continuationLineCount;
+            droppedLines      += source.reader.droppedLineCount;
+        }
+        IngestMetrics.global().addLines(lines - recordedLines, bytes - recordedBytes,
+                continuationLines - recordedContinuationLines, droppedLines - recordedDroppedLines);
+        recordedLines             = lines;
+        recordedBytes             = bytes;
+        recordedContinuationLines = continuationLines;
+        recordedDroppedLines      = droppedLines;
+        if (heads.isEmpty() && !loggedLinesWithoutTimeStamp && (continuationLines > 0 || droppedLines > 0)) {
+            loggedLinesWithoutTimeStamp = true;
+            logger.info("Lines without valid date time: " + continuationLines
+                    + " added as continuation lines, " + droppedLines + " dropped before the first message");
+        }
+    }
+
+    /**
+     * Returns the current document.
+     *
+     * @return Currently parsed document, empty if there are no more documents.
+     */
+    @Override
+    public LogDocument current() {
+        return logDocument;
+    }
+
+    /**
+     * Indicates whether there are more documents to parse.
+     */
+    @Override
+    public boolean hasNext() {
+        return !logDocument.isEmpty();
+    }
+
+    /**
+     * Returns the number of lines without a valid time stamp that were added to the previous message of their file.
+     */
+    public long getContinuationLineCount() {
+        return recordedContinuationLines;
+    }
+
+    /**
+     * Returns the number of lines without a valid time stamp that were dropped because no message of their file
+     * preceded them.
+     */
+    public long getDroppedLineCount() {
+        return recordedDroppedLines;
+    }
+
+    /**
+     * Closes all files, which are also closed when their end is reached.
+     */
+    @Override
+    public void close() {
+        closeSources();
+    }
+
+    private void closeSources() {
+        heads.clear();
+        for (Source source : sources) {
+            try {
+                source.reader.close();
+            } catch (IOException e) {
+                logger.error("Error while closing log file: " + e);
+            }
+        }
+    }
+
+    static {
+        BasicConfigurator.configure();
+    }
+}
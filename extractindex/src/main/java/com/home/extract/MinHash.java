@@ -0,0 +1,152 @@
+package com.home.extract;
+
+import com.home.common.LogDocument;
+
+import java.util.Arrays;
+
+/**
+ * Hashes of the text of a document for finding duplicates. The content hash covers the exact text of all lines,
+ * the signature estimates the Jaccard similarity of the sets of word shingles (three consecutive words, case
+ * insensitive) of two documents: the share of equal entries of the signatures of two documents approaches their
+ * similarity. Each entry is the minimum of a multiply-shift hash over all shingles, so a document is hashed in a
+ * single pass without building the set of shingles.
+ */
+final class MinHash {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final int SHINGLE_WORDS = 3;
+
+    private final long[] multipliers;
+
+    private final long[] increments;
+
+    /**
+     * @param size Number of entries of the signatures.
+     */
+    MinHash(final int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException("Signature size must be positive!");
+        multipliers = new long[size];
+        increments  = new long[size];
+        long seed = 0x9e3779b97f4a7c15L;
+        for (int i = 0; i < size; ++i) {
+            seed += 0x9e3779b97f4a7c15L;
+            multipliers[i] = mix(seed) | 1;
+            seed += 0x9e3779b97f4a7c15L;
+            increments[i] = mix(seed);
+        }
+    }
+
+    /**
+     * @return Number of entries of the signatures.
+     */
+    int size() {
+        return multipliers.length;
+    }
+
+    /**
+     * Hashes the text of the document with its line breaks.
+     *
+     * @param document The document.
+     * @return 64 bit hash of the text.
+     */
+    static long contentHash(final LogDocument document) {
+        char[] chars = document.getChars();
+        long hash = FNV_OFFSET;
+        for (int line = 0; line < document.getLineCount(); ++line) {
+            int start = document.lineStart(line);
+            int end = start + document.lineLength(line);
+            for (int i = start; i < end; ++i) {
+                hash = (hash ^ chars[i]) * FNV_PRIME;
+            }
+            hash = (hash ^ '\n') * FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Computes the signature of the document. Documents with less words than a shingle get a single shingle of
+     * all their words.
+     *
+     * @param document The document.
+     * @param signature Array of {@link #size()} entries receiving the signature.
+     * @return False if the document has no words, the signature is then undefined.
+     */
+    boolean signature(final LogDocument document, final int[] signature) {
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        char[] chars = document.getChars();
+        long[] words = new long[SHINGLE_WORDS];
+        int wordCount = 0;
+        for (int line = 0; line < document.getLineCount(); ++line) {
+            int start = document.lineStart(line);
+            int end = start + document.lineLength(line);
+            long word = FNV_OFFSET;
+            boolean inWord = false;
+            for (int i = start; i <= end; ++i) {
+                char c = i < end ? chars[i] : ' ';
+                if (Character.isLetterOrDigit(c)) {
+                    word = (word ^ Character.toLowerCase(c)) * FNV_PRIME;
+                    inWord = true;
+                } else if (inWord) {
+                    words[wordCount++ % SHINGLE_WORDS] = word;
+                    if (wordCount >= SHINGLE_WORDS) {
+                        addShingle(signature, shingle(words, wordCount));
+                    }
+                    word = FNV_OFFSET;
+                    inWord = false;
+                }
+            }
+        }
+        if (wordCount == 0) {
+            return false;
+        }
+        if (wordCount < SHINGLE_WORDS) {
+            addShingle(signature, shingle(words, wordCount));
+        }
+        return true;
+    }
+
+    /** Combines the last words in their order, words is used as ring buffer. */
+    private static long shingle(final long[] words, final int wordCount) {
+        long hash = FNV_OFFSET;
+        for (int i = Math.max(0, wordCount - SHINGLE_WORDS); i < wordCount; ++i) {
+            hash = (hash ^ words[i % SHINGLE_WORDS]) * FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    private void addShingle(final int[] signature, final long shingle) {
+        for (int i = 0; i < signature.length; ++i) {
+            int value = (int) ((multipliers[i] * shingle + increments[i]) >>> 32);
+            if (value < signature[i]) {
+                signature[i] = value;
+            }
+        }
+    }
+
+    /**
+     * Hashes a band of a signature, so documents sharing all entries of a band share the key.
+     *
+     * @param signature The signature.
+     * @param band Number of the band.
+     * @param rows Number of entries of a band.
+     * @return 64 bit key of the band.
+     */
+    static long bandKey(final int[] signature, final int band, final int rows) {
+        long hash = FNV_OFFSET ^ band;
+        for (int i = band * rows; i < (band + 1) * rows; ++i) {
+            hash = (hash ^ (signature[i] & 0xffffffffL)) * FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /** Finalizer of splitmix64, spreading every input bit over the whole result. */
+    static long mix(long x) {
+        x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+        x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+        return x ^ (x >>> 31);
+    }
+}
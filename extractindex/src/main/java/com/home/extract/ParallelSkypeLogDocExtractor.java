@@ -0,0 +1,401 @@
+package com.home.extract;
+
+import com.home.common.LogDocument;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.log4j.BasicConfigurator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class extracts documents from a log file using several threads. The file is split into byte ranges that end
+ * at line boundaries, each range is memory mapped and parsed by its own {@link SkypeLogDocExtractor} on a fork-join
+ * pool and the documents are stitched at the range boundaries using the same maximal time gap rule. The extracted
+ * documents are the same as the ones extracted by a single {@link SkypeLogDocExtractor} reading the whole file.
+ */
+public class ParallelSkypeLogDocExtractor implements LogDocExtractor {
+
+    private static final Log logger = LogFactory.getLog(ParallelSkypeLogDocExtractor.class);
+
+    static final long DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+
+    private static final int CHUNKS_PER_THREAD = 2;
+
+    private final Deque<LogDocument> parsedDocuments = new ArrayDeque<>();
+
+    private FileChannel fileChannel;
+
+    private long fileLength;
+
+    private long position = 0;
+
+    private long chunkSize;
+
+    private long maxMinutes;
+
+    private long maxMillisecs;
+
+    private String[] patterns;
+
+    private ForkJoinPool pool;
+
+    private ChunkResult openChunk = ChunkResult.EMPTY;
+
+    private LogDocument logDocument = new LogDocument(0);
+
+    private int docCounter = 0;
+
+    private String docIdPrefix;
+
+    private final LongAdder continuationLineCount = new LongAdder();
+
+    private long droppedLineCount = 0;
+
+    /**
+     * Create a parallel log extractor object for list of provided date-time patterns according to
+     * joda.time.DateTime formats.
+     *
+     * @param filename Location of the log filename on disk.
+     * @param maxMinutes Maximum minutes allowed between two consecutive lines in the log.
+     * @param threads Number of threads used for parsing, or a non-positive number to use all available processors.
+     * @param patterns A list of provided patterns. The first valid pattern will be used to parse the date and time.
+     * @return A newly created ParallelSkypeLogDocExtractor object able to parse the provided patterns.
+     * @throws IllegalArgumentException if none of the array of patterns is valid.
+     * @throws IOException if the file cannot be open for reading.
+     */
+    public static ParallelSkypeLogDocExtractor getInstance(final String filename, final long maxMinutes,
+                                                           final int threads, final String... patterns)
+            throws IllegalArgumentException, IOException {
+        return getInstance(filename, maxMinutes, threads, DEFAULT_CHUNK_SIZE, patterns);
+    }
+
+    /**
+     * Create a parallel log extractor object using the default date-time patterns.
+     *
+     * @param filename Location of the log filename on disk.
+     * @param maxMinutes Maximum minutes allowed between two consecutive lines in the log.
+     * @param threads Number of threads used for parsing, or a non-positive number to use all available processors.
+     * @return A newly created ParallelSkypeLogDocExtractor object.
+     * @throws IOException if the file cannot be open for reading.
+     */
+    public static ParallelSkypeLogDocExtractor getInstance(final String filename, final long maxMinutes,
+                                                           final int threads) throws IOException {
+        return getInstance(filename, maxMinutes, threads, SkypeLogDocExtractor.getDefaultPatterns());
+    }
+
+    static ParallelSkypeLogDocExtractor getInstance(final String filename, final long maxMinutes, final int threads,
+                                                    final long chunkSize, final String... patterns)
+            throws IllegalArgumentException, IOException {
+        return getInstance(filename, maxMinutes, threads, "", chunkSize, patterns);
+    }
+
+    /**
+     * Create a parallel log extractor object.
+     *
+     * @param filename Location of the log filename on disk.
+     * @param maxMinutes Maximum minutes allowed between two consecutive lines in the log.
+     * @param threads Number of threads used for parsing, or a non-positive number to use all available processors.
+     * @param docIdPrefix Prefix of the ids of all documents, followed by the document number.
+     * @param chunkSize Number of bytes parsed by a single task.
+     * @param patterns A list of provided patterns.
+     * @return A newly created ParallelSkypeLogDocExtractor object.
+     * @throws IOException if the file cannot be open for reading.
+     */
+    static ParallelSkypeLogDocExtractor getInstance(final String filename, final long maxMinutes, final int threads,
+                                                    final String docIdPrefix, final long chunkSize,
+                                                    final String... patterns)
+            throws IllegalArgumentException, IOException {
+        if (filename == null || docIdPrefix == null || patterns == null) {
+            throw new NullPointerException("Null string passed!");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive!");
+        }
+        SkypeLogDocExtractor.validatePatterns(patterns);
+
+        ParallelSkypeLogDocExtractor instance = new ParallelSkypeLogDocExtractor();
+        instance.patterns     = patterns.clone();
+        instance.maxMinutes   = maxMinutes;
+        instance.maxMillisecs = SkypeLogDocExtractor.toMaxMillisecs(maxMinutes);
+        instance.chunkSize    = chunkSize;
+        instance.docIdPrefix  = docIdPrefix;
+        instance.pool         = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        instance.openLogFileForReading(filename);
+        instance.parseNext();
+        return instance;
+    }
+
+    private void openLogFileForReading(final String filename) throws IOException {
+        fileChannel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        fileLength  = fileChannel.size();
+    }
+
+    /**
+     * Parses the next document in the log based on time stamps.
+     *
+     * @return The newly parsed document or empty document if there are no more lines to parse.
+     */
+    @Override
+    public LogDocument parseNext() {
+        while (parsedDocuments.isEmpty() && position < fileLength) {
+            parseNextChunks();
+        }
+        logDocument = parsedDocuments.isEmpty() ? SkypeLogDocExtractor.newDocument(docIdPrefix, docCounter++)
+                                                : parsedDocuments.poll();
+        return logDocument;
+    }
+
+    private void parseNextChunks() {
+        try {
+            long[] bounds = nextChunkBounds();
+            ChunkResult result = pool.invoke(new ChunkTask(bounds, 0, bounds.length - 1));
+            position  = bounds[bounds.length - 1];
+            openChunk = stitch(openChunk, result);
+        } catch (IOException e) {
+            logger.error("Error while trying to read from file: " + e);
+            position = fileLength;
+        }
+        if (!openChunk.documents.isEmpty() || position >= fileLength) {
+            // Lines before the first message of the file have no message to continue.
+            droppedLineCount += openChunk.leadingLines.size();
+            openChunk = openChunk.withoutLeadingLines();
+        }
+        if (position < fileLength) {
+            // The last document may continue in the next chunk.
+            moveDocumentsToParsed(Math.max(openChunk.documents.size() - 1, 0));
+            openChunk = openChunk.lastDocumentOnly();
+        } else {
+            moveDocumentsToParsed(openChunk.documents.size());
+            openChunk = ChunkResult.EMPTY;
+            close();
+            logLinesWithoutTimeStamp();
+        }
+    }
+
+    private void logLinesWithoutTimeStamp() {
+        if (getContinuationLineCount() > 0 || droppedLineCount > 0) {
+            logger.info("Lines without valid date time: " + getContinuationLineCount()
+                    + " added as continuation lines, " + droppedLineCount + " dropped before the first message");
+        }
+    }
+
+    private void moveDocumentsToParsed(final int count) {
+        for (LogDocument document : openChunk.documents.subList(0, count)) {
+            LogDocument numbered = SkypeLogDocExtractor.newDocument(docIdPrefix, docCounter++);
+            numbered.append(document);
+            parsedDocuments.add(numbered);
+        }
+    }
+
+    private long[] nextChunkBounds() throws IOException {
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(position);
+        long end = position;
+        for (int i = 0; i < pool.getParallelism() * CHUNKS_PER_THREAD && end < fileLength; ++i) {
+            end = nextLineBoundary(end + chunkSize);
+            bounds.add(end);
+        }
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /** Returns the first position at or after the given one that starts a new line. */
+    private long nextLineBoundary(final long from) throws IOException {
+        if (from >= fileLength) {
+            return fileLength;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long offset = from - 1;
+        while (offset < fileLength) {
+            buffer.clear();
+            int read = fileChannel.read(buffer, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; ++i) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return fileLength;
+    }
+
+    private ChunkResult parseChunk(final long start, final long end) {
+        LogLineReader reader = new MappedLogLineReader(fileChannel, start, end);
+        SkypeLogDocExtractor extractor = SkypeLogDocExtractor.getInstance(reader, maxMinutes, "", true, patterns);
+        List<LogDocument> documents = new ArrayList<>();
+        while (extractor.hasNext()) {
+            documents.add(extractor.current());
+            extractor.parseNext();
+        }
+        continuationLineCount.add(extractor.getContinuationLineCount());
+        return new ChunkResult(documents, extractor.getFirstMillis(), extractor.getLastMillis(),
+                extractor.getLeadingLines());
+    }
+
+    /**
+     * Joins the results of two consecutive chunks. Lines before the first message of the second chunk continue the
+     * last document of the first chunk. The last document of the first chunk and the first document of the second
+     * chunk form a single document if the time gap between them is not above the maximum.
+     */
+    private ChunkResult stitch(final ChunkResult first, final ChunkResult second) {
+        if (first.documents.isEmpty()) {
+            List<String> leadingLines = new ArrayList<>(first.leadingLines);
+            leadingLines.addAll(second.leadingLines);
+            return new ChunkResult(second.documents, second.firstMillis, second.lastMillis, leadingLines);
+        }
+        List<LogDocument> documents = new ArrayList<>(first.documents.size() + second.documents.size());
+        documents.addAll(first.documents);
+        if (!second.leadingLines.isEmpty()) {
+            LogDocument continued = copyOf(documents.get(documents.size() - 1));
+            second.leadingLines.forEach(continued::addLine);
+            documents.set(documents.size() - 1, continued);
+            continuationLineCount.add(second.leadingLines.size());
+        }
+        if (second.documents.isEmpty()) {
+            return new ChunkResult(documents, first.firstMillis, first.lastMillis, first.leadingLines);
+        }
+        if (second.firstMillis - first.lastMillis > maxMillisecs) {
+            documents.addAll(second.documents);
+        } else {
+            LogDocument joined = copyOf(documents.get(documents.size() - 1));
+            joined.append(second.documents.get(0));
+            documents.set(documents.size() - 1, joined);
+            documents.addAll(second.documents.subList(1, second.documents.size()));
+        }
+        return new ChunkResult(documents, first.firstMillis, second.lastMillis, first.leadingLines);
+    }
+
+    private static LogDocument copyOf(final LogDocument document) {
+        LogDocument copy = new LogDocument(document.getId());
+        copy.append(document);
+        return copy;
+    }
+
+    /**
+     * Returns the number of lines without a valid time stamp that were added to the previous message.
+     */
+    public long getContinuationLineCount() {
+        return continuationLineCount.sum();
+    }
+
+    /**
+     * Returns the number of lines without a valid time stamp that were dropped because no message preceded them.
+     */
+    public long getDroppedLineCount() {
+        return droppedLineCount;
+    }
+
+    /**
+     * Returns the current document (if any).
+     *
+     * @return Currently parsed document or empty document if there are no such documents.
+     */
+    @Override
+    public LogDocument current() {
+        return logDocument;
+    }
+
+    /**
+     * Indicates whether there are more documents to parse.
+     *
+     * @return True if the current document is not empty.
+     */
+    @Override
+    public boolean hasNext() {
+        return !logDocument.isEmpty();
+    }
+
+    /**
+     * Stops the worker threads and closes the log file. Called automatically once the whole file is parsed.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            fileChannel.close();
+        } catch (IOException e) {
+            logger.error("Error while closing file: " + e);
+        }
+    }
+
+    private ParallelSkypeLogDocExtractor() {
+    }
+
+    static {
+        BasicConfigurator.configure();
+    }
+
+    /** Fork-join task parsing a range of chunks and stitching their documents. */
+    private class ChunkTask extends RecursiveTask<ChunkResult> {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] bounds;
+        private final int from;
+        private final int to;
+
+        ChunkTask(long[] bounds, int from, int to) {
+            this.bounds = bounds;
+            this.from   = from;
+            this.to     = to;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            if (to - from == 1) {
+                return parseChunk(bounds[from], bounds[to]);
+            }
+            int middle = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(bounds, from, middle);
+            left.fork();
+            ChunkResult right = new ChunkTask(bounds, middle, to).compute();
+            return stitch(left.join(), right);
+        }
+    }
+
+    /**
+     * Data class holding the documents of a part of the log together with its first and last time stamp and the
+     * lines before its first message.
+     */
+    static class ChunkResult {
+        static final ChunkResult EMPTY = new ChunkResult(Collections.emptyList(), TimestampParser.INVALID,
+                TimestampParser.INVALID, Collections.emptyList());
+
+        private final List<LogDocument> documents;
+        private final long firstMillis;
+        private final long lastMillis;
+        private final List<String> leadingLines;
+
+        ChunkResult(List<LogDocument> documents, long firstMillis, long lastMillis, List<String> leadingLines) {
+            this.documents    = documents;
+            this.firstMillis  = firstMillis;
+            this.lastMillis   = lastMillis;
+            this.leadingLines = leadingLines;
+        }
+
+        ChunkResult lastDocumentOnly() {
+            if (documents.isEmpty()) {
+                return this;
+            }
+            return new ChunkResult(Collections.singletonList(documents.get(documents.size() - 1)),
+                    firstMillis, lastMillis, leadingLines);
+        }
+
+        ChunkResult withoutLeadingLines() {
+            return new ChunkResult(documents, firstMillis, lastMillis, Collections.emptyList());
+        }
+    }
+}
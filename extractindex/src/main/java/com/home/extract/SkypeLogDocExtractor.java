@@ -1,94 +1,292 @@
 package com.home.extract;
 
+import com.home.common.IngestMetrics;
 import com.home.common.LogDocument;
+import com.home.rollup.RollupBuilder;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.log4j.BasicConfigurator;
-import org.joda.time.DateTime;
-import org.joda.time.format.DateTimeFormat;
-import org.joda.time.format.DateTimeFormatter;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 /**
  * This class extracts documents from a text file by using the time stamp of each currentLine.
- * Lines close to each other w.r.t. to the time stamp form a single document.
+ * Lines close to each other w.r.t. to the time stamp form a single document. Lines without a time stamp, e.g. parts
+ * of a pasted stack trace, are continuation lines of the previous message. Lines before the first message are
+ * dropped.
  */
 public class SkypeLogDocExtractor implements LogDocExtractor {
 
     private static final Log logger = LogFactory.getLog(SkypeLogDocExtractor.class);
 
-    private static final String[] DEFAULT_DATETIME_PATTERNS = { "[dd.mm.yyyy HH:mm:ss]",
-                                                                "[dd/mm/yyyy HH:mm:ss]",
-                                                                "dd.mm.yyyy HH:mm:ss",
-                                                                "dd.mm.yyyy HH:mm:ss" };
+    /** Types of readers used to read the log file line by line. Compressed files are always read by a buffered reader. */
+    public enum ReaderType {
+        /** Decodes every line using a {@link BufferedReader}. */
+        BUFFERED,
+        /** Works on the bytes of the memory mapped file and decodes only the text added to documents. */
+        MAPPED
+    }
+
+    private static final String[] DEFAULT_DATETIME_PATTERNS = { "[dd.MM.yyyy HH:mm:ss]",
+                                                                "[dd/MM/yyyy HH:mm:ss]",
+                                                                "dd.MM.yyyy HH:mm:ss",
+                                                                "dd/MM/yyyy HH:mm:ss" };
+
+    /** Maximum length of a speaker name, longer text before a colon is part of the message. */
+    private static final int MAX_SPEAKER_LENGTH = 64;
 
     private long maxMillisecs = 60;
 
-    private final List<Pattern> dateTimeFormatters = new ArrayList<>();
+    private TimestampParser[] timestampParsers;
 
-    private BufferedReader fileReader;
+    private LogLineReader lineReader;
 
-    private DateTime lastDateTime = null;
+    private long firstMillis = TimestampParser.INVALID;
 
-    private String currentLine = null;
+    private long lastMillis = TimestampParser.INVALID;
+
+    /** Text of the line read last, held in the buffer of the line reader until the next line is read. */
+    private CharSequence currentLine = null;
+
+    /** Epoch milliseconds of the time stamp of the current line. */
+    private long currentLineMillis = TimestampParser.INVALID;
 
     private LogDocument logDocument = new LogDocument(0);
 
     private int docCounter = 0;
 
+    private String docIdPrefix = "";
+
+    private long continuationLineCount = 0;
+
+    private long droppedLineCount = 0;
+
+    /** Lines read, recorded in the {@link IngestMetrics} once per document together with the bytes consumed. */
+    private long linesRead = 0;
+
+    private long recordedBytes = 0;
+
+    private long recordedContinuationLines = 0;
+
+    private long recordedDroppedLines = 0;
+
+    private boolean endOfFile = false;
+
+    /** Lines before the first message, kept instead of dropped when parsing a part of a log file. */
+    private List<String> leadingLines = null;
+
+    /** Whether the last document is extracted although lines appended to the file later may belong to it. */
+    private boolean extractLastDocument = true;
+
+    /** Byte offset of the current line, -1 if the reader does not know it. */
+    private long lineOffset = -1;
+
+    /** Counts the messages per time bucket, null if no rollups are built. */
+    private RollupBuilder rollup = null;
+
+    /** State at the beginning of an incremental run, updated whenever a document starts. */
+    private Checkpoint checkpoint = new Checkpoint(-1, 0, TimestampParser.INVALID, -1, true);
+
     /**
      * Create a log extractor object for list of provided date-time patterns according to joda.time.DateTime formats.
      *
      * @param filename Location of the log filename on disk.
      * @param maxMinutes Maximum minutes allowed between two consecutive lines in the log.
-     * @param patterns A list of provided patterns. The first valid pattern will be used to parse the date and time.
+     * @param patterns A list of provided patterns. Patterns are tried in order, starting with the pattern that
+     *                 parsed the previous time stamp.
      * @return A newly created SkypeLogDocExtractor object able to parse the provided patterns.
      * @throws IllegalArgumentException if none of the array of patterns is valid.
      * @throws IOException if the file cannot be open for reading.
      */
     public static SkypeLogDocExtractor getInstance(final String filename, final long maxMinutes,
                                                    final String... patterns) throws IllegalArgumentException, IOException {
-        if (filename == null || patterns == null) {
+        return getInstance(filename, maxMinutes, ReaderType.BUFFERED, patterns);
+    }
+
+    /**
+     * Create a log extractor object for list of provided date-time patterns according to joda.time.DateTime formats.
+     *
+     * @param filename Location of the log filename on disk.
+     * @param maxMinutes Maximum minutes allowed between two consecutive lines in the log.
+     * @param readerType Type of the reader used to read the log file.
+     * @param patterns A list of provided patterns. The first valid pattern will be used to parse the date and time.
+     * @return A newly created SkypeLogDocExtractor object able to parse the provided patterns.
+     * @throws IllegalArgumentException if none of the array of patterns is valid.
+     * @throws IOException if the file cannot be open for reading.
+     */
+    public static SkypeLogDocExtractor getInstance(final String filename, final long maxMinutes,
+                                                   final ReaderType readerType, final String... patterns)
+            throws IllegalArgumentException, IOException {
+        if (filename == null || readerType == null || patterns == null) {
             throw new NullPointerException("Null string passed!");
         }
-        SkypeLogDocExtractor instance = new SkypeLogDocExtractor();
-        instance.createDateTimeFormatters(patterns);
-        instance.setMaxGapTime(maxMinutes);
-        instance.openLogFileForReading(filename);
-        instance.parseNext();
-        return instance;
+        validatePatterns(patterns);
+        return getInstance(openLineReader(filename, readerType), maxMinutes, "", false, patterns);
     }
 
     private void setMaxGapTime(final long maxMinutes) {
+        maxMillisecs = toMaxMillisecs(maxMinutes);
+    }
+
+    static long toMaxMillisecs(final long maxMinutes) {
+        assert maxMinutes >= 0;
         if (maxMinutes >= Long.MAX_VALUE / (60 * 1000)) {
-            maxMillisecs = Long.MAX_VALUE;
-        } else {
-            maxMillisecs = maxMinutes * 60 * 1000;
+            return Long.MAX_VALUE;
         }
-        assert maxMinutes >= 0;
+        return maxMinutes * 60 * 1000;
+    }
+
+    /**
+     * Checks that at least one of the provided patterns is valid.
+     *
+     * @throws IllegalArgumentException if none of the array of patterns is valid.
+     */
+    static void validatePatterns(final String... patterns) throws IllegalArgumentException {
+        new SkypeLogDocExtractor().createDateTimeFormatters(patterns);
     }
 
     private void createDateTimeFormatters(final String... patterns) {
+        timestampParsers = createTimestampParsers(patterns);
+    }
+
+    /**
+     * Creates the parsers of the valid patterns, invalid patterns are logged.
+     *
+     * @throws IllegalArgumentException if none of the array of patterns is valid.
+     */
+    static TimestampParser[] createTimestampParsers(final String... patterns) throws IllegalArgumentException {
+        List<TimestampParser> parsers = new ArrayList<>();
         for(String pattern : patterns) {
             try {
-                dateTimeFormatters.add(new Pattern(DateTimeFormat.forPattern(pattern), pattern.length()));
+                parsers.add(TimestampParser.forPattern(pattern));
             }
             catch(final IllegalArgumentException e) {
                 logger.error("Invalid date time pattern specified: " + pattern);
             }
         }
-        if (dateTimeFormatters.size() == 0) {
+        if (parsers.size() == 0) {
             throw new IllegalArgumentException("None of the patterns was valid!");
         }
+        return parsers.toArray(new TimestampParser[parsers.size()]);
+    }
+
+    /**
+     * Opens a reader for the log file. Files ending with .gz are decompressed while reading.
+     *
+     * @param filename Location of the log filename on disk.
+     * @param readerType Type of the reader used for uncompressed files.
+     * @return The opened reader.
+     * @throws IOException if the file cannot be open for reading.
+     */
+    static LogLineReader openLineReader(final String filename, final ReaderType readerType) throws IOException {
+        if (!isCompressed(filename) && readerType == ReaderType.MAPPED) {
+            return MappedLogLineReader.open(filename);
+        }
+        CountingInputStream file = new CountingInputStream(new FileInputStream(filename));
+        try {
+            return new BufferedLogLineReader(new BufferedReader(new InputStreamReader(
+                    isCompressed(filename) ? new GZIPInputStream(file, 64 * 1024) : file, Charset.defaultCharset())),
+                    file);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /** Indicates whether the file is gzip compressed, judging by its name. */
+    static boolean isCompressed(final String filename) {
+        return filename.endsWith(".gz");
+    }
+
+    /**
+     * Create a log extractor object reading from an already opened line reader.
+     *
+     * @param reader Line reader positioned at the beginning of a line.
+     * @param maxMinutes Maximum minutes allowed between two consecutive lines in the log.
+     * @param docIdPrefix Prefix of the ids of all documents, followed by the document number.
+     * @param keepLeadingLines Whether to keep lines before the first message instead of dropping them. Used for
+     *                         parsing parts of a log file.
+     * @param patterns A list of provided patterns. The first valid pattern will be used to parse the date and time.
+     * @return A newly created SkypeLogDocExtractor object reading from the given reader.
+     */
+    static SkypeLogDocExtractor getInstance(final LogLineReader reader, final long maxMinutes,
+                                            final String docIdPrefix, final boolean keepLeadingLines,
+                                            final String... patterns) {
+        SkypeLogDocExtractor instance = newInstance(reader, maxMinutes, docIdPrefix, patterns);
+        if (keepLeadingLines) {
+            instance.leadingLines = new ArrayList<>();
+        }
+        instance.parseNext();
+        return instance;
     }
 
-    private void openLogFileForReading(final String filename) throws IOException {
-        fileReader = new BufferedReader(new FileReader(filename));
+    /**
+     * Create a log extractor object reading from an already opened line reader and feeding every message to a
+     * rollup builder.
+     *
+     * @param reader Line reader positioned at the beginning of a line.
+     * @param maxMinutes Maximum minutes allowed between two consecutive lines in the log.
+     * @param docIdPrefix Prefix of the ids of all documents, followed by the document number.
+     * @param rollup Builder counting the messages, every document is a conversation.
+     * @param patterns A list of provided patterns. The first valid pattern will be used to parse the date and time.
+     * @return A newly created SkypeLogDocExtractor object reading from the given reader.
+     */
+    static SkypeLogDocExtractor getInstance(final LogLineReader reader, final long maxMinutes,
+                                            final String docIdPrefix, final RollupBuilder rollup,
+                                            final String... patterns) {
+        if (rollup == null) {
+            throw new NullPointerException("Null parameter provided!");
+        }
+        SkypeLogDocExtractor instance = newInstance(reader, maxMinutes, docIdPrefix, patterns);
+        instance.rollup = rollup;
+        instance.parseNext();
+        return instance;
+    }
+
+    /**
+     * Create a log extractor object continuing an incremental run.
+     *
+     * @param reader Line reader positioned at the offset of the start checkpoint.
+     * @param maxMinutes Maximum minutes allowed between two consecutive lines in the log.
+     * @param docIdPrefix Prefix of the ids of all documents, followed by the document number.
+     * @param start Offset and size of the input read by the reader and number of the first document.
+     * @param extractLastDocument Whether to extract the last document, which may still grow.
+     * @param patterns A list of provided patterns. The first valid pattern will be used to parse the date and time.
+     * @return A newly created SkypeLogDocExtractor object reading from the given reader.
+     */
+    static SkypeLogDocExtractor getInstance(final LogLineReader reader, final long maxMinutes,
+                                            final String docIdPrefix, final Checkpoint start,
+                                            final boolean extractLastDocument, final String... patterns) {
+        if (start == null) {
+            throw new NullPointerException("Null parameter provided!");
+        }
+        SkypeLogDocExtractor instance = newInstance(reader, maxMinutes, docIdPrefix, patterns);
+        instance.docCounter          = start.getDocumentNumber();
+        instance.extractLastDocument = extractLastDocument;
+        instance.checkpoint          = new Checkpoint(start.getOffset(), start.getDocumentNumber(),
+                start.getLastMillis(), start.getFileSize(), extractLastDocument);
+        instance.parseNext();
+        return instance;
+    }
+
+    private static SkypeLogDocExtractor newInstance(final LogLineReader reader, final long maxMinutes,
+                                                    final String docIdPrefix, final String... patterns) {
+        if (reader == null || docIdPrefix == null || patterns == null) {
+            throw new NullPointerException("Null parameter provided!");
+        }
+        SkypeLogDocExtractor instance = new SkypeLogDocExtractor();
+        instance.createDateTimeFormatters(patterns);
+        instance.setMaxGapTime(maxMinutes);
+        instance.lineReader  = reader;
+        instance.docIdPrefix = docIdPrefix;
+        return instance;
     }
 
     /**
@@ -105,6 +303,20 @@ public class SkypeLogDocExtractor implements LogDocExtractor {
         return getInstance(filename, maxMinutes, DEFAULT_DATETIME_PATTERNS);
     }
 
+    /**
+     * Create a log extractor object using the default date-time patterns.
+     *
+     * @param filename Location of the log filename on disk.
+     * @param maxMinutes Maximum minutes allowed between two consecutive lines in the log.
+     * @param readerType Type of the reader used to read the log file.
+     * @return A newly created SkypeLogDocExtractor object.
+     * @throws IOException if the file cannot be open for reading.
+     */
+    public static SkypeLogDocExtractor getInstance(final String filename, final long maxMinutes,
+                                                   final ReaderType readerType) throws IOException {
+        return getInstance(filename, maxMinutes, readerType, DEFAULT_DATETIME_PATTERNS);
+    }
+
     /**
      * Parses the next document in the log based on time stamps.
      *
@@ -115,57 +327,178 @@ public class SkypeLogDocExtractor implements LogDocExtractor {
         clearCurrentDoc();
         addCurrentLineToCurrentDoc();
         addFurtherLinesToCurrentDoc();
+        recordMetrics();
         return logDocument;
     }
 
+    private void recordMetrics() {
+        long bytes = lineReader.bytesRead();
+        IngestMetrics.global().addLines(linesRead, bytes - recordedBytes,
+                continuationLineCount - recordedContinuationLines, droppedLineCount - recordedDroppedLines);
+        linesRead                 = 0;
+        recordedBytes             = bytes;
+        recordedContinuationLines = continuationLineCount;
+        recordedDroppedLines      = droppedLineCount;
+    }
+
     private void clearCurrentDoc() {
-        logDocument = new LogDocument(docCounter++);
+        logDocument = newDocument(docIdPrefix, docCounter++);
+    }
+
+    /** Creates an empty document whose id is the prefix followed by the number. */
+    static LogDocument newDocument(final String docIdPrefix, final int number) {
+        return docIdPrefix.isEmpty() ? new LogDocument(number) : new LogDocument(docIdPrefix + number);
     }
 
     private void addCurrentLineToCurrentDoc() {
         if (currentLine != null) {
+            if (logDocument.isEmpty()) {
+                startCheckpointAtCurrentLine();
+                if (rollup != null)
+                    rollup.startConversation();
+            }
             logDocument.addLine(currentLine);
+            logDocument.addTime(currentLineMillis);
+            String speaker = addSpeaker(logDocument, currentLine);
+            if (rollup != null)
+                rollup.addMessage(currentLineMillis, speaker);
+        }
+    }
+
+    /**
+     * Adds the name before the first colon of a message, e.g. Anna of " Anna: hello", to the speakers.
+     *
+     * @return The name as held by the document, null if the message has no speaker.
+     */
+    static String addSpeaker(final LogDocument logDocument, final CharSequence message) {
+        int start = 0;
+        while (start < message.length() && message.charAt(start) == ' ') {
+            ++start;
+        }
+        int limit = Math.min(message.length(), start + MAX_SPEAKER_LENGTH);
+        for (int end = start; end < limit; ++end) {
+            if (message.charAt(end) == ':') {
+                return end > start ? logDocument.addSpeaker(message, start, end) : null;
+            }
         }
+        return null;
+    }
+
+    /** Moves the checkpoint to the current line, which is the first line of a new document. */
+    private void startCheckpointAtCurrentLine() {
+        checkpoint = new Checkpoint(lineOffset, docCounter - 1, checkpoint.getLastMillis(), checkpoint.getFileSize(),
+                extractLastDocument);
     }
 
     private void addFurtherLinesToCurrentDoc() {
         try {
-            while ((currentLine = fileReader.readLine()) != null) {
-                try {
-                    DateTime currentDateTime = parseDateTimeFromLine();
-                    boolean timeGapAboveMax = timeGapAboveMax(currentDateTime);
-                    lastDateTime = currentDateTime;
-                    if (timeGapAboveMax) {
-                        break;
-                    }
-                    addCurrentLineToCurrentDoc();
-                } catch (IllegalArgumentException e) {
-                    logger.error("Error parsing current line '" + currentLine + "': " + e);
+            while (nextLine()) {
+                long currentMillis = parseDateTime();
+                if (currentMillis == TimestampParser.INVALID) {
+                    addContinuationLine();
+                    continue;
                 }
+                boolean timeGapAboveMax = timeGapAboveMax(currentMillis);
+                if (firstMillis == TimestampParser.INVALID) {
+                    firstMillis = currentMillis;
+                }
+                lastMillis = currentMillis;
+                if (timeGapAboveMax) {
+                    break;
+                }
+                addCurrentLineToCurrentDoc();
             }
         } catch (IOException e) {
             logger.error("Error while trying to read from file!'");
         }
     }
 
-    private boolean timeGapAboveMax(final DateTime currentDateTime) {
-        return (lastDateTime != null) && (currentDateTime.getMillis() - lastDateTime.getMillis() > maxMillisecs);
+    private void addContinuationLine() {
+        if (lastMillis != TimestampParser.INVALID) {
+            logDocument.addLine(lineReader.text(0));
+            ++continuationLineCount;
+        } else if (leadingLines != null) {
+            leadingLines.add(lineReader.text(0).toString());
+        } else {
+            ++droppedLineCount;
+        }
     }
 
-    private DateTime parseDateTimeFromLine() throws IllegalArgumentException {
-        return parseDateTime();
+    private boolean nextLine() throws IOException {
+        // the reader is closed at the end of the file
+        if (endOfFile) {
+            return false;
+        }
+        if (lineReader.nextLine()) {
+            ++linesRead;
+            return true;
+        }
+        currentLine = null;
+        if (!endOfFile) {
+            endOfFile = true;
+            closeQuietly();
+            logLinesWithoutTimeStamp();
+        }
+        return false;
     }
 
-    private DateTime parseDateTime() {
-        for (Pattern dateTimePattern : dateTimeFormatters) {
-            // Try all date time formatters
-            if (currentLine.length() >= dateTimePattern.getPatternLength()) {
-                String DateTimeStr = currentLine.substring(0, dateTimePattern.getPatternLength());
-                currentLine = currentLine.substring(dateTimePattern.getPatternLength(), currentLine.length());
-                return DateTime.parse(DateTimeStr, dateTimePattern.getDateTimeFormatter());
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            logger.error("Error while closing log file: " + e);
+        }
+    }
+
+    /**
+     * Closes the line reader, which is also closed when the end of the log file is reached.
+     *
+     * @throws IOException if the log file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        lineReader.close();
+    }
+
+    private void logLinesWithoutTimeStamp() {
+        if (leadingLines == null && (continuationLineCount > 0 || droppedLineCount > 0)) {
+            logger.info("Lines without valid date time: " + continuationLineCount
+                    + " added as continuation lines, " + droppedLineCount + " dropped before the first message");
+        }
+    }
+
+    private boolean timeGapAboveMax(final long currentMillis) {
+        return (lastMillis != TimestampParser.INVALID) && (currentMillis - lastMillis > maxMillisecs);
+    }
+
+    /**
+     * Parses the time stamp of the line just read and sets the current line to the text after it.
+     *
+     * @return Epoch milliseconds of the time stamp or {@link TimestampParser#INVALID} if no pattern matches.
+     */
+    private long parseDateTime() {
+        CharSequence line = lineReader.line();
+        for (int i = 0; i < timestampParsers.length; ++i) {
+            // Try all date time parsers, the last successful one first
+            TimestampParser parser = timestampParsers[i];
+            long millis = parser.parseMillis(line);
+            if (millis != TimestampParser.INVALID) {
+                moveToFront(i);
+                currentLine       = lineReader.text(parser.getLength());
+                currentLineMillis = millis;
+                lineOffset        = lineReader.lineOffset();
+                return millis;
             }
         }
-        throw new IllegalArgumentException("Line does not contain valid date time!");
+        return TimestampParser.INVALID;
+    }
+
+    private void moveToFront(final int index) {
+        if (index > 0) {
+            TimestampParser parser = timestampParsers[index];
+            System.arraycopy(timestampParsers, 0, timestampParsers, 1, index);
+            timestampParsers[0] = parser;
+        }
     }
 
     /**
@@ -185,33 +518,61 @@ public class SkypeLogDocExtractor implements LogDocExtractor {
      */
     @Override
     public boolean hasNext() {
-        return !logDocument.getText().isEmpty();
+        return !logDocument.isEmpty() && (extractLastDocument || !endOfFile);
     }
 
-    private SkypeLogDocExtractor() {
+    /**
+     * Returns where the next incremental run continues: at the first line of the last document, which is extracted
+     * again under the same number. Only meaningful after all documents were extracted from an extractor built by
+     * {@link LogDocExtractorBuilder#buildIncremental(Checkpoint, boolean)}.
+     *
+     * @return The checkpoint of the log file.
+     */
+    public Checkpoint checkpoint() {
+        long millis = lastMillis != TimestampParser.INVALID ? lastMillis : checkpoint.getLastMillis();
+        return new Checkpoint(checkpoint.getOffset(), checkpoint.getDocumentNumber(), millis,
+                checkpoint.getFileSize(), checkpoint.isLastDocumentExtracted());
     }
 
-    static {
-        // Configure simple logging.
-        BasicConfigurator.configure();
+    /**
+     * Returns the number of lines without a valid time stamp that were added to the previous message.
+     */
+    public long getContinuationLineCount() {
+        return continuationLineCount;
     }
 
-    /** Data class used for storing the pattern together with its length. */
-    static class Pattern {
-        private final DateTimeFormatter dateTimeFormatter;
-        private final int patternLength;
+    /**
+     * Returns the number of lines without a valid time stamp that were dropped because no message preceded them.
+     */
+    public long getDroppedLineCount() {
+        return droppedLineCount;
+    }
 
-        Pattern(DateTimeFormatter dateTimeFormatter, int patternLength) {
-            this.dateTimeFormatter = dateTimeFormatter;
-            this.patternLength     = patternLength;
-        }
+    /** Lines without a valid time stamp before the first message, when parsing a part of a log file. */
+    List<String> getLeadingLines() {
+        return leadingLines;
+    }
 
-        DateTimeFormatter getDateTimeFormatter() {
-            return this.dateTimeFormatter;
-        }
+    /** Time stamp of the first line with a valid time stamp, or {@link TimestampParser#INVALID} if none was read. */
+    long getFirstMillis() {
+        return firstMillis;
+    }
 
-        int getPatternLength() {
-            return patternLength;
-        }
+    /** Time stamp of the last line with a valid time stamp, or {@link TimestampParser#INVALID} if none was read. */
+    long getLastMillis() {
+        return lastMillis;
+    }
+
+    /** The date time patterns used when no patterns are provided. */
+    static String[] getDefaultPatterns() {
+        return DEFAULT_DATETIME_PATTERNS.clone();
+    }
+
+    private SkypeLogDocExtractor() {
+    }
+
+    static {
+        // Configure simple logging.
+        BasicConfigurator.configure();
     }
 }
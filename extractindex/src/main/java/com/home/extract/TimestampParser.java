@@ -0,0 +1,218 @@
+package com.home.extract;
+
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+/**
+ * Parser for the time stamp at the beginning of a log line. The time stamp has the length of its pattern, which
+ * uses the joda.time.DateTime format.
+ *
+ * Patterns made only of the fields dd, MM, yyyy, HH, mm, ss and SSS separated by non-letter characters are compiled
+ * into a parser that reads the digits at their fixed positions directly into epoch milliseconds without creating
+ * any objects. All other patterns are parsed by a joda.time formatter.
+ */
+abstract class TimestampParser {
+
+    /** Returned when the line does not start with a valid time stamp. */
+    static final long INVALID = Long.MIN_VALUE;
+
+    private final String pattern;
+
+    private TimestampParser(final String pattern) {
+        this.pattern = pattern;
+    }
+
+    /**
+     * Creates a parser for the given pattern.
+     *
+     * @param pattern Date-time pattern according to joda.time.DateTime formats.
+     * @return A parser for the pattern.
+     * @throws IllegalArgumentException if the pattern is not valid.
+     */
+    static TimestampParser forPattern(final String pattern) throws IllegalArgumentException {
+        DateTimeFormatter formatter = DateTimeFormat.forPattern(pattern);
+        FixedLayoutParser fixedLayoutParser = FixedLayoutParser.compile(pattern);
+        return fixedLayoutParser != null ? fixedLayoutParser : new FormatterParser(pattern, formatter);
+    }
+
+    /**
+     * Parses the time stamp at the beginning of the line.
+     *
+     * @param line The line to parse.
+     * @return Epoch milliseconds of the time stamp or {@link #INVALID} if the line does not start with one.
+     */
+    abstract long parseMillis(CharSequence line);
+
+    /** Length of the time stamp at the beginning of a line. */
+    int getLength() {
+        return pattern.length();
+    }
+
+    String getPattern() {
+        return pattern;
+    }
+
+    /** Parser using a joda.time formatter for patterns that cannot be compiled. */
+    private static class FormatterParser extends TimestampParser {
+        private final DateTimeFormatter formatter;
+
+        FormatterParser(final String pattern, final DateTimeFormatter formatter) {
+            super(pattern);
+            this.formatter = formatter;
+        }
+
+        @Override
+        long parseMillis(final CharSequence line) {
+            if (line.length() < getLength()) {
+                return INVALID;
+            }
+            try {
+                return formatter.parseMillis(line.subSequence(0, getLength()).toString());
+            } catch (IllegalArgumentException e) {
+                return INVALID;
+            }
+        }
+    }
+
+    /**
+     * Parser reading the digits of every field at a fixed position. Follows the joda.time rules: fields are
+     * validated against their ranges and local times which do not exist in the default time zone are invalid.
+     */
+    static class FixedLayoutParser extends TimestampParser {
+        private static final int YEAR = 0;
+        private static final int MONTH = 1;
+        private static final int DAY = 2;
+        private static final int HOUR = 3;
+        private static final int MINUTE = 4;
+        private static final int SECOND = 5;
+        private static final int MILLIS = 6;
+
+        private static final int[] DAYS_IN_MONTH = { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+
+        private final DateTimeZone zone;
+
+        /** Per position in the time stamp: the field of a digit or -1 for a literal character. */
+        private final int[] fields;
+
+        private final char[] literals;
+
+        private FixedLayoutParser(final String pattern, final int[] fields, final DateTimeZone zone) {
+            super(pattern);
+            this.fields   = fields;
+            this.literals = pattern.toCharArray();
+            this.zone     = zone;
+        }
+
+        /**
+         * Compiles the pattern into a fixed layout parser using the current default time zone.
+         *
+         * @return The parser or null if the pattern contains unsupported fields.
+         */
+        static FixedLayoutParser compile(final String pattern) {
+            int[] fields = new int[pattern.length()];
+            boolean[] seen = new boolean[MILLIS + 1];
+            int position = 0;
+            while (position < pattern.length()) {
+                char letter = pattern.charAt(position);
+                int count = 1;
+                while (position + count < pattern.length() && pattern.charAt(position + count) == letter) {
+                    ++count;
+                }
+                int field;
+                if ((letter >= 'a' && letter <= 'z') || (letter >= 'A' && letter <= 'Z')) {
+                    field = fieldOf(letter, count);
+                    if (field < 0 || seen[field]) {
+                        return null;
+                    }
+                    seen[field] = true;
+                } else if (letter == '\'') {
+                    return null;
+                } else {
+                    field = -1;
+                }
+                for (int i = 0; i < count; ++i) {
+                    fields[position++] = field;
+                }
+            }
+            if (!seen[YEAR] || !seen[MONTH] || !seen[DAY]) {
+                return null;
+            }
+            return new FixedLayoutParser(pattern, fields, DateTimeZone.getDefault());
+        }
+
+        private static int fieldOf(final char letter, final int count) {
+            switch (letter) {
+                case 'y': return count == 4 ? YEAR : -1;
+                case 'M': return count == 2 ? MONTH : -1;
+                case 'd': return count == 2 ? DAY : -1;
+                case 'H': return count == 2 ? HOUR : -1;
+                case 'm': return count == 2 ? MINUTE : -1;
+                case 's': return count == 2 ? SECOND : -1;
+                case 'S': return count == 3 ? MILLIS : -1;
+                default:  return -1;
+            }
+        }
+
+        @Override
+        long parseMillis(final CharSequence line) {
+            if (line.length() < fields.length) {
+                return INVALID;
+            }
+            int year = 0, month = 0, day = 0, hour = 0, minute = 0, second = 0, millis = 0;
+            for (int i = 0; i < fields.length; ++i) {
+                char c = line.charAt(i);
+                int field = fields[i];
+                if (field < 0) {
+                    if (c != literals[i]) {
+                        return INVALID;
+                    }
+                    continue;
+                }
+                int digit = c - '0';
+                if (digit < 0 || digit > 9) {
+                    return INVALID;
+                }
+                switch (field) {
+                    case YEAR:   year   = year   * 10 + digit; break;
+                    case MONTH:  month  = month  * 10 + digit; break;
+                    case DAY:    day    = day    * 10 + digit; break;
+                    case HOUR:   hour   = hour   * 10 + digit; break;
+                    case MINUTE: minute = minute * 10 + digit; break;
+                    case SECOND: second = second * 10 + digit; break;
+                    default:     millis = millis * 10 + digit; break;
+                }
+            }
+            if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                    || hour > 23 || minute > 59 || second > 59) {
+                return INVALID;
+            }
+            long localMillis = ((((daysSinceEpoch(year, month, day) * 24 + hour) * 60 + minute) * 60 + second)
+                    * 1000) + millis;
+            int offset = zone.getOffsetFromLocal(localMillis);
+            long instant = localMillis - offset;
+            if (offset != zone.getOffset(instant)) {
+                // The local time falls into a daylight saving gap.
+                return INVALID;
+            }
+            return instant;
+        }
+
+        private static int daysInMonth(final int year, final int month) {
+            if (month == 2 && (year % 4 == 0) && (year % 100 != 0 || year % 400 == 0)) {
+                return 29;
+            }
+            return DAYS_IN_MONTH[month - 1];
+        }
+
+        /** Days since 1970-01-01 in the proleptic Gregorian calendar. */
+        private static long daysSinceEpoch(final int year, final int month, final int day) {
+            long y = month <= 2 ? year - 1 : year;
+            long era = (y >= 0 ? y : y - 399) / 400;
+            long yearOfEra = y - era * 400;
+            long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+            long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+            return era * 146097 + dayOfEra - 719468;
+        }
+    }
+}
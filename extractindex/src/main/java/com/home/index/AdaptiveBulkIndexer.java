@@ -0,0 +1,303 @@
+package com.home.index;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.log4j.BasicConfigurator;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.rest.RestStatus;
+
+import java.io.Closeable;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends index requests to elastic search in bulks of a size adapted to the observed latency. A bulk taking longer
+ * than the target latency halves the bulk size, a faster one increases it by the minimum bulk size. Up to a
+ * configured number of bulks are in flight at the same time; adding a request blocks while all are busy. Documents
+ * rejected because the queues of the cluster are full are sent again after an exponentially growing delay. Closing
+ * the indexer waits until every bulk completed, including its retries.
+ */
+public class AdaptiveBulkIndexer implements Closeable {
+
+    private static final Log logger = LogFactory.getLog(AdaptiveBulkIndexer.class);
+
+    /** Sends a bulk request asynchronously, as {@link Client#bulk(BulkRequest, ActionListener)} does. */
+    interface BulkSender {
+        void bulk(BulkRequest request, ActionListener<BulkResponse> listener);
+    }
+
+    private final BulkSender sender;
+
+    private final BulkSettings settings;
+
+    private final Semaphore inFlight;
+
+    private final ScheduledExecutorService retryScheduler;
+
+    private final AtomicLong bulkBytes;
+
+    private final AtomicLong indexedCount = new AtomicLong();
+
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private final AtomicLong retriedCount = new AtomicLong();
+
+    private BulkRequest bulkRequest = new BulkRequest();
+
+    private boolean closed = false;
+
+    private volatile BulkListener listener;
+
+    /**
+     * Constructs an indexer.
+     *
+     * @param client Client used to send the bulk requests.
+     * @param settings Settings for sizing and retrying bulk requests.
+     */
+    public AdaptiveBulkIndexer(final Client client, final BulkSettings settings) {
+        this(client == null ? null : client::bulk, settings);
+    }
+
+    AdaptiveBulkIndexer(final BulkSender sender, final BulkSettings settings) {
+        if (sender == null || settings == null)
+            throw new NullPointerException("Null parameter provided!");
+        this.sender         = sender;
+        this.settings       = settings;
+        this.inFlight       = new Semaphore(settings.getConcurrentRequests());
+        this.bulkBytes      = new AtomicLong(settings.getInitialBulkBytes());
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bulk-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Adds an index request to the current bulk, sending the bulk once it reaches the current bulk size.
+     *
+     * @param request The request to add.
+     * @throws InterruptedIOException if interrupted while waiting for a bulk to complete.
+     */
+    public synchronized void add(final IndexRequest request) throws InterruptedIOException {
+        if (closed)
+            throw new IllegalStateException("Bulk indexer is closed!");
+        bulkRequest.add(request);
+        if (bulkRequest.estimatedSizeInBytes() >= bulkBytes.get()) {
+            flush();
+        }
+    }
+
+    /**
+     * Sends the current bulk, if it contains any requests.
+     *
+     * @throws InterruptedIOException if interrupted while waiting for a bulk to complete.
+     */
+    public synchronized void flush() throws InterruptedIOException {
+        if (bulkRequest.numberOfActions() == 0)
+            return;
+        BulkRequest request = bulkRequest;
+        bulkRequest = new BulkRequest();
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a bulk request to complete");
+        }
+        send(request, 0);
+    }
+
+    /**
+     * Sends the current bulk and waits until all bulks completed.
+     *
+     * @throws InterruptedIOException if interrupted while waiting.
+     */
+    @Override
+    public synchronized void close() throws InterruptedIOException {
+        if (closed)
+            return;
+        flush();
+        closed = true;
+        try {
+            inFlight.acquire(settings.getConcurrentRequests());
+            inFlight.release(settings.getConcurrentRequests());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for bulk requests to complete");
+        } finally {
+            retryScheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Sets a listener notified about every completed bulk request, including retries and requests that failed as a
+     * whole.
+     *
+     * @param listener The listener, null for none.
+     */
+    public void setBulkListener(final BulkListener listener) {
+        this.listener = listener;
+    }
+
+    /** Number of documents indexed successfully. */
+    public long getIndexedCount() {
+        return indexedCount.get();
+    }
+
+    /** Number of documents that could not be indexed, also after retrying. */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /** Number of times a rejected document was sent again. */
+    public long getRetriedCount() {
+        return retriedCount.get();
+    }
+
+    /** The current bulk size in bytes. */
+    public long getBulkBytes() {
+        return bulkBytes.get();
+    }
+
+    /** Sends a bulk holding a permit, which is released once the bulk and all its retries completed. */
+    private void send(final BulkRequest request, final int attempt) {
+        long start = System.nanoTime();
+        try {
+            sender.bulk(request, new ActionListener<BulkResponse>() {
+                @Override
+                public void onResponse(BulkResponse response) {
+                    long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    adaptBulkSize(latencyMillis);
+                    handleResponse(request, response, attempt, latencyMillis);
+                }
+
+                @Override
+                public void onFailure(Throwable failure) {
+                    handleFailure(request, failure, attempt, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                }
+            });
+        } catch (RuntimeException e) {
+            handleFailure(request, e, attempt, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Notifies the listener about a completed bulk request, before its permit is released so closing the indexer
+     * waits for the notification.
+     *
+     * @param failed Documents of the request which failed for good, rejected documents sent again are not counted.
+     */
+    private void notifyListener(final BulkRequest request, final long latencyMillis, final int failed) {
+        BulkListener current = listener;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.afterBulk(request.numberOfActions(), request.estimatedSizeInBytes(), latencyMillis, failed);
+        } catch (RuntimeException e) {
+            logger.error("Bulk listener failed: " + e);
+        }
+    }
+
+    private void handleResponse(final BulkRequest request, final BulkResponse response, final int attempt,
+                                final long latencyMillis) {
+        BulkRequest rejected = new BulkRequest();
+        int failed = 0;
+        for (BulkItemResponse item : response.getItems()) {
+            if (!item.isFailed()) {
+                indexedCount.incrementAndGet();
+            } else if (item.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS) {
+                rejected.add(request.requests().get(item.getItemId()));
+            } else {
+                failedCount.incrementAndGet();
+                ++failed;
+                logger.error(item.getId() + " " + item.getFailureMessage());
+            }
+        }
+        logger.info(response.getItems().length + " elements processed");
+        boolean retrying = false;
+        if (rejected.numberOfActions() > 0) {
+            shrinkBulkSize();
+            retrying = retry(rejected, attempt);
+            failed  += retrying ? 0 : rejected.numberOfActions();
+        }
+        notifyListener(request, latencyMillis, failed);
+        if (!retrying) {
+            inFlight.release();
+        }
+    }
+
+    private void handleFailure(final BulkRequest request, final Throwable failure, final int attempt,
+                               final long latencyMillis) {
+        boolean retrying = false;
+        if (ExceptionsHelper.status(failure) == RestStatus.TOO_MANY_REQUESTS) {
+            shrinkBulkSize();
+            retrying = retry(request, attempt);
+        } else {
+            logger.error("Bulk request of " + request.numberOfActions() + " documents failed: " + failure);
+            failedCount.addAndGet(request.numberOfActions());
+        }
+        notifyListener(request, latencyMillis, retrying ? 0 : request.numberOfActions());
+        if (!retrying) {
+            inFlight.release();
+        }
+    }
+
+    /**
+     * Schedules sending rejected documents again. Documents are given up once the retries are exhausted.
+     *
+     * @return Whether the documents are sent again, the permit of the bulk is then released by the retry.
+     */
+    private boolean retry(final BulkRequest request, final int attempt) {
+        if (attempt >= settings.getMaxRetries()) {
+            logger.error(request.numberOfActions() + " documents still rejected after " + attempt + " retries");
+            failedCount.addAndGet(request.numberOfActions());
+            return false;
+        }
+        long delay = Math.min(settings.getMaxBackoffMillis(), settings.getInitialBackoffMillis() << Math.min(attempt, 30));
+        try {
+            retryScheduler.schedule(() -> send(copy(request), attempt + 1), delay, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            logger.error("Cannot retry " + request.numberOfActions() + " rejected documents: " + e);
+            failedCount.addAndGet(request.numberOfActions());
+            return false;
+        }
+        retriedCount.addAndGet(request.numberOfActions());
+        return true;
+    }
+
+    /** Bulk requests must not be sent twice, so a retry sends the same documents in a new request. */
+    private BulkRequest copy(final BulkRequest request) {
+        BulkRequest copy = new BulkRequest();
+        for (ActionRequest<?> action : request.requests()) {
+            copy.add(action);
+        }
+        return copy;
+    }
+
+    private void adaptBulkSize(final long latencyMillis) {
+        if (latencyMillis > settings.getTargetLatencyMillis()) {
+            shrinkBulkSize();
+        } else {
+            bulkBytes.updateAndGet(bytes -> Math.min(settings.getMaxBulkBytes(), bytes + settings.getMinBulkBytes()));
+        }
+    }
+
+    private void shrinkBulkSize() {
+        bulkBytes.updateAndGet(bytes -> Math.max(settings.getMinBulkBytes(), bytes / 2));
+    }
+
+    static {
+        BasicConfigurator.configure();
+    }
+}
@@ -0,0 +1,18 @@
+package com.home.index;
+
+/**
+ * Notified by {@link AdaptiveBulkIndexer} whenever a bulk request completed or failed, e.g. to collect latency
+ * statistics. Called from the threads of the elastic search client, so implementations must be thread safe and
+ * fast.
+ */
+public interface BulkListener {
+
+    /**
+     * @param actions Number of documents in the bulk request.
+     * @param bytes Estimated size of the bulk request in bytes.
+     * @param latencyMillis Time from sending the request to receiving the response or the failure.
+     * @param failed Number of documents of the request that failed for good. Rejected documents which are sent again
+     *               are not counted, their retry reports whether they failed.
+     */
+    void afterBulk(int actions, long bytes, long latencyMillis, int failed);
+}
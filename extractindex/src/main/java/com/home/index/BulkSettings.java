@@ -0,0 +1,148 @@
+package com.home.index;
+
+/**
+ * Class used for representing the settings of an {@link AdaptiveBulkIndexer}.
+ */
+public class BulkSettings {
+
+    private long initialBulkBytes;
+
+    private long minBulkBytes;
+
+    private long maxBulkBytes;
+
+    private long targetLatencyMillis;
+
+    private int concurrentRequests;
+
+    private int maxRetries;
+
+    private long initialBackoffMillis;
+
+    private long maxBackoffMillis;
+
+    /** Size of the first bulk request in bytes. */
+    public long getInitialBulkBytes() {
+        return initialBulkBytes;
+    }
+
+    /** Lower bound of the bulk size in bytes. */
+    public long getMinBulkBytes() {
+        return minBulkBytes;
+    }
+
+    /** Upper bound of the bulk size in bytes. */
+    public long getMaxBulkBytes() {
+        return maxBulkBytes;
+    }
+
+    /** Bulk requests taking longer are made smaller, faster ones larger. */
+    public long getTargetLatencyMillis() {
+        return targetLatencyMillis;
+    }
+
+    /** Maximum number of bulk requests in flight, including requests waiting to be retried. */
+    public int getConcurrentRequests() {
+        return concurrentRequests;
+    }
+
+    /** Maximum number of times rejected documents are sent again. */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /** Delay before the first retry, doubled for every further retry. */
+    public long getInitialBackoffMillis() {
+        return initialBackoffMillis;
+    }
+
+    /** Upper bound of the delay before a retry. */
+    public long getMaxBackoffMillis() {
+        return maxBackoffMillis;
+    }
+
+    public static class Builder {
+        private long initialBulkBytes     = 5 * 1024 * 1024;
+        private long minBulkBytes         = 1024 * 1024;
+        private long maxBulkBytes         = 64 * 1024 * 1024;
+        private long targetLatencyMillis  = 1000;
+        private int concurrentRequests    = Runtime.getRuntime().availableProcessors();
+        private int maxRetries            = 8;
+        private long initialBackoffMillis = 100;
+        private long maxBackoffMillis     = 30000;
+
+        public Builder initialBulkBytes(long initialBulkBytes) {
+            this.initialBulkBytes = initialBulkBytes;
+            return this;
+        }
+
+        public Builder minBulkBytes(long minBulkBytes) {
+            this.minBulkBytes = minBulkBytes;
+            return this;
+        }
+
+        public Builder maxBulkBytes(long maxBulkBytes) {
+            this.maxBulkBytes = maxBulkBytes;
+            return this;
+        }
+
+        public Builder targetLatencyMillis(long targetLatencyMillis) {
+            this.targetLatencyMillis = targetLatencyMillis;
+            return this;
+        }
+
+        public Builder concurrentRequests(int concurrentRequests) {
+            this.concurrentRequests = concurrentRequests;
+            return this;
+        }
+
+        public Builder maxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        public Builder initialBackoffMillis(long initialBackoffMillis) {
+            this.initialBackoffMillis = initialBackoffMillis;
+            return this;
+        }
+
+        public Builder maxBackoffMillis(long maxBackoffMillis) {
+            this.maxBackoffMillis = maxBackoffMillis;
+            return this;
+        }
+
+        /**
+         * @return The settings.
+         * @throws IllegalArgumentException if the bounds of the bulk size are inconsistent or a value is not positive.
+         */
+        public BulkSettings build() {
+            if (minBulkBytes <= 0 || minBulkBytes > initialBulkBytes || initialBulkBytes > maxBulkBytes)
+                throw new IllegalArgumentException("Bulk sizes must satisfy 0 < min <= initial <= max!");
+            if (targetLatencyMillis <= 0 || concurrentRequests <= 0 || maxRetries < 0 || initialBackoffMillis <= 0
+                    || maxBackoffMillis < initialBackoffMillis)
+                throw new IllegalArgumentException("Invalid bulk settings!");
+            return new BulkSettings(this);
+        }
+    }
+
+    private BulkSettings(Builder builder) {
+        this.initialBulkBytes     = builder.initialBulkBytes;
+        this.minBulkBytes         = builder.minBulkBytes;
+        this.maxBulkBytes         = builder.maxBulkBytes;
+        this.targetLatencyMillis  = builder.targetLatencyMillis;
+        this.concurrentRequests   = builder.concurrentRequests;
+        this.maxRetries           = builder.maxRetries;
+        this.initialBackoffMillis = builder.initialBackoffMillis;
+        this.maxBackoffMillis     = builder.maxBackoffMillis;
+    }
+
+    /**
+     * Default settings: bulks of 1 to 64 MB starting at 5 MB with a target latency of a second, one request in
+     * flight per processor and up to 8 retries starting after 100 ms.
+     *
+     * @return The default settings.
+     */
+    public static BulkSettings getDefaultSettings() {
+        return new Builder().build();
+    }
+}
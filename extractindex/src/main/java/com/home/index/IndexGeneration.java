@@ -0,0 +1,81 @@
+package com.home.index;
+
+import com.carrotsearch.hppc.cursors.ObjectObjectCursor;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.IndexNotFoundException;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Marks the contents of an index with a generation, stored in the _meta field of the mapping. The generation is
+ * changed whenever a bulk load into the index completed, so searchers can tell that cached results are stale by
+ * comparing generations, without searching the index.
+ */
+public final class IndexGeneration {
+
+    private static final String GENERATION = "generation";
+
+    private IndexGeneration() {
+    }
+
+    /**
+     * Refreshes the index, so the loaded documents are searchable, and gives it a new generation.
+     *
+     * @param esClient The client used to change the index.
+     * @param index Name of the index.
+     * @param type Type of the loaded documents.
+     * @throws IOException if the mapping cannot be built.
+     */
+    public static void advance(final Client esClient, final String index, final String type) throws IOException {
+        if (esClient == null || index == null || type == null)
+            throw new NullPointerException("Null parameter provided!");
+        esClient.admin().indices().prepareRefresh(index).get();
+        esClient.admin().indices().preparePutMapping(index).setType(type).setSource(XContentFactory.jsonBuilder()
+                .startObject()
+                    .startObject(type)
+                        .startObject("_meta").field(GENERATION, Strings.randomBase64UUID()).endObject()
+                    .endObject()
+                .endObject()).get();
+    }
+
+    /**
+     * Returns the generation of an index or of all indices an alias points to. The generation changes whenever one
+     * of the indices was loaded, or the alias was moved to another index.
+     *
+     * @param esClient The client used to read the mappings.
+     * @param index Name of the index or alias.
+     * @return The generation, an empty string if the index does not exist.
+     */
+    public static String current(final Client esClient, final String index) {
+        if (esClient == null || index == null)
+            throw new NullPointerException("Null parameter provided!");
+        ImmutableOpenMap<String, ImmutableOpenMap<String, MappingMetaData>> mappings;
+        try {
+            mappings = esClient.admin().indices().prepareGetMappings(index).get().getMappings();
+        } catch (IndexNotFoundException e) {
+            return "";
+        }
+        Map<String, Object> generations = new TreeMap<>();
+        for (ObjectObjectCursor<String, ImmutableOpenMap<String, MappingMetaData>> indexMappings : mappings) {
+            for (ObjectObjectCursor<String, MappingMetaData> typeMapping : indexMappings.value) {
+                generations.put(indexMappings.key + "/" + typeMapping.key, generation(typeMapping.value));
+            }
+        }
+        return generations.toString();
+    }
+
+    private static Object generation(final MappingMetaData mapping) {
+        try {
+            Object meta = mapping.sourceAsMap().get("_meta");
+            return meta instanceof Map ? ((Map<?, ?>) meta).get(GENERATION) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
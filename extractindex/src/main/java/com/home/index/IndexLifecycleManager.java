@@ -0,0 +1,224 @@
+package com.home.index;
+
+import com.carrotsearch.hppc.cursors.ObjectObjectCursor;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.log4j.BasicConfigurator;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequestBuilder;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.client.IndicesAdminClient;
+import org.elasticsearch.cluster.metadata.AliasMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prepares an index for a bulk load and makes it live again afterwards. During the load refreshes are disabled and
+ * the index has no replicas. Afterwards the previous refresh interval and number of replicas are restored, the index
+ * is refreshed and optionally force merged. In alias mode every load goes to a fresh index, named after the alias
+ * and the time of the load, and the alias is moved to it atomically once the load finished. An existing index which
+ * still has refreshes disabled is left over from a crashed load or is being loaded by another process; its settings
+ * are not worth restoring and the live settings are used instead.
+ */
+public class IndexLifecycleManager {
+
+    private static final Log logger = LogFactory.getLog(IndexLifecycleManager.class);
+
+    private static final String REFRESH_INTERVAL = "index.refresh_interval";
+
+    private static final String NUMBER_OF_REPLICAS = "index.number_of_replicas";
+
+    private static final String BULK_LOAD_REFRESH_INTERVAL = "-1";
+
+    private static final DateTimeFormatter INDEX_SUFFIX_FORMAT = DateTimeFormat.forPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final Client esClient;
+
+    private final String name;
+
+    private final String type;
+
+    private boolean aliasMode = false;
+
+    private boolean deletePreviousIndices = false;
+
+    private String liveRefreshInterval = "1s";
+
+    private int liveReplicas = 1;
+
+    private String targetIndex;
+
+    private String restoredRefreshInterval;
+
+    private String restoredReplicas;
+
+    /**
+     * Constructs a manager.
+     *
+     * @param esClient The client used to change the index.
+     * @param name Name of the index, or of the alias in alias mode.
+     * @param type Type of the indexed documents.
+     */
+    public IndexLifecycleManager(final Client esClient, final String name, final String type) {
+        if (esClient == null || name == null || type == null)
+            throw new NullPointerException("Null parameter provided!");
+        this.esClient = esClient;
+        this.name     = name;
+        this.type     = type;
+    }
+
+    /**
+     * @param aliasMode Whether to load into a fresh index and move the alias to it afterwards.
+     */
+    public void setAliasMode(final boolean aliasMode) {
+        this.aliasMode = aliasMode;
+    }
+
+    /**
+     * @param deletePreviousIndices Whether to delete the indices the alias pointed to before, in alias mode.
+     */
+    public void setDeletePreviousIndices(final boolean deletePreviousIndices) {
+        this.deletePreviousIndices = deletePreviousIndices;
+    }
+
+    /**
+     * Sets the settings of indices created by this manager once they are live.
+     *
+     * @param refreshInterval The refresh interval, e.g. 1s.
+     * @param replicas The number of replicas.
+     */
+    public void setLiveSettings(final String refreshInterval, final int replicas) {
+        if (refreshInterval == null)
+            throw new NullPointerException("Null parameter provided!");
+        if (replicas < 0)
+            throw new IllegalArgumentException("Number of replicas must be non-negative!");
+        this.liveRefreshInterval = refreshInterval;
+        this.liveReplicas        = replicas;
+    }
+
+    /**
+     * Creates the index or prepares the existing index for the bulk load and puts the mapping of the documents.
+     *
+     * @return Name of the index to load the documents into.
+     * @throws IOException if the mapping cannot be built.
+     */
+    public String prepare() throws IOException {
+        IndicesAdminClient indices = esClient.admin().indices();
+        targetIndex = aliasMode ? name + "-" + DateTime.now().toString(INDEX_SUFFIX_FORMAT) : name;
+        if (aliasMode && indices.prepareExists(name).get().isExists() && aliasedIndices(indices).isEmpty()) {
+            throw new IllegalStateException("Index " + name + " exists, it cannot be used as alias!");
+        }
+        if (indices.prepareExists(targetIndex).get().isExists()) {
+            restoredRefreshInterval = setting(targetIndex, REFRESH_INTERVAL, liveRefreshInterval);
+            restoredReplicas        = setting(targetIndex, NUMBER_OF_REPLICAS, String.valueOf(liveReplicas));
+            if (restoredRefreshInterval.equals(BULK_LOAD_REFRESH_INTERVAL)) {
+                // the replicas were dropped by the same load, so neither value is the live one
+                logger.warn("Index " + targetIndex + " is in bulk load state, using the live settings to restore");
+                restoredRefreshInterval = liveRefreshInterval;
+                restoredReplicas        = String.valueOf(liveReplicas);
+            }
+            indices.prepareUpdateSettings(targetIndex).setSettings(bulkLoadSettings()).get();
+            indices.preparePutMapping(targetIndex).setType(type).setSource(LogIndexer.mapping(type)).get();
+        } else {
+            restoredRefreshInterval = liveRefreshInterval;
+            restoredReplicas        = String.valueOf(liveReplicas);
+            indices.prepareCreate(targetIndex).setSettings(bulkLoadSettings())
+                    .addMapping(type, LogIndexer.mapping(type)).get();
+        }
+        // the primary shards must be started before the first bulk request arrives
+        esClient.admin().cluster().prepareHealth(targetIndex).setWaitForYellowStatus().get();
+        logger.info("Prepared index " + targetIndex + " for bulk loading");
+        return targetIndex;
+    }
+
+    /**
+     * Restores the live settings of the index and refreshes it. In alias mode the alias is moved to the index.
+     *
+     * @param forceMerge Whether to merge the index into a single segment.
+     */
+    public void finish(final boolean forceMerge) {
+        if (targetIndex == null)
+            throw new IllegalStateException("Index was not prepared!");
+        IndicesAdminClient indices = esClient.admin().indices();
+        restoreLiveSettings(indices);
+        indices.prepareRefresh(targetIndex).get();
+        if (forceMerge) {
+            indices.prepareForceMerge(targetIndex).setMaxNumSegments(1).get();
+        }
+        if (aliasMode) {
+            moveAlias(indices);
+        }
+        try {
+            // the documents only became searchable with the refresh above
+            IndexGeneration.advance(esClient, targetIndex, type);
+        } catch (IOException e) {
+            logger.error("Error while advancing the generation of index " + targetIndex + ": " + e);
+        }
+        logger.info("Index " + targetIndex + " is live");
+    }
+
+    /**
+     * Ends a failed bulk load. The live settings of an existing index are restored. In alias mode the fresh index
+     * is deleted and the alias keeps pointing to the previous indices.
+     */
+    public void abort() {
+        if (targetIndex == null)
+            throw new IllegalStateException("Index was not prepared!");
+        IndicesAdminClient indices = esClient.admin().indices();
+        if (aliasMode) {
+            indices.prepareDelete(targetIndex).get();
+        } else {
+            restoreLiveSettings(indices);
+        }
+        logger.info("Bulk load into index " + targetIndex + " aborted");
+    }
+
+    private void restoreLiveSettings(final IndicesAdminClient indices) {
+        indices.prepareUpdateSettings(targetIndex).setSettings(Settings.settingsBuilder()
+                .put(REFRESH_INTERVAL, restoredRefreshInterval)
+                .put(NUMBER_OF_REPLICAS, restoredReplicas)).get();
+    }
+
+    private void moveAlias(final IndicesAdminClient indices) {
+        List<String> previousIndices = aliasedIndices(indices);
+        previousIndices.remove(targetIndex);
+        IndicesAliasesRequestBuilder aliases = indices.prepareAliases().addAlias(targetIndex, name);
+        for (String previousIndex : previousIndices) {
+            aliases.removeAlias(previousIndex, name);
+        }
+        aliases.get();
+        if (deletePreviousIndices && !previousIndices.isEmpty()) {
+            indices.prepareDelete(previousIndices.toArray(new String[previousIndices.size()])).get();
+        }
+    }
+
+    /** Returns the indices the alias points to. */
+    private List<String> aliasedIndices(final IndicesAdminClient indices) {
+        List<String> aliasedIndices = new ArrayList<>();
+        for (ObjectObjectCursor<String, List<AliasMetaData>> entry
+                : indices.prepareGetAliases(name).get().getAliases()) {
+            if (!entry.value.isEmpty()) {
+                aliasedIndices.add(entry.key);
+            }
+        }
+        return aliasedIndices;
+    }
+
+    private String setting(final String index, final String setting, final String defaultValue) {
+        String value = esClient.admin().indices().prepareGetSettings(index).get().getSetting(index, setting);
+        return value == null ? defaultValue : value;
+    }
+
+    private Settings.Builder bulkLoadSettings() {
+        return Settings.settingsBuilder().put(REFRESH_INTERVAL, BULK_LOAD_REFRESH_INTERVAL).put(NUMBER_OF_REPLICAS, 0);
+    }
+
+    static {
+        BasicConfigurator.configure();
+    }
+}
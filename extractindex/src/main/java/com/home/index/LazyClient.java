@@ -0,0 +1,81 @@
+package com.home.index;
+
+import org.elasticsearch.client.Client;
+
+import java.io.Closeable;
+import java.util.function.Supplier;
+
+/**
+ * Elastic search client created on first use and shared afterwards. Commands which never talk to elastic search,
+ * like saving documents to disk, then do not pay for connecting, and a long running process keeps a single warm
+ * client for all its jobs.
+ */
+public class LazyClient implements Closeable {
+
+    private final Supplier<Client> factory;
+
+    private volatile Client client;
+
+    private boolean closed = false;
+
+    /**
+     * Constructs a lazy client, no connection is made yet.
+     *
+     * @param esSettings Settings used to create the client.
+     */
+    public LazyClient(final EsSettings esSettings) {
+        if (esSettings == null)
+            throw new NullPointerException("Null parameter provided!");
+        this.factory = () -> EsFactory.getClient(esSettings);
+    }
+
+    /**
+     * Constructs a lazy client created by a factory, e.g. the client of an embedded node.
+     *
+     * @param factory Creates the client on first use.
+     */
+    public LazyClient(final Supplier<Client> factory) {
+        if (factory == null)
+            throw new NullPointerException("Null parameter provided!");
+        this.factory = factory;
+    }
+
+    /**
+     * Returns the client, creating it on the first call.
+     *
+     * @return The shared client.
+     * @throws IllegalStateException if the client was closed.
+     */
+    public Client get() {
+        Client current = client;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (closed)
+                throw new IllegalStateException("Client is closed");
+            if (client == null) {
+                client = factory.get();
+            }
+            return client;
+        }
+    }
+
+    /**
+     * @return Whether the client was created.
+     */
+    public boolean isCreated() {
+        return client != null;
+    }
+
+    /**
+     * Closes the client if it was created. Later calls of {@link #get()} fail.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (client != null) {
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.home.index;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.home.common.LogDocument;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link LogDocument} as UTF-8 encoded JSON, the same JSON an ObjectMapper writes for it. Every thread
+ * reuses its own generator and output buffer, so the only allocation per document is the resulting byte array. The
+ * lines are written directly from the characters of the document.
+ */
+public class LogDocumentJsonWriter {
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    private final ThreadLocal<Output> output = new ThreadLocal<>();
+
+    /** Generator writing into a growable buffer, kept between documents. */
+    private static class Output {
+        final ByteArrayBuilder buffer = new ByteArrayBuilder(4096);
+        final JsonGenerator generator;
+
+        Output() throws IOException {
+            generator = jsonFactory.createGenerator(buffer, JsonEncoding.UTF8);
+            // no separator between the documents written by the same generator
+            generator.setRootValueSeparator(null);
+        }
+    }
+
+    /**
+     * Writes a document.
+     *
+     * @param document The document to write.
+     * @return The JSON of the document.
+     * @throws IOException if the document cannot be written.
+     */
+    public byte[] write(final LogDocument document) throws IOException {
+        if (document == null)
+            throw new NullPointerException("Null parameter provided!");
+        Output out = output.get();
+        if (out == null) {
+            out = new Output();
+            output.set(out);
+        }
+        try {
+            writeDocument(out.generator, document);
+            out.generator.flush();
+            return out.buffer.toByteArray();
+        } catch (IOException | RuntimeException e) {
+            // the generator may be in the middle of a document
+            output.remove();
+            throw e;
+        } finally {
+            out.buffer.reset();
+        }
+    }
+
+    private void writeDocument(final JsonGenerator generator, final LogDocument document) throws IOException {
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("text");
+        char[] chars = document.getChars();
+        for (int i = 0; i < document.getLineCount(); ++i) {
+            generator.writeString(chars, document.lineStart(i), document.lineLength(i));
+        }
+        generator.writeEndArray();
+        if (document.getId() != null) {
+            generator.writeStringField("id", document.getId());
+        }
+        if (document.getStartTime() != null) {
+            generator.writeNumberField("startTime", document.getStartTime());
+            generator.writeNumberField("endTime", document.getEndTime());
+        }
+        generator.writeNumberField("lineCount", document.getLineCount());
+        generator.writeArrayFieldStart("speakers");
+        for (String speaker : document.getSpeakers()) {
+            generator.writeString(speaker);
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+}
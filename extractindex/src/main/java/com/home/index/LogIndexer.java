@@ -1,34 +1,28 @@
 package com.home.index;
 
-import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.joda.JodaModule;
+import com.home.common.DocumentPipeline;
+import com.home.common.IngestMetrics;
 import com.home.common.LogDocument;
-import com.home.extract.SkypeLogDocExtractor;
+import com.home.extract.LogDocExtractor;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.log4j.BasicConfigurator;
-import org.elasticsearch.action.bulk.BulkItemResponse;
-import org.elasticsearch.action.bulk.BulkProcessor;
-import org.elasticsearch.action.bulk.BulkRequest;
-import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.client.Client;
-import org.elasticsearch.common.unit.ByteSizeUnit;
-import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.client.IndicesAdminClient;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.indices.IndexAlreadyExistsException;
 
-import java.util.concurrent.TimeUnit;
+import java.io.IOException;
 
 public class LogIndexer {
 
     private static final Log logger = LogFactory.getLog(LogIndexer.class);
 
-    private ObjectMapper objectMapper;
+    private final LogDocumentJsonWriter jsonWriter = new LogDocumentJsonWriter();
 
-    private SkypeLogDocExtractor skypeLogDocExtractor;
+    private LogDocExtractor logDocExtractor;
 
     private String index;
 
@@ -36,103 +30,192 @@ public class LogIndexer {
 
     private Client esClient;
 
-    BulkProcessor bulkProcessor;
+    AdaptiveBulkIndexer bulkIndexer;
 
-    private int docIndex;
+    private BulkSettings bulkSettings = BulkSettings.getDefaultSettings();
+
+    private DocumentPipeline pipeline = new DocumentPipeline();
+
+    private BulkListener bulkListener;
+
+    /** Whether documents of the last call of indexDocs were lost before reaching a bulk request. */
+    private volatile boolean incomplete = false;
 
     /**
      * Constructs a new LogIndexer object.
      *
-     * @param skypeLogDocExtractor Object of type {@link SkypeLogDocExtractor} used to extract documents from logs.
+     * @param logDocExtractor Object of type {@link LogDocExtractor} used to extract documents from logs.
      */
-    public LogIndexer(final SkypeLogDocExtractor skypeLogDocExtractor, final String index, final String type) {
-        validateVariables(skypeLogDocExtractor, index, type);
-        this.skypeLogDocExtractor = skypeLogDocExtractor;
+    public LogIndexer(final LogDocExtractor logDocExtractor, final String index, final String type) {
+        validateVariables(logDocExtractor, index, type);
+        this.logDocExtractor = logDocExtractor;
         this.index           = index;
         this.type            = type;
-        this.docIndex        = 0;
-        createStandardMapper();
     }
 
-    private void validateVariables(final SkypeLogDocExtractor skypeLogDocExtractor, final String index, final String type) {
-        if (skypeLogDocExtractor == null || index == null || type == null)
+    private void validateVariables(final LogDocExtractor logDocExtractor, final String index, final String type) {
+        if (logDocExtractor == null || index == null || type == null)
             throw new NullPointerException("Null parameter provided!");
     }
 
     /**
      * Index all documents.
+     * @return The number of documents passed to elastic search.
      */
-    public void indexDocs() {
-        indexDocs(Integer.MAX_VALUE);
+    public long indexDocs() {
+        return indexDocs(Integer.MAX_VALUE);
     }
 
     /**
-     * Index specified number of documents.
+     * Index specified number of documents. Each document is indexed under its own id, so documents extracted with
+     * different id prefixes do not overwrite each other. Returns once elastic search answered every bulk request.
+     * The index is not refreshed, callers advance its {@link IndexGeneration} once all their documents are indexed.
      * @param maxDocs The maximum number of documents to index.
+     * @return The number of documents indexed successfully.
+     */
+    public long indexDocs(int maxDocs) {
+        bulkIndexer = new AdaptiveBulkIndexer(esClient, bulkSettings);
+        bulkIndexer.setBulkListener(this::afterBulk);
+        incomplete  = false;
+        try {
+            pipeline.run(logDocExtractor.stream().limit(maxDocs), this::serializeDoc, bulkIndexer::add);
+        } catch (IOException e) {
+            logger.error("Error while indexing documents: " + e);
+            incomplete = true;
+        } finally {
+            closeBulkIndexer();
+        }
+        return bulkIndexer.getIndexedCount();
+    }
+
+    /**
+     * @return The number of documents of the last call of indexDocs that could not be indexed, also after retrying.
+     */
+    public long getFailedCount() {
+        return bulkIndexer == null ? 0 : bulkIndexer.getFailedCount();
+    }
+
+    /**
+     * @return Whether the last call of indexDocs left documents unindexed: a bulk request failed, a document could
+     * not be serialized or extracting stopped with an error.
+     */
+    public boolean hasFailed() {
+        return incomplete || getFailedCount() > 0;
+    }
+
+    /**
+     * Sets the settings for sizing and retrying bulk requests.
+     *
+     * @param bulkSettings The settings to use.
+     */
+    public void setBulkSettings(final BulkSettings bulkSettings) {
+        if (bulkSettings == null)
+            throw new NullPointerException("Null parameter provided!");
+        this.bulkSettings = bulkSettings;
+    }
+
+    /**
+     * Sets a listener notified about every bulk request answered by elastic search.
+     *
+     * @param bulkListener The listener, null for none.
+     */
+    public void setBulkListener(final BulkListener bulkListener) {
+        this.bulkListener = bulkListener;
+    }
+
+    /**
+     * Sets the pipeline used for serializing and indexing documents.
+     *
+     * @param pipeline The pipeline to use.
      */
-    public void indexDocs(int maxDocs) {
-        this.createBulkProcessor();
-        int docCounter = 0;
-        while(docCounter++ < maxDocs && skypeLogDocExtractor.hasNext()) {
-            indexDoc(skypeLogDocExtractor.current());
-            skypeLogDocExtractor.parseNext();
+    public void setPipeline(final DocumentPipeline pipeline) {
+        if (pipeline == null)
+            throw new NullPointerException("Null parameter provided!");
+        this.pipeline = pipeline;
+    }
+
+    /** Records the bulk request in the {@link IngestMetrics} and notifies the listener. */
+    private void afterBulk(int actions, long bytes, long latencyMillis, int failed) {
+        IngestMetrics.global().addBulk(failed, latencyMillis);
+        BulkListener listener = bulkListener;
+        if (listener != null) {
+            listener.afterBulk(actions, bytes, latencyMillis, failed);
         }
-        this.closeBulkProccessor();
     }
 
-    private void indexDoc(LogDocument doc) {
+    private IndexRequest serializeDoc(LogDocument doc) {
         try {
-            String json = objectMapper.writeValueAsString(doc);
-            bulkProcessor.add(new IndexRequest(this.index, this.type, String.valueOf(docIndex++)).source(json));
+            byte[] source = jsonWriter.write(doc);
+            IngestMetrics.global().addDocument(source.length);
+            return new IndexRequest(this.index, this.type, doc.getId()).source(source);
         }
-        catch(JsonProcessingException e) {
-            e.printStackTrace();
+        catch(IOException e) {
+            logger.error("Error serializing document " + doc.getId() + ": " + e);
+            incomplete = true;
+            return null;
         }
     }
 
-    private void createBulkProcessor() {
-        bulkProcessor = BulkProcessor.builder(
-                esClient,
-                new BulkProcessor.Listener() {
-                    @Override
-                    public void beforeBulk(long executionId,
-                                           BulkRequest request) {
-                    }
-
-                    @Override
-                    public void afterBulk(long executionId,
-                                          BulkRequest request,
-                                          BulkResponse response) {
-                        logger.info(response.getItems().length + " elements processed");
-                        for (BulkItemResponse item : response.getItems()) {
-                            if (item.isFailed()) {
-                                logger.error(item.getId() + " " + item.getFailureMessage());
-                            }
-                        }
-                    }
-
-                    @Override
-                    public void afterBulk(long executionId,
-                                          BulkRequest request,
-                                          Throwable failure) {
-                        logger.error("Error on after bulk method: " + failure);
-                    }
-                })
-                .setBulkActions(1000)
-                .setBulkSize(new ByteSizeValue(1, ByteSizeUnit.GB))
-                .setConcurrentRequests(1)
-                .build();
-    }
-
-    private void closeBulkProccessor() {
+    private void closeBulkIndexer() {
         try {
-            bulkProcessor.flush();
-            bulkProcessor.awaitClose(10, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            logger.error("Error while waiting to close bulk processor: " + e);
+            bulkIndexer.close();
+        } catch (IOException e) {
+            logger.error("Error while waiting to close bulk indexer: " + e);
+        }
+        if (bulkIndexer.getFailedCount() > 0) {
+            logger.error(bulkIndexer.getFailedCount() + " documents could not be indexed, "
+                    + bulkIndexer.getIndexedCount() + " documents indexed");
         }
     }
 
+    /**
+     * Creates the index with the mapping of the documents, or puts the mapping if the index exists.
+     *
+     * @param esClient The client used to change the index.
+     * @param index Name of the index.
+     * @param type Type of the documents.
+     * @throws IOException if the mapping cannot be built.
+     */
+    public static void putMapping(final Client esClient, final String index, final String type) throws IOException {
+        if (esClient == null || index == null || type == null)
+            throw new NullPointerException("Null parameter provided!");
+        IndicesAdminClient indices = esClient.admin().indices();
+        if (!indices.prepareExists(index).get().isExists()) {
+            try {
+                indices.prepareCreate(index).addMapping(type, mapping(type)).get();
+                return;
+            } catch (IndexAlreadyExistsException e) {
+                // created by another run since the check, its mapping is put below
+            }
+        }
+        indices.preparePutMapping(index).setType(type).setSource(mapping(type)).get();
+    }
+
+    /**
+     * Builds the mapping of the fields of a {@link LogDocument}. The text is analyzed, the id and the speakers are
+     * only used for exact matches and the times are dates, so time ranges and speakers can be filtered without
+     * scoring.
+     *
+     * @param type Type of the documents.
+     * @return The mapping as JSON.
+     * @throws IOException if the mapping cannot be built.
+     */
+    public static XContentBuilder mapping(final String type) throws IOException {
+        return XContentFactory.jsonBuilder()
+                .startObject()
+                    .startObject(type)
+                        .startObject("properties")
+                            .startObject("text").field("type", "string").endObject()
+                            .startObject("id").field("type", "string").field("index", "not_analyzed").endObject()
+                            .startObject("startTime").field("type", "date").endObject()
+                            .startObject("endTime").field("type", "date").endObject()
+                            .startObject("lineCount").field("type", "integer").endObject()
+                            .startObject("speakers").field("type", "string").field("index", "not_analyzed").endObject()
+                        .endObject()
+                    .endObject()
+                .endObject();
+    }
+
     /**
      * Sets a ES client for indexing.
      * @param esClient The client to set.
@@ -142,20 +225,6 @@ public class LogIndexer {
         this.esClient = esClient;
     }
 
-    private void createStandardMapper() {
-        objectMapper = new ObjectMapper();
-
-        objectMapper.registerModule(new JodaModule());
-        // parser to close resources autonomously
-        objectMapper.configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
-
-        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        objectMapper.configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true);
-
-        objectMapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
-        objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS , false);
-    }
-
     static {
         BasicConfigurator.configure();
     }
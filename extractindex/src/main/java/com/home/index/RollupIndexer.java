@@ -0,0 +1,129 @@
+package com.home.index;
+
+import com.home.rollup.Granularity;
+import com.home.rollup.Rollups;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.client.IndicesAdminClient;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Writes rollups to a small index of their own, one document per bucket with messages, so dashboards read counts
+ * per hour or day instead of aggregating the log index. Documents of day buckets also hold the messages of every
+ * speaker of the day as nested objects. The id of a document is its granularity and start, so writing the rollups
+ * of the same logs again replaces the documents.
+ */
+public final class RollupIndexer {
+
+    public static final String TYPE_NAME = "rollup";
+
+    private static final int BULK_DOCUMENTS = 1000;
+
+    private RollupIndexer() {
+    }
+
+    /**
+     * Creates the index if needed and writes the buckets with messages.
+     *
+     * @param esClient The client used to write the index.
+     * @param index Name of the index.
+     * @param rollups The rollups to write.
+     * @param granularities The granularities whose buckets are written.
+     * @return Number of documents written.
+     * @throws IOException if a document cannot be built or written.
+     */
+    public static long write(final Client esClient, final String index, final Rollups rollups,
+                             final Granularity... granularities) throws IOException {
+        if (esClient == null || index == null || rollups == null || granularities == null)
+            throw new NullPointerException("Null parameter provided!");
+        IndicesAdminClient indices = esClient.admin().indices();
+        if (!indices.prepareExists(index).get().isExists()) {
+            indices.prepareCreate(index).addMapping(TYPE_NAME, mapping()).get();
+        }
+        long documents = 0;
+        BulkRequestBuilder bulk = esClient.prepareBulk();
+        for (Granularity granularity : granularities) {
+            long first = rollups.getFirstBucket(granularity);
+            for (long bucket = first; bucket < first + rollups.getBucketCount(granularity); ++bucket) {
+                long messages = rollups.getMessages(granularity, bucket);
+                if (messages == 0) {
+                    continue;
+                }
+                long start = granularity.start(bucket);
+                bulk.add(esClient.prepareIndex(index, TYPE_NAME, granularity.name().toLowerCase() + ":" + start)
+                        .setSource(document(rollups, granularity, bucket, messages)));
+                ++documents;
+                if (bulk.numberOfActions() == BULK_DOCUMENTS) {
+                    execute(bulk);
+                    bulk = esClient.prepareBulk();
+                }
+            }
+        }
+        if (bulk.numberOfActions() > 0) {
+            execute(bulk);
+        }
+        indices.prepareRefresh(index).get();
+        return documents;
+    }
+
+    private static void execute(final BulkRequestBuilder bulk) throws IOException {
+        BulkResponse response = bulk.get();
+        if (response.hasFailures())
+            throw new IOException("Rollups could not be indexed: " + response.buildFailureMessage());
+    }
+
+    private static XContentBuilder document(final Rollups rollups, final Granularity granularity, final long bucket,
+                                            final long messages) throws IOException {
+        long start = granularity.start(bucket);
+        XContentBuilder builder = XContentFactory.jsonBuilder()
+                .startObject()
+                    .field("granularity", granularity.name().toLowerCase())
+                    .field("start", start)
+                    .field("end", start + granularity.getMillis())
+                    .field("messages", messages)
+                    .field("conversations", rollups.getConversations(granularity, bucket));
+        if (granularity == Granularity.DAY) {
+            builder.startArray("speakers");
+            for (Map.Entry<String, Long> speaker
+                    : rollups.getTopSpeakers(start, start + granularity.getMillis(), Integer.MAX_VALUE).entrySet()) {
+                builder.startObject().field("name", speaker.getKey()).field("messages", speaker.getValue()).endObject();
+            }
+            builder.endArray();
+        }
+        return builder.endObject();
+    }
+
+    /**
+     * Builds the mapping of the rollup documents.
+     *
+     * @return The mapping as JSON.
+     * @throws IOException if the mapping cannot be built.
+     */
+    public static XContentBuilder mapping() throws IOException {
+        return XContentFactory.jsonBuilder()
+                .startObject()
+                    .startObject(TYPE_NAME)
+                        .startObject("properties")
+                            .startObject("granularity").field("type", "string").field("index", "not_analyzed")
+                            .endObject()
+                            .startObject("start").field("type", "date").endObject()
+                            .startObject("end").field("type", "date").endObject()
+                            .startObject("messages").field("type", "long").endObject()
+                            .startObject("conversations").field("type", "integer").endObject()
+                            .startObject("speakers").field("type", "nested")
+                                .startObject("properties")
+                                    .startObject("name").field("type", "string").field("index", "not_analyzed")
+                                    .endObject()
+                                    .startObject("messages").field("type", "long").endObject()
+                                .endObject()
+                            .endObject()
+                        .endObject()
+                    .endObject()
+                .endObject();
+    }
+}
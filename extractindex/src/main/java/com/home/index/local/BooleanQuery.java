@@ -0,0 +1,150 @@
+package com.home.index.local;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Combines queries: a document matches if it matches all required clauses and none of the prohibited clauses. If
+ * there is no required clause, it also has to match at least one optional clause, if there are any.
+ */
+public class BooleanQuery extends LocalQuery {
+
+    private final List<LocalQuery> must;
+    private final List<LocalQuery> should;
+    private final List<LocalQuery> mustNot;
+
+    private BooleanQuery(final Builder builder) {
+        this.must    = Collections.unmodifiableList(new ArrayList<>(builder.must));
+        this.should  = Collections.unmodifiableList(new ArrayList<>(builder.should));
+        this.mustNot = Collections.unmodifiableList(new ArrayList<>(builder.mustNot));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    int[] matches(final SegmentReader segment) {
+        int[] result = null;
+        for (LocalQuery query : must) {
+            result = result == null ? query.matches(segment) : intersect(result, query.matches(segment));
+        }
+        if (result == null) {
+            if (should.isEmpty()) {
+                result = new int[segment.docCount];
+                for (int i = 0; i < result.length; ++i) {
+                    result[i] = i;
+                }
+            } else {
+                result = new int[0];
+                for (LocalQuery query : should) {
+                    result = union(result, query.matches(segment));
+                }
+            }
+        }
+        for (LocalQuery query : mustNot) {
+            result = subtract(result, query.matches(segment));
+        }
+        return result;
+    }
+
+    private static int[] intersect(final int[] first, final int[] second) {
+        int[] result = new int[Math.min(first.length, second.length)];
+        int count = 0;
+        for (int i = 0, j = 0; i < first.length && j < second.length; ) {
+            if (first[i] < second[j]) {
+                ++i;
+            } else if (first[i] > second[j]) {
+                ++j;
+            } else {
+                result[count++] = first[i++];
+                ++j;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static int[] union(final int[] first, final int[] second) {
+        int[] result = new int[first.length + second.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length || j < second.length) {
+            if (j == second.length || (i < first.length && first[i] < second[j])) {
+                result[count++] = first[i++];
+            } else if (i == first.length || first[i] > second[j]) {
+                result[count++] = second[j++];
+            } else {
+                result[count++] = first[i++];
+                ++j;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static int[] subtract(final int[] first, final int[] second) {
+        int[] result = new int[first.length];
+        int count = 0;
+        int j = 0;
+        for (int value : first) {
+            while (j < second.length && second[j] < value) {
+                ++j;
+            }
+            if (j == second.length || second[j] != value) {
+                result[count++] = value;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (LocalQuery query : must) {
+            builder.append(builder.length() > 0 ? " " : "").append('+').append(query);
+        }
+        for (LocalQuery query : should) {
+            builder.append(builder.length() > 0 ? " " : "").append(query);
+        }
+        for (LocalQuery query : mustNot) {
+            builder.append(builder.length() > 0 ? " " : "").append('-').append(query);
+        }
+        return builder.toString();
+    }
+
+    public static class Builder {
+        private final List<LocalQuery> must = new ArrayList<>();
+        private final List<LocalQuery> should = new ArrayList<>();
+        private final List<LocalQuery> mustNot = new ArrayList<>();
+
+        /** Adds a clause every matching document has to match. */
+        public Builder must(final LocalQuery query) {
+            must.add(checkNotNull(query));
+            return this;
+        }
+
+        /** Adds an optional clause. */
+        public Builder should(final LocalQuery query) {
+            should.add(checkNotNull(query));
+            return this;
+        }
+
+        /** Adds a clause no matching document may match. */
+        public Builder mustNot(final LocalQuery query) {
+            mustNot.add(checkNotNull(query));
+            return this;
+        }
+
+        public BooleanQuery build() {
+            return new BooleanQuery(this);
+        }
+
+        private static LocalQuery checkNotNull(final LocalQuery query) {
+            if (query == null)
+                throw new NullPointerException("Null parameter provided!");
+            return query;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.home.index.local;
+
+import com.home.common.LogDocument;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A point in time view of the committed segments of a local index. Documents added or merged later are not
+ * visible, open a new reader to see them. Instances are safe for concurrent use.
+ */
+public class LocalIndexReader implements Closeable {
+
+    /** Attempts to open the segments while a concurrent merge deletes the files of the committed segments. */
+    private static final int OPEN_ATTEMPTS = 5;
+
+    private final List<SegmentReader> segments;
+
+    private final List<boolean[]> live;
+
+    private final int docCount;
+
+    private LocalIndexReader(final List<SegmentReader> segments) {
+        this.segments = segments;
+        this.live     = liveDocs(segments);
+        int count = 0;
+        for (boolean[] segmentLive : live) {
+            for (boolean isLive : segmentLive) {
+                count += isLive ? 1 : 0;
+            }
+        }
+        this.docCount = count;
+    }
+
+    /**
+     * Opens the committed segments of an index.
+     *
+     * @param directory The index directory.
+     * @return The reader, empty if nothing was committed yet.
+     * @throws IOException if the segments cannot be read.
+     */
+    public static LocalIndexReader open(final Path directory) throws IOException {
+        if (directory == null)
+            throw new NullPointerException("Null parameter provided!");
+
+        for (int attempt = 1; ; ++attempt) {
+            SegmentInfos infos = SegmentInfos.read(directory);
+            try {
+                List<SegmentReader> segments = new ArrayList<>();
+                for (SegmentInfos.SegmentInfo info : infos.getSegments()) {
+                    segments.add(SegmentReader.open(directory, info));
+                }
+                return new LocalIndexReader(segments);
+            } catch (NoSuchFileException e) {
+                // a merge committed and deleted the segments in between, read the new commit
+                if (attempt == OPEN_ATTEMPTS)
+                    throw e;
+            }
+        }
+    }
+
+    /**
+     * Determines which documents are visible: if several documents have the same id, only the one added last is.
+     *
+     * @param segments The segments, oldest first.
+     * @return For every segment, whether each of its documents is visible.
+     */
+    static List<boolean[]> liveDocs(final List<SegmentReader> segments) {
+        List<boolean[]> result = new ArrayList<>(Collections.<boolean[]>nCopies(segments.size(), null));
+        Set<String> seen = new HashSet<>();
+        for (int s = segments.size() - 1; s >= 0; --s) {
+            String[] ids = segments.get(s).ids();
+            boolean[] segmentLive = new boolean[ids.length];
+            for (int doc = ids.length - 1; doc >= 0; --doc) {
+                segmentLive[doc] = seen.add(ids[doc]);
+            }
+            result.set(s, segmentLive);
+        }
+        return result;
+    }
+
+    /** Returns the number of visible documents. */
+    public int getDocCount() {
+        return docCount;
+    }
+
+    /** Returns the number of committed segments. */
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Counts the documents matching a query.
+     *
+     * @param query The query.
+     * @return Number of matching documents.
+     */
+    public int count(final LocalQuery query) {
+        if (query == null)
+            throw new NullPointerException("Null parameter provided!");
+
+        int count = 0;
+        for (int s = 0; s < segments.size(); ++s) {
+            boolean[] segmentLive = live.get(s);
+            for (int doc : query.matches(segments.get(s))) {
+                count += segmentLive[doc] ? 1 : 0;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the documents matching a query.
+     *
+     * @param query The query.
+     * @param limit Maximal number of documents to return.
+     * @return The first matching documents in the order they were added.
+     */
+    public List<LogDocument> search(final LocalQuery query, final int limit) {
+        if (query == null)
+            throw new NullPointerException("Null parameter provided!");
+        if (limit < 0)
+            throw new IllegalArgumentException("Negative limit: " + limit);
+
+        List<LogDocument> result = new ArrayList<>();
+        for (int s = 0; s < segments.size() && result.size() < limit; ++s) {
+            SegmentReader segment = segments.get(s);
+            boolean[] segmentLive = live.get(s);
+            for (int doc : query.matches(segment)) {
+                if (segmentLive[doc]) {
+                    result.add(segment.document(doc));
+                    if (result.size() == limit) {
+                        break;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Releases the segments. The mappings of the files are released by the garbage collector, as there is no
+     * portable way to unmap them.
+     */
+    @Override
+    public void close() {
+        segments.clear();
+        live.clear();
+    }
+}
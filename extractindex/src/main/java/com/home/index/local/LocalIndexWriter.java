@@ -0,0 +1,304 @@
+package com.home.index.local;
+
+import com.home.common.LogDocument;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.log4j.BasicConfigurator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Adds documents to a local index: an on-disk inverted index of the document lines which needs no Elasticsearch.
+ * Documents are buffered in memory and written as an immutable segment when the buffer is full or on
+ * {@link #commit()}. Once there are {@link #setMergeFactor merge factor} segments, the adjacent segments with the
+ * fewest documents are merged into one in the background, so searches open few segments.
+ *
+ * <p>A document replaces a previously added document with the same id. Only one writer may use a directory at a
+ * time, readers can be opened concurrently with {@link LocalIndexReader#open}.
+ */
+public class LocalIndexWriter implements Closeable {
+
+    private static final Log logger = LogFactory.getLog(LocalIndexWriter.class);
+
+    public static final int DEFAULT_MAX_BUFFERED_DOCS = 10000;
+
+    public static final int DEFAULT_MERGE_FACTOR = 10;
+
+    private final Path directory;
+
+    private final Map<String, LogDocument> buffer = new LinkedHashMap<>();
+
+    private final ExecutorService mergeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "local-index-merge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private int maxBufferedDocs = DEFAULT_MAX_BUFFERED_DOCS;
+
+    private int mergeFactor = DEFAULT_MERGE_FACTOR;
+
+    private SegmentInfos infos;
+
+    private int nextSegment;
+
+    private Future<?> pendingMerge;
+
+    private boolean closed = false;
+
+    /**
+     * Opens a local index for writing, creating the directory if needed. Files of segments which were never
+     * committed, e.g. of an interrupted merge, are deleted.
+     *
+     * @param directory The index directory.
+     * @throws IOException if the directory cannot be created or the committed segments cannot be read.
+     */
+    public LocalIndexWriter(final Path directory) throws IOException {
+        if (directory == null)
+            throw new NullPointerException("Null parameter provided!");
+
+        this.directory = Files.createDirectories(directory);
+        this.infos     = SegmentInfos.read(directory);
+        this.nextSegment = infos.getNextSegment();
+        deleteUnreferencedFiles();
+    }
+
+    /** Sets the number of documents buffered in memory before a segment is written. */
+    public synchronized void setMaxBufferedDocs(final int maxBufferedDocs) {
+        if (maxBufferedDocs < 1)
+            throw new IllegalArgumentException("Max buffered docs must be positive: " + maxBufferedDocs);
+        this.maxBufferedDocs = maxBufferedDocs;
+    }
+
+    /** Sets the number of segments merged at once, and so the number of segments which triggers a merge. */
+    public synchronized void setMergeFactor(final int mergeFactor) {
+        if (mergeFactor < 2)
+            throw new IllegalArgumentException("Merge factor must be at least 2: " + mergeFactor);
+        this.mergeFactor = mergeFactor;
+    }
+
+    /**
+     * Adds a document. It becomes visible to readers opened after the next commit.
+     *
+     * @param document The document, it must have an id.
+     * @throws IOException if the buffer is full and the segment cannot be written.
+     */
+    public synchronized void add(final LogDocument document) throws IOException {
+        if (document == null)
+            throw new NullPointerException("Null parameter provided!");
+        if (document.getId() == null)
+            throw new IllegalArgumentException("Document without id");
+        ensureOpen();
+
+        // re-insert to keep the buffer in the order documents were added
+        buffer.remove(document.getId());
+        buffer.put(document.getId(), document);
+        if (buffer.size() >= maxBufferedDocs) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the buffered documents and commits them, so new readers see them.
+     *
+     * @throws IOException if the segment cannot be written.
+     */
+    public synchronized void commit() throws IOException {
+        ensureOpen();
+        flush();
+    }
+
+    /** Returns the number of committed segments. */
+    public synchronized int getSegmentCount() {
+        return infos.getSegments().size();
+    }
+
+    /**
+     * Waits until the running merges are finished.
+     *
+     * @throws IOException if a merge failed.
+     */
+    public void waitForMerges() throws IOException {
+        while (true) {
+            Future<?> merge;
+            synchronized (this) {
+                merge = pendingMerge;
+            }
+            if (merge == null) {
+                return;
+            }
+            try {
+                merge.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for merges", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Merge failed", e.getCause());
+            } finally {
+                synchronized (this) {
+                    if (pendingMerge == merge) {
+                        pendingMerge = null;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Commits the buffered documents, waits for the merges and releases the writer.
+     *
+     * @throws IOException if the documents cannot be committed or a merge failed.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            flush();
+            closed = true;
+        }
+        try {
+            waitForMerges();
+        } finally {
+            mergeExecutor.shutdown();
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed)
+            throw new IllegalStateException("Writer is closed");
+    }
+
+    private void flush() throws IOException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        String name = "_" + nextSegment++;
+        SegmentWriter.write(directory, name, buffer.values());
+
+        List<SegmentInfos.SegmentInfo> segments = new ArrayList<>(infos.getSegments());
+        segments.add(new SegmentInfos.SegmentInfo(name, buffer.size()));
+        commit(segments);
+        logger.info("Wrote segment " + name + " with " + buffer.size() + " documents");
+        buffer.clear();
+        maybeMerge();
+    }
+
+    private void commit(final List<SegmentInfos.SegmentInfo> segments) throws IOException {
+        SegmentInfos newInfos = new SegmentInfos(nextSegment, segments);
+        newInfos.write(directory);
+        infos = newInfos;
+    }
+
+    /** Starts a merge if there are enough segments and no merge is running. */
+    private void maybeMerge() {
+        if ((pendingMerge != null && !pendingMerge.isDone()) || infos.getSegments().size() < mergeFactor) {
+            return;
+        }
+        List<SegmentInfos.SegmentInfo> segments = infos.getSegments();
+        int bestStart = 0;
+        long bestDocs = Long.MAX_VALUE;
+        for (int start = 0; start + mergeFactor <= segments.size(); ++start) {
+            long docs = 0;
+            for (int i = start; i < start + mergeFactor; ++i) {
+                docs += segments.get(i).getDocCount();
+            }
+            if (docs < bestDocs) {
+                bestStart = start;
+                bestDocs  = docs;
+            }
+        }
+        List<SegmentInfos.SegmentInfo> window = new ArrayList<>(segments.subList(bestStart, bestStart + mergeFactor));
+        String name = "_" + nextSegment++;
+        pendingMerge = mergeExecutor.submit(() -> {
+            merge(window, name);
+            return null;
+        });
+    }
+
+    /**
+     * Merges adjacent segments. Only flushes change the committed segments meanwhile and they only append, so the
+     * window is still adjacent when the merged segment replaces it.
+     */
+    private void merge(final List<SegmentInfos.SegmentInfo> window, final String name) throws IOException {
+        long start = System.currentTimeMillis();
+        List<SegmentInfos.SegmentInfo> snapshot;
+        synchronized (this) {
+            snapshot = infos.getSegments();
+        }
+        List<SegmentReader> readers = new ArrayList<>();
+        for (SegmentInfos.SegmentInfo info : snapshot) {
+            readers.add(SegmentReader.open(directory, info));
+        }
+        List<boolean[]> live = LocalIndexReader.liveDocs(readers);
+        int first = indexOf(snapshot, window.get(0).getName());
+        int docCount;
+        try {
+            docCount = SegmentWriter.merge(directory, name, readers.subList(first, first + window.size()),
+                    live.subList(first, first + window.size()));
+        } catch (IOException | RuntimeException e) {
+            SegmentWriter.delete(directory, name);
+            throw e;
+        }
+
+        synchronized (this) {
+            List<SegmentInfos.SegmentInfo> segments = new ArrayList<>(infos.getSegments());
+            int current = indexOf(segments, window.get(0).getName());
+            segments.subList(current, current + window.size()).clear();
+            segments.add(current, new SegmentInfos.SegmentInfo(name, docCount));
+            commit(segments);
+            for (SegmentInfos.SegmentInfo info : window) {
+                SegmentWriter.delete(directory, info.getName());
+            }
+            logger.info("Merged " + window.size() + " segments into " + name + " with " + docCount
+                    + " documents in " + (System.currentTimeMillis() - start) + " ms");
+            pendingMerge = null;
+            maybeMerge();
+        }
+    }
+
+    private static int indexOf(final List<SegmentInfos.SegmentInfo> segments, final String name) {
+        for (int i = 0; i < segments.size(); ++i) {
+            if (segments.get(i).getName().equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Segment " + name + " is not committed");
+    }
+
+    private void deleteUnreferencedFiles() throws IOException {
+        Set<String> referenced = new HashSet<>();
+        for (SegmentInfos.SegmentInfo info : infos.getSegments()) {
+            referenced.add(info.getName());
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "_*")) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                int dot = fileName.indexOf('.');
+                if (dot > 0 && !referenced.contains(fileName.substring(0, dot))) {
+                    logger.info("Deleting unreferenced segment file " + file);
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    static {
+        BasicConfigurator.configure();
+    }
+}
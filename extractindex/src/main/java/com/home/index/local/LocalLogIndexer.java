@@ -0,0 +1,68 @@
+package com.home.index.local;
+
+import com.home.common.LogDocument;
+import com.home.extract.LogDocExtractor;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.log4j.BasicConfigurator;
+
+import java.io.IOException;
+
+/**
+ * Indexes the documents of an extractor into a local index instead of Elasticsearch. Several indexers can share one
+ * {@link LocalIndexWriter}, the documents become searchable once the writer commits or is closed.
+ */
+public class LocalLogIndexer {
+
+    private static final Log logger = LogFactory.getLog(LocalLogIndexer.class);
+
+    private final LogDocExtractor logDocExtractor;
+
+    private final LocalIndexWriter writer;
+
+    /**
+     * Constructs a new LocalLogIndexer object.
+     *
+     * @param logDocExtractor Object of type {@link LogDocExtractor} used to extract documents from logs.
+     * @param writer The writer of the local index.
+     */
+    public LocalLogIndexer(final LogDocExtractor logDocExtractor, final LocalIndexWriter writer) {
+        if (logDocExtractor == null || writer == null)
+            throw new NullPointerException("Null parameter provided!");
+        this.logDocExtractor = logDocExtractor;
+        this.writer          = writer;
+    }
+
+    /**
+     * Index all documents.
+     * @return The number of documents added to the writer.
+     */
+    public long indexDocs() {
+        return indexDocs(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Index specified number of documents.
+     * @param maxDocs The maximum number of documents to index.
+     * @return The number of documents added to the writer.
+     */
+    public long indexDocs(int maxDocs) {
+        long count = 0;
+        try {
+            while (count < maxDocs && logDocExtractor.hasNext()) {
+                LogDocument document = logDocExtractor.parseNext();
+                if (document != null) {
+                    writer.add(document);
+                    ++count;
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Error while indexing documents locally: " + e);
+        }
+        return count;
+    }
+
+    static {
+        BasicConfigurator.configure();
+    }
+}
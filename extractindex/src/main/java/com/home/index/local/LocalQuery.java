@@ -0,0 +1,19 @@
+package com.home.index.local;
+
+/**
+ * A query against a {@link LocalIndexReader}. Queries are evaluated segment by segment and only select documents,
+ * matching documents are returned in index order without scoring.
+ */
+public abstract class LocalQuery {
+
+    LocalQuery() {
+    }
+
+    /**
+     * Finds the matching documents of a segment, deleted documents included.
+     *
+     * @param segment The segment.
+     * @return Numbers of the matching documents in ascending order.
+     */
+    abstract int[] matches(SegmentReader segment);
+}
@@ -0,0 +1,66 @@
+package com.home.index.local;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Matches documents containing the terms of a text at consecutive positions of one line.
+ */
+public class PhraseQuery extends LocalQuery {
+
+    private final String text;
+
+    private final String[] terms;
+
+    public PhraseQuery(final String text) {
+        if (text == null)
+            throw new NullPointerException("Null parameter provided!");
+        List<String> tokens = Tokenizer.tokenize(text);
+        this.text  = text;
+        this.terms = tokens.toArray(new String[tokens.size()]);
+    }
+
+    @Override
+    int[] matches(final SegmentReader segment) {
+        if (terms.length == 0) {
+            return new int[0];
+        }
+        Postings[] postings = new Postings[terms.length];
+        for (int i = 0; i < terms.length; ++i) {
+            postings[i] = segment.postings(terms[i], true);
+        }
+        Postings first = postings[0];
+        int[] result = new int[first.docs.length];
+        int count = 0;
+        int[] indexes = new int[terms.length];
+        candidates:
+        for (int d = 0; d < first.docs.length; ++d) {
+            int doc = first.docs[d];
+            indexes[0] = d;
+            for (int i = 1; i < terms.length; ++i) {
+                int index = Arrays.binarySearch(postings[i].docs, doc);
+                if (index < 0) {
+                    continue candidates;
+                }
+                indexes[i] = index;
+            }
+            for (int p = first.positionStarts[d]; p < first.positionStarts[d + 1]; ++p) {
+                int position = first.positions[p];
+                int i = 1;
+                while (i < terms.length && postings[i].hasPosition(indexes[i], position + i)) {
+                    ++i;
+                }
+                if (i == terms.length) {
+                    result[count++] = doc;
+                    break;
+                }
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    @Override
+    public String toString() {
+        return '"' + text + '"';
+    }
+}
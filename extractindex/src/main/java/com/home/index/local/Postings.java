@@ -0,0 +1,74 @@
+package com.home.index.local;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The decoded postings of a term in a segment: the documents containing the term in ascending order, the number of
+ * occurrences in each document and, if requested, their positions in ascending order.
+ *
+ * <p>Encoding per document: document number minus the previous one, number of occurrences, then every position
+ * minus the previous one, all as variable length integers.
+ */
+final class Postings {
+
+    static final Postings EMPTY = new Postings(new int[0], new int[0], new int[1], new int[0]);
+
+    final int[] docs;
+
+    final int[] freqs;
+
+    /** Positions of docs[i] are positions[positionStarts[i]] to positions[positionStarts[i + 1] - 1]. */
+    final int[] positionStarts;
+
+    /** Null if the positions were not requested. */
+    final int[] positions;
+
+    private Postings(final int[] docs, final int[] freqs, final int[] positionStarts, final int[] positions) {
+        this.docs           = docs;
+        this.freqs          = freqs;
+        this.positionStarts = positionStarts;
+        this.positions      = positions;
+    }
+
+    /**
+     * Decodes postings.
+     *
+     * @param buffer Buffer positioned at the first document.
+     * @param docFreq Number of documents.
+     * @param withPositions Whether to keep the positions or to skip them.
+     * @return The postings.
+     */
+    static Postings read(final ByteBuffer buffer, final int docFreq, final boolean withPositions) {
+        int[] docs = new int[docFreq];
+        int[] freqs = new int[docFreq];
+        int[] positionStarts = new int[docFreq + 1];
+        int[] positions = withPositions ? new int[Math.max(16, docFreq)] : null;
+        int doc = 0;
+        int count = 0;
+        for (int i = 0; i < docFreq; ++i) {
+            doc += SegmentInput.readVInt(buffer);
+            docs[i] = doc;
+            freqs[i] = SegmentInput.readVInt(buffer);
+            positionStarts[i] = count;
+            int position = 0;
+            for (int j = 0; j < freqs[i]; ++j) {
+                position += SegmentInput.readVInt(buffer);
+                if (withPositions) {
+                    if (count == positions.length) {
+                        positions = Arrays.copyOf(positions, 2 * count);
+                    }
+                    positions[count] = position;
+                }
+                ++count;
+            }
+        }
+        positionStarts[docFreq] = count;
+        return new Postings(docs, freqs, positionStarts, positions);
+    }
+
+    /** Indicates whether the document at the given index of docs has a term at the given position. */
+    boolean hasPosition(final int index, final int position) {
+        return Arrays.binarySearch(positions, positionStarts[index], positionStarts[index + 1], position) >= 0;
+    }
+}
@@ -0,0 +1,97 @@
+package com.home.index.local;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The committed segments of a local index, oldest first, persisted as the JSON file "segments" in the index
+ * directory. The file is replaced atomically on every commit, so readers always see a complete set of segments.
+ */
+class SegmentInfos {
+
+    static final String FILE_NAME = "segments";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    /** A committed segment: the prefix of its files and its number of documents. */
+    static class SegmentInfo {
+        private final String name;
+        private final int docCount;
+
+        @JsonCreator
+        SegmentInfo(@JsonProperty("name") final String name, @JsonProperty("docCount") final int docCount) {
+            this.name     = name;
+            this.docCount = docCount;
+        }
+
+        @JsonProperty("name")
+        String getName() {
+            return name;
+        }
+
+        @JsonProperty("docCount")
+        int getDocCount() {
+            return docCount;
+        }
+    }
+
+    private final int nextSegment;
+
+    private final List<SegmentInfo> segments;
+
+    @JsonCreator
+    SegmentInfos(@JsonProperty("nextSegment") final int nextSegment,
+                 @JsonProperty("segments") final List<SegmentInfo> segments) {
+        this.nextSegment = nextSegment;
+        this.segments    = Collections.unmodifiableList(new ArrayList<>(segments));
+    }
+
+    /** Number used for the name of the next segment, names are never reused. */
+    @JsonProperty("nextSegment")
+    int getNextSegment() {
+        return nextSegment;
+    }
+
+    @JsonProperty("segments")
+    List<SegmentInfo> getSegments() {
+        return segments;
+    }
+
+    /**
+     * Reads the committed segments of an index.
+     *
+     * @param directory The index directory.
+     * @return The segments, none if nothing was committed yet.
+     * @throws IOException if the file exists but cannot be read.
+     */
+    static SegmentInfos read(final Path directory) throws IOException {
+        Path file = directory.resolve(FILE_NAME);
+        if (!Files.exists(file)) {
+            return new SegmentInfos(0, Collections.<SegmentInfo>emptyList());
+        }
+        return objectMapper.readValue(file.toFile(), SegmentInfos.class);
+    }
+
+    /**
+     * Commits these segments atomically.
+     *
+     * @param directory The index directory.
+     * @throws IOException if the file cannot be written.
+     */
+    void write(final Path directory) throws IOException {
+        Path file = directory.resolve(FILE_NAME);
+        Path temporary = directory.resolve(FILE_NAME + ".tmp");
+        objectMapper.writeValue(temporary.toFile(), this);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,49 @@
+package com.home.index.local;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the values written by {@link SegmentOutput} from a buffer, starting at its position.
+ */
+final class SegmentInput {
+
+    private SegmentInput() {
+    }
+
+    /** Maps a whole segment file read only. The mapping stays valid after the channel is closed. */
+    static MappedByteBuffer map(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Segment file " + file + " is larger than " + Integer.MAX_VALUE + " bytes");
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    static int readVInt(final ByteBuffer buffer) {
+        return (int) readVLong(buffer);
+    }
+
+    static long readVLong(final ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte current = buffer.get();
+            value |= (current & 0x7fL) << shift;
+            if (current >= 0) {
+                return value;
+            }
+        }
+    }
+
+    static String readString(final ByteBuffer buffer) {
+        int length = readVInt(buffer);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,69 @@
+package com.home.index.local;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Buffered output of a segment file, writing integers as variable length bytes: seven bits per byte, the high bit
+ * set on all but the last byte. Small values, like the differences between sorted numbers, take a single byte.
+ */
+class SegmentOutput implements Closeable {
+
+    private final OutputStream out;
+
+    private long position = 0;
+
+    SegmentOutput(final Path file) throws IOException {
+        this.out = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024);
+    }
+
+    /** Number of bytes written. */
+    long position() {
+        return position;
+    }
+
+    void writeByte(final int value) throws IOException {
+        out.write(value);
+        ++position;
+    }
+
+    void writeBytes(final byte[] bytes, final int offset, final int length) throws IOException {
+        out.write(bytes, offset, length);
+        position += length;
+    }
+
+    void writeVInt(final int value) throws IOException {
+        writeVLong(value & 0xffffffffL);
+    }
+
+    void writeVLong(long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            writeByte((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        writeByte((int) value);
+    }
+
+    void writeLong(final long value) throws IOException {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            writeByte((int) (value >>> shift));
+        }
+    }
+
+    /** Writes the UTF-8 bytes of the string preceded by their number. */
+    void writeString(final String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVInt(bytes.length);
+        writeBytes(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,206 @@
+package com.home.index.local;
+
+import com.home.common.LogDocument;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Read access to a segment written by {@link SegmentWriter}. The files are memory mapped, only the sparse index of
+ * the term dictionary is loaded on the heap. Instances are safe for concurrent use.
+ */
+class SegmentReader {
+
+    final String name;
+
+    final int docCount;
+
+    private final ByteBuffer terms;
+    private final ByteBuffer postings;
+    private final ByteBuffer docs;
+    private final ByteBuffer ids;
+    private final int termCount;
+    private final long indexStart;
+    private final String[] indexTerms;
+    private final long[] indexOffsets;
+    private final int docOffsetsStart;
+
+    private SegmentReader(final String name, final int docCount, final ByteBuffer terms, final ByteBuffer postings,
+                          final ByteBuffer docs, final ByteBuffer ids) {
+        this.name     = name;
+        this.docCount = docCount;
+        this.terms    = terms;
+        this.postings = postings;
+        this.docs     = docs;
+        this.ids      = ids;
+
+        this.indexStart = terms.getLong(terms.limit() - 16);
+        this.termCount  = (int) terms.getLong(terms.limit() - 8);
+        ByteBuffer index = terms.duplicate();
+        index.position((int) indexStart);
+        int blocks = SegmentInput.readVInt(index);
+        this.indexTerms   = new String[blocks];
+        this.indexOffsets = new long[blocks];
+        for (int i = 0; i < blocks; ++i) {
+            indexTerms[i]   = SegmentInput.readString(index);
+            indexOffsets[i] = SegmentInput.readVLong(index);
+        }
+        this.docOffsetsStart = docs.limit() - 8 * docCount;
+    }
+
+    /**
+     * Opens a committed segment.
+     *
+     * @param directory The index directory.
+     * @param info The segment.
+     * @return The reader.
+     * @throws IOException if a file of the segment cannot be mapped.
+     */
+    static SegmentReader open(final Path directory, final SegmentInfos.SegmentInfo info) throws IOException {
+        String name = info.getName();
+        return new SegmentReader(name, info.getDocCount(),
+                SegmentInput.map(directory.resolve(name + ".tis")),
+                SegmentInput.map(directory.resolve(name + ".pst")),
+                SegmentInput.map(directory.resolve(name + ".doc")),
+                SegmentInput.map(directory.resolve(name + ".ids")));
+    }
+
+    /**
+     * Looks up the postings of a term.
+     *
+     * @param term The term, as produced by the {@link Tokenizer}.
+     * @param withPositions Whether the positions are needed.
+     * @return The postings, empty if the term does not occur in this segment.
+     */
+    Postings postings(final String term, final boolean withPositions) {
+        int block = findBlock(term);
+        if (block < 0) {
+            return Postings.EMPTY;
+        }
+        TermEnum termEnum = new TermEnum(-1, block * SegmentWriter.BLOCK_SIZE, indexOffsets[block]);
+        int end = Math.min(termCount, (block + 1) * SegmentWriter.BLOCK_SIZE);
+        while (termEnum.ordinal < end - 1 && termEnum.next()) {
+            int order = termEnum.term.compareTo(term);
+            if (order == 0) {
+                return termEnum.postings(withPositions);
+            }
+            if (order > 0) {
+                break;
+            }
+        }
+        return Postings.EMPTY;
+    }
+
+    /** Returns the index of the last block whose first term is not greater than the term, -1 if there is none. */
+    private int findBlock(final String term) {
+        int low = 0;
+        int high = indexTerms.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (indexTerms[middle].compareTo(term) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    /** Returns an enumeration of all terms in ascending order, tagged with the given segment index. */
+    TermEnum termEnum(final int segmentIndex) {
+        return new TermEnum(segmentIndex, 0, 0);
+    }
+
+    /** Reads the stored document with the given number. */
+    LogDocument document(final int doc) {
+        ByteBuffer buffer = rawDocument(doc);
+        LogDocument document = new LogDocument(SegmentInput.readString(buffer));
+        if (buffer.get() != 0) {
+            document.addTime(buffer.getLong());
+            document.addTime(buffer.getLong());
+        }
+        int speakers = SegmentInput.readVInt(buffer);
+        for (int i = 0; i < speakers; ++i) {
+            String speaker = SegmentInput.readString(buffer);
+            document.addSpeaker(speaker, 0, speaker.length());
+        }
+        int lines = SegmentInput.readVInt(buffer);
+        for (int i = 0; i < lines; ++i) {
+            document.addLine(SegmentInput.readString(buffer));
+        }
+        return document;
+    }
+
+    /** Returns the bytes of a stored document. */
+    ByteBuffer rawDocument(final int doc) {
+        if (doc < 0 || doc >= docCount)
+            throw new IndexOutOfBoundsException("Document " + doc + " not in segment " + name);
+        int start = (int) docs.getLong(docOffsetsStart + 8 * doc);
+        int end = doc + 1 < docCount ? (int) docs.getLong(docOffsetsStart + 8 * (doc + 1)) : docOffsetsStart;
+        ByteBuffer buffer = docs.duplicate();
+        buffer.limit(end).position(start);
+        return buffer;
+    }
+
+    /** Reads the ids of all documents in order. */
+    String[] ids() {
+        ByteBuffer buffer = ids.duplicate();
+        String[] result = new String[docCount];
+        for (int i = 0; i < docCount; ++i) {
+            result[i] = SegmentInput.readString(buffer);
+        }
+        return result;
+    }
+
+    /** Enumerates the terms of a segment in ascending order. */
+    class TermEnum {
+        private final int segmentIndex;
+        private final ByteBuffer buffer;
+        private int ordinal;
+        private String term = "";
+        private int docFreq;
+        private long postingsStart;
+
+        private TermEnum(final int segmentIndex, final int ordinal, final long offset) {
+            this.segmentIndex = segmentIndex;
+            this.ordinal      = ordinal - 1;
+            this.buffer       = terms.duplicate();
+            buffer.position((int) offset);
+        }
+
+        /** Moves to the next term, returns false if there is none. */
+        boolean next() {
+            if (ordinal + 1 >= termCount) {
+                return false;
+            }
+            ++ordinal;
+            int shared = SegmentInput.readVInt(buffer);
+            String suffix = SegmentInput.readString(buffer);
+            term    = shared == 0 ? suffix : term.substring(0, shared) + suffix;
+            docFreq = SegmentInput.readVInt(buffer);
+            long offset = SegmentInput.readVLong(buffer);
+            postingsStart = ordinal % SegmentWriter.BLOCK_SIZE == 0 ? offset : postingsStart + offset;
+            return true;
+        }
+
+        String term() {
+            return term;
+        }
+
+        int segmentIndex() {
+            return segmentIndex;
+        }
+
+        /** Returns the postings of the current term with positions. */
+        Postings postings() {
+            return postings(true);
+        }
+
+        private Postings postings(final boolean withPositions) {
+            ByteBuffer buffer = SegmentReader.this.postings.duplicate();
+            buffer.position((int) postingsStart);
+            return Postings.read(buffer, docFreq, withPositions);
+        }
+    }
+}
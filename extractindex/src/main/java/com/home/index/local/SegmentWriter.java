@@ -0,0 +1,344 @@
+package com.home.index.local;
+
+import com.home.common.LogDocument;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Writes the files of a segment, either from buffered documents or by merging segments. A segment named _N
+ * consists of
+ * <ul>
+ *     <li>_N.tis: the term dictionary, terms in ascending order sharing prefixes with the previous term, in blocks
+ *     of {@link #BLOCK_SIZE} terms, followed by the first term of every block and its offset;</li>
+ *     <li>_N.pst: the postings of every term, see {@link Postings};</li>
+ *     <li>_N.doc: the stored documents followed by the offset of every document;</li>
+ *     <li>_N.ids: the ids of the documents in order.</li>
+ * </ul>
+ */
+final class SegmentWriter {
+
+    static final String[] EXTENSIONS = { ".tis", ".pst", ".doc", ".ids" };
+
+    /** Number of terms per block of the term dictionary. */
+    static final int BLOCK_SIZE = 32;
+
+    private SegmentWriter() {
+    }
+
+    /**
+     * Writes a segment of documents.
+     *
+     * @param directory The index directory.
+     * @param name Name of the segment.
+     * @param documents The documents, numbered in iteration order.
+     * @throws IOException if the files cannot be written.
+     */
+    static void write(final Path directory, final String name, final Collection<LogDocument> documents)
+            throws IOException {
+        TreeMap<String, PostingsBuffer> postings = new TreeMap<>();
+        try (StoredWriter stored = new StoredWriter(directory, name)) {
+            int doc = 0;
+            for (LogDocument document : documents) {
+                stored.add(document);
+                Map<String, IntList> termPositions = new HashMap<>();
+                Tokenizer.tokenize(document, (term, position) ->
+                        termPositions.computeIfAbsent(term, key -> new IntList()).add(position));
+                for (Map.Entry<String, IntList> entry : termPositions.entrySet()) {
+                    postings.computeIfAbsent(entry.getKey(), key -> new PostingsBuffer()).add(doc, entry.getValue());
+                }
+                ++doc;
+            }
+        }
+        try (TermsWriter terms = new TermsWriter(directory, name)) {
+            for (Map.Entry<String, PostingsBuffer> entry : postings.entrySet()) {
+                PostingsBuffer buffer = entry.getValue();
+                terms.addTerm(entry.getKey(), buffer.docFreq, buffer.bytes, buffer.length);
+            }
+        }
+    }
+
+    /**
+     * Merges segments into a new segment, dropping deleted documents. Documents keep their order.
+     *
+     * @param directory The index directory.
+     * @param name Name of the new segment.
+     * @param segments The segments to merge, oldest first.
+     * @param live For every segment, which of its documents are kept.
+     * @return Number of documents of the new segment.
+     * @throws IOException if the files cannot be written.
+     */
+    static int merge(final Path directory, final String name, final List<SegmentReader> segments,
+                     final List<boolean[]> live) throws IOException {
+        List<int[]> docMaps = new ArrayList<>();
+        int docCount = 0;
+        try (StoredWriter stored = new StoredWriter(directory, name)) {
+            for (int s = 0; s < segments.size(); ++s) {
+                SegmentReader segment = segments.get(s);
+                String[] ids = segment.ids();
+                int[] docMap = new int[segment.docCount];
+                for (int doc = 0; doc < segment.docCount; ++doc) {
+                    if (live.get(s)[doc]) {
+                        docMap[doc] = docCount++;
+                        stored.addRaw(ids[doc], segment.rawDocument(doc));
+                    } else {
+                        docMap[doc] = -1;
+                    }
+                }
+                docMaps.add(docMap);
+            }
+        }
+        try (TermsWriter terms = new TermsWriter(directory, name)) {
+            PriorityQueue<SegmentReader.TermEnum> queue = new PriorityQueue<>((first, second) -> {
+                int order = first.term().compareTo(second.term());
+                return order != 0 ? order : Integer.compare(first.segmentIndex(), second.segmentIndex());
+            });
+            for (int s = 0; s < segments.size(); ++s) {
+                SegmentReader.TermEnum termEnum = segments.get(s).termEnum(s);
+                if (termEnum.next()) {
+                    queue.add(termEnum);
+                }
+            }
+            while (!queue.isEmpty()) {
+                String term = queue.peek().term();
+                terms.startTerm();
+                while (!queue.isEmpty() && queue.peek().term().equals(term)) {
+                    SegmentReader.TermEnum termEnum = queue.poll();
+                    int[] docMap = docMaps.get(termEnum.segmentIndex());
+                    Postings postings = termEnum.postings();
+                    for (int i = 0; i < postings.docs.length; ++i) {
+                        int doc = docMap[postings.docs[i]];
+                        if (doc >= 0) {
+                            terms.addDoc(doc, postings.positions, postings.positionStarts[i],
+                                    postings.positionStarts[i + 1]);
+                        }
+                    }
+                    if (termEnum.next()) {
+                        queue.add(termEnum);
+                    }
+                }
+                terms.finishTerm(term);
+            }
+        }
+        return docCount;
+    }
+
+    /** Deletes the files of a segment, if they exist. */
+    static void delete(final Path directory, final String name) throws IOException {
+        for (String extension : EXTENSIONS) {
+            Files.deleteIfExists(directory.resolve(name + extension));
+        }
+    }
+
+    /** Writes the term dictionary and the postings. */
+    private static class TermsWriter implements Closeable {
+        private final SegmentOutput terms;
+        private final SegmentOutput postings;
+        private final List<String> indexTerms = new ArrayList<>();
+        private final List<Long> indexOffsets = new ArrayList<>();
+        private int termCount = 0;
+        private String previousTerm = "";
+        private long previousPostings = 0;
+        private long termStart;
+        private int termDocFreq;
+        private int lastDoc;
+
+        TermsWriter(final Path directory, final String name) throws IOException {
+            this.terms    = new SegmentOutput(directory.resolve(name + ".tis"));
+            this.postings = new SegmentOutput(directory.resolve(name + ".pst"));
+        }
+
+        /** Adds a term with encoded postings. */
+        void addTerm(final String term, final int docFreq, final byte[] bytes, final int length) throws IOException {
+            long start = postings.position();
+            postings.writeBytes(bytes, 0, length);
+            addEntry(term, docFreq, start);
+        }
+
+        /** Starts the postings of a term, followed by {@link #addDoc} for every document. */
+        void startTerm() {
+            termStart   = postings.position();
+            termDocFreq = 0;
+            lastDoc     = 0;
+        }
+
+        void addDoc(final int doc, final int[] positions, final int from, final int to) throws IOException {
+            postings.writeVInt(doc - lastDoc);
+            postings.writeVInt(to - from);
+            int previous = 0;
+            for (int i = from; i < to; ++i) {
+                postings.writeVInt(positions[i] - previous);
+                previous = positions[i];
+            }
+            lastDoc = doc;
+            ++termDocFreq;
+        }
+
+        /** Ends the postings of a term, the term is skipped if no document was added. */
+        void finishTerm(final String term) throws IOException {
+            if (termDocFreq > 0) {
+                addEntry(term, termDocFreq, termStart);
+            }
+        }
+
+        private void addEntry(final String term, final int docFreq, final long postingsStart) throws IOException {
+            if (termCount % BLOCK_SIZE == 0) {
+                indexTerms.add(term);
+                indexOffsets.add(terms.position());
+                terms.writeVInt(0);
+                terms.writeString(term);
+                terms.writeVInt(docFreq);
+                terms.writeVLong(postingsStart);
+            } else {
+                int shared = sharedPrefix(previousTerm, term);
+                terms.writeVInt(shared);
+                terms.writeString(term.substring(shared));
+                terms.writeVInt(docFreq);
+                terms.writeVLong(postingsStart - previousPostings);
+            }
+            previousTerm     = term;
+            previousPostings = postingsStart;
+            ++termCount;
+        }
+
+        private static int sharedPrefix(final String first, final String second) {
+            int length = Math.min(first.length(), second.length());
+            int shared = 0;
+            while (shared < length && first.charAt(shared) == second.charAt(shared)) {
+                ++shared;
+            }
+            // never split a surrogate pair, the suffix is encoded separately
+            if (shared > 0 && Character.isHighSurrogate(second.charAt(shared - 1))) {
+                --shared;
+            }
+            return shared;
+        }
+
+        @Override
+        public void close() throws IOException {
+            long indexStart = terms.position();
+            terms.writeVInt(indexTerms.size());
+            for (int i = 0; i < indexTerms.size(); ++i) {
+                terms.writeString(indexTerms.get(i));
+                terms.writeVLong(indexOffsets.get(i));
+            }
+            terms.writeLong(indexStart);
+            terms.writeLong(termCount);
+            terms.close();
+            postings.close();
+        }
+    }
+
+    /** Writes the stored documents and their ids. */
+    private static class StoredWriter implements Closeable {
+        private final SegmentOutput docs;
+        private final SegmentOutput ids;
+        private long[] offsets = new long[1024];
+        private int count = 0;
+
+        StoredWriter(final Path directory, final String name) throws IOException {
+            this.docs = new SegmentOutput(directory.resolve(name + ".doc"));
+            this.ids  = new SegmentOutput(directory.resolve(name + ".ids"));
+        }
+
+        void add(final LogDocument document) throws IOException {
+            addOffset();
+            ids.writeString(document.getId());
+            docs.writeString(document.getId());
+            Long startTime = document.getStartTime();
+            docs.writeByte(startTime == null ? 0 : 1);
+            if (startTime != null) {
+                docs.writeLong(startTime);
+                docs.writeLong(document.getEndTime());
+            }
+            docs.writeVInt(document.getSpeakers().size());
+            for (String speaker : document.getSpeakers()) {
+                docs.writeString(speaker);
+            }
+            docs.writeVInt(document.getLineCount());
+            for (int i = 0; i < document.getLineCount(); ++i) {
+                docs.writeString(document.getLine(i));
+            }
+        }
+
+        /** Copies a stored document of another segment. */
+        void addRaw(final String id, final ByteBuffer document) throws IOException {
+            addOffset();
+            ids.writeString(id);
+            byte[] bytes = new byte[document.remaining()];
+            document.get(bytes);
+            docs.writeBytes(bytes, 0, bytes.length);
+        }
+
+        private void addOffset() {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, 2 * count);
+            }
+            offsets[count++] = docs.position();
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (int i = 0; i < count; ++i) {
+                docs.writeLong(offsets[i]);
+            }
+            docs.close();
+            ids.close();
+        }
+    }
+
+    /** Encoded postings of a term, built while writing buffered documents. */
+    private static class PostingsBuffer {
+        byte[] bytes = new byte[16];
+        int length = 0;
+        int docFreq = 0;
+        int lastDoc = 0;
+
+        void add(final int doc, final IntList positions) {
+            writeVInt(doc - lastDoc);
+            writeVInt(positions.size);
+            int previous = 0;
+            for (int i = 0; i < positions.size; ++i) {
+                writeVInt(positions.values[i] - previous);
+                previous = positions.values[i];
+            }
+            lastDoc = doc;
+            ++docFreq;
+        }
+
+        private void writeVInt(int value) {
+            if (length + 5 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, 2 * bytes.length + 5);
+            }
+            while ((value & ~0x7f) != 0) {
+                bytes[length++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+    }
+
+    /** Growable list of int values. */
+    private static class IntList {
+        int[] values = new int[4];
+        int size = 0;
+
+        void add(final int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.home.index.local;
+
+import java.util.Locale;
+
+/**
+ * Matches documents containing a term. The term is lower cased like the indexed text.
+ */
+public class TermQuery extends LocalQuery {
+
+    private final String term;
+
+    public TermQuery(final String term) {
+        if (term == null)
+            throw new NullPointerException("Null parameter provided!");
+        this.term = term.toLowerCase(Locale.ROOT);
+    }
+
+    public String getTerm() {
+        return term;
+    }
+
+    @Override
+    int[] matches(final SegmentReader segment) {
+        return segment.postings(term, false).docs;
+    }
+
+    @Override
+    public String toString() {
+        return term;
+    }
+}
@@ -0,0 +1,77 @@
+package com.home.index.local;
+
+import com.home.common.LogDocument;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits text into lower cased terms made of letters and digits. Positions of the terms of consecutive lines are
+ * apart by a gap, so phrases never match across lines.
+ */
+final class Tokenizer {
+
+    /** Position increment between the last term of a line and the first term of the next line. */
+    static final int LINE_GAP = 100;
+
+    /** Longer terms are skipped. */
+    static final int MAX_TERM_LENGTH = 255;
+
+    /** Receives the terms of a text. */
+    interface TermConsumer {
+        void accept(String term, int position);
+    }
+
+    private Tokenizer() {
+    }
+
+    /**
+     * Tokenizes all lines of a document.
+     *
+     * @param document The document.
+     * @param consumer Receives every term with its position.
+     */
+    static void tokenize(final LogDocument document, final TermConsumer consumer) {
+        char[] chars = document.getChars();
+        int position = 0;
+        for (int line = 0; line < document.getLineCount(); ++line) {
+            int start = document.lineStart(line);
+            position = tokenize(chars, start, start + document.lineLength(line), position, consumer) + LINE_GAP;
+        }
+    }
+
+    /**
+     * Tokenizes a text, e.g. of a query.
+     *
+     * @param text The text.
+     * @return The terms in order.
+     */
+    static List<String> tokenize(final String text) {
+        List<String> terms = new ArrayList<>();
+        tokenize(text.toCharArray(), 0, text.length(), 0, (term, position) -> terms.add(term));
+        return terms;
+    }
+
+    /** Returns the position after the last term. */
+    private static int tokenize(final char[] chars, final int from, final int to, int position,
+                                final TermConsumer consumer) {
+        int i = from;
+        while (i < to) {
+            while (i < to && !Character.isLetterOrDigit(chars[i])) {
+                ++i;
+            }
+            int start = i;
+            while (i < to && Character.isLetterOrDigit(chars[i])) {
+                ++i;
+            }
+            if (i > start && i - start <= MAX_TERM_LENGTH) {
+                char[] term = new char[i - start];
+                for (int j = 0; j < term.length; ++j) {
+                    term[j] = Character.toLowerCase(chars[start + j]);
+                }
+                consumer.accept(new String(term), position++);
+            }
+        }
+        return position;
+    }
+}
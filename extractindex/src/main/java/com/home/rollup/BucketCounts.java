@@ -0,0 +1,131 @@
+package com.home.rollup;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Counters of consecutive buckets in an int array indexed by the bucket number minus the first bucket. The array
+ * grows at either end when a bucket outside of it is counted, so counting is a single array access for buckets in
+ * the range seen so far.
+ */
+final class BucketCounts {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** Bucket of counts[0]. */
+    private long first = 0;
+
+    private int[] counts = new int[0];
+
+    /** Lowest and highest bucket counted, empty if min > max. */
+    private long min = Long.MAX_VALUE;
+
+    private long max = Long.MIN_VALUE;
+
+    /**
+     * @param bucket Number of the bucket.
+     * @param count Number added to its counter.
+     */
+    void add(final long bucket, final int count) {
+        if (bucket < first || bucket - first >= counts.length) {
+            grow(bucket);
+        }
+        counts[(int) (bucket - first)] += count;
+        min = Math.min(min, bucket);
+        max = Math.max(max, bucket);
+    }
+
+    /** Reallocates the counters to hold the bucket, leaving room for further buckets in the direction of growth. */
+    private void grow(final long bucket) {
+        if (counts.length == 0) {
+            first  = bucket - INITIAL_CAPACITY / 2;
+            counts = new int[INITIAL_CAPACITY];
+            return;
+        }
+        long newFirst = bucket < first ? bucket - counts.length : first;
+        long newEnd = bucket < first ? first + counts.length : Math.max(bucket + 1, first + 2L * counts.length);
+        if (newEnd - newFirst > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Too many buckets between " + Math.min(bucket, min) + " and "
+                    + Math.max(bucket, max));
+        int[] grown = new int[(int) (newEnd - newFirst)];
+        System.arraycopy(counts, 0, grown, (int) (first - newFirst), counts.length);
+        first  = newFirst;
+        counts = grown;
+    }
+
+    /**
+     * @param bucket Number of the bucket.
+     * @return Its counter, 0 if never counted.
+     */
+    int get(final long bucket) {
+        return bucket < first || bucket - first >= counts.length ? 0 : counts[(int) (bucket - first)];
+    }
+
+    boolean isEmpty() {
+        return min > max;
+    }
+
+    /** @return Lowest bucket counted. */
+    long min() {
+        return min;
+    }
+
+    /** @return Highest bucket counted. */
+    long max() {
+        return max;
+    }
+
+    /**
+     * Adds the counters of other buckets.
+     *
+     * @param other Counters to add.
+     */
+    void addAll(final BucketCounts other) {
+        for (long bucket = other.min; bucket <= other.max; ++bucket) {
+            int count = other.get(bucket);
+            if (count != 0) {
+                add(bucket, count);
+            }
+        }
+    }
+
+    /**
+     * Copies the counters from the lowest to the highest bucket counted.
+     *
+     * @return Counter of bucket min() + i at index i.
+     */
+    int[] toArray() {
+        return isEmpty() ? new int[0] : Arrays.copyOfRange(counts, (int) (min - first), (int) (max - first + 1));
+    }
+
+    /** Writes the lowest bucket, the number of buckets and their counters. */
+    void write(final DataOutput output) throws IOException {
+        int[] values = toArray();
+        output.writeLong(isEmpty() ? 0 : min);
+        output.writeInt(values.length);
+        for (int value : values) {
+            output.writeInt(value);
+        }
+    }
+
+    /** Reads counters written by {@link #write(DataOutput)}. */
+    static BucketCounts read(final DataInput input) throws IOException {
+        BucketCounts bucketCounts = new BucketCounts();
+        long min = input.readLong();
+        int length = input.readInt();
+        if (length < 0)
+            throw new IOException("Invalid number of buckets: " + length);
+        if (length > 0) {
+            bucketCounts.first  = min;
+            bucketCounts.counts = new int[length];
+            bucketCounts.min    = min;
+            bucketCounts.max    = min + length - 1;
+            for (int i = 0; i < length; ++i) {
+                bucketCounts.counts[i] = input.readInt();
+            }
+        }
+        return bucketCounts;
+    }
+}
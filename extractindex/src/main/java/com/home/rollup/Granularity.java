@@ -0,0 +1,40 @@
+package com.home.rollup;
+
+/**
+ * Length of the time buckets of rollups. Buckets start at multiples of their length since the epoch, so days are
+ * UTC days of the parsed time stamps.
+ */
+public enum Granularity {
+    MINUTE(60 * 1000L),
+    HOUR(60 * 60 * 1000L),
+    DAY(24 * 60 * 60 * 1000L);
+
+    private final long millis;
+
+    Granularity(final long millis) {
+        this.millis = millis;
+    }
+
+    /**
+     * @return Length of a bucket in milliseconds.
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * @param epochMillis A time.
+     * @return Number of the bucket containing the time.
+     */
+    public long bucket(final long epochMillis) {
+        return Math.floorDiv(epochMillis, millis);
+    }
+
+    /**
+     * @param bucket Number of a bucket.
+     * @return Epoch milliseconds of the start of the bucket.
+     */
+    public long start(final long bucket) {
+        return bucket * millis;
+    }
+}
@@ -0,0 +1,160 @@
+package com.home.rollup;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Counts messages per minute, hour and day, conversations active per bucket and messages of every speaker per day,
+ * while the messages are extracted. The counters are int arrays indexed by bucket, so counting a message costs a few
+ * array accesses and a map lookup for a new speaker of a conversation. A builder is fed by a single extractor, the
+ * builders of several extractors are combined with {@link #addAll(RollupBuilder)}.
+ *
+ * <p>The rollups are written to a compact file read by {@link Rollups#read(Path)}, or turned into {@link Rollups}
+ * directly, which answer queries from prefix sums.
+ */
+public class RollupBuilder {
+
+    static final int MAGIC = 0x524f4c31;
+
+    private static final Granularity[] GRANULARITIES = Granularity.values();
+
+    private final BucketCounts[] messages = new BucketCounts[GRANULARITIES.length];
+
+    private final BucketCounts[] conversations = new BucketCounts[GRANULARITIES.length];
+
+    /** Bucket of the last message of the current conversation, per granularity. */
+    private final long[] conversationBuckets = new long[GRANULARITIES.length];
+
+    private final Map<String, Integer> speakerIds = new HashMap<>();
+
+    private final List<String> speakers = new ArrayList<>();
+
+    private final List<BucketCounts> speakerDays = new ArrayList<>();
+
+    /** Speaker of the last message, speakers of a conversation are usually the same string instances. */
+    private String lastSpeaker = null;
+
+    private int lastSpeakerId = -1;
+
+    private long messageCount = 0;
+
+    public RollupBuilder() {
+        for (int i = 0; i < GRANULARITIES.length; ++i) {
+            messages[i]      = new BucketCounts();
+            conversations[i] = new BucketCounts();
+        }
+        startConversation();
+    }
+
+    /**
+     * Starts a new conversation, its first message makes it active in the buckets of the message.
+     */
+    public void startConversation() {
+        for (int i = 0; i < GRANULARITIES.length; ++i) {
+            conversationBuckets[i] = Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Counts a message of the current conversation. A conversation is counted once in each bucket of its messages,
+     * as long as its messages are ordered by time.
+     *
+     * @param epochMillis Time stamp of the message.
+     * @param speaker Speaker of the message, null if unknown.
+     */
+    public void addMessage(final long epochMillis, final String speaker) {
+        for (int i = 0; i < GRANULARITIES.length; ++i) {
+            long bucket = GRANULARITIES[i].bucket(epochMillis);
+            messages[i].add(bucket, 1);
+            if (bucket != conversationBuckets[i]) {
+                conversations[i].add(bucket, 1);
+                conversationBuckets[i] = bucket;
+            }
+        }
+        if (speaker != null) {
+            speakerDays.get(speakerId(speaker)).add(Granularity.DAY.bucket(epochMillis), 1);
+        }
+        ++messageCount;
+    }
+
+    private int speakerId(final String speaker) {
+        if (speaker != lastSpeaker) {
+            Integer id = speakerIds.get(speaker);
+            if (id == null) {
+                id = speakers.size();
+                speakerIds.put(speaker, id);
+                speakers.add(speaker);
+                speakerDays.add(new BucketCounts());
+            }
+            lastSpeaker   = speaker;
+            lastSpeakerId = id;
+        }
+        return lastSpeakerId;
+    }
+
+    /**
+     * Adds the counters of another builder, e.g. of another file.
+     *
+     * @param other The builder to add.
+     */
+    public void addAll(final RollupBuilder other) {
+        if (other == null)
+            throw new NullPointerException("Null parameter provided!");
+        for (int i = 0; i < GRANULARITIES.length; ++i) {
+            messages[i].addAll(other.messages[i]);
+            conversations[i].addAll(other.conversations[i]);
+        }
+        for (int id = 0; id < other.speakers.size(); ++id) {
+            speakerDays.get(speakerId(other.speakers.get(id))).addAll(other.speakerDays.get(id));
+        }
+        messageCount += other.messageCount;
+    }
+
+    /**
+     * @return Number of messages counted.
+     */
+    public long getMessageCount() {
+        return messageCount;
+    }
+
+    /**
+     * @return Rollups answering queries on the counters so far.
+     */
+    public Rollups build() {
+        return new Rollups(messages, conversations, speakers, speakerDays);
+    }
+
+    /**
+     * Writes the counters to a gzip compressed file: per granularity the messages and conversations of the buckets
+     * from the first to the last counted, then the speakers with their messages per day.
+     *
+     * @param file The file, replaced if it exists.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(final Path file) throws IOException {
+        if (file == null)
+            throw new NullPointerException("Null parameter provided!");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(file), 64 * 1024), 64 * 1024))) {
+            output.writeInt(MAGIC);
+            output.writeInt(GRANULARITIES.length);
+            for (int i = 0; i < GRANULARITIES.length; ++i) {
+                messages[i].write(output);
+                conversations[i].write(output);
+            }
+            output.writeInt(speakers.size());
+            for (int id = 0; id < speakers.size(); ++id) {
+                output.writeUTF(speakers.get(id));
+                speakerDays.get(id).write(output);
+            }
+        }
+    }
+}
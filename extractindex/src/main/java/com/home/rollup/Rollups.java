@@ -0,0 +1,217 @@
+package com.home.rollup;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Counts of messages, conversations and speakers per time bucket, built by a {@link RollupBuilder}. Messages of a
+ * time range are summed from prefix sums of the buckets, so counting messages takes constant time and finding the
+ * top speakers of a range takes time linear in the number of speakers, however long the range and however many
+ * messages were counted.
+ */
+public class Rollups {
+
+    private static final Granularity[] GRANULARITIES = Granularity.values();
+
+    /** Bucket of index 0 of the arrays of a granularity. */
+    private final long[] firstBuckets = new long[GRANULARITIES.length];
+
+    /** Messages of the buckets before the bucket of the index, per granularity. */
+    private final long[][] messageSums = new long[GRANULARITIES.length][];
+
+    private final int[][] conversations = new int[GRANULARITIES.length][];
+
+    private final long[] conversationFirstBuckets = new long[GRANULARITIES.length];
+
+    private final String[] speakers;
+
+    private final long[] speakerFirstDays;
+
+    /** Messages of a speaker on the days before the day of the index. */
+    private final long[][] speakerSums;
+
+    Rollups(final BucketCounts[] messages, final BucketCounts[] conversations, final List<String> speakers,
+            final List<BucketCounts> speakerDays) {
+        for (int i = 0; i < GRANULARITIES.length; ++i) {
+            firstBuckets[i]             = messages[i].min();
+            messageSums[i]              = prefixSums(messages[i].toArray());
+            conversationFirstBuckets[i] = conversations[i].min();
+            this.conversations[i]       = conversations[i].toArray();
+        }
+        this.speakers    = speakers.toArray(new String[0]);
+        speakerFirstDays = new long[this.speakers.length];
+        speakerSums      = new long[this.speakers.length][];
+        for (int id = 0; id < this.speakers.length; ++id) {
+            speakerFirstDays[id] = speakerDays.get(id).min();
+            speakerSums[id]      = prefixSums(speakerDays.get(id).toArray());
+        }
+    }
+
+    private static long[] prefixSums(final int[] counts) {
+        long[] sums = new long[counts.length + 1];
+        for (int i = 0; i < counts.length; ++i) {
+            sums[i + 1] = sums[i] + counts[i];
+        }
+        return sums;
+    }
+
+    /** Sum of the buckets from the first up to the last bucket, both clamped to the buckets counted. */
+    private static long sum(final long[] sums, final long firstBucket, final long from, final long to) {
+        long start = Math.max(0, Math.min(sums.length - 1, from - firstBucket));
+        long end = Math.max(0, Math.min(sums.length - 1, to - firstBucket + 1));
+        return end > start ? sums[(int) end] - sums[(int) start] : 0;
+    }
+
+    /**
+     * Reads rollups written by {@link RollupBuilder#write(Path)}.
+     *
+     * @param file The file.
+     * @return The rollups.
+     * @throws IOException if the file cannot be read or is no rollup file.
+     */
+    public static Rollups read(final Path file) throws IOException {
+        if (file == null)
+            throw new NullPointerException("Null parameter provided!");
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file), 64 * 1024), 64 * 1024))) {
+            if (input.readInt() != RollupBuilder.MAGIC || input.readInt() != GRANULARITIES.length)
+                throw new IOException("No rollup file: " + file);
+            BucketCounts[] messages = new BucketCounts[GRANULARITIES.length];
+            BucketCounts[] conversations = new BucketCounts[GRANULARITIES.length];
+            for (int i = 0; i < GRANULARITIES.length; ++i) {
+                messages[i]      = BucketCounts.read(input);
+                conversations[i] = BucketCounts.read(input);
+            }
+            int speakerCount = input.readInt();
+            List<String> speakers = new ArrayList<>(speakerCount);
+            List<BucketCounts> speakerDays = new ArrayList<>(speakerCount);
+            for (int id = 0; id < speakerCount; ++id) {
+                speakers.add(input.readUTF());
+                speakerDays.add(BucketCounts.read(input));
+            }
+            return new Rollups(messages, conversations, speakers, speakerDays);
+        }
+    }
+
+    /**
+     * @return Epoch milliseconds of the start of the first minute with a message, null if there are no messages.
+     */
+    public Long getStartMillis() {
+        return isEmpty() ? null : Granularity.MINUTE.start(firstBuckets[0]);
+    }
+
+    /**
+     * @return Epoch milliseconds of the end of the last minute with a message, null if there are no messages.
+     */
+    public Long getEndMillis() {
+        return isEmpty() ? null : Granularity.MINUTE.start(firstBuckets[0] + messageSums[0].length - 1);
+    }
+
+    /**
+     * @return Whether no message was counted.
+     */
+    public boolean isEmpty() {
+        return messageSums[0].length == 1;
+    }
+
+    /**
+     * @param granularity Length of the buckets.
+     * @return Number of the first bucket with a message, see {@link Granularity#bucket(long)}.
+     */
+    public long getFirstBucket(final Granularity granularity) {
+        return firstBuckets[granularity.ordinal()];
+    }
+
+    /**
+     * @param granularity Length of the buckets.
+     * @return Number of buckets from the first to the last bucket with a message.
+     */
+    public int getBucketCount(final Granularity granularity) {
+        return messageSums[granularity.ordinal()].length - 1;
+    }
+
+    /**
+     * @param granularity Length of the bucket.
+     * @param bucket Number of the bucket.
+     * @return Number of messages in the bucket.
+     */
+    public long getMessages(final Granularity granularity, final long bucket) {
+        int i = granularity.ordinal();
+        return sum(messageSums[i], firstBuckets[i], bucket, bucket);
+    }
+
+    /**
+     * Counts the messages of the buckets overlapping a time range.
+     *
+     * @param granularity Length of the buckets, the range is extended to their bounds.
+     * @param startMillis Start of the range.
+     * @param endMillis End of the range, exclusive.
+     * @return Number of messages.
+     */
+    public long getMessages(final Granularity granularity, final long startMillis, final long endMillis) {
+        int i = granularity.ordinal();
+        return sum(messageSums[i], firstBuckets[i], granularity.bucket(startMillis), granularity.bucket(endMillis - 1));
+    }
+
+    /**
+     * @param granularity Length of the bucket.
+     * @param bucket Number of the bucket.
+     * @return Number of conversations with a message in the bucket.
+     */
+    public int getConversations(final Granularity granularity, final long bucket) {
+        int i = granularity.ordinal();
+        long index = bucket - conversationFirstBuckets[i];
+        return index < 0 || index >= conversations[i].length ? 0 : conversations[i][(int) index];
+    }
+
+    /**
+     * @return Names of all speakers, in the order they were first counted.
+     */
+    public List<String> getSpeakers() {
+        List<String> names = new ArrayList<>(speakers.length);
+        for (String speaker : speakers) {
+            names.add(speaker);
+        }
+        return names;
+    }
+
+    /**
+     * Finds the speakers with most messages on the days overlapping a time range, e.g. a week.
+     *
+     * @param startMillis Start of the range.
+     * @param endMillis End of the range, exclusive.
+     * @param limit Maximal number of speakers returned.
+     * @return Speakers with their number of messages, most messages first, without speakers without messages.
+     */
+    public Map<String, Long> getTopSpeakers(final long startMillis, final long endMillis, final int limit) {
+        long from = Granularity.DAY.bucket(startMillis);
+        long to = Granularity.DAY.bucket(endMillis - 1);
+        PriorityQueue<long[]> top = new PriorityQueue<>((a, b) -> a[1] != b[1] ? Long.compare(a[1], b[1])
+                                                                               : Long.compare(b[0], a[0]));
+        for (int id = 0; id < speakers.length && limit > 0; ++id) {
+            long count = sum(speakerSums[id], speakerFirstDays[id], from, to);
+            if (count > 0) {
+                top.add(new long[] { id, count });
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+        }
+        List<long[]> ranked = new ArrayList<>(top);
+        ranked.sort((a, b) -> a[1] != b[1] ? Long.compare(b[1], a[1]) : Long.compare(a[0], b[0]));
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (long[] entry : ranked) {
+            result.put(speakers[(int) entry[0]], entry[1]);
+        }
+        return result;
+    }
+}
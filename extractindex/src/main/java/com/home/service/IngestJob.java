@@ -0,0 +1,110 @@
+package com.home.service;
+
+import com.home.cli.RunSummary;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A command queued by the {@link JobService} and its state. The state is changed by the thread running the job and
+ * read by the threads answering requests.
+ */
+public class IngestJob {
+
+    /** States of a job, in the order they are passed. */
+    public enum State { QUEUED, RUNNING, SUCCEEDED, FAILED }
+
+    private final long id;
+
+    private final List<String> args;
+
+    private final long submittedMillis;
+
+    private volatile State state = State.QUEUED;
+
+    private volatile long startedMillis;
+
+    private volatile long finishedMillis;
+
+    private volatile RunSummary summary;
+
+    private volatile String error;
+
+    IngestJob(long id, String[] args) {
+        this.id              = id;
+        this.args            = Arrays.asList(args.clone());
+        this.submittedMillis = System.currentTimeMillis();
+    }
+
+    void started() {
+        startedMillis = System.currentTimeMillis();
+        state         = State.RUNNING;
+    }
+
+    void succeeded(RunSummary summary) {
+        this.summary   = summary;
+        finishedMillis = System.currentTimeMillis();
+        state          = State.SUCCEEDED;
+    }
+
+    void failed(Throwable cause) {
+        error          = cause.getMessage() == null ? cause.toString() : cause.getMessage();
+        finishedMillis = System.currentTimeMillis();
+        state          = State.FAILED;
+    }
+
+    /**
+     * @return Whether the job succeeded or failed.
+     */
+    public boolean isFinished() {
+        State current = state;
+        return current == State.SUCCEEDED || current == State.FAILED;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public List<String> getArgs() {
+        return args;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return Epoch milliseconds when the job was queued.
+     */
+    public long getSubmittedMillis() {
+        return submittedMillis;
+    }
+
+    /**
+     * @return Epoch milliseconds when the job started running, 0 while queued.
+     */
+    public long getStartedMillis() {
+        return startedMillis;
+    }
+
+    /**
+     * @return Epoch milliseconds when the job finished, 0 while queued or running.
+     */
+    public long getFinishedMillis() {
+        return finishedMillis;
+    }
+
+    /**
+     * @return Summary of the processed files once the job succeeded, null before.
+     */
+    public RunSummary getSummary() {
+        return summary;
+    }
+
+    /**
+     * @return Why the job failed, null unless it failed.
+     */
+    public String getError() {
+        return error;
+    }
+}
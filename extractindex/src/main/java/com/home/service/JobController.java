@@ -0,0 +1,85 @@
+package com.home.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * REST endpoints for ingest jobs, available when the application is started with the serve command. The args are
+ * the command line of a save, index or index-local command, paths are read on the machine of the service.
+ *
+ * <pre>
+ * POST /jobs        {"args": ["index", "logs/*.gz", "30", "--bulk-load"]}
+ * GET  /jobs
+ * GET  /jobs/{id}
+ * </pre>
+ */
+@RestController
+@RequestMapping("/jobs")
+@ConditionalOnWebApplication
+public class JobController {
+
+    /** Body of a job request. */
+    public static class JobRequest {
+        private List<String> args;
+
+        public List<String> getArgs() {
+            return args;
+        }
+
+        public void setArgs(List<String> args) {
+            this.args = args;
+        }
+    }
+
+    private final JobService jobService;
+
+    @Autowired
+    public JobController(JobService jobService) {
+        this.jobService = jobService;
+    }
+
+    @RequestMapping(method = RequestMethod.POST)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public IngestJob submit(@RequestBody JobRequest request) {
+        if (request.getArgs() == null)
+            throw new IllegalArgumentException("Missing args!");
+        return jobService.submit(request.getArgs().toArray(new String[0]));
+    }
+
+    @RequestMapping(method = RequestMethod.GET)
+    public List<IngestJob> list() {
+        return jobService.list();
+    }
+
+    @RequestMapping(value = "/{id}", method = RequestMethod.GET)
+    public ResponseEntity<IngestJob> get(@PathVariable("id") long id) {
+        IngestJob job = jobService.get(id);
+        return job == null ? new ResponseEntity<>(HttpStatus.NOT_FOUND) : new ResponseEntity<>(job, HttpStatus.OK);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Map<String, String> badRequest(IllegalArgumentException e) {
+        return Collections.singletonMap("error", e.getMessage());
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public Map<String, String> queueFull(RejectedExecutionException e) {
+        return Collections.singletonMap("error", "Job queue is full, try again later");
+    }
+}
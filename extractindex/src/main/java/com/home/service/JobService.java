@@ -0,0 +1,201 @@
+package com.home.service;
+
+import com.home.cli.RunSummary;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.log4j.BasicConfigurator;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs ingest commands in the process which stays up between them, so the JVM, its compiled code and the elastic
+ * search client are warm for every job. Jobs run on a fixed number of threads and wait in a bounded queue; when the
+ * queue is full further jobs are rejected instead of piling up. Only commands which end are accepted, following
+ * files would hold a thread forever. Bulk loads (index with --bulk-load or --alias) change the settings of the one
+ * log index and run one at a time; a bulk load waits, still queued, until the running one ended. The last
+ * {@link #MAX_FINISHED_JOBS} finished jobs are kept for inspection.
+ */
+public class JobService implements Closeable {
+
+    private static final Log logger = LogFactory.getLog(JobService.class);
+
+    /** Number of finished jobs kept, older finished jobs are forgotten. */
+    public static final int MAX_FINISHED_JOBS = 100;
+
+    private static final Set<String> COMMANDS = new HashSet<>(Arrays.asList("save", "index", "index-local"));
+
+    /** Runs a command given as command line arguments. */
+    public interface JobRunner {
+        RunSummary run(String... args) throws Exception;
+    }
+
+    private final JobRunner runner;
+
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    /** Held by the running bulk load. */
+    private final Lock bulkLoadLock = new ReentrantLock();
+
+    /** Jobs in the order they were submitted. */
+    private final Map<Long, IngestJob> jobs = new LinkedHashMap<>();
+
+    private int finishedJobs = 0;
+
+    /**
+     * Constructs the service and starts its threads.
+     *
+     * @param runner Runs the commands of the jobs.
+     * @param threads Number of jobs run at the same time.
+     * @param queueCapacity Number of jobs waiting to run.
+     */
+    public JobService(final JobRunner runner, final int threads, final int queueCapacity) {
+        if (runner == null)
+            throw new NullPointerException("Null parameter provided!");
+        if (threads <= 0 || queueCapacity <= 0)
+            throw new IllegalArgumentException("Number of threads and queue capacity must be positive!");
+        this.runner = runner;
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "ingest-job-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Queues a job.
+     *
+     * @param args Command, params and options as given on the command line.
+     * @return The queued job.
+     * @throws IllegalArgumentException if the command is not save, index or index-local, or follows files.
+     * @throws RejectedExecutionException if the queue is full or the service is closed.
+     */
+    public IngestJob submit(final String... args) {
+        if (args == null)
+            throw new NullPointerException("Null parameter provided!");
+        if (args.length == 0 || !COMMANDS.contains(args[0]))
+            throw new IllegalArgumentException("Jobs must run one of the commands " + COMMANDS);
+        for (String arg : args) {
+            if (arg == null)
+                throw new IllegalArgumentException("Null argument provided!");
+            if (arg.equals("--follow") || arg.startsWith("--follow="))
+                throw new IllegalArgumentException("Jobs cannot follow files");
+        }
+        IngestJob job = new IngestJob(nextId.getAndIncrement(), args);
+        synchronized (jobs) {
+            jobs.put(job.getId(), job);
+        }
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            synchronized (jobs) {
+                jobs.remove(job.getId());
+            }
+            throw e;
+        }
+        return job;
+    }
+
+    private void run(final IngestJob job) {
+        boolean bulkLoad = isBulkLoad(job.getArgs());
+        try {
+            if (bulkLoad) {
+                bulkLoadLock.lockInterruptibly();
+            }
+            try {
+                job.started();
+                logger.info("Job " + job.getId() + " started: " + job.getArgs());
+                job.succeeded(runner.run(job.getArgs().toArray(new String[0])));
+                logger.info("Job " + job.getId() + " succeeded");
+            } finally {
+                if (bulkLoad) {
+                    bulkLoadLock.unlock();
+                }
+            }
+        } catch (Exception | Error e) {
+            job.failed(e);
+            logger.error("Job " + job.getId() + " failed: " + e);
+        }
+        synchronized (jobs) {
+            ++finishedJobs;
+            // forget the oldest finished jobs, queued and running jobs are always kept
+            for (Iterator<IngestJob> it = jobs.values().iterator();
+                 finishedJobs > MAX_FINISHED_JOBS && it.hasNext(); ) {
+                if (it.next().isFinished()) {
+                    it.remove();
+                    --finishedJobs;
+                }
+            }
+        }
+    }
+
+    /** Returns whether the command loads the log index with refreshes and replicas disabled. */
+    private static boolean isBulkLoad(final List<String> args) {
+        if (!args.get(0).equals("index"))
+            return false;
+        for (String arg : args) {
+            if (arg.equals("--bulk-load") || arg.startsWith("--bulk-load=")
+                    || arg.equals("--alias") || arg.startsWith("--alias="))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param id Id of a job.
+     * @return The job, null if there is no such job or it was forgotten.
+     */
+    public IngestJob get(final long id) {
+        synchronized (jobs) {
+            return jobs.get(id);
+        }
+    }
+
+    /**
+     * @return The known jobs in the order they were submitted.
+     */
+    public List<IngestJob> list() {
+        synchronized (jobs) {
+            return Collections.unmodifiableList(new ArrayList<>(jobs.values()));
+        }
+    }
+
+    /**
+     * @return Number of jobs waiting to run.
+     */
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Stops accepting jobs and interrupts the running jobs, queued jobs are dropped.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    static {
+        BasicConfigurator.configure();
+    }
+}
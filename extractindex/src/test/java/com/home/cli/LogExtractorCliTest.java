@@ -0,0 +1,91 @@
+package com.home.cli;
+
+import com.carrotsearch.hppc.cursors.ObjectObjectCursor;
+import com.home.index.LazyClient;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.metadata.AliasMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.node.Node;
+import org.elasticsearch.node.NodeBuilder;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link LogExtractorCli} class against an embedded local elastic search node.
+ */
+public class LogExtractorCliTest {
+    private static final String TEST_LOG = "src/test/java/resources/TestLog.txt";
+
+    @ClassRule
+    public static TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static Node node;
+
+    private static Client client;
+
+    @BeforeClass
+    public static void startNode() throws IOException {
+        node = NodeBuilder.nodeBuilder().local(true).settings(Settings.settingsBuilder()
+                .put("path.home", temporaryFolder.newFolder().getPath())
+                .put("cluster.name", "cli-test")
+                .put("http.enabled", false)).node();
+        client = node.client();
+        client.admin().cluster().prepareHealth().setWaitForYellowStatus().get();
+    }
+
+    @AfterClass
+    public static void stopNode() {
+        node.close();
+    }
+
+    @Test
+    public void test_failing_file_aborts_alias_load() throws IOException {
+        Path logs = temporaryFolder.newFolder().toPath();
+        Files.copy(Paths.get(TEST_LOG), logs.resolve("first.txt"));
+        LogExtractorCli cli = new LogExtractorCli(new LazyClient(() -> client));
+        RunSummary summary = cli.execute("index", logs.toString(), "60", "--alias", "--progress=0");
+        assertEquals(0, summary.getFailedFiles());
+        Set<String> live = aliasedIndices();
+        assertEquals(1, live.size());
+
+        Files.copy(Paths.get(TEST_LOG), logs.resolve("second.txt"));
+        Files.write(logs.resolve("broken.gz"), "no gzip data".getBytes(StandardCharsets.UTF_8));
+        try {
+            cli.execute("index", logs.toString(), "60", "--alias", "--progress=0");
+            fail("Load with a failing file must not finish");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("aborted"));
+        }
+        assertEquals(live, aliasedIndices());
+        assertEquals(live, indices());
+        assertEquals(3, client.prepareSearch("logindex").setSize(0).get().getHits().getTotalHits());
+    }
+
+    private Set<String> aliasedIndices() {
+        Set<String> indices = new TreeSet<>();
+        for (ObjectObjectCursor<String, List<AliasMetaData>> entry
+                : client.admin().indices().prepareGetAliases("logindex").get().getAliases()) {
+            indices.add(entry.key);
+        }
+        return indices;
+    }
+
+    private Set<String> indices() {
+        return new TreeSet<>(Arrays.asList(client.admin().indices().prepareGetIndex().get().getIndices()));
+    }
+}
@@ -0,0 +1,56 @@
+package com.home.common;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the {@link DocumentPipeline} class.
+ */
+public class DocumentPipelineTest {
+
+    @Test
+    public void test_sink_receives_documents_in_order() throws IOException {
+        DocumentPipeline pipeline = new DocumentPipeline(4, 3);
+        List<String> received = new ArrayList<>();
+        long count = pipeline.run(documents(1000), doc -> {
+            if (Integer.parseInt(doc.getId()) % 7 == 0) {
+                Thread.yield();
+            }
+            return doc.getId();
+        }, received::add);
+        assertEquals(1000, count);
+        for (int i = 0; i < 1000; ++i) {
+            assertEquals(String.valueOf(i), received.get(i));
+        }
+    }
+
+    @Test
+    public void test_null_serialization_skips_document() throws IOException {
+        DocumentPipeline pipeline = new DocumentPipeline(2, 2);
+        List<String> received = new ArrayList<>();
+        long count = pipeline.run(documents(10), doc -> doc.getId().equals("5") ? null : doc.getId(), received::add);
+        assertEquals(9, count);
+        assertFalse(received.contains("5"));
+    }
+
+    @Test(expected = IOException.class)
+    public void test_sink_failure_stops_pipeline() throws IOException {
+        DocumentPipeline pipeline = new DocumentPipeline(2, 2);
+        pipeline.run(documents(Integer.MAX_VALUE), LogDocument::getId, id -> {
+            if (id.equals("100")) {
+                throw new IOException("disk full");
+            }
+        });
+    }
+
+    private Stream<LogDocument> documents(int count) {
+        return IntStream.range(0, count).mapToObj(LogDocument::new);
+    }
+}
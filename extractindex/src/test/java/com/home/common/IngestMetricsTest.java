@@ -0,0 +1,58 @@
+package com.home.common;
+
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the {@link IngestMetrics} class.
+ */
+public class IngestMetricsTest {
+
+    @Test
+    public void test_histograms_and_percentiles() {
+        IngestMetrics metrics = new IngestMetrics();
+        for (int i = 0; i < 99; ++i) {
+            metrics.addDocument(100);
+        }
+        metrics.addDocument(5000);
+        assertEquals(100, metrics.getDocumentsEmitted());
+        assertEquals(99 * 100 + 5000, metrics.getDocumentBytes());
+        assertEquals(99, metrics.getDocumentSizeHistogram()[IngestMetrics.bucket(100)]);
+        assertEquals(127, metrics.getDocumentBytesP50());
+        assertEquals(127, metrics.getDocumentBytesP99());
+
+        metrics.addBulk(0, 10);
+        metrics.addBulk(2, 30);
+        assertEquals(2, metrics.getBulkRequests());
+        assertEquals(2, metrics.getBulkFailures());
+        assertEquals(20.0, metrics.getBulkLatencyMillisAverage(), 1e-9);
+        assertEquals(30, metrics.getBulkLatencyMillisMax());
+        assertEquals(31, metrics.getBulkLatencyMillisP99());
+    }
+
+    @Test
+    public void test_reset_clears_counters() {
+        IngestMetrics metrics = new IngestMetrics();
+        metrics.addLines(10, 200, 2, 1);
+        metrics.addSaved(4, 1);
+        assertEquals(3, metrics.getParseFailures());
+        assertEquals(1, metrics.getDroppedLines());
+        metrics.reset();
+        assertEquals(0, metrics.getLinesRead());
+        assertEquals(0, metrics.getBytesRead());
+        assertEquals(0, metrics.getParseFailures());
+        assertEquals(0, metrics.getDocumentsSaved());
+        assertEquals(0, metrics.getDocumentBytesP99());
+    }
+
+    @Test
+    public void test_global_metrics_are_registered() throws Exception {
+        IngestMetrics.global();
+        assertTrue(ManagementFactory.getPlatformMBeanServer()
+                .isRegistered(new ObjectName(IngestMetrics.OBJECT_NAME)));
+    }
+}
@@ -0,0 +1,63 @@
+package com.home.common;
+
+import org.junit.Test;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the {@link LogDocument} class.
+ */
+public class LogDocumentTest {
+
+    @Test
+    public void test_add_line_removes_slashes() {
+        LogDocument document = new LogDocument(1);
+        document.addLine(" Anna: see http://host/a/b");
+        document.addLine(CharBuffer.wrap("//x/"));
+        document.addLine("");
+        assertEquals(Arrays.asList(" Anna: see http:hostab", "x", ""), document.getText());
+        assertEquals(3, document.getLineCount());
+        assertFalse(document.isEmpty());
+        assertTrue(new LogDocument(2).isEmpty());
+    }
+
+    @Test
+    public void test_cleared_document_is_reused() {
+        LogDocument document = new LogDocument("a");
+        document.addLine(" Anna: a long first message");
+        document.addTime(1262337120000L);
+        document.addSpeaker("Anna", 0, 4);
+        document.clear();
+        assertTrue(document.isEmpty());
+        assertEquals(0, document.getLineCount());
+        assertNull(document.getStartTime());
+        assertTrue(document.getSpeakers().isEmpty());
+
+        document.addLine(" Bob: hi");
+        document.addTime(1262337121000L);
+        assertEquals(Arrays.asList(" Bob: hi"), document.getText());
+        assertEquals(Long.valueOf(1262337121000L), document.getStartTime());
+        assertEquals(Long.valueOf(1262337121000L), document.getEndTime());
+        assertEquals("a", document.getId());
+    }
+
+    @Test
+    public void test_append_and_to_string() {
+        LogDocument first = new LogDocument("a");
+        LogDocument second = new LogDocument("b");
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100; ++i) {
+            String line = " Bob: message " + i;
+            (i < 30 ? first : second).addLine(line);
+            expected.append(line).append(System.lineSeparator());
+        }
+        first.append(second);
+        assertEquals(100, first.getLineCount());
+        assertEquals(" Bob: message 42", first.getLine(42));
+        assertEquals(expected.toString(), first.toString());
+        assertEquals("a", first.getId());
+    }
+}
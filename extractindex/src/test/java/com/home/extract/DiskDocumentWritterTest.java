@@ -0,0 +1,86 @@
+package com.home.extract;
+
+import com.home.common.IngestMetrics;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link DiskDocumentWritter} class.
+ */
+public class DiskDocumentWritterTest {
+    private static final String TEST_LOG = "src/test/java/resources/TestLog.txt";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void test_async_writes_files_and_store() throws IOException {
+        Path files = temporaryFolder.newFolder().toPath();
+        DiskDocumentWritter writter = new DiskDocumentWritter(SkypeLogDocExtractor.getInstance(TEST_LOG, 60));
+        writter.setAsync(2, 1);
+        writter.setFlushPolicy(FlushPolicy.every(2, 0));
+        assertEquals(3, writter.saveDocuments(files.toString(), "doc", Long.MAX_VALUE));
+        assertEquals(0, writter.getFailedCount());
+        assertEquals(0, writter.getSyncFailures());
+        for (int i = 1; i <= 3; ++i) {
+            assertTrue(Files.size(files.resolve("doc" + i)) > 0);
+        }
+
+        Path store = temporaryFolder.newFolder().toPath();
+        writter = new DiskDocumentWritter(SkypeLogDocExtractor.getInstance(TEST_LOG, 60));
+        writter.setLayout(DiskDocumentWritter.Layout.STORE);
+        writter.setAsync(4, 1);
+        writter.setFlushPolicy(FlushPolicy.atEnd());
+        assertEquals(3, writter.saveDocuments(store.toString(), "doc", Long.MAX_VALUE));
+        try (DocumentStoreReader reader = DocumentStoreReader.open(store, "doc")) {
+            // a single writer thread keeps the order of the documents
+            for (int i = 1; i <= 3; ++i) {
+                assertArrayEquals(Files.readAllBytes(files.resolve("doc" + i)), reader.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void test_failed_documents_are_counted() throws IOException {
+        String missing = temporaryFolder.getRoot().toPath().resolve("missing").toString();
+        for (int writerThreads : new int[] { 0, 2 }) {
+            DiskDocumentWritter writter = new DiskDocumentWritter(SkypeLogDocExtractor.getInstance(TEST_LOG, 60));
+            writter.setAsync(writerThreads, 16);
+            assertEquals(0, writter.saveDocuments(missing, "doc", Long.MAX_VALUE));
+            assertEquals(3, writter.getFailedCount());
+        }
+    }
+
+    @Test
+    public void test_stages_record_metrics() throws IOException {
+        IngestMetrics metrics = IngestMetrics.global();
+        long lines = metrics.getLinesRead();
+        long bytes = metrics.getBytesRead();
+        long emitted = metrics.getDocumentsEmitted();
+        long saved = metrics.getDocumentsSaved();
+        DiskDocumentWritter writter = new DiskDocumentWritter(SkypeLogDocExtractor.getInstance(TEST_LOG, 60,
+                SkypeLogDocExtractor.ReaderType.MAPPED));
+        assertEquals(3, writter.saveDocuments(temporaryFolder.newFolder().toString(), "doc", Long.MAX_VALUE));
+        assertEquals(Files.readAllLines(Paths.get(TEST_LOG)).size(), metrics.getLinesRead() - lines);
+        assertEquals(Files.size(Paths.get(TEST_LOG)), metrics.getBytesRead() - bytes);
+        assertEquals(3, metrics.getDocumentsEmitted() - emitted);
+        assertEquals(3, metrics.getDocumentsSaved() - saved);
+    }
+
+    @Test
+    public void test_flush_policy_is_parsed() {
+        assertEquals(FlushPolicy.Mode.NONE, FlushPolicy.parse("none").getMode());
+        assertEquals(FlushPolicy.Mode.AT_END, FlushPolicy.parse("end").getMode());
+        assertTrue(FlushPolicy.parse("1000").isDue(1000, 0));
+        assertFalse(FlushPolicy.parse("1000").isDue(999, 1L << 40));
+        assertTrue(FlushPolicy.parse("2mb").isDue(1, 2 * 1024 * 1024));
+    }
+}
@@ -0,0 +1,69 @@
+package com.home.extract;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link DocumentStoreWriter} and {@link DocumentStoreReader} classes.
+ */
+public class DocumentStoreTest {
+    private static final String TEST_LOG = "src/test/java/resources/TestLog.txt";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static byte[] document(int number) {
+        StringBuilder builder = new StringBuilder("document " + number);
+        for (int i = 0; i < number % 7; ++i) {
+            builder.append("\n[10:00:0").append(i).append("] Alice: line ").append(i);
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void test_documents_are_fetched_and_iterated_across_segments() throws IOException {
+        Path directory = temporaryFolder.newFolder().toPath();
+        try (DocumentStoreWriter writer = new DocumentStoreWriter(directory, "doc", 256, 1024)) {
+            for (int i = 1; i <= 500; ++i) {
+                writer.add(document(i));
+            }
+            assertEquals(500, writer.getCount());
+        }
+        assertTrue(Files.exists(directory.resolve("doc.00001.docs")));
+
+        try (DocumentStoreReader reader = DocumentStoreReader.open(directory, "doc")) {
+            assertEquals(500, reader.getDocCount());
+            assertArrayEquals(document(1), reader.get(1));
+            assertArrayEquals(document(500), reader.get(500));
+            assertArrayEquals(document(123), reader.get(123));
+            assertArrayEquals(document(7), reader.get(7));
+
+            int number = 0;
+            for (byte[] document : reader) {
+                assertArrayEquals(document(++number), document);
+            }
+            assertEquals(500, number);
+        }
+    }
+
+    @Test
+    public void test_disk_document_writter_saves_store() throws IOException {
+        Path directory = temporaryFolder.newFolder().toPath();
+        DiskDocumentWritter writter = new DiskDocumentWritter(SkypeLogDocExtractor.getInstance(TEST_LOG, 60));
+        writter.setLayout(DiskDocumentWritter.Layout.STORE);
+        assertEquals(3, writter.saveDocuments(directory.toString(), "log", Long.MAX_VALUE));
+
+        try (DocumentStoreReader reader = DocumentStoreReader.open(directory, "log")) {
+            assertEquals(3, reader.getDocCount());
+            assertTrue(new String(reader.get(1), StandardCharsets.UTF_8).length() > 0);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.home.extract;
+
+import com.home.common.LogDocument;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the {@link DuplicateIndex} and {@link DedupLogDocExtractor} classes.
+ */
+public class DuplicateIndexTest {
+
+    private static final String TEXT = "the build of the release branch failed again because the integration "
+            + "tests of the search module timed out while the cluster was restarting after the upgrade of the "
+            + "nodes, please rerun the job once the cluster is green and report the result in this channel";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /** Text of random words, texts of different seeds share hardly any shingles. */
+    private static String randomText(int seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 40; ++i) {
+            text.append(TEXT.split(" ")[random.nextInt(30)]).append(' ');
+        }
+        return text.toString();
+    }
+
+    private static LogDocument document(String id, String... lines) {
+        LogDocument document = new LogDocument(id);
+        for (String line : lines) {
+            document.addLine(line);
+        }
+        return document;
+    }
+
+    @Test
+    public void test_exact_and_near_duplicates_are_found() throws IOException {
+        try (DuplicateIndex index = new DuplicateIndex(0.8, 16, temporaryFolder.getRoot().toPath())) {
+            assertEquals(DuplicateIndex.Match.NONE, index.check(document("1", "bot: " + TEXT)));
+            assertEquals(DuplicateIndex.Match.EXACT, index.check(document("2", "bot: " + TEXT)));
+            assertEquals(DuplicateIndex.Match.NEAR, index.check(document("3", "Bot: " + TEXT + " thanks")));
+            assertEquals(DuplicateIndex.Match.NONE, index.check(document("4", "anna: lunch at noon?")));
+            assertEquals(DuplicateIndex.Match.NEAR, index.check(document("5", "bot: " + TEXT, "anna: " + TEXT)));
+            assertEquals(DuplicateIndex.Match.NONE, index.check(document("6", "bot: " + randomText(1))));
+            assertEquals(3, index.getUniqueCount());
+            assertEquals(1, index.getExactDuplicateCount());
+            assertEquals(2, index.getNearDuplicateCount());
+        }
+    }
+
+    @Test
+    public void test_spilled_documents_are_found() throws IOException {
+        Path spill = temporaryFolder.newFolder("spill").toPath();
+        try (DuplicateIndex index = new DuplicateIndex(0.8, 2, spill)) {
+            for (int i = 0; i < 10; ++i) {
+                assertEquals(DuplicateIndex.Match.NONE, index.check(document("u" + i, randomText(i))));
+            }
+            assertEquals(4, index.getSpillFileCount());
+            for (int i = 0; i < 10; ++i) {
+                assertEquals(DuplicateIndex.Match.EXACT, index.check(document("e" + i, randomText(i))));
+                assertEquals(DuplicateIndex.Match.NEAR, index.check(document("n" + i, randomText(i) + "!", "ok")));
+            }
+            assertEquals(4, Files.list(spill).count());
+        }
+        assertEquals(0, Files.list(spill).count());
+    }
+
+    @Test
+    public void test_threshold_one_only_drops_equal_text() {
+        try (DuplicateIndex index = new DuplicateIndex(1.0)) {
+            assertEquals(DuplicateIndex.Match.NONE, index.check(document("1", TEXT)));
+            assertEquals(DuplicateIndex.Match.NONE, index.check(document("2", TEXT + " thanks")));
+            assertEquals(DuplicateIndex.Match.EXACT, index.check(document("3", TEXT)));
+            assertEquals(DuplicateIndex.Match.EXACT, index.check(document("4", TEXT + " thanks")));
+        }
+    }
+
+    @Test
+    public void test_too_many_documents_in_memory_are_rejected() {
+        try {
+            new DuplicateIndex(0.1, (1 << 24) - 1, temporaryFolder.getRoot().toPath());
+            fail("Hash table of more than 2^30 entries should be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("documents fit in memory"));
+        }
+    }
+
+    @Test
+    public void test_extractor_skips_duplicate_documents() throws IOException {
+        Path log = temporaryFolder.newFile("dup.log").toPath();
+        Files.write(log, Arrays.asList("[10.10.2015 10:00:00] bot: " + TEXT, "[10.10.2015 12:00:00] bot: " + TEXT,
+                "[10.10.2015 14:00:00] anna: hi", "[10.10.2015 16:00:00] bot: " + TEXT), StandardCharsets.UTF_8);
+        try (DuplicateIndex index = new DuplicateIndex(0.9)) {
+            LogDocExtractor extractor = new LogDocExtractorBuilder(log.toString(), 60).duplicates(index).build();
+            List<String> ids = new ArrayList<>();
+            while (extractor.hasNext()) {
+                ids.add(extractor.current().getId());
+                extractor.parseNext();
+            }
+            assertEquals(Arrays.asList("0", "2"), ids);
+            assertEquals(2, index.getExactDuplicateCount());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.home.extract;
+
+import com.home.common.LogDocument;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the {@link JsonLinesLogDocExtractor} and {@link LogFormat} classes.
+ */
+public class JsonLinesLogDocExtractorTest {
+    private static final String TEST_LOG = "src/test/java/resources/TestLog.txt";
+
+    private static final List<String> LOG = Arrays.asList(
+            "{\"message\":\"dropped before the first message\"}",
+            "{\"timestamp\":\"2015-10-10T10:00:00Z\",\"speaker\":\"Anna\",\"message\":\"hello\",\"extra\":{\"a\":[1,2]}}",
+            "{\"message\":\"continued\"}",
+            "{\"level\":\"INFO\",\"timestamp\":1444471260000,\"message\":\"second\\nline\",\"speaker\":\"Bob\"}",
+            "not json",
+            "",
+            "{\"timestamp\":1444478400.5,\"message\":\"later\"}");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void test_messages_form_documents_by_time_gap() throws IOException {
+        Path log = write("log.json");
+        JsonLinesLogDocExtractor extractor = JsonLinesLogDocExtractor.getInstance(log.toString(), 60);
+        List<LogDocument> documents = extractAll(extractor);
+        assertEquals(2, documents.size());
+        assertEquals(Arrays.asList("Anna: hello", "continued", "Bob: second", "line"), documents.get(0).getText());
+        assertEquals(Arrays.asList("Anna", "Bob"), documents.get(0).getSpeakers());
+        assertEquals("0", documents.get(0).getId());
+        assertEquals(Arrays.asList("later"), documents.get(1).getText());
+        assertEquals(Long.valueOf(1444478400500L), documents.get(1).getStartTime());
+        assertEquals(1, extractor.getContinuationLineCount());
+        assertEquals(2, extractor.getDroppedLineCount());
+    }
+
+    @Test
+    public void test_format_is_detected() throws IOException {
+        Path log = write("log.json");
+        Path compressed = temporaryFolder.getRoot().toPath().resolve("log.json.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed))) {
+            Files.copy(log, out);
+        }
+        assertEquals(LogFormat.SKYPE, LogFormat.detect(TEST_LOG));
+        assertEquals(LogFormat.JSON_LINES, LogFormat.detect(log.toString()));
+        assertEquals(LogFormat.JSON_LINES, LogFormat.detect(compressed.toString()));
+
+        LogDocExtractor extractor = new LogDocExtractorBuilder(compressed.toString(), 60).docIdPrefix("a:").build();
+        assertTrue(extractor instanceof JsonLinesLogDocExtractor);
+        List<LogDocument> documents = extractAll(extractor);
+        assertEquals(2, documents.size());
+        assertEquals("a:1", documents.get(1).getId());
+        assertTrue(new LogDocExtractorBuilder(TEST_LOG, 60).build() instanceof SkypeLogDocExtractor);
+    }
+
+    @Test
+    public void test_configured_fields_are_read() throws IOException {
+        Path log = temporaryFolder.getRoot().toPath().resolve("custom.json");
+        Files.write(log, Arrays.asList("{\"ts\":\"2015-10-10T10:00:00\",\"msg\":\"one\",\"message\":\"ignored\"}",
+                "{\"ts\":\"2015-10-10T10:00:30\",\"msg\":\"two\"}"), StandardCharsets.UTF_8);
+        LogDocExtractor extractor = new LogDocExtractorBuilder(log.toString(), 1).format(LogFormat.JSON_LINES)
+                .jsonFields("ts", "msg", "user").build();
+        List<LogDocument> documents = extractAll(extractor);
+        assertEquals(1, documents.size());
+        assertEquals(Arrays.asList("one", "two"), documents.get(0).getText());
+        assertTrue(documents.get(0).getSpeakers().isEmpty());
+    }
+
+    private Path write(final String name) throws IOException {
+        Path log = temporaryFolder.getRoot().toPath().resolve(name);
+        Files.write(log, LOG, StandardCharsets.UTF_8);
+        return log;
+    }
+
+    private static List<LogDocument> extractAll(final LogDocExtractor extractor) {
+        List<LogDocument> documents = new ArrayList<>();
+        while (extractor.hasNext()) {
+            documents.add(extractor.current());
+            extractor.parseNext();
+        }
+        return documents;
+    }
+}
@@ -0,0 +1,122 @@
+package com.home.extract;
+
+import com.home.common.LogDocument;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the {@link LogDocExtractorBuilder}, {@link LogFiles} and {@link CheckpointStore} classes.
+ */
+public class LogDocExtractorBuilderTest {
+    private static final String TEST_LOG = "src/test/java/resources/TestLog.txt";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void test_gzip_log_same_as_plain_log() throws IOException {
+        File compressed = temporaryFolder.newFile("TestLog.txt.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed.toPath()))) {
+            Files.copy(Paths.get(TEST_LOG), out);
+        }
+        for (int threads : new int[] { 1, 2 }) {
+            List<LogDocument> expected = extractAll(new LogDocExtractorBuilder(TEST_LOG, 60).build());
+            List<LogDocument> actual = extractAll(new LogDocExtractorBuilder(compressed.getPath(), 60)
+                    .threads(threads).build());
+            assertEquals(3, expected.size());
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); ++i) {
+                assertEquals(expected.get(i).getText(), actual.get(i).getText());
+            }
+        }
+    }
+
+    @Test
+    public void test_doc_id_prefix() throws IOException {
+        for (int threads : new int[] { 1, 2 }) {
+            List<LogDocument> documents = extractAll(new LogDocExtractorBuilder(TEST_LOG, 60)
+                    .threads(threads).docIdPrefix("a/TestLog.txt:").build());
+            for (int i = 0; i < documents.size(); ++i) {
+                assertEquals("a/TestLog.txt:" + i, documents.get(i).getId());
+            }
+        }
+    }
+
+    @Test
+    public void test_resolve_directory_and_glob() throws IOException {
+        File root = temporaryFolder.newFolder("logs");
+        Files.createDirectories(root.toPath().resolve("b"));
+        for (String name : new String[] { "a.txt", "a.txt.gz", "b/c.txt" }) {
+            Files.write(root.toPath().resolve(name), new byte[0]);
+        }
+        List<Path> all = LogFiles.resolve(root.getPath());
+        assertEquals(3, all.size());
+        assertEquals("b/c.txt", LogFiles.relativeName(root.getPath(), all.get(2)));
+
+        String glob = root.getPath() + "/**.txt";
+        List<Path> texts = LogFiles.resolve(glob);
+        assertEquals(2, texts.size());
+        assertEquals("a.txt", LogFiles.relativeName(glob, texts.get(0)));
+        assertEquals("b/c.txt", LogFiles.relativeName(glob, texts.get(1)));
+
+        assertEquals(1, LogFiles.resolve(root.getPath() + "/*.gz").size());
+        assertTrue(LogFiles.resolve(root.getPath() + "/missing").isEmpty());
+    }
+
+    @Test
+    public void test_incremental_runs_continue_at_checkpoint() throws IOException {
+        File log = temporaryFolder.newFile("growing.txt");
+        Path checkpointFile = temporaryFolder.getRoot().toPath().resolve("checkpoints.json");
+        Files.write(log.toPath(), ("[01.01.2010 10:00:00] Anna: first\n"
+                + "[01.01.2010 12:00:00] Bob: second\n").getBytes());
+
+        SkypeLogDocExtractor extractor = new LogDocExtractorBuilder(log.getPath(), 60).buildIncremental(null, false);
+        List<LogDocument> documents = extractAll(extractor);
+        assertEquals(1, documents.size());
+        assertEquals("0", documents.get(0).getId());
+        new CheckpointStore(checkpointFile).put(log.toPath(), extractor.checkpoint());
+
+        Files.write(log.toPath(), ("[01.01.2010 12:10:00] Anna: third\n"
+                + "[01.01.2010 14:00:00] Bob: fourth\n").getBytes(), StandardOpenOption.APPEND);
+        Checkpoint checkpoint = new CheckpointStore(checkpointFile).get(log.toPath());
+        extractor = new LogDocExtractorBuilder(log.getPath(), 60).buildIncremental(checkpoint, true);
+        documents = extractAll(extractor);
+        assertEquals(2, documents.size());
+        assertEquals("1", documents.get(0).getId());
+        assertEquals(Arrays.asList(" Bob: second", " Anna: third"), documents.get(0).getText());
+        assertEquals("2", documents.get(1).getId());
+        assertEquals(Arrays.asList(" Bob: fourth"), documents.get(1).getText());
+
+        checkpoint = extractor.checkpoint();
+        assertEquals(2, checkpoint.getDocumentNumber());
+        assertEquals(log.length(), checkpoint.getFileSize());
+        assertTrue(checkpoint.isLastDocumentExtracted());
+        documents = extractAll(new LogDocExtractorBuilder(log.getPath(), 60).buildIncremental(checkpoint, true));
+        assertEquals(1, documents.size());
+        assertEquals("2", documents.get(0).getId());
+    }
+
+    private List<LogDocument> extractAll(LogDocExtractor extractor) {
+        List<LogDocument> documents = new ArrayList<>();
+        while (extractor.hasNext()) {
+            documents.add(extractor.current());
+            extractor.parseNext();
+        }
+        return documents;
+    }
+}
@@ -0,0 +1,85 @@
+package com.home.extract;
+
+import com.home.common.LogDocument;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the {@link MergingLogDocExtractor} class.
+ */
+public class MergingLogDocExtractorTest {
+    private static final String TEST_LOG = "src/test/java/resources/TestLog.txt";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void test_conversation_spread_over_files_is_merged() throws IOException {
+        Path first = write("first.log", "[10.10.2015 10:00:00] Anna: hi", "[10.10.2015 10:02:00] Anna: there",
+                "continuation", "[10.10.2015 14:00:00] Anna: later");
+        Path second = write("second.log", "dropped", "[10.10.2015 10:01:00] Bob: hello",
+                "[10.10.2015 10:03:00] Bob: bye");
+        for (SkypeLogDocExtractor.ReaderType readerType : SkypeLogDocExtractor.ReaderType.values()) {
+            MergingLogDocExtractor extractor = MergingLogDocExtractor.getInstance(
+                    Arrays.asList(first.toString(), second.toString()), 60, "m:", readerType,
+                    SkypeLogDocExtractor.getDefaultPatterns());
+            List<LogDocument> documents = extractAll(extractor);
+            assertEquals(2, documents.size());
+            assertEquals(Arrays.asList(" Anna: hi", " Bob: hello", " Anna: there", "continuation", " Bob: bye"),
+                    documents.get(0).getText());
+            assertEquals(Arrays.asList("Anna", "Bob"), documents.get(0).getSpeakers());
+            assertEquals("m:0", documents.get(0).getId());
+            assertEquals(Arrays.asList(" Anna: later"), documents.get(1).getText());
+            assertEquals(1, extractor.getContinuationLineCount());
+            assertEquals(1, extractor.getDroppedLineCount());
+        }
+    }
+
+    @Test
+    public void test_single_file_same_as_skype_extractor() throws IOException {
+        List<LogDocument> expected = extractAll(SkypeLogDocExtractor.getInstance(TEST_LOG, 60));
+        List<LogDocument> actual = extractAll(MergingLogDocExtractor.getInstance(
+                Collections.singletonList(TEST_LOG), 60));
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            assertEquals(expected.get(i).getText(), actual.get(i).getText());
+            assertEquals(expected.get(i).getStartTime(), actual.get(i).getStartTime());
+            assertEquals(expected.get(i).getEndTime(), actual.get(i).getEndTime());
+        }
+    }
+
+    @Test
+    public void test_builder_merges_several_files() throws IOException {
+        Path other = write("other.log", "[10.10.2015 10:30:00] Carol: hi");
+        LogDocExtractor extractor = new LogDocExtractorBuilder(Arrays.asList(TEST_LOG, other.toString()), 60)
+                .build();
+        assertTrue(extractor instanceof MergingLogDocExtractor);
+    }
+
+    private Path write(final String name, final String... lines) throws IOException {
+        Path log = temporaryFolder.getRoot().toPath().resolve(name);
+        Files.write(log, Arrays.asList(lines), StandardCharsets.UTF_8);
+        return log;
+    }
+
+    private static List<LogDocument> extractAll(final LogDocExtractor extractor) {
+        List<LogDocument> documents = new ArrayList<>();
+        while (extractor.hasNext()) {
+            documents.add(extractor.current());
+            extractor.parseNext();
+        }
+        return documents;
+    }
+}
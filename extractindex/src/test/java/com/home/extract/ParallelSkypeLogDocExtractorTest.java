@@ -0,0 +1,88 @@
+package com.home.extract;
+
+import com.home.common.LogDocument;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the {@link ParallelSkypeLogDocExtractor} class.
+ */
+public class ParallelSkypeLogDocExtractorTest {
+    private static final String TEST_LOG = "src/test/java/resources/TestLog.txt";
+
+    private static final String PATTERN = "[dd.MM.yyyy HH:mm:ss]";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void test_same_documents_as_sequential_for_all_chunk_sizes() throws IOException {
+        assertSameAsSequential(TEST_LOG);
+    }
+
+    @Test
+    public void test_same_continuation_lines_as_sequential() throws IOException {
+        File log = temporaryFolder.newFile("continuation.txt");
+        Files.write(log.toPath(), ("first\nsecond\n"
+                + "[01.01.2010 10:12:00] Anna: trace\n"
+                + "java.lang.NullPointerException\n"
+                + "\tat Foo.bar(Foo.java:1)\n"
+                + "\n"
+                + "[01.01.2010 10:12:01] Anna: again\n"
+                + "[01.01.2010 12:12:01] Bob: next\n"
+                + "continued\n").getBytes());
+        assertSameAsSequential(log.getPath());
+
+        ParallelSkypeLogDocExtractor extractor = ParallelSkypeLogDocExtractor.getInstance(log.getPath(), 60, 2, 7,
+                PATTERN);
+        extractAll(extractor);
+        assertEquals(4, extractor.getContinuationLineCount());
+        assertEquals(2, extractor.getDroppedLineCount());
+    }
+
+    private void assertSameAsSequential(String filename) throws IOException {
+        for (long maxMinutes : new long[] { 0, 60, Long.MAX_VALUE }) {
+            List<LogDocument> expected = extractAll(SkypeLogDocExtractor.getInstance(filename, maxMinutes, PATTERN));
+            for (long chunkSize = 1; chunkSize < 300; ++chunkSize) {
+                List<LogDocument> actual = extractAll(
+                        ParallelSkypeLogDocExtractor.getInstance(filename, maxMinutes, 3, chunkSize, PATTERN));
+                assertEquals(expected.size(), actual.size());
+                for (int i = 0; i < expected.size(); ++i) {
+                    assertEquals(expected.get(i).getId(), actual.get(i).getId());
+                    assertEquals(expected.get(i).getText(), actual.get(i).getText());
+                    assertEquals(expected.get(i).getStartTime(), actual.get(i).getStartTime());
+                    assertEquals(expected.get(i).getEndTime(), actual.get(i).getEndTime());
+                    assertEquals(expected.get(i).getSpeakers(), actual.get(i).getSpeakers());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_60_min_gaps() throws IOException {
+        ParallelSkypeLogDocExtractor extractor = ParallelSkypeLogDocExtractor.getInstance(TEST_LOG, 60, 2, 20, PATTERN);
+        for(int i = 0; i < 3; ++i) {
+            assertTrue(extractor.hasNext());
+            extractor.parseNext();
+        }
+        assertTrue(!extractor.hasNext());
+    }
+
+    private List<LogDocument> extractAll(LogDocExtractor extractor) {
+        List<LogDocument> documents = new ArrayList<>();
+        while (extractor.hasNext()) {
+            documents.add(extractor.current());
+            extractor.parseNext();
+        }
+        return documents;
+    }
+}
@@ -1,9 +1,24 @@
 package com.home.extract;
 
+import com.home.common.IngestMetrics;
+import com.home.common.LogDocument;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.Assert.*;
 
@@ -13,6 +28,9 @@ import static org.junit.Assert.*;
 public class SkypeLogDocExtractorTest {
     private SkypeLogDocExtractor skypeLogDocExtractor;
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Before
     public void setUp() throws IOException {
         skypeLogDocExtractor = SkypeLogDocExtractor.getInstance("src/test/java/resources/TestLog.txt",
@@ -49,4 +67,143 @@ public class SkypeLogDocExtractorTest {
         }
         assertTrue(!skypeLogDocExtractor.hasNext());
     }
+
+    @Test
+    public void test_mapped_reader_same_as_buffered_reader() throws IOException {
+        File log = temporaryFolder.newFile("mixed.txt");
+        Files.write(log.toPath(), ("[01.01.2010 10:12:00] Anna: \u00fcber/line1\r\n"
+                + "[01.01.2010 10:12:01] line2\r"
+                + "no time stamp\n"
+                + "\n"
+                + "[01.01.2010 12:12:01] Bob: line3\n"
+                + "[01.01.2010 12:12:02] line4").getBytes());
+        for (long maxMinutes : new long[] { 0, 60 }) {
+            SkypeLogDocExtractor buffered = SkypeLogDocExtractor.getInstance(log.getPath(), maxMinutes,
+                    SkypeLogDocExtractor.ReaderType.BUFFERED, "[dd.MM.yyyy HH:mm:ss]");
+            SkypeLogDocExtractor mapped = SkypeLogDocExtractor.getInstance(log.getPath(), maxMinutes,
+                    SkypeLogDocExtractor.ReaderType.MAPPED, "[dd.MM.yyyy HH:mm:ss]");
+            while (buffered.hasNext()) {
+                assertTrue(mapped.hasNext());
+                LogDocument expected = buffered.current();
+                assertEquals(expected.getText(), mapped.current().getText());
+                buffered.parseNext();
+                mapped.parseNext();
+            }
+            assertTrue(!mapped.hasNext());
+        }
+    }
+
+    @Test
+    public void test_lines_without_time_stamp_continue_previous_message() throws IOException {
+        File log = temporaryFolder.newFile("continuation.txt");
+        Files.write(log.toPath(), ("dropped before first message\n"
+                + "[01.01.2010 10:12:00] Anna: trace\n"
+                + "java.lang.NullPointerException\n"
+                + "\tat Foo.bar(Foo.java:1)\n"
+                + "[01.01.2010 12:12:01] Bob: next\n"
+                + "continued").getBytes());
+        skypeLogDocExtractor = SkypeLogDocExtractor.getInstance(log.getPath(), 60, "[dd.MM.yyyy HH:mm:ss]");
+        assertTrue(skypeLogDocExtractor.hasNext());
+        assertEquals(Arrays.asList(" Anna: trace", "java.lang.NullPointerException", "\tat Foo.bar(Foo.java:1)"),
+                skypeLogDocExtractor.current().getText());
+        skypeLogDocExtractor.parseNext();
+        assertEquals(Arrays.asList(" Bob: next", "continued"), skypeLogDocExtractor.current().getText());
+        skypeLogDocExtractor.parseNext();
+        assertTrue(!skypeLogDocExtractor.hasNext());
+        assertEquals(3, skypeLogDocExtractor.getContinuationLineCount());
+        assertEquals(1, skypeLogDocExtractor.getDroppedLineCount());
+    }
+
+    @Test
+    public void test_documents_carry_times_and_speakers() throws IOException {
+        File log = temporaryFolder.newFile("speakers.txt");
+        Files.write(log.toPath(), ("[01.01.2010 10:12:00] Anna: hello\n"
+                + "[01.01.2010 10:12:30] Bob: time is 10:30\n"
+                + "stack trace: no speaker\n"
+                + "[01.01.2010 10:13:00] Anna: again\n"
+                + "[01.01.2010 12:13:00] no speaker here\n").getBytes());
+        skypeLogDocExtractor = SkypeLogDocExtractor.getInstance(log.getPath(), 60, "[dd.MM.yyyy HH:mm:ss]");
+        LogDocument first = skypeLogDocExtractor.current();
+        assertEquals(Arrays.asList("Anna", "Bob"), first.getSpeakers());
+        assertEquals(4, first.getLineCount());
+        assertEquals(60000, first.getEndTime() - first.getStartTime());
+        skypeLogDocExtractor.parseNext();
+        LogDocument second = skypeLogDocExtractor.current();
+        assertTrue(second.getSpeakers().isEmpty());
+        assertEquals(second.getStartTime(), second.getEndTime());
+        assertEquals(2 * 3600000, second.getStartTime() - first.getEndTime());
+    }
+
+    @Test
+    public void test_reader_is_closed_at_end_of_file_or_by_close() throws IOException {
+        AtomicInteger closed = new AtomicInteger();
+        AtomicInteger readsAfterClose = new AtomicInteger();
+        skypeLogDocExtractor = SkypeLogDocExtractor.getInstance(countingReader(closed, readsAfterClose), 60, "",
+                false, "[dd.mm.yyyy HH:mm:ss]");
+        skypeLogDocExtractor.parseNext();
+        assertEquals(0, closed.get());
+        while (skypeLogDocExtractor.hasNext()) {
+            skypeLogDocExtractor.parseNext();
+        }
+        assertEquals(1, closed.get());
+        // reading past the end must not touch the closed reader, which would fail and log an error
+        assertTrue(skypeLogDocExtractor.parseNext().isEmpty());
+        assertTrue(skypeLogDocExtractor.parseNext().isEmpty());
+        assertEquals(0, readsAfterClose.get());
+
+        try (LogDocExtractor extractor = SkypeLogDocExtractor.getInstance(countingReader(closed, readsAfterClose),
+                60, "", false, "[dd.mm.yyyy HH:mm:ss]")) {
+            assertTrue(extractor.hasNext());
+        }
+        assertEquals(2, closed.get());
+    }
+
+    private static LogLineReader countingReader(final AtomicInteger closed, final AtomicInteger readsAfterClose)
+            throws IOException {
+        CountingInputStream file = new CountingInputStream(new FileInputStream("src/test/java/resources/TestLog.txt"));
+        return new BufferedLogLineReader(new BufferedReader(new InputStreamReader(file)) {
+            @Override
+            public String readLine() throws IOException {
+                if (closed.get() > 0) {
+                    readsAfterClose.incrementAndGet();
+                }
+                return super.readLine();
+            }
+
+            @Override
+            public void close() throws IOException {
+                closed.incrementAndGet();
+                super.close();
+            }
+        }, file);
+    }
+
+    @Test
+    public void test_bytes_read_are_bytes_of_the_file_on_disk() throws IOException {
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < 2000; ++i) {
+            // umlauts and cyrillic take more than one byte per char
+            log.append(String.format("[01.01.2010 10:%02d:%02d] Zo\u00eb: gr\u00fc\u00dfe aus K\u00f6ln, "
+                    + "\u0435\u0449\u0451 \u0440\u0430\u0437 %d%n", i / 60 % 60, i % 60, i));
+        }
+        File plain = temporaryFolder.newFile("umlauts.txt");
+        Files.write(plain.toPath(), log.toString().getBytes(Charset.defaultCharset()));
+        File compressed = temporaryFolder.newFile("umlauts.txt.gz");
+        try (OutputStream output = new GZIPOutputStream(new FileOutputStream(compressed))) {
+            output.write(log.toString().getBytes(Charset.defaultCharset()));
+        }
+        assertEquals(plain.length(), bytesRead(plain, SkypeLogDocExtractor.ReaderType.BUFFERED));
+        assertEquals(plain.length(), bytesRead(plain, SkypeLogDocExtractor.ReaderType.MAPPED));
+        assertEquals(compressed.length(), bytesRead(compressed, SkypeLogDocExtractor.ReaderType.BUFFERED));
+    }
+
+    private static long bytesRead(final File file, final SkypeLogDocExtractor.ReaderType readerType)
+            throws IOException {
+        long before = IngestMetrics.global().getBytesRead();
+        SkypeLogDocExtractor extractor = SkypeLogDocExtractor.getInstance(file.getPath(), 60, readerType);
+        while (extractor.hasNext()) {
+            extractor.parseNext();
+        }
+        return IngestMetrics.global().getBytesRead() - before;
+    }
 }
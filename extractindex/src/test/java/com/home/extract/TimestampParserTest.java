@@ -0,0 +1,83 @@
+package com.home.extract;
+
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the {@link TimestampParser} class.
+ */
+public class TimestampParserTest {
+    private static final String PATTERN = "[dd.MM.yyyy HH:mm:ss]";
+
+    private DateTimeZone defaultZone;
+
+    @Before
+    public void setUp() {
+        defaultZone = DateTimeZone.getDefault();
+        DateTimeZone.setDefault(DateTimeZone.forID("Europe/Berlin"));
+    }
+
+    @After
+    public void tearDown() {
+        DateTimeZone.setDefault(defaultZone);
+    }
+
+    @Test
+    public void test_default_patterns_are_compiled() {
+        for (String pattern : SkypeLogDocExtractor.getDefaultPatterns()) {
+            assertTrue(TimestampParser.forPattern(pattern) instanceof TimestampParser.FixedLayoutParser);
+        }
+        assertFalse(TimestampParser.forPattern("[dd.mm.yyyy HH:mm:ss]") instanceof TimestampParser.FixedLayoutParser);
+        assertFalse(TimestampParser.forPattern("[dd MMM yyyy]") instanceof TimestampParser.FixedLayoutParser);
+    }
+
+    @Test
+    public void test_same_result_as_joda() {
+        String[] lines = { "[01.01.2010 10:12:00] line1",
+                           "[29.02.2012 23:59:59]",
+                           "[29.02.2011 10:00:00] no leap year",
+                           "[31.04.2015 10:00:00] no such day",
+                           "[00.01.2015 10:00:00] no such day",
+                           "[01.13.2015 10:00:00] no such month",
+                           "[01.01.2015 24:00:00] no such hour",
+                           "[01.01.2015 10:60:00] no such minute",
+                           "[01.01.2015 10:00:60] no such second",
+                           "[28.03.2010 02:30:00] daylight saving gap",
+                           "[31.10.2010 02:30:00] daylight saving overlap",
+                           "[01.01.1969 00:00:00] before epoch",
+                           "[01/01/2010 10:12:00] wrong separator",
+                           "[01.01.2010 10:12:0x] not a digit",
+                           "[01.01.2010 10:12]",
+                           "" };
+        TimestampParser parser = TimestampParser.forPattern(PATTERN);
+        DateTimeFormatter formatter = DateTimeFormat.forPattern(PATTERN);
+        for (String line : lines) {
+            assertEquals(line, jodaMillis(formatter, PATTERN.length(), line), parser.parseMillis(line));
+        }
+    }
+
+    @Test
+    public void test_fraction_of_second() {
+        TimestampParser parser = TimestampParser.forPattern("yyyy-MM-dd HH:mm:ss.SSS");
+        DateTimeFormatter formatter = DateTimeFormat.forPattern("yyyy-MM-dd HH:mm:ss.SSS");
+        String line = "2016-02-20 13:14:15.678 text";
+        assertEquals(jodaMillis(formatter, 23, line), parser.parseMillis(line));
+    }
+
+    private long jodaMillis(DateTimeFormatter formatter, int length, String line) {
+        if (line.length() < length) {
+            return TimestampParser.INVALID;
+        }
+        try {
+            return formatter.parseMillis(line.substring(0, length));
+        } catch (IllegalArgumentException e) {
+            return TimestampParser.INVALID;
+        }
+    }
+}
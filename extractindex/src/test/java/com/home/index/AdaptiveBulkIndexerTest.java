@@ -0,0 +1,143 @@
+package com.home.index;
+
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the {@link AdaptiveBulkIndexer} class.
+ */
+public class AdaptiveBulkIndexerTest {
+
+    private final BulkSettings settings = new BulkSettings.Builder().initialBulkBytes(1000).minBulkBytes(100)
+            .maxBulkBytes(10000).concurrentRequests(3).initialBackoffMillis(1).maxBackoffMillis(10).build();
+
+    @Test
+    public void test_rejected_documents_are_retried() throws IOException {
+        Set<String> rejectedOnce = ConcurrentHashMap.newKeySet();
+        Set<String> indexed = ConcurrentHashMap.newKeySet();
+        AdaptiveBulkIndexer bulkIndexer = new AdaptiveBulkIndexer((request, listener) -> {
+            BulkItemResponse[] items = new BulkItemResponse[request.numberOfActions()];
+            for (int i = 0; i < items.length; ++i) {
+                IndexRequest indexRequest = (IndexRequest) request.requests().get(i);
+                // every other document is rejected once and indexed by its retry
+                if (i % 2 == 0 && rejectedOnce.add(indexRequest.id())) {
+                    items[i] = new BulkItemResponse(i, "index", new BulkItemResponse.Failure("logindex", "skype",
+                            indexRequest.id(), new EsRejectedExecutionException("queue full")));
+                } else {
+                    indexed.add(indexRequest.id());
+                    items[i] = new BulkItemResponse(i, "index",
+                            new IndexResponse("logindex", "skype", indexRequest.id(), 1, true));
+                }
+            }
+            new Thread(() -> listener.onResponse(new BulkResponse(items, 1))).start();
+        }, settings);
+        AtomicInteger answered = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        bulkIndexer.setBulkListener((actions, bytes, latencyMillis, failed) -> {
+            answered.addAndGet(actions);
+            rejected.addAndGet(failed);
+        });
+        for (int i = 0; i < 500; ++i) {
+            bulkIndexer.add(new IndexRequest("logindex", "skype", String.valueOf(i)).source("{\"id\":" + i + "}"));
+        }
+        bulkIndexer.close();
+
+        assertEquals(500, bulkIndexer.getIndexedCount());
+        assertEquals(0, bulkIndexer.getFailedCount());
+        assertTrue(bulkIndexer.getRetriedCount() > 0);
+        assertEquals(500, indexed.size());
+        assertEquals(500 + bulkIndexer.getRetriedCount(), answered.get());
+        // documents rejected once and indexed by their retry did not fail
+        assertEquals(0, rejected.get());
+    }
+
+    @Test
+    public void test_listener_reports_final_failures_only() throws IOException {
+        BulkSettings retryOnce = new BulkSettings.Builder().initialBulkBytes(100000).minBulkBytes(100)
+                .maxBulkBytes(100000).maxRetries(1).initialBackoffMillis(1).maxBackoffMillis(10).build();
+        AtomicInteger calls = new AtomicInteger();
+        AdaptiveBulkIndexer bulkIndexer = new AdaptiveBulkIndexer((request, listener) -> {
+            boolean first = calls.incrementAndGet() == 1;
+            BulkItemResponse[] items = new BulkItemResponse[request.numberOfActions()];
+            for (int i = 0; i < items.length; ++i) {
+                String id = ((IndexRequest) request.requests().get(i)).id();
+                if (id.equals("broken")) {
+                    items[i] = new BulkItemResponse(i, "index", new BulkItemResponse.Failure("logindex", "skype", id,
+                            new IllegalArgumentException("mapping conflict")));
+                } else if (id.equals("busy") || (first && i % 2 == 0)) {
+                    items[i] = new BulkItemResponse(i, "index", new BulkItemResponse.Failure("logindex", "skype", id,
+                            new EsRejectedExecutionException("queue full")));
+                } else {
+                    items[i] = new BulkItemResponse(i, "index", new IndexResponse("logindex", "skype", id, 1, true));
+                }
+            }
+            listener.onResponse(new BulkResponse(items, 1));
+        }, retryOnce);
+        AtomicInteger notified = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        bulkIndexer.setBulkListener((actions, bytes, latencyMillis, failures) -> {
+            notified.incrementAndGet();
+            failed.addAndGet(failures);
+        });
+        for (String id : new String[] { "0", "busy", "1", "broken", "2", "3" }) {
+            bulkIndexer.add(new IndexRequest("logindex", "skype", id).source("{}"));
+        }
+        bulkIndexer.close();
+
+        // the broken document fails at once, the busy one once its single retry is rejected again
+        assertEquals(4, bulkIndexer.getIndexedCount());
+        assertEquals(2, bulkIndexer.getFailedCount());
+        assertEquals(2, notified.get());
+        assertEquals(bulkIndexer.getFailedCount(), failed.get());
+
+        // a request failing as a whole is reported as well, after its retries
+        bulkIndexer = new AdaptiveBulkIndexer((request, listener) ->
+                listener.onFailure(new EsRejectedExecutionException("queue full")), retryOnce);
+        bulkIndexer.setBulkListener((actions, bytes, latencyMillis, failures) -> failed.addAndGet(failures));
+        failed.set(0);
+        for (int i = 0; i < 10; ++i) {
+            bulkIndexer.add(new IndexRequest("logindex", "skype", String.valueOf(i)).source("{}"));
+        }
+        bulkIndexer.close();
+        assertEquals(10, bulkIndexer.getFailedCount());
+        assertEquals(10, failed.get());
+    }
+
+    @Test
+    public void test_failed_requests_are_counted_and_slow_requests_shrink_bulks() throws IOException {
+        AdaptiveBulkIndexer bulkIndexer = new AdaptiveBulkIndexer(
+                (request, listener) -> listener.onFailure(new IllegalStateException("cluster unavailable")), settings);
+        for (int i = 0; i < 10; ++i) {
+            bulkIndexer.add(new IndexRequest("logindex", "skype", String.valueOf(i)).source("{}"));
+        }
+        bulkIndexer.close();
+        assertEquals(0, bulkIndexer.getIndexedCount());
+        assertEquals(10, bulkIndexer.getFailedCount());
+
+        BulkSettings slow = new BulkSettings.Builder().initialBulkBytes(1000).minBulkBytes(100).maxBulkBytes(10000)
+                .targetLatencyMillis(1).build();
+        bulkIndexer = new AdaptiveBulkIndexer((request, listener) -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            listener.onResponse(new BulkResponse(new BulkItemResponse[0], 20));
+        }, slow);
+        bulkIndexer.add(new IndexRequest("logindex", "skype", "0").source("{}"));
+        bulkIndexer.close();
+        assertEquals(500, bulkIndexer.getBulkBytes());
+    }
+}
@@ -0,0 +1,125 @@
+package com.home.index;
+
+import com.home.extract.SkypeLogDocExtractor;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.node.Node;
+import org.elasticsearch.node.NodeBuilder;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link IndexLifecycleManager} class against an embedded local elastic search node.
+ */
+public class IndexLifecycleManagerTest {
+    private static final String TEST_LOG = "src/test/java/resources/TestLog.txt";
+
+    @ClassRule
+    public static TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static Node node;
+
+    private static Client client;
+
+    @BeforeClass
+    public static void startNode() throws IOException {
+        node = NodeBuilder.nodeBuilder().local(true).settings(Settings.settingsBuilder()
+                .put("path.home", temporaryFolder.newFolder().getPath())
+                .put("cluster.name", "lifecycle-test")
+                .put("http.enabled", false)).node();
+        client = node.client();
+        client.admin().cluster().prepareHealth().setWaitForYellowStatus().get();
+    }
+
+    @AfterClass
+    public static void stopNode() {
+        node.close();
+    }
+
+    @Test
+    public void test_bulk_load_settings_are_restored() throws IOException {
+        IndexLifecycleManager lifecycle = new IndexLifecycleManager(client, "bulkload", "skype");
+        lifecycle.setLiveSettings("2s", 0);
+        String index = lifecycle.prepare();
+        assertEquals("bulkload", index);
+        assertEquals("-1", setting(index, "index.refresh_interval"));
+
+        assertEquals(3, indexTestLog(index));
+        lifecycle.finish(true);
+        assertEquals("2s", setting(index, "index.refresh_interval"));
+        assertEquals("0", setting(index, "index.number_of_replicas"));
+        assertEquals(3, client.prepareSearch(index).setSize(0).get().getHits().getTotalHits());
+        assertEquals(1, client.prepareSearch(index).setSize(0)
+                .setQuery(QueryBuilders.boolQuery().filter(QueryBuilders.rangeQuery("startTime").gte("2015-01-01")))
+                .get().getHits().getTotalHits());
+
+        // an existing index gets its own settings back
+        client.admin().indices().prepareUpdateSettings(index).setSettings(Settings.settingsBuilder()
+                .put("index.refresh_interval", "5s")).get();
+        lifecycle = new IndexLifecycleManager(client, "bulkload", "skype");
+        lifecycle.prepare();
+        assertEquals("-1", setting(index, "index.refresh_interval"));
+        lifecycle.finish(false);
+        assertEquals("5s", setting(index, "index.refresh_interval"));
+    }
+
+    @Test
+    public void test_settings_of_an_interrupted_load_are_not_restored() throws IOException {
+        // left behind by a load which crashed before restoring the settings
+        client.admin().indices().prepareCreate("crashedload").setSettings(Settings.settingsBuilder()
+                .put("index.refresh_interval", "-1").put("index.number_of_replicas", 0)).get();
+        IndexLifecycleManager lifecycle = new IndexLifecycleManager(client, "crashedload", "skype");
+        lifecycle.setLiveSettings("3s", 1);
+        lifecycle.prepare();
+        lifecycle.finish(false);
+        assertEquals("3s", setting("crashedload", "index.refresh_interval"));
+        assertEquals("1", setting("crashedload", "index.number_of_replicas"));
+    }
+
+    @Test
+    public void test_alias_moves_to_fresh_index() throws IOException {
+        String first = loadWithAlias();
+        String second = loadWithAlias();
+        assertNotEquals(first, second);
+        assertFalse(client.admin().indices().prepareExists(first).get().isExists());
+        assertTrue(client.admin().indices().prepareGetAliases("logalias").get().getAliases().containsKey(second));
+        assertEquals(3, client.prepareSearch("logalias").setSize(0).get().getHits().getTotalHits());
+
+        IndexLifecycleManager lifecycle = new IndexLifecycleManager(client, "logalias", "skype");
+        lifecycle.setAliasMode(true);
+        String aborted = lifecycle.prepare();
+        lifecycle.abort();
+        assertFalse(client.admin().indices().prepareExists(aborted).get().isExists());
+        assertTrue(client.admin().indices().prepareGetAliases("logalias").get().getAliases().containsKey(second));
+    }
+
+    private String loadWithAlias() throws IOException {
+        IndexLifecycleManager lifecycle = new IndexLifecycleManager(client, "logalias", "skype");
+        lifecycle.setAliasMode(true);
+        lifecycle.setDeletePreviousIndices(true);
+        lifecycle.setLiveSettings("1s", 0);
+        String index = lifecycle.prepare();
+        assertTrue(index.startsWith("logalias-"));
+        indexTestLog(index);
+        lifecycle.finish(false);
+        return index;
+    }
+
+    private long indexTestLog(String index) throws IOException {
+        LogIndexer logIndexer = new LogIndexer(SkypeLogDocExtractor.getInstance(TEST_LOG, 60), index, "skype");
+        logIndexer.setClient(client);
+        return logIndexer.indexDocs();
+    }
+
+    private String setting(String index, String setting) {
+        return client.admin().indices().prepareGetSettings(index).get().getSetting(index, setting);
+    }
+}
@@ -0,0 +1,33 @@
+package com.home.index;
+
+import org.elasticsearch.client.Client;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the {@link LazyClient} class.
+ */
+public class LazyClientTest {
+
+    @Test
+    public void test_client_is_created_once_on_first_use() {
+        LazyClient lazyClient = new LazyClient(EsSettings.getLocalSettings());
+        try {
+            assertFalse(lazyClient.isCreated());
+            Client client = lazyClient.get();
+            assertTrue(lazyClient.isCreated());
+            assertSame(client, lazyClient.get());
+        } finally {
+            lazyClient.close();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void test_closed_client_is_not_created() {
+        LazyClient lazyClient = new LazyClient(EsSettings.getLocalSettings());
+        lazyClient.close();
+        assertFalse(lazyClient.isCreated());
+        lazyClient.get();
+    }
+}
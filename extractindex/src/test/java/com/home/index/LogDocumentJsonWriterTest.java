@@ -0,0 +1,70 @@
+package com.home.index;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.joda.JodaModule;
+import com.home.common.LogDocument;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the {@link LogDocumentJsonWriter} class.
+ */
+public class LogDocumentJsonWriterTest {
+
+    private final LogDocumentJsonWriter jsonWriter = new LogDocumentJsonWriter();
+
+    @Test
+    public void test_same_json_as_object_mapper() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JodaModule());
+        objectMapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+        objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+
+        for (LogDocument document : documents()) {
+            assertArrayEquals(objectMapper.writeValueAsBytes(document), jsonWriter.write(document));
+        }
+    }
+
+    @Test
+    public void test_concurrent_writes() throws InterruptedException, ExecutionException, IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<byte[]>> results = new ArrayList<>();
+        List<LogDocument> documents = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i) {
+            LogDocument document = new LogDocument(i);
+            document.addLine(" Anna: message " + i);
+            documents.add(document);
+            results.add(executor.submit(() -> jsonWriter.write(document)));
+        }
+        for (int i = 0; i < documents.size(); ++i) {
+            assertArrayEquals(new ObjectMapper().writeValueAsBytes(documents.get(i)), results.get(i).get());
+        }
+        executor.shutdown();
+    }
+
+    private List<LogDocument> documents() {
+        List<LogDocument> documents = new ArrayList<>();
+        documents.add(new LogDocument(0));
+        LogDocument document = new LogDocument("a/b.txt:1");
+        document.addLine(" Anna: \"quoted\" \\ back\tslash");
+        document.addLine(" Bob: \u00e4\u00f6\u00fc \u20ac \ud83d\ude00 \u0001");
+        document.addLine("");
+        document.addTime(1262337120000L);
+        document.addTime(1262337121000L);
+        document.addSpeaker(" Anna: ", 1, 5);
+        document.addSpeaker("Bob", 0, 3);
+        documents.add(document);
+        documents.add(new LogDocument(null));
+        return documents;
+    }
+}
@@ -0,0 +1,109 @@
+package com.home.index.local;
+
+import com.home.common.LogDocument;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the local index: {@link LocalIndexWriter}, {@link LocalIndexReader} and the queries.
+ */
+public class LocalIndexTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static LogDocument document(String id, String... lines) {
+        LogDocument document = new LogDocument(id);
+        for (String line : lines) {
+            document.addLine(line);
+        }
+        return document;
+    }
+
+    @Test
+    public void test_term_boolean_and_phrase_queries() throws IOException {
+        Path directory = temporaryFolder.newFolder().toPath();
+        try (LocalIndexWriter writer = new LocalIndexWriter(directory)) {
+            writer.add(document("a", "[10:00:00] Alice: the quick brown fox", "[10:00:05] Bob: jumps over"));
+            writer.add(document("b", "[11:00:00] Bob: brown dogs are quick"));
+            writer.add(document("c", "[12:00:00] Carol: nothing to see"));
+        }
+
+        try (LocalIndexReader reader = LocalIndexReader.open(directory)) {
+            assertEquals(3, reader.getDocCount());
+            assertEquals(2, reader.count(new TermQuery("Quick")));
+            assertEquals(0, reader.count(new TermQuery("cat")));
+            assertEquals(1, reader.count(BooleanQuery.builder()
+                    .must(new TermQuery("bob")).mustNot(new TermQuery("fox")).build()));
+            assertEquals(2, reader.count(BooleanQuery.builder()
+                    .should(new TermQuery("carol")).should(new TermQuery("jumps")).build()));
+            assertEquals(3, reader.count(BooleanQuery.builder().build()));
+
+            List<LogDocument> documents = reader.search(new PhraseQuery("quick brown"), 10);
+            assertEquals(1, documents.size());
+            assertEquals("a", documents.get(0).getId());
+            assertEquals("[10:00:05] Bob: jumps over", documents.get(0).getLine(1));
+            // phrases do not match across lines
+            assertEquals(0, reader.count(new PhraseQuery("fox 10 00 05")));
+        }
+    }
+
+    @Test
+    public void test_newer_document_replaces_same_id() throws IOException {
+        Path directory = temporaryFolder.newFolder().toPath();
+        try (LocalIndexWriter writer = new LocalIndexWriter(directory)) {
+            writer.add(document("a", "first version"));
+            writer.add(document("b", "other"));
+            writer.commit();
+            writer.add(document("a", "second version"));
+        }
+
+        try (LocalIndexReader reader = LocalIndexReader.open(directory)) {
+            assertEquals(2, reader.getDocCount());
+            assertEquals(0, reader.count(new TermQuery("first")));
+            List<LogDocument> documents = reader.search(new TermQuery("version"), 10);
+            assertEquals(1, documents.size());
+            assertEquals("second version", documents.get(0).getLine(0));
+        }
+    }
+
+    @Test
+    public void test_merges_keep_documents() throws IOException {
+        Path directory = temporaryFolder.newFolder().toPath();
+        try (LocalIndexWriter writer = new LocalIndexWriter(directory)) {
+            writer.setMaxBufferedDocs(7);
+            writer.setMergeFactor(3);
+            for (int i = 0; i < 200; ++i) {
+                writer.add(document("doc" + (i % 150), "line " + i + " of conversation " + (i % 150),
+                        i % 2 == 0 ? "even number" : "odd number"));
+            }
+            writer.commit();
+            writer.waitForMerges();
+            assertTrue(writer.getSegmentCount() < 200 / 7);
+        }
+
+        try (LocalIndexReader reader = LocalIndexReader.open(directory)) {
+            assertEquals(150, reader.getDocCount());
+            assertEquals(75, reader.count(new TermQuery("even")));
+            assertEquals(1, reader.count(new PhraseQuery("line 170 of conversation 20")));
+            assertEquals(0, reader.count(new PhraseQuery("line 20 of conversation 20")));
+            List<LogDocument> documents = reader.search(new TermQuery("number"), 1000);
+            assertEquals(150, documents.size());
+        }
+
+        // reopening keeps the committed segments
+        try (LocalIndexWriter writer = new LocalIndexWriter(directory)) {
+            writer.add(document("new", "even newer"));
+        }
+        try (LocalIndexReader reader = LocalIndexReader.open(directory)) {
+            assertEquals(151, reader.getDocCount());
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.home.rollup;
+
+import com.home.extract.LogDocExtractor;
+import com.home.extract.LogDocExtractorBuilder;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the {@link RollupBuilder} and {@link Rollups} classes.
+ */
+public class RollupBuilderTest {
+
+    private static final long DAY = Granularity.DAY.getMillis();
+
+    private static final long HOUR = Granularity.HOUR.getMillis();
+
+    private static final long MINUTE = Granularity.MINUTE.getMillis();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private DateTimeZone defaultZone;
+
+    /** Skype time stamps are parsed in the default zone, buckets are UTC. */
+    @Before
+    public void setUp() {
+        defaultZone = DateTimeZone.getDefault();
+        DateTimeZone.setDefault(DateTimeZone.UTC);
+    }
+
+    @After
+    public void tearDown() {
+        DateTimeZone.setDefault(defaultZone);
+    }
+
+    @Test
+    public void test_extractor_counts_messages_conversations_and_speakers() throws IOException {
+        Path log = temporaryFolder.newFile("rollup.log").toPath();
+        Files.write(log, Arrays.asList("[10.10.2015 10:00:00] Anna: hi", "[10.10.2015 10:00:30] Bob: hello",
+                "continuation", "[10.10.2015 10:59:00] Anna: lunch?", "[10.10.2015 11:01:00] Bob: yes",
+                "[10.10.2015 15:00:00] Anna: back", "[11.10.2015 09:00:00] no speaker"), StandardCharsets.UTF_8);
+        RollupBuilder builder = new RollupBuilder();
+        LogDocExtractor extractor = new LogDocExtractorBuilder(log.toString(), 60).threads(4).rollup(builder).build();
+        int documents = 0;
+        while (extractor.hasNext()) {
+            ++documents;
+            extractor.parseNext();
+        }
+        assertEquals(3, documents);
+        assertEquals(6, builder.getMessageCount());
+
+        Rollups rollups = builder.build();
+        long day = utc(2015, 10, 10, 0, 0);
+        long tenOClock = utc(2015, 10, 10, 10, 0);
+        assertEquals(2, rollups.getMessages(Granularity.MINUTE, Granularity.MINUTE.bucket(tenOClock)));
+        assertEquals(3, rollups.getMessages(Granularity.HOUR, Granularity.HOUR.bucket(tenOClock)));
+        assertEquals(5, rollups.getMessages(Granularity.DAY, Granularity.DAY.bucket(day)));
+        assertEquals(1, rollups.getConversations(Granularity.HOUR, Granularity.HOUR.bucket(tenOClock)));
+        assertEquals(2, rollups.getConversations(Granularity.DAY, Granularity.DAY.bucket(day)));
+        assertEquals(4, rollups.getMessages(Granularity.HOUR, tenOClock, tenOClock + 2 * HOUR));
+        assertEquals(6, rollups.getMessages(Granularity.DAY, day, day + 7 * DAY));
+        Map<String, Long> expected = new LinkedHashMap<>();
+        expected.put("Anna", 3L);
+        expected.put("Bob", 2L);
+        assertEquals(expected, rollups.getTopSpeakers(day, day + 7 * DAY, 10));
+        assertEquals(Arrays.asList("Anna", "Bob"), rollups.getSpeakers());
+        assertEquals(Long.valueOf(tenOClock), rollups.getStartMillis());
+        assertEquals(Long.valueOf(utc(2015, 10, 11, 9, 1)), rollups.getEndMillis());
+    }
+
+    @Test
+    public void test_range_queries_match_counted_messages() {
+        Random random = new Random(42);
+        long start = utc(2016, 1, 1, 0, 0);
+        long[] times = new long[5000];
+        RollupBuilder builder = new RollupBuilder();
+        for (int i = 0; i < times.length; ++i) {
+            // out of order times make the counters grow at both ends
+            times[i] = start + (long) (random.nextGaussian() * 20 * DAY);
+            builder.addMessage(times[i], "speaker" + random.nextInt(5));
+        }
+        Rollups rollups = builder.build();
+        for (int query = 0; query < 100; ++query) {
+            long from = start + (long) (random.nextGaussian() * 30 * DAY);
+            long to = from + (long) (random.nextDouble() * 10 * DAY);
+            for (Granularity granularity : Granularity.values()) {
+                long first = granularity.bucket(from);
+                long last = granularity.bucket(to - 1);
+                long expected = 0;
+                for (long time : times) {
+                    long bucket = granularity.bucket(time);
+                    if (bucket >= first && bucket <= last) {
+                        ++expected;
+                    }
+                }
+                assertEquals(expected, rollups.getMessages(granularity, from, to));
+            }
+        }
+        assertEquals(times.length, rollups.getMessages(Granularity.MINUTE, Long.MIN_VALUE / 2, Long.MAX_VALUE / 2));
+    }
+
+    @Test
+    public void test_written_and_combined_rollups_are_read() throws IOException {
+        long start = utc(2016, 3, 1, 12, 0);
+        RollupBuilder first = new RollupBuilder();
+        first.addMessage(start, "Anna");
+        first.addMessage(start + MINUTE, "Bob");
+        RollupBuilder second = new RollupBuilder();
+        second.addMessage(start - 3 * DAY, "Bob");
+        second.startConversation();
+        second.addMessage(start + 30 * MINUTE, null);
+        first.addAll(second);
+        Path file = temporaryFolder.getRoot().toPath().resolve("rollups.bin");
+        first.write(file);
+
+        Rollups rollups = Rollups.read(file);
+        assertEquals(4, rollups.getMessages(Granularity.DAY, start - 3 * DAY, start + DAY));
+        assertEquals(3, rollups.getMessages(Granularity.HOUR, Granularity.HOUR.bucket(start)));
+        assertEquals(2, rollups.getConversations(Granularity.HOUR, Granularity.HOUR.bucket(start)));
+        assertEquals(Long.valueOf(2), rollups.getTopSpeakers(start - 3 * DAY, start + DAY, 1).get("Bob"));
+        assertEquals(1, rollups.getTopSpeakers(start, start + DAY, 10).get("Anna").longValue());
+        assertTrue(new RollupBuilder().build().isEmpty());
+    }
+
+    @Test
+    public void test_combined_rollups_of_files_equal_rollups_of_a_single_pass() throws IOException {
+        // both files have messages in the same minutes, hours and days, as logs of a directory run often do
+        Path first = temporaryFolder.newFile("first.log").toPath();
+        Files.write(first, Arrays.asList("[10.10.2015 10:00:00] Anna: hi", "[10.10.2015 10:00:40] Bob: hello",
+                "[10.10.2015 13:30:00] Anna: later", "[11.10.2015 09:00:00] Bob: morning"), StandardCharsets.UTF_8);
+        Path second = temporaryFolder.newFile("second.log").toPath();
+        Files.write(second, Arrays.asList("[10.10.2015 10:00:20] Carl: parallel chat",
+                "[10.10.2015 10:05:00] Anna: yes", "[10.10.2015 13:31:00] Carl: again",
+                "[11.10.2015 09:00:10] no speaker"), StandardCharsets.UTF_8);
+
+        RollupBuilder combined = new RollupBuilder();
+        RollupBuilder singlePass = new RollupBuilder();
+        for (Path log : Arrays.asList(first, second)) {
+            RollupBuilder perFile = new RollupBuilder();
+            extractAll(new LogDocExtractorBuilder(log.toString(), 60).rollup(perFile).build());
+            combined.addAll(perFile);
+            extractAll(new LogDocExtractorBuilder(log.toString(), 60).rollup(singlePass).build());
+        }
+
+        Rollups expected = singlePass.build();
+        Rollups actual = combined.build();
+        assertEquals(8, combined.getMessageCount());
+        for (Granularity granularity : Granularity.values()) {
+            assertEquals(expected.getFirstBucket(granularity), actual.getFirstBucket(granularity));
+            assertEquals(expected.getBucketCount(granularity), actual.getBucketCount(granularity));
+            long firstBucket = expected.getFirstBucket(granularity);
+            for (long bucket = firstBucket; bucket < firstBucket + expected.getBucketCount(granularity); ++bucket) {
+                assertEquals(expected.getMessages(granularity, bucket), actual.getMessages(granularity, bucket));
+                assertEquals(expected.getConversations(granularity, bucket),
+                        actual.getConversations(granularity, bucket));
+            }
+        }
+        long tenOClock = utc(2015, 10, 10, 10, 0);
+        assertEquals(3, actual.getMessages(Granularity.MINUTE, Granularity.MINUTE.bucket(tenOClock)));
+        assertEquals(2, actual.getConversations(Granularity.MINUTE, Granularity.MINUTE.bucket(tenOClock)));
+        assertEquals(expected.getTopSpeakers(tenOClock, tenOClock + 2 * DAY, 10),
+                actual.getTopSpeakers(tenOClock, tenOClock + 2 * DAY, 10));
+    }
+
+    private static void extractAll(final LogDocExtractor extractor) throws IOException {
+        try (LogDocExtractor documents = extractor) {
+            while (documents.hasNext()) {
+                documents.parseNext();
+            }
+        }
+    }
+
+    private static long utc(int year, int month, int day, int hour, int minute) {
+        return new DateTime(year, month, day, hour, minute, DateTimeZone.UTC).getMillis();
+    }
+}
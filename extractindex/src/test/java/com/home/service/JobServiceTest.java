@@ -0,0 +1,118 @@
+package com.home.service;
+
+import com.home.cli.RunSummary;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the {@link JobService} class.
+ */
+public class JobServiceTest {
+
+    private static void awaitFinished(IngestJob job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!job.isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(job.isFinished());
+    }
+
+    @Test
+    public void test_jobs_run_and_report_their_state() throws InterruptedException {
+        try (JobService service = new JobService(args -> {
+            if (args[1].equals("missing"))
+                throw new IOException("No such file");
+            return RunSummary.EMPTY;
+        }, 1, 4)) {
+            IngestJob succeeding = service.submit("save", "logs", "30", "out", "doc");
+            IngestJob failing = service.submit("index", "missing", "30");
+            awaitFinished(succeeding);
+            awaitFinished(failing);
+
+            assertEquals(IngestJob.State.SUCCEEDED, succeeding.getState());
+            assertSame(RunSummary.EMPTY, succeeding.getSummary());
+            assertEquals(Arrays.asList("save", "logs", "30", "out", "doc"), succeeding.getArgs());
+            assertEquals(IngestJob.State.FAILED, failing.getState());
+            assertEquals("No such file", failing.getError());
+            assertSame(failing, service.get(failing.getId()));
+            assertEquals(Arrays.asList(succeeding, failing), service.list());
+        }
+    }
+
+    @Test
+    public void test_full_queue_rejects_jobs() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (JobService service = new JobService(args -> {
+            started.countDown();
+            release.await();
+            return RunSummary.EMPTY;
+        }, 1, 1)) {
+            IngestJob running = service.submit("index", "a", "30");
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            IngestJob queued = service.submit("index", "b", "30");
+            assertEquals(IngestJob.State.QUEUED, queued.getState());
+            try {
+                service.submit("index", "c", "30");
+                fail("Job should be rejected");
+            } catch (RejectedExecutionException e) {
+                assertEquals(2, service.list().size());
+            }
+            release.countDown();
+            awaitFinished(running);
+            awaitFinished(queued);
+        }
+    }
+
+    @Test
+    public void test_bulk_loads_run_one_at_a_time() throws InterruptedException {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch plainStarted = new CountDownLatch(1);
+        try (JobService service = new JobService(args -> {
+            if (args.length == 3) {
+                plainStarted.countDown();
+                return RunSummary.EMPTY;
+            }
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(100);
+            running.decrementAndGet();
+            return RunSummary.EMPTY;
+        }, 3, 4)) {
+            IngestJob first = service.submit("index", "a", "30", "--bulk-load");
+            IngestJob second = service.submit("index", "b", "30", "--alias");
+            IngestJob plain = service.submit("index", "c", "30");
+            // other jobs are not held up by a bulk load
+            assertTrue(plainStarted.await(10, TimeUnit.SECONDS));
+            awaitFinished(first);
+            awaitFinished(second);
+            awaitFinished(plain);
+            assertEquals(IngestJob.State.SUCCEEDED, second.getState());
+            assertEquals(1, maxRunning.get());
+        }
+    }
+
+    @Test
+    public void test_only_finite_ingest_commands_are_accepted() {
+        try (JobService service = new JobService(args -> RunSummary.EMPTY, 1, 1)) {
+            for (String[] args : new String[][] { {}, { "search-local", "idx", "word" },
+                    { "index", "logs", "30", "--checkpoint=c.json", "--follow" } }) {
+                try {
+                    service.submit(args);
+                    fail("Job should not be accepted: " + Arrays.toString(args));
+                } catch (IllegalArgumentException e) {
+                    // expected
+                }
+            }
+            assertTrue(service.list().isEmpty());
+        }
+    }
+}
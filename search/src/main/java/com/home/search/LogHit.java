@@ -0,0 +1,67 @@
+package com.home.search;
+
+import java.util.List;
+
+/**
+ * A document found by a {@link LogQuery}. The text itself is not returned, only the highlighted fragments matching
+ * the query.
+ */
+public class LogHit {
+
+    private final String id;
+
+    private final float score;
+
+    private final Long startTime;
+
+    private final Long endTime;
+
+    private final Integer lineCount;
+
+    private final List<String> speakers;
+
+    private final List<String> highlights;
+
+    public LogHit(final String id, final float score, final Long startTime, final Long endTime,
+                  final Integer lineCount, final List<String> speakers, final List<String> highlights) {
+        this.id         = id;
+        this.score      = score;
+        this.startTime  = startTime;
+        this.endTime    = endTime;
+        this.lineCount  = lineCount;
+        this.speakers   = speakers;
+        this.highlights = highlights;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /** Relevance of the document, NaN if the query only filtered documents. */
+    public float getScore() {
+        return score;
+    }
+
+    /** Epoch milliseconds of the first message. */
+    public Long getStartTime() {
+        return startTime;
+    }
+
+    /** Epoch milliseconds of the last message. */
+    public Long getEndTime() {
+        return endTime;
+    }
+
+    public Integer getLineCount() {
+        return lineCount;
+    }
+
+    public List<String> getSpeakers() {
+        return speakers;
+    }
+
+    /** Fragments of the text with the matching words enclosed in &lt;em&gt; tags. */
+    public List<String> getHighlights() {
+        return highlights;
+    }
+}
@@ -0,0 +1,171 @@
+package com.home.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Class used for representing a query for log documents. Words and phrases are matched against the text, the time
+ * range and the speakers only filter documents without affecting their score.
+ */
+public class LogQuery {
+
+    /** Maximum number of documents returned in one page. */
+    public static final int MAX_SIZE = 100;
+
+    private String text;
+
+    private String phrase;
+
+    private Long startMillis;
+
+    private Long endMillis;
+
+    private List<String> speakers;
+
+    private int offset;
+
+    private int size;
+
+    private boolean scroll;
+
+    /** Words that must all occur in the text, null if the text is not searched for words. */
+    public String getText() {
+        return text;
+    }
+
+    /** Words that must occur in the text in this order, null if the text is not searched for a phrase. */
+    public String getPhrase() {
+        return phrase;
+    }
+
+    /** Documents ending before this epoch millisecond are filtered out, null for no lower bound. */
+    public Long getStartMillis() {
+        return startMillis;
+    }
+
+    /** Documents starting after this epoch millisecond are filtered out, null for no upper bound. */
+    public Long getEndMillis() {
+        return endMillis;
+    }
+
+    /** Documents must have at least one of these speakers, all documents match if the list is empty. */
+    public List<String> getSpeakers() {
+        return Collections.unmodifiableList(speakers);
+    }
+
+    /** Index of the first document returned. */
+    public int getOffset() {
+        return offset;
+    }
+
+    /** Number of documents returned per page. */
+    public int getSize() {
+        return size;
+    }
+
+    /** Whether further pages are fetched with a scroll cursor instead of an offset. */
+    public boolean isScroll() {
+        return scroll;
+    }
+
+    /**
+     * Returns a key that is equal for queries returning the same page. Words are lower cased and separated by single
+     * spaces, as the analyzer of the text does not distinguish them; speakers are sorted.
+     *
+     * @return The key.
+     */
+    public String cacheKey() {
+        List<String> sortedSpeakers = new ArrayList<>(speakers);
+        Collections.sort(sortedSpeakers);
+        return normalize(text) + '\u0000' + normalize(phrase) + '\u0000' + startMillis + '\u0000' + endMillis
+                + '\u0000' + sortedSpeakers + '\u0000' + offset + '\u0000' + size + '\u0000' + scroll;
+    }
+
+    private static String normalize(final String words) {
+        return words == null ? null : words.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    public static class Builder {
+        private String text;
+        private String phrase;
+        private Long startMillis;
+        private Long endMillis;
+        private List<String> speakers = new ArrayList<>();
+        private int offset            = 0;
+        private int size              = 10;
+        private boolean scroll        = false;
+
+        public Builder text(String text) {
+            this.text = text;
+            return this;
+        }
+
+        public Builder phrase(String phrase) {
+            this.phrase = phrase;
+            return this;
+        }
+
+        public Builder startMillis(Long startMillis) {
+            this.startMillis = startMillis;
+            return this;
+        }
+
+        public Builder endMillis(Long endMillis) {
+            this.endMillis = endMillis;
+            return this;
+        }
+
+        public Builder speakers(List<String> speakers) {
+            if (speakers == null)
+                throw new NullPointerException("Null parameter provided!");
+            this.speakers = new ArrayList<>(speakers);
+            return this;
+        }
+
+        public Builder offset(int offset) {
+            this.offset = offset;
+            return this;
+        }
+
+        public Builder size(int size) {
+            this.size = size;
+            return this;
+        }
+
+        public Builder scroll(boolean scroll) {
+            this.scroll = scroll;
+            return this;
+        }
+
+        /**
+         * Builds the query.
+         *
+         * @return The query.
+         * @throws IllegalArgumentException if a value is out of range.
+         */
+        public LogQuery build() {
+            if (size < 1 || size > MAX_SIZE)
+                throw new IllegalArgumentException("Size must be between 1 and " + MAX_SIZE + "!");
+            if (offset < 0)
+                throw new IllegalArgumentException("Offset must be non-negative!");
+            if (scroll && offset > 0)
+                throw new IllegalArgumentException("A scroll always starts at the first document!");
+            if (startMillis != null && endMillis != null && startMillis > endMillis)
+                throw new IllegalArgumentException("Start of the time range must not be after its end!");
+            return new LogQuery(this);
+        }
+    }
+
+    private LogQuery(Builder builder) {
+        this.text        = builder.text;
+        this.phrase      = builder.phrase;
+        this.startMillis = builder.startMillis;
+        this.endMillis   = builder.endMillis;
+        this.speakers    = builder.speakers;
+        this.offset      = builder.offset;
+        this.size        = builder.size;
+        this.scroll      = builder.scroll;
+    }
+}
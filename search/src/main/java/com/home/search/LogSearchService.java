@@ -0,0 +1,332 @@
+package com.home.search;
+
+import com.home.index.IndexGeneration;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.log4j.BasicConfigurator;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.MatchQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.highlight.HighlightField;
+import org.elasticsearch.search.sort.SortOrder;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Searches the documents written by the log indexer. Words and phrases are matched against the analyzed text, time
+ * ranges and speakers are filters on the structured fields, which elastic search caches and does not score. Only
+ * the structured fields and highlighted fragments are fetched, never the whole text. Deep result sets are read with
+ * a scroll cursor instead of growing offsets. Pages of queries that do not scroll can be cached; the cache is
+ * invalidated when the {@link IndexGeneration} of the index changes, which is checked periodically.
+ */
+public class LogSearchService implements Closeable {
+
+    private static final Log logger = LogFactory.getLog(LogSearchService.class);
+
+    private static final String[] SOURCE_FIELDS = { "id", "startTime", "endTime", "lineCount", "speakers" };
+
+    private static final int FRAGMENT_SIZE = 150;
+
+    private static final int FRAGMENTS = 3;
+
+    private final Client esClient;
+
+    private final String index;
+
+    private long targetLatencyMillis = 200;
+
+    private TimeValue scrollKeepAlive = TimeValue.timeValueMinutes(1);
+
+    private final AtomicLong searchCount = new AtomicLong();
+
+    private final AtomicLong slowSearchCount = new AtomicLong();
+
+    private SearchCache cache;
+
+    private volatile String indexGeneration;
+
+    private ScheduledExecutorService generationChecks;
+
+    /**
+     * Constructs a service.
+     *
+     * @param esClient The client used to search, shared by all requests.
+     * @param index Name of the index or alias to search.
+     */
+    public LogSearchService(final Client esClient, final String index) {
+        if (esClient == null || index == null)
+            throw new NullPointerException("Null parameter provided!");
+        this.esClient = esClient;
+        this.index    = index;
+    }
+
+    /**
+     * @param targetLatencyMillis Searches taking longer are logged as slow.
+     */
+    public void setTargetLatencyMillis(final long targetLatencyMillis) {
+        if (targetLatencyMillis <= 0)
+            throw new IllegalArgumentException("Target latency must be positive!");
+        this.targetLatencyMillis = targetLatencyMillis;
+    }
+
+    public long getTargetLatencyMillis() {
+        return targetLatencyMillis;
+    }
+
+    /**
+     * @param scrollKeepAlive How long a scroll is kept open between two pages, e.g. 1m.
+     */
+    public void setScrollKeepAlive(final String scrollKeepAlive) {
+        if (scrollKeepAlive == null)
+            throw new NullPointerException("Null parameter provided!");
+        this.scrollKeepAlive = TimeValue.parseTimeValue(scrollKeepAlive, null, "scrollKeepAlive");
+    }
+
+    /**
+     * @param cache Cache for the pages of queries that do not scroll, null to disable caching.
+     */
+    public void setCache(final SearchCache cache) {
+        this.cache = cache;
+    }
+
+    public SearchCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Checks the generation of the index and invalidates the cache if it changed since the last check.
+     *
+     * @return True if the generation changed.
+     */
+    public synchronized boolean checkGeneration() {
+        String generation = IndexGeneration.current(esClient, index);
+        if (generation.equals(indexGeneration))
+            return false;
+        indexGeneration = generation;
+        if (cache != null) {
+            cache.invalidate();
+        }
+        return true;
+    }
+
+    /**
+     * Checks the generation of the index periodically in a background thread, so cached pages are at most this
+     * long stale after a bulk load completed.
+     *
+     * @param intervalMillis Milliseconds between two checks.
+     */
+    public synchronized void watchGeneration(final long intervalMillis) {
+        if (intervalMillis <= 0)
+            throw new IllegalArgumentException("Interval must be positive!");
+        if (generationChecks != null)
+            throw new IllegalStateException("Generation is already watched!");
+        generationChecks = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "index-generation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        generationChecks.scheduleWithFixedDelay(() -> {
+            try {
+                checkGeneration();
+            } catch (RuntimeException e) {
+                logger.error("Error while checking the generation of index " + index + ": " + e);
+            }
+        }, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops watching the generation of the index. The client is not closed.
+     */
+    @Override
+    public synchronized void close() {
+        if (generationChecks != null) {
+            generationChecks.shutdownNow();
+            generationChecks = null;
+        }
+    }
+
+    /**
+     * Returns the metrics of the service and of its cache.
+     *
+     * @return Names and values of the metrics.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("searches", getSearchCount());
+        stats.put("slowSearches", getSlowSearchCount());
+        stats.put("targetLatencyMillis", targetLatencyMillis);
+        if (cache != null) {
+            stats.put("cacheHits", cache.getHitCount());
+            stats.put("cacheMisses", cache.getMissCount());
+            stats.put("cacheHitRate", cache.getHitRate());
+            stats.put("cacheEvictions", cache.getEvictionCount());
+            stats.put("cacheEntries", cache.getSize());
+            stats.put("cacheBytes", cache.getBytes());
+        }
+        return stats;
+    }
+
+    /** Number of searches and scroll pages served. */
+    public long getSearchCount() {
+        return searchCount.get();
+    }
+
+    /** Number of searches and scroll pages that took longer than the target latency. */
+    public long getSlowSearchCount() {
+        return slowSearchCount.get();
+    }
+
+    /**
+     * Returns the first page of documents matching a query. Documents are ordered by relevance if the query
+     * searches the text, otherwise by their start time.
+     *
+     * @param query The query.
+     * @return The page, with a cursor for the next page if the query scrolls.
+     */
+    public SearchPage search(final LogQuery query) {
+        if (query == null)
+            throw new NullPointerException("Null parameter provided!");
+        long start = System.nanoTime();
+        SearchCache currentCache = query.isScroll() ? null : cache;
+        if (currentCache == null) {
+            return searchIndex(query, start);
+        }
+        String key = query.cacheKey();
+        SearchPage cached = currentCache.get(key);
+        if (cached != null) {
+            searchCount.incrementAndGet();
+            return new SearchPage(cached.getTotal(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                    cached.getHits(), null);
+        }
+        long generation = currentCache.generation();
+        SearchPage page = searchIndex(query, start);
+        currentCache.put(key, page, generation);
+        return page;
+    }
+
+    private SearchPage searchIndex(final LogQuery query, final long start) {
+        SearchRequestBuilder request = esClient.prepareSearch(index)
+                .setQuery(buildQuery(query))
+                .setFetchSource(SOURCE_FIELDS, null)
+                .setFrom(query.getOffset())
+                .setSize(query.getSize())
+                .addHighlightedField("text", FRAGMENT_SIZE, FRAGMENTS);
+        if (query.getText() == null && query.getPhrase() == null) {
+            request.addSort("startTime", SortOrder.ASC);
+        }
+        if (query.isScroll()) {
+            request.setScroll(scrollKeepAlive);
+        }
+        SearchResponse response = request.get();
+        return toPage(response, query.isScroll(), start);
+    }
+
+    /**
+     * Returns the next page of a scroll.
+     *
+     * @param cursor The cursor of the previous page.
+     * @return The page, with a cursor for the next page unless the scroll is exhausted.
+     */
+    public SearchPage scroll(final String cursor) {
+        if (cursor == null)
+            throw new NullPointerException("Null parameter provided!");
+        long start = System.nanoTime();
+        SearchResponse response = esClient.prepareSearchScroll(cursor).setScroll(scrollKeepAlive).get();
+        return toPage(response, true, start);
+    }
+
+    /**
+     * Releases a scroll before it is exhausted.
+     *
+     * @param cursor The cursor of the last page read.
+     */
+    public void clearScroll(final String cursor) {
+        if (cursor == null)
+            throw new NullPointerException("Null parameter provided!");
+        esClient.prepareClearScroll().addScrollId(cursor).get();
+    }
+
+    /** Builds the query: words and phrases are scored, time range and speakers are filters. */
+    static BoolQueryBuilder buildQuery(final LogQuery query) {
+        BoolQueryBuilder bool = QueryBuilders.boolQuery();
+        if (query.getText() != null) {
+            bool.must(QueryBuilders.matchQuery("text", query.getText()).operator(MatchQueryBuilder.Operator.AND));
+        }
+        if (query.getPhrase() != null) {
+            bool.must(QueryBuilders.matchPhraseQuery("text", query.getPhrase()));
+        }
+        // a document overlaps the time range if it ends after its start and starts before its end
+        if (query.getStartMillis() != null) {
+            bool.filter(QueryBuilders.rangeQuery("endTime").gte(query.getStartMillis()));
+        }
+        if (query.getEndMillis() != null) {
+            bool.filter(QueryBuilders.rangeQuery("startTime").lte(query.getEndMillis()));
+        }
+        if (!query.getSpeakers().isEmpty()) {
+            bool.filter(QueryBuilders.termsQuery("speakers", query.getSpeakers()));
+        }
+        return bool;
+    }
+
+    private SearchPage toPage(final SearchResponse response, final boolean scroll, final long start) {
+        SearchHit[] searchHits = response.getHits().getHits();
+        List<LogHit> hits = new ArrayList<>(searchHits.length);
+        for (SearchHit searchHit : searchHits) {
+            hits.add(toHit(searchHit));
+        }
+        String cursor = null;
+        if (scroll) {
+            if (searchHits.length > 0) {
+                cursor = response.getScrollId();
+            } else {
+                clearScroll(response.getScrollId());
+            }
+        }
+        long tookMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        searchCount.incrementAndGet();
+        if (tookMillis > targetLatencyMillis) {
+            slowSearchCount.incrementAndGet();
+            logger.warn("Search took " + tookMillis + " ms, target is " + targetLatencyMillis + " ms");
+        }
+        return new SearchPage(response.getHits().getTotalHits(), tookMillis, hits, cursor);
+    }
+
+    @SuppressWarnings("unchecked")
+    private LogHit toHit(final SearchHit searchHit) {
+        Map<String, Object> source = searchHit.getSource();
+        List<String> highlights = new ArrayList<>();
+        HighlightField highlight = searchHit.getHighlightFields().get("text");
+        if (highlight != null) {
+            for (Text fragment : highlight.getFragments()) {
+                highlights.add(fragment.string());
+            }
+        }
+        Object speakers = source.get("speakers");
+        return new LogHit(searchHit.getId(), searchHit.getScore(), toLong(source.get("startTime")),
+                toLong(source.get("endTime")), (Integer) source.get("lineCount"),
+                speakers == null ? Collections.<String>emptyList() : (List<String>) speakers, highlights);
+    }
+
+    private static Long toLong(final Object value) {
+        return value == null ? null : ((Number) value).longValue();
+    }
+
+    static {
+        BasicConfigurator.configure();
+    }
+}
@@ -0,0 +1,69 @@
+package com.home.search;
+
+import com.home.index.EsFactory;
+import com.home.index.EsSettings;
+import org.elasticsearch.client.Client;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * REST service searching the log index. All requests share a single elastic search client.
+ */
+@SpringBootApplication
+public class SearchApp {
+
+    @Value("${search.cluster-name:elasticsearch}")
+    private String clusterName;
+
+    /** Comma separated host:port pairs of the transport addresses. */
+    @Value("${search.hosts:127.0.0.1:9300}")
+    private String hosts;
+
+    @Value("${search.index:logindex}")
+    private String index;
+
+    @Value("${search.target-latency-millis:200}")
+    private long targetLatencyMillis;
+
+    @Value("${search.scroll-keep-alive:1m}")
+    private String scrollKeepAlive;
+
+    /** Memory limit of the result cache, 0 disables the cache. */
+    @Value("${search.cache.max-mb:64}")
+    private long cacheMaxMb;
+
+    @Value("${search.cache.ttl-seconds:300}")
+    private long cacheTtlSeconds;
+
+    @Value("${search.cache.generation-check-millis:1000}")
+    private long generationCheckMillis;
+
+    @Bean(destroyMethod = "close")
+    public Client esClient() {
+        EsSettings.Builder builder = new EsSettings.Builder(clusterName);
+        for (String host : hosts.split(",")) {
+            String[] hostAndPort = host.trim().split(":");
+            builder.addHost(new EsSettings.Host(hostAndPort[0],
+                    hostAndPort.length > 1 ? Integer.parseInt(hostAndPort[1]) : 9300));
+        }
+        return EsFactory.getClient(builder.build());
+    }
+
+    @Bean
+    public LogSearchService logSearchService(Client esClient) {
+        LogSearchService searchService = new LogSearchService(esClient, index);
+        searchService.setTargetLatencyMillis(targetLatencyMillis);
+        searchService.setScrollKeepAlive(scrollKeepAlive);
+        if (cacheMaxMb > 0) {
+            searchService.setCache(new SearchCache(cacheMaxMb * 1024 * 1024, cacheTtlSeconds * 1000));
+            searchService.watchGeneration(generationCheckMillis);
+        }
+        return searchService;
+    }
+
+    public static void main(String[] args) {
+        SpringApplication.run(SearchApp.class, args);
+    }
+}
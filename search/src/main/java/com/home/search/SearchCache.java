@@ -0,0 +1,188 @@
+package com.home.search;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded cache of search pages. The least recently used pages are evicted once the estimated size of all pages
+ * exceeds the memory limit, and pages older than the time to live are not returned. Invalidating the cache starts a
+ * new generation; pages of searches started before are not stored anymore, so a search racing with an
+ * invalidation cannot bring back a stale page.
+ */
+public class SearchCache {
+
+    /** Estimated bytes of the fields and headers of an object. */
+    private static final int OBJECT_BYTES = 48;
+
+    private final long maxBytes;
+
+    private final long ttlNanos;
+
+    private final LongSupplier nanoClock;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    private long bytes = 0;
+
+    private long generation = 0;
+
+    private long hitCount = 0;
+
+    private long missCount = 0;
+
+    private long evictionCount = 0;
+
+    private static class Entry {
+        final SearchPage page;
+        final long bytes;
+        final long createdNanos;
+
+        Entry(SearchPage page, long bytes, long createdNanos) {
+            this.page         = page;
+            this.bytes        = bytes;
+            this.createdNanos = createdNanos;
+        }
+    }
+
+    /**
+     * Constructs a cache.
+     *
+     * @param maxBytes Upper bound of the estimated size of all cached pages in bytes.
+     * @param ttlMillis Milliseconds a page is returned after it was stored.
+     */
+    public SearchCache(final long maxBytes, final long ttlMillis) {
+        this(maxBytes, ttlMillis, System::nanoTime);
+    }
+
+    SearchCache(final long maxBytes, final long ttlMillis, final LongSupplier nanoClock) {
+        if (nanoClock == null)
+            throw new NullPointerException("Null parameter provided!");
+        if (maxBytes <= 0 || ttlMillis <= 0)
+            throw new IllegalArgumentException("Memory limit and time to live must be positive!");
+        this.maxBytes  = maxBytes;
+        this.ttlNanos  = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Returns the generation, to be passed to {@link #put(String, SearchPage, long)} after searching.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Returns a cached page.
+     *
+     * @param key Key of the query, see {@link LogQuery#cacheKey()}.
+     * @return The page, null if it is not cached or expired.
+     */
+    public synchronized SearchPage get(final String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && nanoClock.getAsLong() - entry.createdNanos > ttlNanos) {
+            remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            ++missCount;
+            return null;
+        }
+        ++hitCount;
+        return entry.page;
+    }
+
+    /**
+     * Stores a page unless the cache was invalidated since the search started. Least recently used pages are
+     * evicted until the pages fit into the memory limit.
+     *
+     * @param key Key of the query, see {@link LogQuery#cacheKey()}.
+     * @param page The page found by the search.
+     * @param searchGeneration The generation when the search started.
+     */
+    public synchronized void put(final String key, final SearchPage page, final long searchGeneration) {
+        if (key == null || page == null)
+            throw new NullPointerException("Null parameter provided!");
+        if (searchGeneration != generation)
+            return;
+        long pageBytes = estimateBytes(key, page);
+        if (pageBytes > maxBytes)
+            return;
+        remove(key);
+        entries.put(key, new Entry(page, pageBytes, nanoClock.getAsLong()));
+        bytes += pageBytes;
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes) {
+            bytes -= eldest.next().getValue().bytes;
+            eldest.remove();
+            ++evictionCount;
+        }
+    }
+
+    /**
+     * Removes all pages and starts a new generation.
+     */
+    public synchronized void invalidate() {
+        entries.clear();
+        bytes = 0;
+        ++generation;
+    }
+
+    private void remove(final String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            bytes -= entry.bytes;
+        }
+    }
+
+    /** Number of requests answered from the cache. */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /** Number of requests not found in the cache. */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /** Fraction of requests answered from the cache, 0 before the first request. */
+    public synchronized double getHitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 0 : (double) hitCount / requests;
+    }
+
+    /** Number of pages evicted because of the memory limit. */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /** Number of cached pages, including expired pages not requested since. */
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    /** Estimated size of all cached pages in bytes. */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    private static long estimateBytes(final String key, final SearchPage page) {
+        long estimate = 2 * OBJECT_BYTES + stringBytes(key) + stringBytes(page.getCursor());
+        for (LogHit hit : page.getHits()) {
+            estimate += 4 * OBJECT_BYTES + stringBytes(hit.getId());
+            for (String speaker : hit.getSpeakers()) {
+                estimate += stringBytes(speaker);
+            }
+            for (String highlight : hit.getHighlights()) {
+                estimate += stringBytes(highlight);
+            }
+        }
+        return estimate;
+    }
+
+    private static long stringBytes(final String string) {
+        return string == null ? 0 : OBJECT_BYTES + 2L * string.length();
+    }
+}
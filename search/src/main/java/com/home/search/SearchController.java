@@ -0,0 +1,123 @@
+package com.home.search;
+
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST endpoints for searching the log index. Times are ISO 8601 date times or epoch milliseconds.
+ *
+ * <pre>
+ * GET    /search/text?q=words[&amp;start=..][&amp;end=..][&amp;speaker=..][&amp;offset=0][&amp;size=10][&amp;scroll=false]
+ * GET    /search/phrase?q=words in order[&amp;...]
+ * GET    /search/range?start=..&amp;end=..[&amp;...]
+ * GET    /search/scroll?cursor=..
+ * DELETE /search/scroll?cursor=..
+ * GET    /search/stats
+ * </pre>
+ */
+@RestController
+@RequestMapping("/search")
+public class SearchController {
+
+    private static final DateTimeFormatter TIME_PARSER = ISODateTimeFormat.dateTimeParser().withOffsetParsed();
+
+    private final LogSearchService searchService;
+
+    @Autowired
+    public SearchController(LogSearchService searchService) {
+        this.searchService = searchService;
+    }
+
+    @RequestMapping(value = "/text", method = RequestMethod.GET)
+    public SearchPage text(@RequestParam("q") String words,
+                           @RequestParam(value = "start", required = false) String start,
+                           @RequestParam(value = "end", required = false) String end,
+                           @RequestParam(value = "speaker", required = false) List<String> speakers,
+                           @RequestParam(value = "offset", defaultValue = "0") int offset,
+                           @RequestParam(value = "size", defaultValue = "10") int size,
+                           @RequestParam(value = "scroll", defaultValue = "false") boolean scroll) {
+        return searchService.search(query(start, end, speakers, offset, size, scroll).text(words).build());
+    }
+
+    @RequestMapping(value = "/phrase", method = RequestMethod.GET)
+    public SearchPage phrase(@RequestParam("q") String phrase,
+                             @RequestParam(value = "start", required = false) String start,
+                             @RequestParam(value = "end", required = false) String end,
+                             @RequestParam(value = "speaker", required = false) List<String> speakers,
+                             @RequestParam(value = "offset", defaultValue = "0") int offset,
+                             @RequestParam(value = "size", defaultValue = "10") int size,
+                             @RequestParam(value = "scroll", defaultValue = "false") boolean scroll) {
+        return searchService.search(query(start, end, speakers, offset, size, scroll).phrase(phrase).build());
+    }
+
+    @RequestMapping(value = "/range", method = RequestMethod.GET)
+    public SearchPage range(@RequestParam(value = "start", required = false) String start,
+                            @RequestParam(value = "end", required = false) String end,
+                            @RequestParam(value = "speaker", required = false) List<String> speakers,
+                            @RequestParam(value = "offset", defaultValue = "0") int offset,
+                            @RequestParam(value = "size", defaultValue = "10") int size,
+                            @RequestParam(value = "scroll", defaultValue = "false") boolean scroll) {
+        if (start == null && end == null)
+            throw new IllegalArgumentException("A time range needs a start or an end!");
+        return searchService.search(query(start, end, speakers, offset, size, scroll).build());
+    }
+
+    @RequestMapping(value = "/scroll", method = RequestMethod.GET)
+    public SearchPage scroll(@RequestParam("cursor") String cursor) {
+        return searchService.scroll(cursor);
+    }
+
+    @RequestMapping(value = "/scroll", method = RequestMethod.DELETE)
+    public void clearScroll(@RequestParam("cursor") String cursor) {
+        searchService.clearScroll(cursor);
+    }
+
+    @RequestMapping(value = "/stats", method = RequestMethod.GET)
+    public Map<String, Object> stats() {
+        return searchService.getStats();
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Map<String, String> badRequest(IllegalArgumentException e) {
+        return Collections.singletonMap("error", e.getMessage());
+    }
+
+    private LogQuery.Builder query(String start, String end, List<String> speakers, int offset, int size,
+                                   boolean scroll) {
+        return new LogQuery.Builder()
+                .startMillis(parseTime(start))
+                .endMillis(parseTime(end))
+                .speakers(speakers == null ? Collections.<String>emptyList() : speakers)
+                .offset(offset)
+                .size(size)
+                .scroll(scroll);
+    }
+
+    /**
+     * Parses a time given as ISO 8601 date time or epoch milliseconds.
+     *
+     * @param time The time, may be null.
+     * @return Epoch milliseconds, null if the time is null.
+     * @throws IllegalArgumentException if the time cannot be parsed.
+     */
+    static Long parseTime(String time) {
+        if (time == null)
+            return null;
+        if (!time.isEmpty() && time.chars().allMatch(Character::isDigit))
+            return Long.parseLong(time);
+        return TIME_PARSER.parseMillis(time);
+    }
+}
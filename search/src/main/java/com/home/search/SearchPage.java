@@ -0,0 +1,43 @@
+package com.home.search;
+
+import java.util.List;
+
+/**
+ * A page of documents found by a {@link LogQuery}.
+ */
+public class SearchPage {
+
+    private final long total;
+
+    private final long tookMillis;
+
+    private final List<LogHit> hits;
+
+    private final String cursor;
+
+    public SearchPage(final long total, final long tookMillis, final List<LogHit> hits, final String cursor) {
+        this.total      = total;
+        this.tookMillis = tookMillis;
+        this.hits       = hits;
+        this.cursor     = cursor;
+    }
+
+    /** Number of all documents matching the query. */
+    public long getTotal() {
+        return total;
+    }
+
+    /** Milliseconds between sending the request and receiving the response. */
+    public long getTookMillis() {
+        return tookMillis;
+    }
+
+    public List<LogHit> getHits() {
+        return hits;
+    }
+
+    /** Cursor of the next page of a scroll, null if there are no more documents or the query did not scroll. */
+    public String getCursor() {
+        return cursor;
+    }
+}
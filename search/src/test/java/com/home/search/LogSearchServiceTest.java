@@ -0,0 +1,181 @@
+package com.home.search;
+
+import com.home.extract.LogDocExtractorBuilder;
+import com.home.extract.SkypeLogDocExtractor;
+import com.home.index.IndexGeneration;
+import com.home.index.LogIndexer;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.node.Node;
+import org.elasticsearch.node.NodeBuilder;
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormat;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link LogSearchService} class against an embedded local elastic search node.
+ */
+public class LogSearchServiceTest {
+    private static final int CONVERSATIONS = 50;
+
+    private static final DateTime FIRST = new DateTime(2010, 1, 1, 0, 0);
+
+    @ClassRule
+    public static TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static Node node;
+
+    private static Client client;
+
+    private static LogSearchService searchService;
+
+    @BeforeClass
+    public static void startNode() throws IOException {
+        node = NodeBuilder.nodeBuilder().local(true).settings(Settings.settingsBuilder()
+                .put("path.home", temporaryFolder.newFolder().getPath())
+                .put("cluster.name", "search-test")
+                .put("http.enabled", false)).node();
+        client = node.client();
+        client.admin().cluster().prepareHealth().setWaitForYellowStatus().get();
+
+        LogIndexer.putMapping(client, "logindex", "skype");
+        LogIndexer logIndexer = new LogIndexer(SkypeLogDocExtractor.getInstance(writeLog().getPath(), 60,
+                "[dd.MM.yyyy HH:mm:ss]"), "logindex", "skype");
+        logIndexer.setClient(client);
+        assertEquals(CONVERSATIONS, logIndexer.indexDocs());
+        client.admin().indices().prepareRefresh("logindex").get();
+        searchService = new LogSearchService(client, "logindex");
+    }
+
+    @AfterClass
+    public static void stopNode() {
+        node.close();
+    }
+
+    /** Conversations two hours apart, Carl takes part in every fifth one. */
+    private static File writeLog() throws IOException {
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < CONVERSATIONS; ++i) {
+            DateTime start = FIRST.plusHours(2 * i);
+            log.append(line(start, "Anna", i == 0 ? "the quick brown fox" : "conversation " + i));
+            log.append(line(start.plusMinutes(1), "Bob", i == 1 ? "brown quick fox" : "answer " + i));
+            if (i % 5 == 0) {
+                log.append(line(start.plusMinutes(2), "Carl", "me too"));
+            }
+        }
+        File file = temporaryFolder.newFile("search.txt");
+        Files.write(file.toPath(), log.toString().getBytes());
+        return file;
+    }
+
+    private static String line(DateTime time, String speaker, String message) {
+        return time.toString(DateTimeFormat.forPattern("[dd.MM.yyyy HH:mm:ss]")) + " " + speaker + ": " + message + "\n";
+    }
+
+    @Test
+    public void test_text_and_phrase_search_with_highlights() {
+        SearchPage words = searchService.search(new LogQuery.Builder().text("quick fox").build());
+        assertEquals(2, words.getTotal());
+
+        SearchPage phrase = searchService.search(new LogQuery.Builder().phrase("quick brown").build());
+        assertEquals(1, phrase.getTotal());
+        LogHit hit = phrase.getHits().get(0);
+        assertEquals("0", hit.getId());
+        assertEquals(Arrays.asList("Anna", "Bob", "Carl"), hit.getSpeakers());
+        assertEquals(Integer.valueOf(3), hit.getLineCount());
+        assertTrue(hit.getHighlights().get(0).contains("<em>quick</em> <em>brown</em>"));
+    }
+
+    @Test
+    public void test_time_range_and_speaker_filters() {
+        long start = FIRST.plusHours(20).getMillis();
+        long end = FIRST.plusHours(24).getMillis();
+        SearchPage range = searchService.search(new LogQuery.Builder().startMillis(start).endMillis(end).build());
+        assertEquals(3, range.getTotal());
+        List<String> ids = new ArrayList<>();
+        for (LogHit hit : range.getHits()) {
+            ids.add(hit.getId());
+        }
+        assertEquals(Arrays.asList("10", "11", "12"), ids);
+
+        SearchPage carl = searchService.search(new LogQuery.Builder().speakers(Collections.singletonList("Carl"))
+                .build());
+        assertEquals(CONVERSATIONS / 5, carl.getTotal());
+        SearchPage carlInRange = searchService.search(new LogQuery.Builder()
+                .speakers(Collections.singletonList("Carl")).startMillis(start).endMillis(end).build());
+        assertEquals(1, carlInRange.getTotal());
+    }
+
+    @Test
+    public void test_scroll_returns_every_document_once() {
+        Set<String> ids = new HashSet<>();
+        SearchPage page = searchService.search(new LogQuery.Builder().startMillis(0L).size(7).scroll(true).build());
+        while (page.getCursor() != null) {
+            for (LogHit hit : page.getHits()) {
+                assertTrue(ids.add(hit.getId()));
+            }
+            page = searchService.scroll(page.getCursor());
+        }
+        assertEquals(CONVERSATIONS, ids.size());
+    }
+
+    @Test
+    public void test_latency_target() {
+        List<LogQuery> queries = Arrays.asList(
+                new LogQuery.Builder().text("answer").build(),
+                new LogQuery.Builder().phrase("me too").build(),
+                new LogQuery.Builder().startMillis(FIRST.plusHours(30).getMillis()).build(),
+                new LogQuery.Builder().speakers(Collections.singletonList("Bob")).text("conversation").build());
+        for (int i = 0; i < 20; ++i) {
+            searchService.search(queries.get(i % queries.size()));
+        }
+        long[] latencies = new long[200];
+        for (int i = 0; i < latencies.length; ++i) {
+            latencies[i] = searchService.search(queries.get(i % queries.size())).getTookMillis();
+        }
+        Arrays.sort(latencies);
+        long p95 = latencies[latencies.length * 95 / 100];
+        assertTrue("95th percentile " + p95 + " ms", p95 <= searchService.getTargetLatencyMillis());
+    }
+
+    @Test
+    public void test_cache_is_invalidated_by_bulk_load() throws IOException {
+        LogIndexer.putMapping(client, "cachetest", "skype");
+        LogSearchService cachedService = new LogSearchService(client, "cachetest");
+        cachedService.setCache(new SearchCache(1024 * 1024, 60000));
+        cachedService.checkGeneration();
+        LogQuery query = new LogQuery.Builder().text("Newcomer").build();
+        assertEquals(0, cachedService.search(query).getTotal());
+        assertEquals(0, cachedService.search(new LogQuery.Builder().text("  newcomer ").build()).getTotal());
+        assertEquals(1, cachedService.getCache().getHitCount());
+        assertFalse(cachedService.checkGeneration());
+
+        File log = temporaryFolder.newFile("newcomer.txt");
+        Files.write(log.toPath(), line(FIRST, "Dora", "newcomer").getBytes());
+        LogIndexer logIndexer = new LogIndexer(new LogDocExtractorBuilder(log.getPath(), 60).docIdPrefix("new:")
+                .build(), "cachetest", "skype");
+        logIndexer.setClient(client);
+        assertEquals(1, logIndexer.indexDocs());
+        assertFalse(cachedService.checkGeneration());
+        IndexGeneration.advance(client, "cachetest", "skype");
+        assertTrue(cachedService.checkGeneration());
+        assertEquals(1, cachedService.search(query).getTotal());
+        assertEquals(2, cachedService.getCache().getMissCount());
+    }
+}
@@ -0,0 +1,69 @@
+package com.home.search;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the {@link SearchCache} class.
+ */
+public class SearchCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Test
+    public void test_least_recently_used_page_is_evicted() {
+        SearchPage page = page("a");
+        SearchCache probe = new SearchCache(1024 * 1024, 1000, nanos::get);
+        probe.put("k1", page, probe.generation());
+        long pageBytes = probe.getBytes();
+
+        SearchCache cache = new SearchCache(2 * pageBytes, 1000, nanos::get);
+        cache.put("k1", page, cache.generation());
+        cache.put("k2", page, cache.generation());
+        assertSame(page, cache.get("k1"));
+        cache.put("k3", page, cache.generation());
+        assertNull(cache.get("k2"));
+        assertSame(page, cache.get("k1"));
+        assertSame(page, cache.get("k3"));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.getSize());
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.75, cache.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void test_expired_page_is_not_returned() {
+        SearchCache cache = new SearchCache(1024 * 1024, 1000, nanos::get);
+        cache.put("k", page("a"), cache.generation());
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        assertNotNull(cache.get("k"));
+        nanos.addAndGet(1);
+        assertNull(cache.get("k"));
+        assertEquals(0, cache.getBytes());
+    }
+
+    @Test
+    public void test_page_of_search_started_before_invalidation_is_dropped() {
+        SearchCache cache = new SearchCache(1024 * 1024, 1000, nanos::get);
+        cache.put("k", page("a"), cache.generation());
+        long generation = cache.generation();
+        cache.invalidate();
+        assertNull(cache.get("k"));
+        cache.put("k", page("b"), generation);
+        assertNull(cache.get("k"));
+        cache.put("k", page("c"), cache.generation());
+        assertEquals("c", cache.get("k").getHits().get(0).getId());
+    }
+
+    private static SearchPage page(String id) {
+        LogHit hit = new LogHit(id, 1.0f, 0L, 0L, 1, Collections.singletonList("Anna"),
+                Collections.singletonList("<em>hello</em>"));
+        return new SearchPage(1, 5, Collections.singletonList(hit), null);
+    }
+}